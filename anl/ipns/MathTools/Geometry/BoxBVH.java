@@ -0,0 +1,505 @@
+/*
+ * File:  BoxBVH.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ *
+ *  $Author$
+ *  $Date$
+ *  $Revision$
+ */
+
+package gov.anl.ipns.MathTools.Geometry;
+
+/**
+ *  This class is a bounding volume hierarchy for a list of oriented boxes
+ *  in 3D, such as the pixels of the detectors in an instrument.  It is
+ *  used to find the box that is hit first by a ray, for example the ray
+ *  from the observer through the pixel that was clicked on, without
+ *  drawing the scene and without checking every box.  Each box is given
+ *  by its center, the directions of its local x and y axes and its full
+ *  width along its local x, y and z axes, as in an IBoundsList3D.  The
+ *  hierarchy is a binary tree of axis aligned bounding boxes, made by
+ *  repeatedly splitting the boxes at the median of their centers, along
+ *  the direction in which the centers are most spread out.  A pick
+ *  visits the nearer child first and skips any node that the ray enters
+ *  after the closest hit found so far, so it typically takes O(log n)
+ *  steps.  The boxes are copied when the hierarchy is constructed, and
+ *  are not changed after that.
+ */
+public class BoxBVH
+{
+  private static final int MAX_BOXES_PER_LEAF = 4;
+  private static final int MAX_DEPTH          = 64;
+
+  private int   n_boxes;
+  private float center[];        // x, y, z of the center of each box
+  private float axes[];          // unit x, y and z axes of each box
+  private float half[];          // half widths along the local axes
+
+  private int   order[];         // box numbers, in the order of the leaves
+  private int   n_nodes = 0;
+  private float node_min[];      // corners of the bounding box of each node
+  private float node_max[];
+  private int   node_first[];    // for a leaf, the position in order[] of
+                                 // its first box, otherwise the node number
+                                 // of the second child.  The first child of
+                                 // an interior node is the next node.
+  private int   node_count[];    // number of boxes in a leaf, 0 otherwise
+
+
+  /* ----------------------------- constructor ----------------------------- */
+  /**
+   *  Construct the hierarchy for a list of boxes given by packed arrays,
+   *  with the x, y, z values for box i at positions 3*i, 3*i+1 and 3*i+2.
+   *  The local z axis of a box is the cross product of its x and y axes.
+   *  If the x and y axes of a box are not independent, the box is aligned
+   *  with the coordinate axes.  A width of zero is allowed, for example
+   *  for a flat rectangle.
+   *
+   *  @param  centers  The packed centers of the boxes.
+   *  @param  x_axes   The packed directions of the local x axes.
+   *  @param  y_axes   The packed directions of the local y axes.
+   *  @param  extents  The packed full widths of the boxes along their
+   *                   local x, y and z axes.
+   *  @param  n_boxes  The number of boxes.
+   *
+   *  @throws IllegalArgumentException If any array has fewer than
+   *          3*n_boxes entries, or if a width is negative.
+   */
+  public BoxBVH( float centers[],
+                 float x_axes[],
+                 float y_axes[],
+                 float extents[],
+                 int   n_boxes )
+  {
+    if ( n_boxes < 0                     ||
+         centers == null || centers.length < 3 * n_boxes ||
+         x_axes  == null || x_axes.length  < 3 * n_boxes ||
+         y_axes  == null || y_axes.length  < 3 * n_boxes ||
+         extents == null || extents.length < 3 * n_boxes  )
+      throw new IllegalArgumentException(
+                    "Arrays too short for " + n_boxes + " boxes in BoxBVH" );
+
+    this.n_boxes = n_boxes;
+    center = new float[ 3 * n_boxes ];
+    axes   = new float[ 9 * n_boxes ];
+    half   = new float[ 3 * n_boxes ];
+    System.arraycopy( centers, 0, center, 0, center.length );
+
+    for ( int i = 0; i < 3 * n_boxes; i++ )
+    {
+      if ( !( extents[i] >= 0 ) )
+        throw new IllegalArgumentException(
+                    "Negative width " + extents[i] + " in BoxBVH" );
+      half[i] = extents[i] / 2;
+    }
+
+    for ( int i = 0; i < n_boxes; i++ )
+      setAxes( i, x_axes, y_axes );
+
+    order = new int[ n_boxes ];
+    for ( int i = 0; i < n_boxes; i++ )
+      order[i] = i;
+                                         // each leaf except a root leaf has
+                                         // at least two boxes, so there are
+    int max_nodes = Math.max( 1, n_boxes );         // at most n_boxes nodes
+    node_min   = new float[ 3 * max_nodes ];
+    node_max   = new float[ 3 * max_nodes ];
+    node_first = new int[ max_nodes ];
+    node_count = new int[ max_nodes ];
+
+    if ( n_boxes > 0 )
+      build( 0, n_boxes - 1 );
+  }
+
+
+  /* ---------------------------- getNumBoxes ----------------------------- */
+  /**
+   *  Get the number of boxes in this hierarchy.
+   *
+   *  @return the number of boxes.
+   */
+  public int getNumBoxes()
+  {
+    return n_boxes;
+  }
+
+
+  /* -------------------------------- pick -------------------------------- */
+  /**
+   *  Find the box that is hit first by the ray origin + t * direction,
+   *  with t >= 0.  If the origin is inside of a box, that box is hit at
+   *  t = 0.  The direction does not need to be a unit vector.
+   *
+   *  @param  origin     Array with the x, y, z coordinates of the start
+   *                     of the ray.
+   *  @param  direction  Array with the x, y, z components of the direction
+   *                     of the ray.
+   *  @param  t          Array in which the value of t where the ray enters
+   *                     the box is returned in t[0], or null.
+   *
+   *  @return the number of the box that is hit first, or -1 if the ray
+   *          does not hit any box.
+   */
+  public int pick( float origin[], float direction[], float t[] )
+  {
+    if ( n_boxes == 0 )
+      return -1;
+
+    float ox = origin[0],
+          oy = origin[1],
+          oz = origin[2];
+    float dx = direction[0],
+          dy = direction[1],
+          dz = direction[2];
+    float inv_dx = 1 / dx,
+          inv_dy = 1 / dy,
+          inv_dz = 1 / dz;
+
+    int   best   = -1;
+    float best_t = Float.POSITIVE_INFINITY;
+
+    int   stack[]   = new int[ MAX_DEPTH ];
+    float stack_t[] = new float[ MAX_DEPTH ];
+    int   top = 0;
+
+    float root_t = hitNode( 0, ox, oy, oz, dx, dy, dz,
+                            inv_dx, inv_dy, inv_dz );
+    if ( root_t < best_t )
+    {
+      stack[0]   = 0;
+      stack_t[0] = root_t;
+      top = 1;
+    }
+
+    while ( top > 0 )
+    {
+      top--;
+      int node = stack[top];
+      if ( stack_t[top] >= best_t )          // can't be closer
+        continue;
+
+      if ( node_count[node] > 0 )            // leaf, so check the boxes
+      {
+        int last = node_first[node] + node_count[node];
+        for ( int k = node_first[node]; k < last; k++ )
+        {
+          int   box   = order[k];
+          float box_t = hitBox( box, ox, oy, oz, dx, dy, dz );
+          if ( box_t < best_t )
+          {
+            best_t = box_t;
+            best   = box;
+          }
+        }
+      }
+      else                                   // push the nearer child last,
+      {                                      // so that it is checked first
+        int   first  = node + 1;
+        int   second = node_first[node];
+        float t1 = hitNode( first, ox, oy, oz, dx, dy, dz,
+                            inv_dx, inv_dy, inv_dz );
+        float t2 = hitNode( second, ox, oy, oz, dx, dy, dz,
+                            inv_dx, inv_dy, inv_dz );
+        if ( t1 > t2 )
+        {
+          int   temp   = first;
+          float temp_t = t1;
+          first  = second;
+          t1     = t2;
+          second = temp;
+          t2     = temp_t;
+        }
+        if ( t2 < best_t )
+        {
+          stack[top]   = second;
+          stack_t[top] = t2;
+          top++;
+        }
+        if ( t1 < best_t )
+        {
+          stack[top]   = first;
+          stack_t[top] = t1;
+          top++;
+        }
+      }
+    }
+
+    if ( t != null )
+      t[0] = best_t;
+
+    return best;
+  }
+
+
+  /* ------------------------------- setAxes ------------------------------- */
+  /*
+   *  Set orthonormal x, y and z axes for box i, from the given x and y
+   *  directions.
+   */
+  private void setAxes( int i, float x_axes[], float y_axes[] )
+  {
+    float x0 = x_axes[3*i],
+          x1 = x_axes[3*i+1],
+          x2 = x_axes[3*i+2];
+    float y0 = y_axes[3*i],
+          y1 = y_axes[3*i+1],
+          y2 = y_axes[3*i+2];
+                                                        // z = x cross y
+    float z0 = x1 * y2 - x2 * y1,
+          z1 = x2 * y0 - x0 * y2,
+          z2 = x0 * y1 - x1 * y0;
+
+    float x_len = (float)Math.sqrt( x0 * x0 + x1 * x1 + x2 * x2 );
+    float z_len = (float)Math.sqrt( z0 * z0 + z1 * z1 + z2 * z2 );
+    if ( !( x_len > 0 ) || !( z_len > 0 ) )
+    {
+      x0 = 1; x1 = 0; x2 = 0;
+      z0 = 0; z1 = 0; z2 = 1;
+    }
+    else
+    {
+      x0 /= x_len; x1 /= x_len; x2 /= x_len;
+      z0 /= z_len; z1 /= z_len; z2 /= z_len;
+    }
+                                                        // y = z cross x
+    y0 = z1 * x2 - z2 * x1;
+    y1 = z2 * x0 - z0 * x2;
+    y2 = z0 * x1 - z1 * x0;
+
+    int k = 9 * i;
+    axes[k]   = x0; axes[k+1] = x1; axes[k+2] = x2;
+    axes[k+3] = y0; axes[k+4] = y1; axes[k+5] = y2;
+    axes[k+6] = z0; axes[k+7] = z1; axes[k+8] = z2;
+  }
+
+
+  /* -------------------------------- build -------------------------------- */
+  /*
+   *  Make the node for the boxes order[first], ..., order[last], and the
+   *  nodes below it.  Returns the number of the node.
+   */
+  private int build( int first, int last )
+  {
+    int node = n_nodes++;
+                                           // bounding box of the boxes and
+    float c_min[] = { Float.POSITIVE_INFINITY,       // of their centers
+                      Float.POSITIVE_INFINITY,
+                      Float.POSITIVE_INFINITY };
+    float c_max[] = { Float.NEGATIVE_INFINITY,
+                      Float.NEGATIVE_INFINITY,
+                      Float.NEGATIVE_INFINITY };
+    for ( int j = 0; j < 3; j++ )
+    {
+      node_min[ 3*node + j ] = Float.POSITIVE_INFINITY;
+      node_max[ 3*node + j ] = Float.NEGATIVE_INFINITY;
+    }
+
+    for ( int k = first; k <= last; k++ )
+    {
+      int box = order[k];
+      for ( int j = 0; j < 3; j++ )
+      {
+        float c = center[ 3*box + j ];
+        float r = Math.abs( axes[ 9*box + j     ] ) * half[ 3*box     ] +
+                  Math.abs( axes[ 9*box + j + 3 ] ) * half[ 3*box + 1 ] +
+                  Math.abs( axes[ 9*box + j + 6 ] ) * half[ 3*box + 2 ];
+        if ( c - r < node_min[ 3*node + j ] )
+          node_min[ 3*node + j ] = c - r;
+        if ( c + r > node_max[ 3*node + j ] )
+          node_max[ 3*node + j ] = c + r;
+        if ( c < c_min[j] )
+          c_min[j] = c;
+        if ( c > c_max[j] )
+          c_max[j] = c;
+      }
+    }
+
+    int count = last - first + 1;
+    if ( count <= MAX_BOXES_PER_LEAF )
+    {
+      node_first[node] = first;
+      node_count[node] = count;
+      return node;
+    }
+
+    int axis = 0;
+    for ( int j = 1; j < 3; j++ )
+      if ( c_max[j] - c_min[j] > c_max[axis] - c_min[axis] )
+        axis = j;
+
+    int mid = ( first + last + 1 ) / 2;
+    select( first, last, mid, axis );
+
+    node_count[node] = 0;
+    build( first, mid - 1 );
+    node_first[node] = build( mid, last );
+    return node;
+  }
+
+
+  /* ------------------------------- select -------------------------------- */
+  /*
+   *  Rearrange order[first], ..., order[last] so that the box at position
+   *  k has the k-th smallest center coordinate along the specified axis,
+   *  with smaller or equal coordinates before it and larger or equal
+   *  coordinates after it.
+   */
+  private void select( int first, int last, int k, int axis )
+  {
+    while ( first < last )
+    {
+      float pivot = center[ 3 * order[ ( first + last ) >>> 1 ] + axis ];
+      int   i = first;
+      int   j = last;
+      while ( i <= j )
+      {
+        while ( center[ 3 * order[i] + axis ] < pivot )
+          i++;
+        while ( center[ 3 * order[j] + axis ] > pivot )
+          j--;
+        if ( i <= j )
+        {
+          int temp = order[i];
+          order[i] = order[j];
+          order[j] = temp;
+          i++;
+          j--;
+        }
+      }
+      if ( k <= j )
+        last = j;
+      else if ( k >= i )
+        first = i;
+      else
+        return;
+    }
+  }
+
+
+  /* ------------------------------- hitNode ------------------------------- */
+  /*
+   *  Get the value of t where the ray enters the bounding box of a node,
+   *  or +infinity if the ray misses it.
+   */
+  private float hitNode( int node,
+                         float ox, float oy, float oz,
+                         float dx, float dy, float dz,
+                         float inv_dx, float inv_dy, float inv_dz )
+  {
+    float t_near = 0;
+    float t_far  = Float.POSITIVE_INFINITY;
+    int   k = 3 * node;
+
+    if ( dx == 0 )
+    {
+      if ( ox < node_min[k] || ox > node_max[k] )
+        return Float.POSITIVE_INFINITY;
+    }
+    else
+    {
+      float t1 = ( node_min[k] - ox ) * inv_dx;
+      float t2 = ( node_max[k] - ox ) * inv_dx;
+      t_near = Math.max( t_near, Math.min( t1, t2 ) );
+      t_far  = Math.min( t_far,  Math.max( t1, t2 ) );
+    }
+
+    if ( dy == 0 )
+    {
+      if ( oy < node_min[k+1] || oy > node_max[k+1] )
+        return Float.POSITIVE_INFINITY;
+    }
+    else
+    {
+      float t1 = ( node_min[k+1] - oy ) * inv_dy;
+      float t2 = ( node_max[k+1] - oy ) * inv_dy;
+      t_near = Math.max( t_near, Math.min( t1, t2 ) );
+      t_far  = Math.min( t_far,  Math.max( t1, t2 ) );
+    }
+
+    if ( dz == 0 )
+    {
+      if ( oz < node_min[k+2] || oz > node_max[k+2] )
+        return Float.POSITIVE_INFINITY;
+    }
+    else
+    {
+      float t1 = ( node_min[k+2] - oz ) * inv_dz;
+      float t2 = ( node_max[k+2] - oz ) * inv_dz;
+      t_near = Math.max( t_near, Math.min( t1, t2 ) );
+      t_far  = Math.min( t_far,  Math.max( t1, t2 ) );
+    }
+
+    if ( t_near > t_far )
+      return Float.POSITIVE_INFINITY;
+
+    return t_near;
+  }
+
+
+  /* -------------------------------- hitBox ------------------------------- */
+  /*
+   *  Get the value of t where the ray enters the specified box, or
+   *  +infinity if the ray misses it.  The ray is expressed in terms of
+   *  the local axes of the box, centered at the center of the box.
+   */
+  private float hitBox( int box,
+                        float ox, float oy, float oz,
+                        float dx, float dy, float dz )
+  {
+    float px = ox - center[ 3*box     ];
+    float py = oy - center[ 3*box + 1 ];
+    float pz = oz - center[ 3*box + 2 ];
+
+    float t_near = 0;
+    float t_far  = Float.POSITIVE_INFINITY;
+    for ( int j = 0; j < 3; j++ )
+    {
+      int   k = 9 * box + 3 * j;
+      float o = axes[k] * px + axes[k+1] * py + axes[k+2] * pz;
+      float d = axes[k] * dx + axes[k+1] * dy + axes[k+2] * dz;
+      float h = half[ 3 * box + j ];
+      if ( d == 0 )
+      {
+        if ( o < -h || o > h )
+          return Float.POSITIVE_INFINITY;
+      }
+      else
+      {
+        float t1 = ( -h - o ) / d;
+        float t2 = (  h - o ) / d;
+        t_near = Math.max( t_near, Math.min( t1, t2 ) );
+        t_far  = Math.min( t_far,  Math.max( t1, t2 ) );
+        if ( t_near > t_far )
+          return Float.POSITIVE_INFINITY;
+      }
+    }
+
+    return t_near;
+  }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * File: PickRay.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ *
+ *  $Author$
+ *  $Date$
+ *  $Revision$
+ */
+
+package gov.anl.ipns.MathTools.Geometry;
+
+/**
+ *  This class calculates the ray in world coordinates through a pixel of
+ *  a 3D view, from the camera position, view reference point, view up
+ *  vector and view angle, for the same projections that are set up with
+ *  gluLookAt() and gluPerspective(), or glOrtho() with the half height
+ *  tan(view_angle/2) times the distance from the camera to the view
+ *  reference point.  This is done on the CPU, without rendering the scene
+ *  or reading back the depth buffer, so the ray can be passed to a BoxBVH
+ *  to find the object under the cursor on each mouse event.
+ */
+public class PickRay
+{
+
+  /**
+   *  Don't allow instantiation of this class, it just has static methods.
+   */
+  private PickRay()
+  {
+  }
+
+
+  /* ----------------------------- calculate ------------------------------ */
+  /**
+   *  Calculate the ray through the specified pixel.  For a perspective
+   *  projection, the ray starts at the center of projection.  For an
+   *  orthographic projection, the ray starts at the point in the plane
+   *  through the center of projection that is at the pixel, and is
+   *  parallel to the viewing direction.
+   *
+   *  @param  cop          The center of projection, i.e. the camera position
+   *  @param  vrp          The view reference point the camera looks at
+   *  @param  vuv          The view up vector
+   *  @param  view_angle   The full vertical view angle, in degrees
+   *  @param  perspective  true for a perspective projection, false for
+   *                       an orthographic projection
+   *  @param  width        The width of the view, in pixels
+   *  @param  height       The height of the view, in pixels
+   *  @param  x            The pixel x (i.e. column) value
+   *  @param  y            The pixel y (i.e. row) value, in window
+   *                       coordinates, with row 0 at the top.
+   *  @param  origin       Array in which the x, y, z coordinates of the
+   *                       start of the ray are returned.
+   *  @param  direction    Array in which the x, y, z components of the
+   *                       direction of the ray are returned.  This is not
+   *                       a unit vector for a perspective projection, but
+   *                       its component along the viewing direction is 1,
+   *                       so origin + t * direction is at distance t from
+   *                       the camera along the viewing direction, as used
+   *                       for the near and far clipping planes.
+   *
+   *  @return true if the ray was calculated, or false if the view has
+   *          zero size, or the cop, vrp and vuv do not determine a view.
+   */
+  public static boolean calculate( Vector3D cop,
+                                   Vector3D vrp,
+                                   Vector3D vuv,
+                                   float    view_angle,
+                                   boolean  perspective,
+                                   int      width,
+                                   int      height,
+                                   float    x,
+                                   float    y,
+                                   float    origin[],
+                                   float    direction[] )
+  {
+    if ( width <= 0 || height <= 0 || cop == null || vrp == null || vuv == null)
+      return false;
+                                                  // viewing direction and the
+    Vector3D forward = new Vector3D( vrp );       // directions to the right
+    forward.subtract( cop );                      // and up on the screen, as
+    float distance = forward.length();            // in gluLookAt()
+    if ( !( distance > 0 ) )
+      return false;
+    forward.normalize();
+
+    Vector3D right = new Vector3D( forward );
+    right.cross( vuv );
+    if ( !( right.length() > 0 ) )
+      return false;
+    right.normalize();
+
+    Vector3D up = new Vector3D( right );
+    up.cross( forward );
+                                                  // pixel position in the
+    float ndc_x = 2 * x / width - 1;              // range [-1,1], with y up
+    float ndc_y = 1 - 2 * y / height;
+
+    float half_h = (float)Math.tan( Math.PI * view_angle/2 / 180 );
+    if ( !perspective )
+      half_h *= distance;
+    float half_w = half_h * width/(float)height;
+
+    float screen[] = new float[3];                // offset from the center
+    float r[] = right.get();                      // of the view to the pixel
+    float u[] = up.get();
+    for ( int i = 0; i < 3; i++ )
+      screen[i] = ndc_x * half_w * r[i] + ndc_y * half_h * u[i];
+
+    float c[] = cop.get();
+    float f[] = forward.get();
+    for ( int i = 0; i < 3; i++ )
+    {
+      if ( perspective )
+      {
+        origin[i]    = c[i];
+        direction[i] = f[i] + screen[i];
+      }
+      else
+      {
+        origin[i]    = c[i] + screen[i];
+        direction[i] = f[i];
+      }
+    }
+
+    return true;
+  }
+
+}
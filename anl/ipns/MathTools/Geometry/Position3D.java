@@ -444,39 +444,41 @@ public class Position3D implements Serializable,
   { 
     try
     {
-      String Tag = xml_utils.getTag(stream);
+      XmlTokenizer xml = XmlTokenizer.getTokenizer( stream );
+
+      String Tag = xml.getTag();
       if( Tag == null)
-        return xml_utils.setError( xml_utils.getErrorMessage());
+        return xml_utils.setError( xml.getErrorMessage());
       if( !Tag.equals("sph_radius"))
         return xml_utils.setError("AWrong tag order in Pos3D"+Tag);
-      String vString = xml_utils.getValue(stream);
+      String vString = xml.getValue();
       if(vString == null)
-        return xml_utils.setError(xml_utils.getErrorMessage());
+        return xml_utils.setError(xml.getErrorMessage());
       this.sph_radius =(new Float(vString)).floatValue();
 
-      Tag = xml_utils.getTag(stream);
+      Tag = xml.getTag();
       if( Tag == null)
-        return xml_utils.setError( xml_utils.getErrorMessage());
+        return xml_utils.setError( xml.getErrorMessage());
       if( !Tag.equals("azimuth_angle"))
         return xml_utils.setError("BWrong tag order in Pos3D"+Tag);
-      vString = xml_utils.getValue(stream);
+      vString = xml.getValue();
       if(vString == null)
-        return xml_utils.setError(xml_utils.getErrorMessage());
+        return xml_utils.setError(xml.getErrorMessage());
       this.azimuth_angle =(new Float(vString)).floatValue();
 
-      Tag = xml_utils.getTag(stream);
+      Tag = xml.getTag();
       if( Tag == null)
-        return xml_utils.setError( xml_utils.getErrorMessage());
+        return xml_utils.setError( xml.getErrorMessage());
       if( !Tag.equals("polar_angle"))
         return xml_utils.setError("CWrong tag order in Pos3D"+Tag);
-      vString = xml_utils.getValue(stream);
+      vString = xml.getValue();
       if(vString == null)
-        return xml_utils.setError(xml_utils.getErrorMessage());
+        return xml_utils.setError(xml.getErrorMessage());
       this.polar_angle =(new Float(vString)).floatValue();
 
-      Tag = xml_utils.getTag(stream);
+      Tag = xml.getTag();
       if( Tag == null)
-        return xml_utils.setError( xml_utils.getErrorMessage());
+        return xml_utils.setError( xml.getErrorMessage());
       if( !Tag.equals("/DetectorPosition"))
         return xml_utils.setError("No End tag in Pos3D");
       return true;
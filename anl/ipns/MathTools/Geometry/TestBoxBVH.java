@@ -0,0 +1,189 @@
+/*
+ * File: TestBoxBVH.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ *
+ *  $Author$
+ *  $Date$
+ *  $Revision$
+ */
+
+package gov.anl.ipns.MathTools.Geometry;
+
+import java.util.*;
+
+/**
+ *  Test of picking with a BoxBVH.  This makes a cylinder of 10^6 small,
+ *  tilted pixels around the origin (or the number given on the command
+ *  line), like the detectors of an instrument, and picks along random
+ *  rays from a point outside of the cylinder.  The box that is hit is
+ *  compared with the result of checking every box, using a separate
+ *  calculation of where a ray hits a box in terms of its corners, and
+ *  the times for both are shown.
+ */
+public class TestBoxBVH
+{
+  private static final int N_PICKS = 1000;
+
+
+  /*
+   *  Find where the ray hits the box with the specified center, axes and
+   *  half widths, using the planes of the faces.  Returns +infinity if
+   *  the ray misses the box.
+   */
+  private static float hit( Vector3D origin, Vector3D dir,
+                            Vector3D c, Vector3D axes[], float half[] )
+  {
+    float t_near = 0;
+    float t_far  = Float.POSITIVE_INFINITY;
+    for ( int j = 0; j < 3; j++ )
+    {
+      Vector3D diff = new Vector3D( c );
+      diff.subtract( origin );
+      float e = axes[j].dot( diff );
+      float f = axes[j].dot( dir );
+      if ( f == 0 )
+      {
+        if ( Math.abs( e ) > half[j] )
+          return Float.POSITIVE_INFINITY;
+      }
+      else
+      {
+        float t1 = ( e - half[j] ) / f;
+        float t2 = ( e + half[j] ) / f;
+        t_near = Math.max( t_near, Math.min( t1, t2 ) );
+        t_far  = Math.min( t_far,  Math.max( t1, t2 ) );
+      }
+    }
+    return t_near <= t_far ? t_near : Float.POSITIVE_INFINITY;
+  }
+
+
+  public static void main( String args[] )
+  {
+    int n_boxes = 1000000;
+    if ( args.length > 0 )
+      n_boxes = Integer.parseInt( args[0] );
+
+    Random random  = new Random( 1 );
+    float centers[] = new float[ 3 * n_boxes ];
+    float x_axes[]  = new float[ 3 * n_boxes ];
+    float y_axes[]  = new float[ 3 * n_boxes ];
+    float extents[] = new float[ 3 * n_boxes ];
+    for ( int i = 0; i < n_boxes; i++ )
+    {
+      double angle = 2 * Math.PI * random.nextDouble();
+      float  tilt  = 0.2f * ( random.nextFloat() - 0.5f );
+      centers[3*i]   = (float)( 3 * Math.cos( angle ) );
+      centers[3*i+1] = (float)( 3 * Math.sin( angle ) );
+      centers[3*i+2] = 4 * random.nextFloat() - 2;
+      x_axes[3*i]    = (float)-Math.sin( angle );
+      x_axes[3*i+1]  = (float) Math.cos( angle );
+      x_axes[3*i+2]  = tilt;
+      y_axes[3*i+2]  = 1;
+      extents[3*i]   = 0.02f;
+      extents[3*i+1] = 0.02f;
+      extents[3*i+2] = ( i % 3 == 0 ) ? 0 : 0.01f;
+    }
+
+    long start = System.nanoTime();
+    BoxBVH bvh = new BoxBVH( centers, x_axes, y_axes, extents, n_boxes );
+    long build = System.nanoTime() - start;
+                                            // the boxes as Vector3D objects
+    Vector3D c[]    = new Vector3D[ n_boxes ];
+    Vector3D axes[][] = new Vector3D[ n_boxes ][];
+    float    half[][] = new float[ n_boxes ][];
+    for ( int i = 0; i < n_boxes; i++ )
+    {
+      c[i] = new Vector3D( centers[3*i], centers[3*i+1], centers[3*i+2] );
+      Vector3D x = new Vector3D( x_axes[3*i], x_axes[3*i+1], x_axes[3*i+2] );
+      Vector3D y = new Vector3D( y_axes[3*i], y_axes[3*i+1], y_axes[3*i+2] );
+      x.normalize();
+      Vector3D z = new Vector3D( x );
+      z.cross( y );
+      z.normalize();
+      y = new Vector3D( z );
+      y.cross( x );
+      axes[i] = new Vector3D[]{ x, y, z };
+      half[i] = new float[]{ extents[3*i] / 2,
+                             extents[3*i+1] / 2,
+                             extents[3*i+2] / 2 };
+    }
+
+    float    origin[] = { 10, 1, 0.5f };
+    Vector3D from     = new Vector3D( origin );
+    float    t[]      = new float[1];
+    int      n_hits   = 0;
+    int      n_differ = 0;
+    long     by_bvh   = 0;
+    long     by_all   = 0;
+    for ( int k = 0; k < N_PICKS; k++ )
+    {                                       // aim at a random box, so that
+      int target = random.nextInt( n_boxes );               // most rays hit
+      float dir[] = { centers[3*target]   - origin[0] + 0.01f *
+                                            ( random.nextFloat() - 0.5f ),
+                      centers[3*target+1] - origin[1],
+                      centers[3*target+2] - origin[2] + 0.01f *
+                                            ( random.nextFloat() - 0.5f ) };
+      start = System.nanoTime();
+      int box = bvh.pick( origin, dir, t );
+      by_bvh += System.nanoTime() - start;
+
+      start = System.nanoTime();
+      Vector3D to     = new Vector3D( dir );
+      int      best   = -1;
+      float    best_t = Float.POSITIVE_INFINITY;
+      for ( int i = 0; i < n_boxes; i++ )
+      {
+        float t_i = hit( from, to, c[i], axes[i], half[i] );
+        if ( t_i < best_t )
+        {
+          best_t = t_i;
+          best   = i;
+        }
+      }
+      by_all += System.nanoTime() - start;
+
+      if ( best >= 0 )
+        n_hits++;
+      if ( box != best &&                   // allow a different box that is
+           ( box < 0 || best < 0 ||         // hit at the same place
+             Math.abs( t[0] - best_t ) > 1.0e-5f * best_t ) )
+        n_differ++;
+    }
+
+    System.out.println( n_boxes + " boxes, built in " +
+                        build / 1000000 + " ms" );
+    System.out.println( "  " + N_PICKS + " picks, " + n_hits + " hits, " +
+                        n_differ + " differ" );
+    System.out.println( "  BoxBVH.pick() : " +
+                        by_bvh / N_PICKS / 1000.0f + " us per pick" );
+    System.out.println( "  all boxes     : " +
+                        by_all / N_PICKS / 1000.0f + " us per pick" );
+  }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * File: TestTran3D.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ *
+ *  $Author$
+ *  $Date$
+ *  $Revision$
+ */
+
+package gov.anl.ipns.MathTools.Geometry;
+
+import java.util.*;
+
+/**
+ *  Throughput test for projecting a large number of points with Tran3D.
+ *  This projects 10^6 random points (or the number given on the command
+ *  line) using a perspective viewing transform, in four ways:
+ *  apply_to() and standardize() on each Vector3D, as was done by
+ *  ThreeD_Object.Project(), project_to() on the array of Vector3D
+ *  objects, apply_to() on packed x,y,z values and project_to() on packed
+ *  x,y,z values, including the mapping to pixel coordinates.  Each time
+ *  is the best of several repetitions, after a warm up, and the results
+ *  are checked against the first method.
+ */
+public class TestTran3D
+{
+  private static final int N_REPS = 10;
+
+  private static float x_scale  =  250,          // window map for a 500x500
+                       x_offset =  250,          // window showing the
+                       y_scale  = -250,          // virtual screen [-1,1]^2
+                       y_offset =  250;
+
+  private static float max_diff = 0;
+
+
+  /*
+   *  Keep track of the largest difference between results, relative to
+   *  the size of the values.
+   */
+  private static void check( float expected, float value )
+  {
+    float diff = Math.abs( expected - value ) /
+                 Math.max( 1, Math.abs( expected ) );
+    if ( diff > max_diff )
+      max_diff = diff;
+  }
+
+
+  /*
+   *  Print the throughput for the best time.
+   */
+  private static void show( String name, long best, int n_points )
+  {
+    System.out.println( name + best / 1000 + " us, " +
+                        Math.round( n_points * 1000.0 / best ) +
+                        " M vertices/s" );
+  }
+
+
+  public static void main( String args[] )
+  {
+    int n_points = 1000000;
+    if ( args.length > 0 )
+      n_points = Integer.parseInt( args[0] );
+
+    Tran3D tran = new Tran3D();
+    tran.setViewMatrix( new Vector3D( 5, 4, 10 ),
+                        new Vector3D( 0, 0, 0 ),
+                        new Vector3D( 0, 1, 0 ),
+                        true );
+
+    Random     random = new Random( 1 );
+    Vector3D   verts[] = new Vector3D[ n_points ];
+    float      xyz[]   = new float[ 3 * n_points ];
+    for ( int i = 0; i < n_points; i++ )
+    {
+      verts[i] = new Vector3D( 2 * random.nextFloat() - 1,
+                               2 * random.nextFloat() - 1,
+                               2 * random.nextFloat() - 1 );
+      xyz[3*i]   = verts[i].getX();
+      xyz[3*i+1] = verts[i].getY();
+      xyz[3*i+2] = verts[i].getZ();
+    }
+
+    float x[]        = new float[ n_points ];
+    float y[]        = new float[ n_points ];
+    float z[]        = new float[ n_points ];
+    float x2[]       = new float[ n_points ];
+    float y2[]       = new float[ n_points ];
+    float z2[]       = new float[ n_points ];
+    float xyz_out[]  = new float[ 3 * n_points ];
+
+    long by_vector = Long.MAX_VALUE;
+    long to_arrays = Long.MAX_VALUE;
+    long packed    = Long.MAX_VALUE;
+    long to_pixels = Long.MAX_VALUE;
+    for ( int rep = 0; rep <= N_REPS; rep++ )
+    {
+      long start = System.nanoTime();
+      Vector3D point = new Vector3D();
+      float    coords[];
+      for ( int i = 0; i < n_points; i++ )
+      {
+        tran.apply_to( verts[i], point );
+        point.standardize();
+        coords = point.get();
+        x[i] = coords[0];
+        y[i] = coords[1];
+        z[i] = coords[2];
+      }
+      long time = System.nanoTime() - start;
+      if ( rep > 0 )
+        by_vector = Math.min( by_vector, time );
+
+      start = System.nanoTime();
+      tran.project_to( verts, x2, y2, z2 );
+      time = System.nanoTime() - start;
+      if ( rep > 0 )
+        to_arrays = Math.min( to_arrays, time );
+
+      start = System.nanoTime();
+      tran.apply_to( xyz, xyz_out, n_points );
+      time = System.nanoTime() - start;
+      if ( rep > 0 )
+        packed = Math.min( packed, time );
+
+      start = System.nanoTime();
+      tran.project_to( xyz, n_points, x2, y2, z2,
+                       x_scale, x_offset, y_scale, y_offset );
+      time = System.nanoTime() - start;
+      if ( rep > 0 )
+        to_pixels = Math.min( to_pixels, time );
+    }
+
+    tran.project_to( verts, x2, y2, z2 );
+    for ( int i = 0; i < n_points; i++ )
+    {
+      check( x[i], x2[i] );
+      check( y[i], y2[i] );
+      check( z[i], z2[i] );
+      check( x[i], xyz_out[3*i] );
+      check( y[i], xyz_out[3*i+1] );
+      check( z[i], xyz_out[3*i+2] );
+    }
+
+    tran.project_to( xyz, n_points, x2, y2, z2,
+                     x_scale, x_offset, y_scale, y_offset );
+    for ( int i = 0; i < n_points; i++ )
+    {
+      check( x_scale * x[i] + x_offset, x2[i] );
+      check( y_scale * y[i] + y_offset, y2[i] );
+      check( z[i], z2[i] );
+    }
+
+    System.out.println( n_points + " vertices" );
+    show( "  apply_to(Vector3D,Vector3D) : ", by_vector, n_points );
+    show( "  project_to(Vector3D[],...)  : ", to_arrays, n_points );
+    show( "  apply_to(float[],float[])   : ", packed,    n_points );
+    show( "  project_to(float[],...)     : ", to_pixels, n_points );
+    System.out.println( "  largest relative difference " + max_diff );
+  }
+
+}
@@ -92,7 +92,9 @@ import gov.anl.ipns.MathTools.*;
  *  This class represents basic transformations of Vector3D objects, such
  *  as translation, rotation, scaling, 3D viewing & projection, as well as
  *  arbitrary 4x4 linear transformations.  Methods to apply the transformation
- *  to a single Vector3D or an array of Vector3D objects are also provided.
+ *  to a single Vector3D or an array of Vector3D objects are also provided,
+ *  along with methods that transform or project many points stored in
+ *  float arrays without creating objects.
  */
 public class Tran3D implements java.io.Serializable
 {
@@ -627,17 +629,15 @@ public class Tran3D implements java.io.Serializable
       return;
     }
 
-    int   row;
+    float x = v1.x;                      // v1 and v2 may be the same
+    float y = v1.y;                      // vector, so use local copies
+    float z = v1.z;
+    float w = v1.w;
 
-    float[] temp = new float[4];
-    for ( row = 0; row < 4; row++ )
-    {
-      temp[row] = a[row][0] * v1.x +
-                  a[row][1] * v1.y +
-                  a[row][2] * v1.z +
-                  a[row][3] * v1.w;
-    }
-    v2.set(temp);
+    v2.x = a[0][0] * x + a[0][1] * y + a[0][2] * z + a[0][3] * w;
+    v2.y = a[1][0] * x + a[1][1] * y + a[1][2] * z + a[1][3] * w;
+    v2.z = a[2][0] * x + a[2][1] * y + a[2][2] * z + a[2][3] * w;
+    v2.w = a[3][0] * x + a[3][1] * y + a[3][2] * z + a[3][3] * w;
   }
 
   /*-------------------------- apply_to -------------------------------*/
@@ -662,6 +662,163 @@ public class Tran3D implements java.io.Serializable
   }
 
 
+  /*-------------------------- apply_to -------------------------------*/
+  /**
+   *  Apply this transformation to a list of points stored in an array
+   *  of packed x,y,z values, placing the results in a second array.  Each
+   *  point is treated as the homogeneous point ( x, y, z, 1 ) and the 
+   *  result is standardized, ( i.e. divided by its fourth component ), 
+   *  before it is stored.  For the usual rotations, translations and 
+   *  scalings, the fourth component is always 1.  No objects are created,
+   *  so this should be used instead of the Vector3D form when many points
+   *  are transformed.  The two arrays may be the same array.
+   *
+   *  @param  xyz_in   Array with x,y,z values for the points to transform.
+   *  @param  xyz_out  Array that is set to the x,y,z values of the 
+   *                   transformed points.
+   *  @param  count    The number of points to transform.  Both arrays must
+   *                   have at least 3*count entries.
+   */
+  public void apply_to( float xyz_in[], float xyz_out[], int count )
+  {
+    if ( xyz_in == null || xyz_out == null || count < 0 ||
+         xyz_in.length < 3 * count || xyz_out.length < 3 * count )
+    {
+      System.out.println("Error in Tran3D.apply_to: invalid arrays" );
+      return;
+    }
+
+    float a00 = a[0][0], a01 = a[0][1], a02 = a[0][2], a03 = a[0][3];
+    float a10 = a[1][0], a11 = a[1][1], a12 = a[1][2], a13 = a[1][3];
+    float a20 = a[2][0], a21 = a[2][1], a22 = a[2][2], a23 = a[2][3];
+    float a30 = a[3][0], a31 = a[3][1], a32 = a[3][2], a33 = a[3][3];
+
+    float x, y, z, inv_w;
+    int   n = 3 * count;
+    for ( int j = 0; j < n; j += 3 )
+    {
+      x = xyz_in[j];
+      y = xyz_in[j+1];
+      z = xyz_in[j+2];
+      inv_w = 1 / ( a30 * x + a31 * y + a32 * z + a33 );
+      xyz_out[j]   = ( a00 * x + a01 * y + a02 * z + a03 ) * inv_w;
+      xyz_out[j+1] = ( a10 * x + a11 * y + a12 * z + a13 ) * inv_w;
+      xyz_out[j+2] = ( a20 * x + a21 * y + a22 * z + a23 ) * inv_w;
+    }
+  }
+
+
+  /*-------------------------- project_to -----------------------------*/
+  /**
+   *  Apply this transformation to each vector in the array verts and
+   *  store the x, y and z components of the standardized results, ( i.e.
+   *  divided by the fourth component ), in separate arrays.  This is the
+   *  same as calling apply_to() and standardize() for each vector and 
+   *  then getting the coordinates, but does not create any objects.  For
+   *  a viewing/projection transform, x and y are the coordinates on the
+   *  virtual screen and z gives the depth.
+   *
+   *  @param  verts  The array of vectors to transform.
+   *  @param  x      Array that is set to the x values of the results.
+   *  @param  y      Array that is set to the y values of the results.
+   *  @param  z      Array that is set to the z values of the results.
+   */
+  public void project_to( Vector3D verts[], float x[], float y[], float z[] )
+  {
+    if ( verts == null || x == null || y == null || z == null ||
+         x.length < verts.length || 
+         y.length < verts.length || 
+         z.length < verts.length )
+    {
+      System.out.println("Error in Tran3D.project_to: invalid arrays" );
+      return;
+    }
+
+    float a00 = a[0][0], a01 = a[0][1], a02 = a[0][2], a03 = a[0][3];
+    float a10 = a[1][0], a11 = a[1][1], a12 = a[1][2], a13 = a[1][3];
+    float a20 = a[2][0], a21 = a[2][1], a22 = a[2][2], a23 = a[2][3];
+    float a30 = a[3][0], a31 = a[3][1], a32 = a[3][2], a33 = a[3][3];
+
+    Vector3D v;
+    float    inv_w;
+    for ( int i = 0; i < verts.length; i++ )
+    {
+      v = verts[i];
+      inv_w = 1 / ( a30 * v.x + a31 * v.y + a32 * v.z + a33 * v.w );
+      x[i] = ( a00 * v.x + a01 * v.y + a02 * v.z + a03 * v.w ) * inv_w;
+      y[i] = ( a10 * v.x + a11 * v.y + a12 * v.z + a13 * v.w ) * inv_w;
+      z[i] = ( a20 * v.x + a21 * v.y + a22 * v.z + a23 * v.w ) * inv_w;
+    }
+  }
+
+
+  /*-------------------------- project_to -----------------------------*/
+  /**
+   *  Project a list of points, stored as packed x,y,z values, onto pixel
+   *  coordinates in one pass.  Each point ( x, y, z, 1 ) is transformed 
+   *  by this viewing/projection transform and standardized, giving the 
+   *  point ( u, v ) on the virtual screen and the depth value.  The point
+   *  ( u, v ) is then mapped to the pixel coordinates
+   *
+   *    ( x_scale * u + x_offset,  y_scale * v + y_offset ),
+   *
+   *  which is how a CoordTransform maps the virtual screen to a window.
+   *  For a CoordTransform t, the offsets are t.MapXTo(0) and t.MapYTo(0) 
+   *  and the scale factors are t.MapXTo(1) - t.MapXTo(0) and 
+   *  t.MapYTo(1) - t.MapYTo(0).  No objects are created.
+   *
+   *  @param  xyz       Array with x,y,z values for the points to project.
+   *  @param  count     The number of points to project.
+   *  @param  pix_x     Array that is set to the pixel x values.
+   *  @param  pix_y     Array that is set to the pixel y values.
+   *  @param  depth     Array that is set to the depth values, which 
+   *                    increase as the point gets closer to the observer.
+   *  @param  x_scale   Scale factor from virtual screen x to pixel x.
+   *  @param  x_offset  Pixel x value for virtual screen x = 0.
+   *  @param  y_scale   Scale factor from virtual screen y to pixel y.
+   *  @param  y_offset  Pixel y value for virtual screen y = 0.
+   */
+  public void project_to( float xyz[],   int   count, 
+                          float pix_x[], float pix_y[], float depth[],
+                          float x_scale, float x_offset,
+                          float y_scale, float y_offset )
+  {
+    if ( xyz == null || pix_x == null || pix_y == null || depth == null ||
+         count < 0 || xyz.length < 3 * count || pix_x.length < count ||
+         pix_y.length < count || depth.length < count )
+    {
+      System.out.println("Error in Tran3D.project_to: invalid arrays" );
+      return;
+    }
+                                         // fold the window mapping into the
+                                         // first two rows of the matrix,
+                                         // since it commutes with dividing
+                                         // by w.
+    float a00 = x_scale * a[0][0] + x_offset * a[3][0];
+    float a01 = x_scale * a[0][1] + x_offset * a[3][1];
+    float a02 = x_scale * a[0][2] + x_offset * a[3][2];
+    float a03 = x_scale * a[0][3] + x_offset * a[3][3];
+    float a10 = y_scale * a[1][0] + y_offset * a[3][0];
+    float a11 = y_scale * a[1][1] + y_offset * a[3][1];
+    float a12 = y_scale * a[1][2] + y_offset * a[3][2];
+    float a13 = y_scale * a[1][3] + y_offset * a[3][3];
+    float a20 = a[2][0], a21 = a[2][1], a22 = a[2][2], a23 = a[2][3];
+    float a30 = a[3][0], a31 = a[3][1], a32 = a[3][2], a33 = a[3][3];
+
+    float x, y, z, inv_w;
+    for ( int i = 0, j = 0; i < count; i++, j += 3 )
+    {
+      x = xyz[j];
+      y = xyz[j+1];
+      z = xyz[j+2];
+      inv_w = 1 / ( a30 * x + a31 * y + a32 * z + a33 );
+      pix_x[i] = ( a00 * x + a01 * y + a02 * z + a03 ) * inv_w;
+      pix_y[i] = ( a10 * x + a11 * y + a12 * z + a13 ) * inv_w;
+      depth[i] = ( a20 * x + a21 * y + a22 * z + a23 ) * inv_w;
+    }
+  }
+
+
   /*------------------------------ toString ------------------------------ */
   /**
    *  Return a string form of this matrix.
@@ -0,0 +1,57 @@
+/*
+ * File:  ICostOperator.java 
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Rev$
+ */
+
+package gov.anl.ipns.Operator;
+
+/**
+ * This interface can be implemented by operators that are able to give
+ * an estimate of how long they will take to run, relative to other 
+ * operators of the same kind.  A ParallelExecutor can use the estimate
+ * to start the longest operators first, so that one long operator started
+ * near the end does not leave the other threads or servers idle.
+ */
+
+public interface ICostOperator extends IOperator
+{
+
+  /**
+   *  Get an estimate of the cost of running this operator.  Only the
+   *  relative sizes of the estimates matter, so any convenient unit, such
+   *  as seconds or the number of data points to process, can be used.
+   *
+   *  @return a non-negative estimate of the cost of running this operator.
+   */ 
+  float getCost();
+
+}
@@ -0,0 +1,292 @@
+/* 
+ * File: OperatorWorkerPool.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Revision$
+ */
+
+package gov.anl.ipns.Operator.Processes;
+
+import java.io.*;
+import java.util.Vector;
+
+import gov.anl.ipns.Util.Sys.ProcessDumper;
+import gov.anl.ipns.Util.SpecialStrings.ErrorString;
+
+/**
+ *  An OperatorWorkerPool maintains a set of long running worker JVMs on 
+ *  the local machine, each running RunOperator in worker mode.  Operator
+ *  commands are sent to an idle worker on its stdin and the worker reports
+ *  completion on its stdout.  Since the workers are reused, the cost of 
+ *  starting a JVM and loading the operator list is paid once per worker, 
+ *  rather than once per operator.  At most max_workers worker processes 
+ *  are started, and they are only started when needed.  The shutdown() 
+ *  method MUST be called when the pool is no longer needed, to stop the 
+ *  worker processes.
+ */
+public class OperatorWorkerPool 
+{
+  private int            max_workers;
+  private int            mem_size;
+  private boolean        shut_down    = false;
+  private Vector<Worker> all_workers  = new Vector<Worker>();
+  private Vector<Worker> idle_workers = new Vector<Worker>();
+
+
+  /**
+   *  Construct a pool that will use at most the specified number of
+   *  worker processes.  No processes are started until commands are
+   *  executed.
+   *
+   *  @param max_workers  The maximum number of worker JVMs to start.
+   *  @param mem_size     The amount of memory to allocate for each worker
+   *                      specified by an integer, giving the number of 
+   *                      megabytes.
+   *
+   *  @throws IllegalArgumentException if max_workers or mem_size is not
+   *                                   positive.
+   */
+  public OperatorWorkerPool( int max_workers, int mem_size )
+                             throws IllegalArgumentException
+  {
+    if ( max_workers <= 0 )
+      throw new IllegalArgumentException("max_workers <= 0");
+
+    if ( mem_size <= 0 )
+      throw new IllegalArgumentException("mem_size <= 0");
+
+    this.max_workers = max_workers;
+    this.mem_size    = mem_size;
+  }
+
+
+  /**
+   *  Execute the specified operator command on one of the workers, 
+   *  waiting until a worker is free if necessary.  If the worker process
+   *  fails, or this thread is interrupted while the command is running,
+   *  the worker is discarded and a new worker will be started when next
+   *  needed.
+   *
+   *  @param op_command  String specifying the name of the operator to run,
+   *                     followed by the list of parameters to use for that
+   *                     operator.
+   *
+   *  @return Boolean true if the operator completed normally, Boolean false
+   *          if it failed or could not be found, or an ErrorString if the
+   *          command could not be sent to a worker.
+   */
+  public Object execute( String op_command )
+  {
+    Worker worker = null;
+    try
+    {
+      worker = checkOut();
+      boolean ok = worker.runCommand( op_command );
+      checkIn( worker );
+      return new Boolean( ok );
+    }
+    catch ( InterruptedException ex )
+    {
+      discard( worker );
+      return new ErrorString( "Interrupted running " + op_command );
+    }
+    catch ( IOException ex )
+    {
+      discard( worker );
+      return new ErrorString( "Worker failed running " + op_command + 
+                              " " + ex );
+    }
+  }
+
+
+  /**
+   *  Get the number of worker processes that are currently running.
+   *
+   *  @return the number of live workers, both busy and idle.
+   */
+  public synchronized int numWorkers()
+  {
+    return all_workers.size();
+  }
+
+
+  /**
+   *  Stop all worker processes.  Any command that is still running is
+   *  abandoned and the corresponding call to execute() will return an
+   *  ErrorString.  After this is called, execute() will not start any
+   *  new workers.
+   */
+  public synchronized void shutdown()
+  {
+    shut_down = true;
+    for ( int i = 0; i < all_workers.size(); i++ )
+      all_workers.elementAt(i).stop();
+
+    all_workers.clear();
+    idle_workers.clear();
+    notifyAll();
+  }
+
+
+  /**
+   *  Get an idle worker, starting a new worker if none are idle and 
+   *  fewer than max_workers have been started, or waiting for a worker
+   *  to become idle otherwise.
+   */
+  private synchronized Worker checkOut() throws InterruptedException,
+                                                IOException
+  {
+    while ( !shut_down                  && 
+            idle_workers.size() == 0    && 
+            all_workers.size()  >= max_workers )
+      wait();
+
+    if ( shut_down )
+      throw new IOException( "OperatorWorkerPool was shut down" );
+
+    if ( idle_workers.size() > 0 )
+      return idle_workers.remove( idle_workers.size() - 1 );
+
+    Worker worker = new Worker( RunOperatorCaller.JavaCommand( mem_size ) +
+                                RunOperator.WORKER_FLAG );
+    all_workers.add( worker );
+    return worker;
+  }
+
+
+  /**
+   *  Return a worker that finished its command to the list of idle workers.
+   */
+  private synchronized void checkIn( Worker worker )
+  {
+    if ( shut_down )
+      worker.stop();
+    else
+      idle_workers.add( worker );
+
+    notifyAll();
+  }
+
+
+  /**
+   *  Stop a worker whose state is not known and remove it from the pool.
+   */
+  private synchronized void discard( Worker worker )
+  {
+    if ( worker == null )
+      return;
+
+    worker.stop();
+    all_workers.remove( worker );
+    idle_workers.remove( worker );
+    notifyAll();
+  }
+
+
+  /**
+   *  A Worker holds one worker process and the streams used to send
+   *  commands to it and read its responses.
+   */
+  private static class Worker
+  {
+    private Process        process;
+    private BufferedWriter to_worker;
+    private BufferedReader from_worker;
+
+    /**
+     *  Start the worker process using the specified command.
+     */
+    Worker( String command ) throws IOException
+    {
+      System.out.println("STARTING WORKER = " + command );
+      process = Runtime.getRuntime().exec( command );
+
+      to_worker   = new BufferedWriter( 
+                    new OutputStreamWriter( process.getOutputStream() ) );
+      from_worker = new BufferedReader(
+                    new InputStreamReader( process.getInputStream() ) );
+
+      BufferedReader err = new BufferedReader(
+                           new InputStreamReader( process.getErrorStream() ) );
+      ProcessDumper err_dump = new ProcessDumper( err, " STD ERR " );
+      err_dump.setDaemon( true );
+      err_dump.start();
+    }
+
+    /**
+     *  Send one command to the worker and copy the worker's output to
+     *  System.out until the worker reports that the command is done.
+     *
+     *  @return true if the worker reported that the operator completed.
+     */
+    boolean runCommand( String op_command ) throws IOException
+    {
+      System.out.println("==================================================");
+      System.out.println("WORKER COMMAND = " + op_command );
+
+      to_worker.write( op_command );
+      to_worker.newLine();
+      to_worker.flush();
+
+      String line = from_worker.readLine();
+      while ( line != null )
+      {
+        if ( line.startsWith( RunOperator.DONE_MARKER ) )
+          return line.trim().endsWith( "true" );
+
+        System.out.println( line );
+        line = from_worker.readLine();
+      }
+
+      throw new IOException( "Worker process ended unexpectedly" );
+    }
+
+    /**
+     *  Ask the worker to exit and then destroy the process.  Destroying
+     *  the process also closes its streams, so a thread blocked reading 
+     *  from this worker will return.
+     */
+    void stop()
+    {
+      try
+      {
+        to_worker.write( RunOperator.EXIT_COMMAND );
+        to_worker.newLine();
+        to_worker.flush();
+        to_worker.close();
+      }
+      catch ( IOException ex )
+      {
+      }
+      process.destroy();
+    }
+  }
+
+}
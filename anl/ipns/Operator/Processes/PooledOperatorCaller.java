@@ -0,0 +1,82 @@
+/* 
+ * File: PooledOperatorCaller.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Revision$
+ */
+
+package gov.anl.ipns.Operator.Processes;
+
+import gov.anl.ipns.Operator.IOperator;
+
+/**
+ *  This class is an IOperator that executes an operator command on one
+ *  of the worker JVMs of an OperatorWorkerPool, rather than starting a
+ *  new JVM for the command as RunOperatorCaller does.  
+ */
+public class PooledOperatorCaller implements IOperator 
+{
+  private OperatorWorkerPool pool;
+  private String             op_command;
+
+  /**
+   * Construct a PooledOperatorCaller to execute the specified operator
+   * command using a worker from the specified pool.
+   * The operator to execute must only take "simple" parameters such as 
+   * integer, float, boolean and String.
+   *
+   * @param pool        The pool of worker JVMs to use.
+   * @param op_command  String specifying the name of the operator to run, 
+   *                    followed by the list of parameters to use for that 
+   *                    operator.
+   */
+  public PooledOperatorCaller( OperatorWorkerPool pool, String op_command )
+  {
+    if ( pool == null )
+      throw new IllegalArgumentException( "pool null" );
+
+    this.pool       = pool;
+    this.op_command = op_command;
+  }
+
+
+  /**
+   *  Execute the operator on a worker from the pool, waiting for a worker 
+   *  to be available, if necessary.
+   *
+   *  @return Boolean true if the operator completed normally, Boolean false
+   *          if it failed, or an ErrorString if the worker failed.
+   */
+  public Object getResult()
+  {
+    return pool.execute( op_command );
+  }
+
+}
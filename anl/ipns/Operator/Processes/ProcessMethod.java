@@ -91,6 +91,50 @@ public class ProcessMethod
                                  int            max_time,
                                  int            mem_size,
                                  Vector<String> op_commands )
+  {
+    return srunOps( queue_name, 
+                    max_processes, 
+                    max_time, 
+                    mem_size, 
+                    op_commands, 
+                    false );
+  }
+
+
+  /**
+   * Execute the specified list of operators on the specified SLURM queue
+   * or using local processes, as described for the previous method.
+   * If local processes are used and use_worker_pool is true, at most 
+   * max_processes worker JVMs are started and each of them runs many of 
+   * the operators, instead of starting a new JVM for each operator.  
+   * This avoids the JVM startup and class loading time for each operator,
+   * which can be much larger than the time to run a small operator.
+   * The workers are stopped before this method returns.  The 
+   * use_worker_pool flag is ignored if SLURM is used.
+   *
+   * @param queue_name      The name of the SLURM queue to use.  If this
+   *                        is null or a zero length string, local 
+   *                        processes will be used instead of SLURM.
+   * @param max_processes   The maximum number of processes to launch
+   *                        simultaneously.
+   * @param max_time        The maximum allowed total run time as an
+   *                        integer number of seconds.
+   * @param mem_size        The amount of memory to allocate for each 
+   *                        process, in megabytes.
+   * @param op_commands     Vector of Strings, each of which specifies the
+   *                        name of the operator to run, followed by the 
+   *                        list of parameters to use for that operator.
+   * @param use_worker_pool If true, and local processes are used, run the
+   *                        operators on a pool of reusable worker JVMs.
+   *
+   * @return true if the processes seemed to complete normally.
+   */
+  public static boolean srunOps( String         queue_name, 
+                                 int            max_processes,
+                                 int            max_time,
+                                 int            mem_size,
+                                 Vector<String> op_commands,
+                                 boolean        use_worker_pool )
   {
                                         // Make sure ISAW/tmp directory exists
                                         // and clear out any old return files 
@@ -105,7 +149,11 @@ public class ProcessMethod
 
                                                // if not using slurm, don't
                                                // take too many processes 
+    boolean use_slurm = true;
     if ( queue_name == null || queue_name.trim().length() == 0 )
+      use_slurm = false;
+
+    if ( !use_slurm )
     {
       int n_cores = Runtime.getRuntime().availableProcessors();
       if ( max_processes > n_cores )
@@ -118,17 +166,26 @@ public class ProcessMethod
     int processes_per_core  = op_commands.size() / max_processes;
     int seconds_per_process = max_time / processes_per_core;
 
+    OperatorWorkerPool pool = null;
+    if ( use_worker_pool && !use_slurm )
+      pool = new OperatorWorkerPool( max_processes, mem_size );
+
     Vector ops = new Vector();
     for ( int i = 0; i < op_commands.size(); i++ )
     {
       String op_command = op_commands.elementAt(i);
  
-      RunOperatorCaller caller =
-               new RunOperatorCaller( queue_name, 
-                                      mem_size, 
-                                      seconds_per_process, 
-                                      op_command );
-      ops.add( caller );
+      if ( pool != null )
+        ops.add( new PooledOperatorCaller( pool, op_command ) );
+      else
+      {
+        RunOperatorCaller caller =
+                 new RunOperatorCaller( queue_name, 
+                                        mem_size, 
+                                        seconds_per_process, 
+                                        op_command );
+        ops.add( caller );
+      }
     }
 
     max_time = max_time * 1000;   // convert from seconds to milli-seconds
@@ -165,6 +222,11 @@ public class ProcessMethod
 
       return new Boolean( false );
     }
+    finally
+    {
+      if ( pool != null )                   // stop any worker JVMs 
+        pool.shutdown();
+    }
 
     return new Boolean( true );
   }
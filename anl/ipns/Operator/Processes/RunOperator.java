@@ -34,6 +34,11 @@
 
 package gov.anl.ipns.Operator.Processes;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.StringTokenizer;
+
 import Command.Script_Class_List_Handler;
 import DataSetTools.operator.Operator;
 import gov.anl.ipns.Parameters.IParameter;
@@ -47,6 +52,20 @@ import gov.anl.ipns.Parameters.IParameter;
  */
 public class RunOperator 
 {
+  /** 
+   *  Command line flag that starts this class as a long running worker,
+   *  reading operator commands from stdin.
+   */
+  public static final String WORKER_FLAG = "-worker";
+
+  /** 
+   *  Prefix of the line written to stdout by a worker when a command
+   *  has finished.
+   */
+  public static final String DONE_MARKER = "#RunOperator_DONE#";
+
+  /**  Command that tells a worker to exit. */
+  public static final String EXIT_COMMAND = "#RunOperator_EXIT#";
 
   /**
    *  Set the specified argument into the specified parameter, if 
@@ -136,19 +155,27 @@ public class RunOperator
 
 
   /**
-   *  Execute the operator specified by the first command line paramater
-   *  passing the remaining command line parameters to that operator.
+   *  Find and execute the operator named by the first entry of args,
+   *  passing the remaining entries to that operator as parameters.
    *
+   *  @param sclh  The Script_Class_List_Handler used to look up the
+   *               operator.  A long running worker process can construct
+   *               this once and reuse it for many operators.
    *  @param args  Array of Strings containing the operator name as the 
-   *               first parameter and the operator's parameters in the 
+   *               first entry and the operator's parameters in the 
    *               remaining positions.
-   *               args[0] - the operator to run 
-   *               args[1] - first parameter for the operator
-   *               args[2] - second parameter for the operator
-   *               args[k] - kth parameter for the operator
+   *
+   *  @return true if the operator was found and completed normally,
+   *          false otherwise.
    */
-  public static void main( String args[] )
+  public static boolean Run( Script_Class_List_Handler sclh, String args[] )
   {
+    if ( args == null || args.length == 0 )
+    {
+      System.err.println("NO OPERATOR NAME SPECIFIED");
+      return false;
+    }
+
     String   op_name = args[0];
 
     System.out.println( "Running " + op_name );
@@ -157,8 +184,6 @@ public class RunOperator
 
     int num_params = args.length - 1; 
 
-    Script_Class_List_Handler sclh = new Script_Class_List_Handler();
-
     int position = sclh.getOperatorPosition( op_name );
     Operator op  = sclh.getOperator( position );
     boolean  found = false;
@@ -188,26 +213,119 @@ public class RunOperator
             System.out.println("FOUND OPERATOR " + op_name );
             Object result = op.getResult();
             System.out.println("RESULT = " + result );
-            System.exit(0);
+            return true;
           }
           catch ( Exception ex )
           {
             System.out.println("op_name FAILED " );
             ex.printStackTrace();
-            System.exit(1);
+            return false;
           }
         }
       }
-      else
-      {
-        position++;
-        op = sclh.getOperator( position );
-      }
+                                    // try the next operator with this name
+      position++;
+      op = sclh.getOperator( position );
     }
 
     System.err.println("OPERATOR " + op_name + 
                        " NOT FOUND WITH CORRECT PARAMETERS" );
-    System.exit(1);
+    return false;
   }
-}
 
+
+  /**
+   *  Repeatedly read operator commands from stdin, one per line, and
+   *  execute them in this JVM.  After each command completes, a line 
+   *  starting with DONE_MARKER followed by "true" or "false" is written
+   *  to stdout, so that the process that launched this worker knows the
+   *  command has finished.  The loop ends when stdin is closed, or when
+   *  a line containing only EXIT_COMMAND is read.  This avoids the cost
+   *  of starting a new JVM and reloading the operator list for each
+   *  operator, when many small operators must be run.
+   */
+  public static void RunWorker()
+  {
+    Script_Class_List_Handler sclh = new Script_Class_List_Handler();
+
+    BufferedReader in = new BufferedReader( new InputStreamReader(System.in) );
+    try
+    {
+      String line = in.readLine();
+      while ( line != null && !line.trim().equals( EXIT_COMMAND ) )
+      {
+        if ( line.trim().length() > 0 )
+        {
+          boolean ok = false;
+          try
+          {
+            ok = Run( sclh, split( line ) );
+          }
+          catch ( Throwable ex )
+          {
+            System.out.println("Worker FAILED on " + line );
+            ex.printStackTrace();
+          }
+          System.err.flush();
+          System.out.println( DONE_MARKER + " " + ok );
+          System.out.flush();
+        }
+        line = in.readLine();
+      }
+    }
+    catch ( IOException ex )
+    {
+      System.err.println("Worker could not read command " + ex );
+    }
+  }
+
+
+  /**
+   *  Split a command line into separate arguments at white space, in the
+   *  same way as Runtime.exec( String ) does, so that commands run by a
+   *  worker receive the same arguments as commands run in a new process.
+   *
+   *  @param command  The operator name followed by its parameters.
+   *
+   *  @return an array with one entry per white space separated token.
+   */
+  public static String[] split( String command )
+  {
+    StringTokenizer tokens = new StringTokenizer( command );
+    String[] args = new String[ tokens.countTokens() ];
+    for ( int i = 0; i < args.length; i++ )
+      args[i] = tokens.nextToken();
+
+    return args;
+  }
+
+
+  /**
+   *  Execute the operator specified by the first command line paramater
+   *  passing the remaining command line parameters to that operator.
+   *  If the first command line parameter is WORKER_FLAG, this process will
+   *  instead act as a worker and run the commands sent to it on stdin.
+   *
+   *  @param args  Array of Strings containing the operator name as the 
+   *               first parameter and the operator's parameters in the 
+   *               remaining positions.
+   *               args[0] - the operator to run 
+   *               args[1] - first parameter for the operator
+   *               args[2] - second parameter for the operator
+   *               args[k] - kth parameter for the operator
+   */
+  public static void main( String args[] )
+  {
+    if ( args.length > 0 && args[0].equals( WORKER_FLAG ) )
+    {
+      RunWorker();
+      System.exit(0);
+    }
+
+    Script_Class_List_Handler sclh = new Script_Class_List_Handler();
+    if ( Run( sclh, args ) )
+      System.exit(0);
+    else
+      System.exit(1);
+  }
+}
@@ -125,18 +125,7 @@ public class RunOperatorCaller implements IOperator
                 " -J ISAW_RunOperatorCaller -o " + result;
     }
 
-    String cp = System.getProperty( "java.class.path" );
-    if ( cp == null )
-      cp = " ";
-    else
-      cp = " -cp " + cp + " ";
-
-    String cmd  = " java -mx" + mem_size + "M "+
-                  " -XX:+AggressiveHeap "      +
-                  " -XX:+DisableExplicitGC "   +
-                  " -XX:ParallelGCThreads=4 "  + 
-                  cp +
-                  " gov.anl.ipns.Operator.Processes.RunOperator " + op_command;
+    String cmd  = JavaCommand( mem_size ) + op_command;
 
     command = command + cmd;
     
@@ -165,6 +154,33 @@ public class RunOperatorCaller implements IOperator
   }
 
 
+  /**
+   *  Get the command that starts a new JVM running the RunOperator class,
+   *  with the same class path as the current JVM.  The arguments for
+   *  RunOperator must be appended to the returned String.
+   *
+   *  @param mem_size  The maximum heap size for the new JVM, in megabytes.
+   *
+   *  @return the java command, ending with the RunOperator class name
+   *          and a space.
+   */
+  public static String JavaCommand( int mem_size )
+  {
+    String cp = System.getProperty( "java.class.path" );
+    if ( cp == null )
+      cp = " ";
+    else
+      cp = " -cp " + cp + " ";
+
+    return " java -mx" + mem_size + "M "+
+           " -XX:+AggressiveHeap "      +
+           " -XX:+DisableExplicitGC "   +
+           " -XX:ParallelGCThreads=4 "  + 
+           cp +
+           " gov.anl.ipns.Operator.Processes.RunOperator ";
+  }
+
+
   /**
    *  Simple test for RunOperatorCaller
    */
@@ -0,0 +1,117 @@
+/* 
+ * File: TestWorkerPool.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Revision$
+ */
+
+package gov.anl.ipns.Operator.Processes;
+
+import java.util.Vector;
+
+/**
+ *  This class compares the time required to run a list of small operators
+ *  locally with ProcessMethod.srunOps(), starting a new JVM for each 
+ *  operator, with the time required when the operators are run on a pool 
+ *  of reusable worker JVMs.
+ */
+public class TestWorkerPool 
+{
+
+  /**
+   *  Time one call to srunOps using local processes.
+   *
+   *  @return the elapsed wall clock time in milliseconds.
+   */
+  private static long timeRun( Vector<String> commands, 
+                               int            max_processes,
+                               int            mem_size,
+                               boolean        use_worker_pool )
+  {
+    long start_time = System.nanoTime();
+
+    boolean result = ProcessMethod.srunOps( null, 
+                                            max_processes, 
+                                            600, 
+                                            mem_size, 
+                                            commands,
+                                            use_worker_pool );
+
+    long run_time = (System.nanoTime() - start_time) / 1000000;
+    System.out.println("Result = " + result );
+    return run_time;
+  }
+
+
+  /**
+   *  Run the specified operator command the specified number of times,
+   *  first with one JVM per operator and then with a pool of workers.
+   *
+   *  @param args  args[0] - number of times to run the command (default 40)
+   *               args[1] - max number of processes (default 4)
+   *               args[2..] - operator name and parameters
+   *                           (default "Echo test")
+   */
+  public static void main( String args[] )
+  {
+    int    n_commands    = 40;
+    int    max_processes = 4;
+    int    mem_size      = 500;
+    String command       = "Echo test";
+
+    if ( args.length > 0 )
+      n_commands = Integer.parseInt( args[0] );
+
+    if ( args.length > 1 )
+      max_processes = Integer.parseInt( args[1] );
+
+    if ( args.length > 2 )
+    {
+      command = args[2];
+      for ( int i = 3; i < args.length; i++ )
+        command += " " + args[i];
+    }
+
+    Vector<String> commands = new Vector<String>();
+    for ( int i = 0; i < n_commands; i++ )
+      commands.add( command );
+
+    long spawn_time = timeRun( commands, max_processes, mem_size, false );
+    long pool_time  = timeRun( commands, max_processes, mem_size, true );
+
+    System.out.println("Ran " + n_commands + " x \"" + command + "\" with " +
+                        max_processes + " processes" );
+    System.out.println("New JVM per operator (ms) = " + spawn_time +
+                       ", ops/sec = " + (1000.0 * n_commands / spawn_time) );
+    System.out.println("Worker pool (ms)          = " + pool_time +
+                       ", ops/sec = " + (1000.0 * n_commands / pool_time) );
+  }
+
+}
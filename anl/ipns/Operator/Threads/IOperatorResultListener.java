@@ -0,0 +1,72 @@
+/* 
+ * File: IOperatorResultListener.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Revision$
+ */
+
+package gov.anl.ipns.Operator.Threads;
+
+/**
+ * This interface is implemented by objects that need the result of each
+ * operator run by a ParallelExecutor as soon as that operator completes,
+ * rather than waiting until runOperators() returns.  This allows later
+ * processing steps to start on the first results while other operators
+ * are still running.  The listener is called on the thread that called
+ * runOperators(), so it should return quickly, and pass any lengthy work
+ * on to another thread.
+ */
+public interface IOperatorResultListener
+{
+
+  /**
+   *  Called when an operator has completed.
+   *
+   *  @param  index        The position of the operator in the list of
+   *                       operators, which is also the position of its 
+   *                       result in the Vector returned by runOperators().
+   *  @param  result       The result returned by the operator, or null
+   *                       if the operator failed.
+   *  @param  num_done     The number of operators that have completed,
+   *                       including this one.
+   *  @param  num_running  The number of operators that are still running.
+   *  @param  num_queued   The number of operators that have not been 
+   *                       started yet.
+   *  @param  elapsed_ms   The time since runOperators() was called, in
+   *                       milliseconds.
+   */
+  void operatorDone( int    index, 
+                     Object result, 
+                     int    num_done,
+                     int    num_running,
+                     int    num_queued,
+                     long   elapsed_ms );
+
+}
@@ -0,0 +1,85 @@
+/* 
+ * File: OperatorTask.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Revision$
+ */
+
+package gov.anl.ipns.Operator.Threads;
+
+import java.util.concurrent.Callable;
+
+import gov.anl.ipns.Operator.IOperator;
+
+/**
+ * An OperatorTask is responsible for running a specified operator on a
+ * thread taken from an ExecutorService.  It plays the same role as an
+ * OperatorThread, but does not require a new Thread for each operator.
+ */
+public class OperatorTask implements Callable<Object>
+{
+  private IOperator my_operator;
+
+  /**
+   *  Construct a new task to execute the specified operator.
+   *
+   *  @param operator  The operator that will be run by this task.
+   */  
+  public OperatorTask( IOperator operator )
+  {
+    if ( operator == null )
+      throw new IllegalArgumentException( "operator null" );
+    this.my_operator = operator;
+  }
+  
+
+  /**
+   *  Get the operator that is executed by this task.
+   *
+   *  @return a reference to the operator run by this task.
+   */
+  public IOperator getOperator()
+  {
+    return my_operator;
+  }
+
+
+  /**
+   *  Execute the operator by calling its getResult() method.  This method
+   *  is called by the ExecutorService that the task was submitted to.
+   *
+   *  @return the result of calling the operator's getResult() method.
+   */
+  public Object call()
+  {
+    return my_operator.getResult();
+  }
+  
+}
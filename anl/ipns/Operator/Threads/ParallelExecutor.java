@@ -34,12 +34,25 @@
 
 package gov.anl.ipns.Operator.Threads;
 
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Stack;
 import java.util.Vector;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import gov.anl.ipns.Operator.IOperator;
 import gov.anl.ipns.Operator.IDistributedOperator;
+import gov.anl.ipns.Operator.ICostOperator;
 
 /**
  * A ParallelExecutor takes a list of IOperator objects that can be run 
@@ -47,6 +60,22 @@ import gov.anl.ipns.Operator.IDistributedOperator;
  * completed.  The maximum number of threads that should be started at 
  * any one time is specified, as is the maximum amount of time that can 
  * be used, before stopping and destroying all threads and returning.
+ * The operators can either be run on new threads, using runOperators(), 
+ * or on the threads of a reusable ExecutorService, using
+ * runOperators( ExecutorService ).  The second form avoids creating a
+ * thread per operator and is notified as soon as any operator completes,
+ * so it is preferable when there are many short operators.
+ * If most operators spend their time waiting for other processes or for
+ * I/O, runOperatorsOnVirtualThreads() can be used to run a large number 
+ * of them at once, without using an OS thread for each one.
+ * If setLongestFirst( true ) is called, operators that implement 
+ * ICostOperator are started in order of decreasing cost.  Each operator
+ * is started on whichever thread or server becomes free first, so the
+ * long operators are spread across the servers and the short ones fill
+ * in at the end.  After each run, getMakespan(), getServerUtilization()
+ * and getScheduleReport() give the total time and how busy each server 
+ * was.  An IOperatorResultListener can be added to get the result of each
+ * operator as soon as it completes, along with the progress of the run.
  */
 public class ParallelExecutor 
 {
@@ -61,6 +90,18 @@ public class ParallelExecutor
                                                 // server
   private int[]             num_process = null;
 
+  private boolean           longest_first = false;
+  private int[]             run_order;    // order to start the operators
+  private long[]            start_millis; // start time of each operator
+  private long[]            busy_millis;  // total run time of the operators
+                                          // on each server, for last run
+  private long              run_start;
+  private long              makespan    = 0;
+  private int               num_done    = 0;
+
+  private Vector<IOperatorResultListener> listeners = 
+                                       new Vector<IOperatorResultListener>();
+
   /**
    *  Construct a new ParallelExecutor to execute the specified list of
    *  operators in separate Threads.
@@ -242,7 +283,7 @@ public class ParallelExecutor
     Vector<OperatorThread> running_threads = new Vector<OperatorThread>();
 
     Object[]               results      = new Object[ operator_list.size() ];
-    long                   start_time   = System.currentTimeMillis();
+    long                   start_time   = init_run();
     long                   elapsed_time = 0;
 
                                                     // Mark all as incomplete
@@ -255,11 +296,10 @@ public class ParallelExecutor
     while ( running_threads.size() < max_threads && 
             next_op_index          < operator_list.size() ) 
     {
-       int index = next_op_index;
+       int index = run_order[ next_op_index ];
        next_op_index++;
 
-       IOperator op = operator_list.elementAt( index );
-       AllocateServer( op );
+       IOperator op = start_op( index );
        OperatorThread thread = new OperatorThread( op );
        running_threads.add( thread );
        index_table.put( thread, new Integer( index ) );
@@ -278,8 +318,8 @@ public class ParallelExecutor
            thread.join( WAIT_MILLIS ); 
            if ( thread.getState() == Thread.State.TERMINATED )
            {
-              IOperator old_op = thread.getOperator();
-              FreeServer( old_op );
+              Integer old_index = (Integer)(index_table.get( thread ));
+              finish_op( old_index.intValue() );
                                                     // if thread is done
                                                     // and no more to run, just
              if ( next_op_index >= operator_list.size() )  
@@ -287,11 +327,10 @@ public class ParallelExecutor
                                                     // running threads, else
              else                                   // start a new thread in
              {                                      // its place
-               int index = next_op_index;
+               int index = run_order[ next_op_index ];
                next_op_index++;
 
-               IOperator op = operator_list.elementAt( index );
-               AllocateServer( op );
+               IOperator op = start_op( index );
                OperatorThread new_thread = new OperatorThread( op );
                running_threads.set( i, new_thread );
                index_table.put( new_thread, new Integer( index ) );
@@ -299,8 +338,11 @@ public class ParallelExecutor
              }
                                                     // record the result for  
                                                     // operator that finshed
-             Integer index = (Integer)(index_table.get( thread ));
-             results[index.intValue()] = thread.getResult();
+             results[old_index.intValue()] = thread.getResult();
+             notify_listeners( old_index.intValue(), 
+                               results[old_index.intValue()],
+                               running_threads.size(),
+                               operator_list.size() - next_op_index );
            } 
         }
         elapsed_time = System.currentTimeMillis() - start_time;
@@ -309,6 +351,7 @@ public class ParallelExecutor
     catch ( InterruptedException e )
     {
       stop_threads( running_threads );
+      makespan = System.currentTimeMillis() - run_start;
       Vector partial = pack_results( results );       
       throw new ExecFailException(FailState.INTERRUPTED, partial); 
     }
@@ -316,6 +359,7 @@ public class ParallelExecutor
     if ( elapsed_time >= max_milliseconds )
     {
       stop_threads( running_threads );
+      makespan = System.currentTimeMillis() - run_start;
       Vector partial = pack_results( results );
       throw new ExecFailException(FailState.NOT_DONE, partial); 
     }
@@ -324,6 +368,579 @@ public class ParallelExecutor
   }  
 
 
+  /**
+   *  Get the result of running all of the operators, using threads from
+   *  the specified ExecutorService.  At most max_threads operators are 
+   *  submitted to the service at one time, and a new operator is submitted
+   *  as soon as a running operator completes.  If the maximum time elapses
+   *  before all operators complete, the operators that are still running
+   *  are cancelled and an ExecFailException containing the partial results
+   *  is thrown, just as for runOperators().  The service is NOT shut down
+   *  by this method, so it can be reused for further work.
+   *
+   *  @param  service  The ExecutorService whose threads will run the
+   *                   operators.  A suitable service can be obtained 
+   *                   from newThreadPool().
+   *
+   *  @return a Vector containing the result of running operator k,
+   *          stored as the kth entry in the Vector.
+   */
+  public synchronized Vector runOperators( ExecutorService service )
+  {
+    if ( service == null )
+      throw new IllegalArgumentException("ExecutorService is null");
+
+    CompletionService<Object> completion = 
+                              new ExecutorCompletionService<Object>( service );
+    Hashtable<Future<Object>,Integer> index_table =
+                                      new Hashtable<Future<Object>,Integer>();
+
+    int      next_op_index = 0;
+    Object[] results       = new Object[ operator_list.size() ];
+    long     start_time    = init_run();
+    long     remaining     = max_milliseconds;
+
+                                                    // Mark all as incomplete
+                                                    // initially.
+    for ( int i = 0; i < results.length; i++ )
+      results[i] = FailState.NOT_DONE;
+                                                    // Submit as many as we 
+                                                    // are allowed to run
+    while ( index_table.size() < max_threads && 
+            next_op_index      < operator_list.size() ) 
+    {
+      submit_task( completion, index_table, run_order[ next_op_index ] );
+      next_op_index++;
+    }
+
+    try                                       // Wait for the next operator 
+    {                                         // to finish, until all are done
+      while ( index_table.size() > 0 && remaining > 0 )    // or time is up
+      {
+        Future<Object> done = completion.poll( remaining, 
+                                               TimeUnit.MILLISECONDS );
+        if ( done != null )
+        {
+          int index = index_table.remove( done );
+          finish_op( index );
+          results[ index ] = get_task_result( done );
+
+          if ( next_op_index < operator_list.size() )
+          {
+            submit_task( completion, index_table, run_order[next_op_index] );
+            next_op_index++;
+          }
+          notify_listeners( index, 
+                            results[ index ], 
+                            index_table.size(),
+                            operator_list.size() - next_op_index );
+        }
+        remaining = max_milliseconds - 
+                    (System.currentTimeMillis() - start_time);
+      }
+    }
+    catch ( InterruptedException e )
+    {
+      cancel_tasks( index_table );
+      makespan = System.currentTimeMillis() - run_start;
+      Vector partial = pack_results( results );       
+      throw new ExecFailException(FailState.INTERRUPTED, partial); 
+    }
+
+    if ( index_table.size() > 0 )
+    {
+      cancel_tasks( index_table );
+      makespan = System.currentTimeMillis() - run_start;
+      Vector partial = pack_results( results );
+      throw new ExecFailException(FailState.NOT_DONE, partial); 
+    }
+    
+    return pack_results( results );
+  }  
+
+
+  /**
+   *  Make a fixed size pool of daemon threads that can be passed to
+   *  runOperators( ExecutorService ) and reused for many sets of 
+   *  operators.  Since the threads are daemon threads, they will not
+   *  keep the application running, but the pool should be shut down
+   *  when it is no longer needed.
+   *
+   *  @param  n_threads  The number of threads in the pool.
+   *
+   *  @return a new ExecutorService with the specified number of threads.
+   */
+  public static ExecutorService newThreadPool( int n_threads )
+  {
+    if ( n_threads <= 0 )
+      throw new IllegalArgumentException("n_threads <= 0");
+
+    ThreadFactory factory = new ThreadFactory()
+    {
+      public Thread newThread( Runnable runnable )
+      {
+        Thread thread = new Thread( runnable, "ParallelExecutor pool" );
+        thread.setDaemon( true );
+        return thread;
+      }
+    };
+
+    return Executors.newFixedThreadPool( n_threads, factory );
+  }
+
+
+  /**
+   *  Get the result of running all of the operators, using a separate
+   *  virtual thread for each operator, if the Java runtime supports 
+   *  virtual threads.  In this mode max_threads only limits the number of
+   *  operators that are in progress at one time.  The number of OS threads
+   *  is chosen by the runtime based on the number of cores, so a large
+   *  max_threads value can be used for operators that spend most of their
+   *  time blocked on child processes or file I/O.  If virtual threads are
+   *  not supported, a new pool of ordinary threads is used instead, 
+   *  which gives the same results but uses an OS thread for each running
+   *  operator.  Timeouts and partial results are handled as for
+   *  runOperators().
+   *
+   *  @return a Vector containing the result of running operator k,
+   *          stored as the kth entry in the Vector.
+   */
+  public Vector runOperatorsOnVirtualThreads()
+  {
+    ExecutorService service = newVirtualThreadService();
+    try
+    {
+      return runOperators( service );
+    }
+    finally
+    {
+      service.shutdownNow();
+    }
+  }
+
+
+  /**
+   *  Check whether the Java runtime provides virtual threads.
+   *
+   *  @return true if virtual threads are available.
+   */
+  public static boolean isVirtualThreadSupported()
+  {
+    return getVirtualThreadFactoryMethod() != null;
+  }
+
+
+  /**
+   *  Make an ExecutorService that starts a new virtual thread for each
+   *  task, if the Java runtime supports virtual threads, or that starts
+   *  or reuses ordinary daemon threads as needed, otherwise.  The service
+   *  does not limit the number of tasks run at once, so it should be used
+   *  with runOperators( ExecutorService ), which limits the number of 
+   *  operators in progress to max_threads.
+   *
+   *  @return a new ExecutorService, which should be shut down when it is
+   *          no longer needed.
+   */
+  public static ExecutorService newVirtualThreadService()
+  {
+    Method method = getVirtualThreadFactoryMethod();
+    if ( method != null )
+    {
+      try
+      {
+        return (ExecutorService)method.invoke( null );
+      }
+      catch ( Exception ex )
+      {
+        System.out.println("Could not start virtual threads: " + ex );
+      }
+    }
+
+    ThreadFactory factory = new ThreadFactory()
+    {
+      public Thread newThread( Runnable runnable )
+      {
+        Thread thread = new Thread( runnable, "ParallelExecutor task" );
+        thread.setDaemon( true );
+        return thread;
+      }
+    };
+
+    return Executors.newCachedThreadPool( factory );
+  }
+
+
+  /**
+   *  Find the Executors.newVirtualThreadPerTaskExecutor() method, which
+   *  is only present in Java 21 and later.  Reflection is used so that 
+   *  this class can still be compiled and run with older versions.
+   *
+   *  @return the method, or null if it is not available.
+   */
+  private static Method getVirtualThreadFactoryMethod()
+  {
+    try
+    {
+      return Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" );
+    }
+    catch ( NoSuchMethodException ex )
+    {
+      return null;
+    }
+  }
+
+
+  /**
+   *  Allocate a server for the specified operator and submit it to the
+   *  CompletionService, recording the operator's index for the Future.
+   */
+  private void submit_task( CompletionService<Object>         completion,
+                            Hashtable<Future<Object>,Integer> index_table,
+                            int                               index )
+  {
+    IOperator op = start_op( index );
+    Future<Object> future = completion.submit( new OperatorTask( op ) );
+    index_table.put( future, index );
+  }
+
+
+  /**
+   *  Get the result from a completed Future.  If the operator threw an
+   *  exception, null is returned, just as for an OperatorThread whose
+   *  operator failed.
+   */
+  private Object get_task_result( Future<Object> future )
+                 throws InterruptedException
+  {
+    try
+    {
+      return future.get();
+    }
+    catch ( ExecutionException ex )
+    {
+      System.out.println("Operator failed in ParallelExecutor: " + 
+                          ex.getCause() );
+      return null;
+    }
+  }
+
+
+  /**
+   *  Cancel all of the tasks that have not completed, interrupting them
+   *  if they are running.
+   */
+  private void cancel_tasks( Hashtable<Future<Object>,Integer> index_table )
+  {
+    Enumeration<Future<Object>> futures = index_table.keys();
+    while ( futures.hasMoreElements() )
+      futures.nextElement().cancel( true );
+  }
+
+
+  /**
+   *  Add a listener that will be notified each time an operator completes
+   *  during a call to runOperators().
+   *
+   *  @param  listener  The listener to add.  If it was already added, it
+   *                    will not be added again.
+   */
+  public void addResultListener( IOperatorResultListener listener )
+  {
+    if ( listener == null )
+      throw new IllegalArgumentException("listener is null");
+
+    if ( !listeners.contains( listener ) )
+      listeners.add( listener );
+  }
+
+
+  /**
+   *  Remove the specified listener, so it is no longer notified when 
+   *  operators complete.
+   *
+   *  @param  listener  The listener to remove.
+   */
+  public void removeResultListener( IOperatorResultListener listener )
+  {
+    listeners.remove( listener );
+  }
+
+
+  /**
+   *  Pass the result of an operator that just completed, and the current
+   *  progress, to all of the listeners.  An exception thrown by a listener
+   *  is reported, but does not stop the run.
+   */
+  private void notify_listeners( int    index, 
+                                 Object result,
+                                 int    num_running,
+                                 int    num_queued )
+  {
+    num_done++;
+    if ( listeners.size() == 0 )
+      return;
+
+    long elapsed = System.currentTimeMillis() - run_start;
+    for ( int i = 0; i < listeners.size(); i++ )
+    {
+      try
+      {
+        listeners.elementAt(i).operatorDone( index, 
+                                             result, 
+                                             num_done,
+                                             num_running, 
+                                             num_queued, 
+                                             elapsed );
+      }
+      catch ( Exception ex )
+      {
+        System.out.println("Exception in IOperatorResultListener " + ex );
+        ex.printStackTrace();
+      }
+    }
+  }
+
+
+  /**
+   *  Specify whether operators that implement ICostOperator should be 
+   *  started in order of decreasing cost.  Operators that do not 
+   *  implement ICostOperator are treated as having zero cost.  Operators
+   *  with equal costs are started in list order.  The results are always
+   *  returned in list order.  By default, operators are started in list
+   *  order.
+   *
+   *  @param  longest_first  If true, start the most costly operators first.
+   */
+  public void setLongestFirst( boolean longest_first )
+  {
+    this.longest_first = longest_first;
+  }
+
+
+  /**
+   *  Get the elapsed time from the start of the last call to runOperators
+   *  until the last operator finished, or until the run was stopped.
+   *
+   *  @return the makespan of the last run, in milliseconds.
+   */
+  public long getMakespan()
+  {
+    return makespan;
+  }
+
+
+  /**
+   *  Get the fraction of the available process time that each server was
+   *  busy running operators, during the last run.  This is the total run
+   *  time of the operators assigned to the server, divided by the product
+   *  of the server's maximum number of processes and the makespan.  If no
+   *  server list was given, there is one entry for the local threads.  
+   *  Otherwise, the entries are in the same order as the names returned 
+   *  by getServerNames().
+   *
+   *  @return array of utilization values between 0 and 1.
+   */
+  public float[] getServerUtilization()
+  {
+    float[] utilization = new float[ num_servers() ];
+    if ( busy_millis == null || makespan <= 0 )
+      return utilization;
+
+    for ( int i = 0; i < utilization.length; i++ )
+      utilization[i] = busy_millis[i] / 
+                       ((float)server_capacity(i) * makespan);
+    return utilization;
+  }
+
+
+  /**
+   *  Get the names of the servers that operators are assigned to, with 
+   *  "localhost" used for the local machine.
+   *
+   *  @return array of server names, in the order used by 
+   *          getServerUtilization().
+   */
+  public String[] getServerNames()
+  {
+    String[] names = new String[ num_servers() ];
+    for ( int i = 0; i < names.length; i++ )
+      if ( server_names == null || server_names[i] == null )
+        names[i] = "localhost";
+      else
+        names[i] = server_names[i];
+    return names;
+  }
+
+
+  /**
+   *  Get a multi-line String listing the makespan of the last run and
+   *  the number of processes, busy time and utilization for each server.
+   *
+   *  @return a report on how the last run was scheduled.
+   */
+  public String getScheduleReport()
+  {
+    String[] names       = getServerNames();
+    float[]  utilization = getServerUtilization();
+
+    StringBuffer report = new StringBuffer();
+    report.append( "Makespan = " + makespan + " ms\n" );
+    for ( int i = 0; i < names.length; i++ )
+    {
+      long busy = 0;
+      if ( busy_millis != null )
+        busy = busy_millis[i];
+
+      report.append( names[i] + 
+                     " : processes = " + server_capacity(i) +
+                     ", busy = " + busy + " ms" +
+                     ", utilization = " + 
+                     Math.round( 100 * utilization[i] ) + "%\n" );
+    }
+    return report.toString();
+  }
+
+
+  /**
+   *  Reset the scheduling information at the start of a run, and work out
+   *  the order in which the operators should be started.
+   *
+   *  @return the start time for the run, in milliseconds.
+   */
+  private long init_run()
+  {
+    run_order    = get_run_order();
+    start_millis = new long[ operator_list.size() ];
+    busy_millis  = new long[ num_servers() ];
+    makespan     = 0;
+    num_done     = 0;
+    run_start    = System.currentTimeMillis();
+    return run_start;
+  }
+
+
+  /**
+   *  Get the order in which to start the operators, which is list order,
+   *  unless longest first order was requested.
+   */
+  private int[] get_run_order()
+  {
+    int       n_ops = operator_list.size();
+    Integer[] order = new Integer[ n_ops ];
+    for ( int i = 0; i < n_ops; i++ )
+      order[i] = i;
+
+    if ( longest_first )
+    {
+      final float[] cost = new float[ n_ops ];
+      for ( int i = 0; i < n_ops; i++ )
+      {
+        IOperator op = operator_list.elementAt(i);
+        if ( op instanceof ICostOperator )
+          cost[i] = ((ICostOperator)op).getCost();
+      }
+                                           // Arrays.sort is stable, so
+                                           // equal costs stay in list order
+      Arrays.sort( order, new Comparator<Integer>()
+      {
+        public int compare( Integer i1, Integer i2 )
+        {
+          return Float.compare( cost[i2], cost[i1] );
+        }
+      });
+    }
+
+    int[] run_order = new int[ n_ops ];
+    for ( int i = 0; i < n_ops; i++ )
+      run_order[i] = order[i];
+    return run_order;
+  }
+
+
+  /**
+   *  Allocate a server for the operator at the specified index and record
+   *  its start time.
+   *
+   *  @return the operator at the specified index.
+   */
+  private IOperator start_op( int index )
+  {
+    IOperator op = operator_list.elementAt( index );
+    AllocateServer( op );
+    start_millis[ index ] = System.currentTimeMillis();
+    return op;
+  }
+
+
+  /**
+   *  Free the server used by the operator at the specified index and add
+   *  its run time to the busy time for the server.
+   */
+  private void finish_op( int index )
+  {
+    IOperator op  = operator_list.elementAt( index );
+    long      now = System.currentTimeMillis();
+
+    int server = server_index( op );
+    if ( server >= 0 )
+      busy_millis[ server ] += now - start_millis[ index ];
+
+    makespan = now - run_start;
+    FreeServer( op );
+  }
+
+
+  /**
+   *  Get the number of entries in the server tables, or 1 if there is no
+   *  server table and all operators run in local threads.
+   */
+  private int num_servers()
+  {
+    if ( server_names == null )
+      return 1;
+    return server_names.length;
+  }
+
+
+  /**
+   *  Get the maximum number of processes for the specified server.
+   */
+  private int server_capacity( int server )
+  {
+    if ( server_names == null )
+      return max_threads;
+    return max_process[ server ];
+  }
+
+
+  /**
+   *  Get the position of the server used by the specified operator in
+   *  the server tables.  If there is no server table, all operators are
+   *  assigned position 0.  If there is a server table, operators that are
+   *  not IDistributedOperators are not assigned to any server.
+   *
+   *  @return the server position, or -1 if the operator is not assigned
+   *          to a server.
+   */
+  private int server_index( IOperator op )
+  {
+    if ( server_names == null )
+      return 0;
+
+    if ( !(op instanceof IDistributedOperator) )
+      return -1;
+
+    String name = ((IDistributedOperator)op).getServerName();
+    for ( int i = 0; i < server_names.length; i++ )
+      if ( name == null && server_names[i] == null )
+        return i;
+      else if ( name != null && name.equalsIgnoreCase( server_names[i] ) )
+        return i;
+
+    return -1;
+  }
+
+
   /**
    *  Set the server for this operator if it is an IDistributedOperator,
    *  and do nothing otherwise.
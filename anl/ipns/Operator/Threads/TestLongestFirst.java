@@ -0,0 +1,129 @@
+/* 
+ * File: TestLongestFirst.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Revision$
+ */
+
+package gov.anl.ipns.Operator.Threads;
+
+import gov.anl.ipns.Operator.IOperator;
+import gov.anl.ipns.Operator.IDistributedOperator;
+import gov.anl.ipns.Operator.ICostOperator;
+
+import java.util.Vector;
+
+/**
+ *  This class runs a list of distributed operators with known costs on
+ *  a set of simulated servers, first in list order and then longest
+ *  first, and prints the schedule report for each run.  The longest 
+ *  operators are placed at the end of the list, which is the worst case
+ *  for list order.
+ */
+public class TestLongestFirst
+{
+
+  /**
+   *  A distributed operator that sleeps for a time equal to its cost in
+   *  milliseconds, as a stand in for an operator that runs on a server.
+   */
+  private static class SleepOperator implements IDistributedOperator,
+                                                ICostOperator
+  {
+    private int    millis;
+    private String server_name;
+
+    SleepOperator( int millis )
+    {
+      this.millis = millis;
+    }
+
+    public void setServerName( String server_name )
+    {
+      this.server_name = server_name;
+    }
+
+    public String getServerName()
+    {
+      return server_name;
+    }
+
+    public float getCost()
+    {
+      return millis;
+    }
+
+    public Object getResult()
+    {
+      try
+      {
+        Thread.sleep( millis );
+      }
+      catch ( InterruptedException ex )
+      {
+        return FailState.INTERRUPTED;
+      }
+      return "Slept " + millis + " ms on " + server_name;
+    }
+  }
+
+
+  /**
+   *  Run the operators and print the schedule report.
+   */
+  private static void run( Vector<IOperator> ops, boolean longest_first )
+  {
+    String[] servers       = { "node1", "node2", "localhost" };
+    int[]    max_processes = { 4, 2, 2 };
+
+    ParallelExecutor exec = 
+                   new ParallelExecutor( ops, 60000, servers, max_processes );
+    exec.setLongestFirst( longest_first );
+    exec.runOperators( ParallelExecutor.newThreadPool( 8 ) );
+
+    System.out.println("Longest first = " + longest_first );
+    System.out.println( exec.getScheduleReport() );
+  }
+
+
+  public static void main( String[] args )
+  {
+    Vector<IOperator> ops = new Vector<IOperator>();
+    for ( int i = 0; i < 60; i++ )
+      ops.add( new SleepOperator( 50 ) );
+
+    for ( int i = 0; i < 4; i++ )
+      ops.add( new SleepOperator( 1000 ) );
+
+    run( ops, false );
+    run( ops, true );
+  }
+
+}
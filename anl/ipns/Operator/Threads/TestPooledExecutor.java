@@ -0,0 +1,134 @@
+/* 
+ * File: TestPooledExecutor.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Revision$
+ */
+
+package gov.anl.ipns.Operator.Threads;
+
+import gov.anl.ipns.Operator.IOperator;
+
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+
+/**
+ *  This class compares the time required by ParallelExecutor to run a 
+ *  large number of short operators, using a new thread per operator and 
+ *  join polling, with the time required using a reusable thread pool.
+ */
+public class TestPooledExecutor
+{
+
+  /**
+   *  Make a list of TestIOperators that each sum the specified number
+   *  of values.
+   */
+  private static Vector<IOperator> makeOps( int n_ops, int n_values )
+  {
+    Vector<IOperator> ops = new Vector<IOperator>();
+    for ( int i = 0; i < n_ops; i++ )
+      ops.add( new TestIOperator( "IOperator " + i, n_values ) );
+
+    return ops;
+  }
+
+
+  /**
+   *  Run the operators either with new threads, if service is null, or
+   *  using the specified service, and return the elapsed time in ms.
+   */
+  private static double timeRun( Vector<IOperator> ops,
+                                 int               n_threads,
+                                 ExecutorService   service )
+  {
+    long start_time = System.nanoTime();
+    Vector results;
+    try
+    {
+      ParallelExecutor exec = new ParallelExecutor( ops, n_threads, 600000 );
+      if ( service == null )
+        results = exec.runOperators();
+      else
+        results = exec.runOperators( service );
+    }
+    catch ( ExecFailException fail_exception )
+    {
+      results = fail_exception.getPartialResults();
+      System.out.println("ExecFailException: " + 
+                          fail_exception.getFailureStatus() );
+    }
+    double run_time = (System.nanoTime() - start_time) / 1.0e6;
+
+    if ( results.size() != ops.size() )
+      System.out.println("ERROR: got " + results.size() + " results for " +
+                          ops.size() + " operators" );
+    return run_time;
+  }
+
+
+  /**
+   *  Run the benchmark.
+   *
+   *  @param args  args[0] - number of operators (default 5000)
+   *               args[1] - number of threads   (default number of cores)
+   *               args[2] - values summed per operator (default 10000)
+   */
+  public static void main( String[] args )
+  {
+    int n_ops     = 5000;
+    int n_threads = Runtime.getRuntime().availableProcessors();
+    int n_values  = 10000;
+
+    if ( args.length > 0 )
+      n_ops = Integer.parseInt( args[0] );
+    if ( args.length > 1 )
+      n_threads = Integer.parseInt( args[1] );
+    if ( args.length > 2 )
+      n_values = Integer.parseInt( args[2] );
+
+    Vector<IOperator> ops = makeOps( n_ops, n_values );
+    ExecutorService service = ParallelExecutor.newThreadPool( n_threads );
+
+    System.out.println("Running " + n_ops + " operators on " + 
+                        n_threads + " threads");
+    for ( int trial = 0; trial < 3; trial++ )
+    {
+      double poll_time = timeRun( ops, n_threads, null );
+      double pool_time = timeRun( ops, n_threads, service );
+      System.out.printf( "Trial %d : join polling %10.2f ms, " +
+                         "thread pool %10.2f ms\n",
+                          trial, poll_time, pool_time );
+    }
+
+    service.shutdown();
+  }
+
+}
@@ -0,0 +1,79 @@
+/* 
+ * File: TestResultListener.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Revision$
+ */
+
+package gov.anl.ipns.Operator.Threads;
+
+import gov.anl.ipns.Operator.IOperator;
+
+import java.util.Vector;
+
+/**
+ *  This class prints the progress messages and results passed to an
+ *  IOperatorResultListener while a ParallelExecutor runs operators of
+ *  different sizes, using both forms of runOperators().
+ */
+public class TestResultListener implements IOperatorResultListener
+{
+
+  public void operatorDone( int    index, 
+                            Object result, 
+                            int    num_done,
+                            int    num_running,
+                            int    num_queued,
+                            long   elapsed_ms )
+  {
+    System.out.println( elapsed_ms + " ms: done = " + num_done +
+                        ", running = " + num_running +
+                        ", queued = " + num_queued +
+                        ", result " + index + " = " + result );
+  }
+
+
+  public static void main( String[] args )
+  {
+    Vector<IOperator> ops = new Vector<IOperator>();
+    for ( int i = 0; i < 20; i++ )
+      ops.add( new TestIOperator( "IOperator " + i, (20 - i) * 5000000 ) );
+
+    ParallelExecutor exec = new ParallelExecutor( ops, 4, 60000 );
+    exec.addResultListener( new TestResultListener() );
+
+    System.out.println("Using new threads");
+    exec.runOperators();
+
+    System.out.println("Using thread pool");
+    exec.runOperators( ParallelExecutor.newThreadPool( 4 ) );
+  }
+
+}
@@ -0,0 +1,127 @@
+/* 
+ * File: TestVirtualThreads.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Revision$
+ */
+
+package gov.anl.ipns.Operator.Threads;
+
+import gov.anl.ipns.Operator.IOperator;
+
+import java.util.Vector;
+
+/**
+ *  This class runs a large number of operators that spend their time
+ *  blocked, using ParallelExecutor.runOperatorsOnVirtualThreads(), with
+ *  max_threads equal to the number of operators, and reports the total 
+ *  run time and the peak number of live JVM threads.
+ */
+public class TestVirtualThreads
+{
+
+  /**
+   *  An operator that just sleeps for a specified time, as a stand in 
+   *  for an operator that waits for a child process or for I/O.
+   */
+  private static class SleepOperator implements IOperator
+  {
+    private int id;
+    private int millis;
+
+    SleepOperator( int id, int millis )
+    {
+      this.id     = id;
+      this.millis = millis;
+    }
+
+    public Object getResult()
+    {
+      try
+      {
+        Thread.sleep( millis );
+      }
+      catch ( InterruptedException ex )
+      {
+        return FailState.INTERRUPTED;
+      }
+      return "Operator " + id + " slept " + millis + " ms";
+    }
+  }
+
+
+  /**
+   *  Run the test.
+   *
+   *  @param args  args[0] - number of operators (default 5000)
+   *               args[1] - sleep time per operator in ms (default 200)
+   */
+  public static void main( String[] args )
+  {
+    int n_ops  = 5000;
+    int millis = 200;
+
+    if ( args.length > 0 )
+      n_ops = Integer.parseInt( args[0] );
+    if ( args.length > 1 )
+      millis = Integer.parseInt( args[1] );
+
+    Vector<IOperator> ops = new Vector<IOperator>();
+    for ( int i = 0; i < n_ops; i++ )
+      ops.add( new SleepOperator( i, millis ) );
+
+    System.out.println("Virtual threads supported: " +
+                        ParallelExecutor.isVirtualThreadSupported() );
+
+    long start_time = System.nanoTime();
+    Vector results;
+    try
+    {
+      ParallelExecutor exec = new ParallelExecutor( ops, n_ops, 600000 );
+      results = exec.runOperatorsOnVirtualThreads();
+    }
+    catch ( ExecFailException fail_exception )
+    {
+      results = fail_exception.getPartialResults();
+      System.out.println("ExecFailException: " + 
+                          fail_exception.getFailureStatus() );
+    }
+    long run_time = System.nanoTime() - start_time;
+
+    System.out.println("First result : " + results.elementAt(0) );
+    System.out.println("Last result  : " + results.lastElement() );
+    System.out.println("Ran " + n_ops + " operators in " + 
+                        run_time/1000000 + " ms" );
+    System.out.println("Peak JVM thread count = " + 
+                  java.lang.management.ManagementFactory.getThreadMXBean()
+                                                    .getPeakThreadCount() );
+  }
+
+}
@@ -0,0 +1,324 @@
+/* 
+ * File: ByteNumberParser.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Revision$
+ */
+
+package gov.anl.ipns.Util.File;
+
+import java.nio.ByteBuffer;
+
+/**
+ *  This class has static methods to convert the ASCII representation of
+ *  a number, stored in a range of bytes in a ByteBuffer, to a double,
+ *  without first building a String.  Numbers of the usual form, with an
+ *  optional sign, digits, decimal point and exponent are converted 
+ *  directly.  In the rare cases where direct conversion might not give
+ *  exactly the same value as Double.parseDouble(), such as numbers with
+ *  more than 15 significant digits, or that are not of the usual form
+ *  (eg. "NaN"), the bytes are converted to a String and Double.parseDouble()
+ *  is used.  The results are therefore always the same as those of 
+ *  Double.parseDouble() applied to the same characters.  Similar methods
+ *  give the same values as Float.parseFloat() and Integer.parseInt().
+ */
+public class ByteNumberParser
+{
+  private static final int MAX_DIGITS   = 15;   // digits held exactly
+  private static final int MAX_EXPONENT = 22;   // powers held exactly
+
+  private static final double[] POWERS_OF_TEN = new double[ MAX_EXPONENT+1 ];
+  static
+  {
+    POWERS_OF_TEN[0] = 1;
+    for ( int i = 1; i <= MAX_EXPONENT; i++ )
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i-1] * 10;
+  }
+
+
+  /**
+   *  Don't instantiate this class, just use the static methods.
+   */
+  private ByteNumberParser()
+  {
+  }
+
+
+  /**
+   *  Convert the characters stored in positions start, start+1, ..., end-1
+   *  of the buffer to a double.  White space (any characters with value
+   *  less than or equal to a blank) is removed from both ends first, as 
+   *  by String.trim().  The position of the buffer is not changed.
+   *
+   *  @param  buffer  The buffer holding the characters.
+   *  @param  start   The position of the first character.
+   *  @param  end     One more than the position of the last character.
+   *
+   *  @return the double value represented by the characters.
+   *
+   *  @throws NumberFormatException if the characters do not represent
+   *          a number, with the same message as Double.parseDouble().
+   */
+  public static double parseDouble( ByteBuffer buffer, int start, int end )
+                       throws NumberFormatException
+  {
+    while ( start < end && (buffer.get(start) & 0xFF) <= ' ' )
+      start++;
+    while ( end > start && (buffer.get(end-1) & 0xFF) <= ' ' )
+      end--;
+
+    int     i        = start;
+    boolean negative = false;
+    if ( i < end )
+    {
+      byte sign = buffer.get(i);
+      if ( sign == '-' || sign == '+' )
+      {
+        negative = (sign == '-');
+        i++;
+      }
+    }
+
+    long    mantissa  = 0;
+    int     n_digits  = 0;         // significant digits in mantissa
+    int     exponent  = 0;         // power of ten applied to mantissa
+    boolean any_digit = false;
+    boolean exact     = true;      // false if digits were dropped
+    byte    ch;
+                                   // integer part
+    while ( i < end && (ch = buffer.get(i)) >= '0' && ch <= '9' )
+    {
+      any_digit = true;
+      if ( mantissa != 0 || ch != '0' )
+      {
+        if ( n_digits < MAX_DIGITS )
+        {
+          mantissa = mantissa * 10 + (ch - '0');
+          n_digits++;
+        }
+        else
+        {
+          exact = false;
+          exponent++;
+        }
+      }
+      i++;
+    }
+                                   // fraction part
+    if ( i < end && buffer.get(i) == '.' )
+    {
+      i++;
+      while ( i < end && (ch = buffer.get(i)) >= '0' && ch <= '9' )
+      {
+        any_digit = true;
+        if ( n_digits < MAX_DIGITS )
+        {
+          if ( mantissa != 0 || ch != '0' )
+          {
+            mantissa = mantissa * 10 + (ch - '0');
+            n_digits++;
+          }
+          exponent--;
+        }
+        else
+          exact = false;
+        i++;
+      }
+    }
+                                   // exponent part
+    if ( any_digit && i < end && ((ch = buffer.get(i)) == 'e' || ch == 'E') )
+    {
+      i++;
+      boolean neg_exp = false;
+      if ( i < end && ((ch = buffer.get(i)) == '-' || ch == '+') )
+      {
+        neg_exp = (ch == '-');
+        i++;
+      }
+      if ( i >= end )
+        any_digit = false;
+
+      int power = 0;
+      while ( i < end && (ch = buffer.get(i)) >= '0' && ch <= '9' )
+      {
+        if ( power < 10000 )
+          power = power * 10 + (ch - '0');
+        i++;
+      }
+      if ( neg_exp )
+        exponent -= power;
+      else
+        exponent += power;
+    }
+
+    if ( !any_digit || i != end || !exact )
+      return parseString( buffer, start, end );
+
+    double value;
+    if ( mantissa == 0 )
+      value = 0;
+    else if ( exponent >= 0 && exponent <= MAX_EXPONENT )
+      value = mantissa * POWERS_OF_TEN[ exponent ];
+    else if ( exponent < 0 && exponent >= -MAX_EXPONENT )
+      value = mantissa / POWERS_OF_TEN[ -exponent ];
+    else
+      return parseString( buffer, start, end );
+
+    if ( negative )
+      return -value;
+    return value;
+  }
+
+
+  /**
+   *  Convert the characters stored in positions start, start+1, ..., end-1
+   *  of the buffer to a float, giving exactly the same value as 
+   *  Float.parseFloat() would give for those characters.  White space is 
+   *  removed from both ends first.  The position of the buffer is not 
+   *  changed.
+   *
+   *  @param  buffer  The buffer holding the characters.
+   *  @param  start   The position of the first character.
+   *  @param  end     One more than the position of the last character.
+   *
+   *  @return the float value represented by the characters.
+   *
+   *  @throws NumberFormatException if the characters do not represent
+   *          a number, with the same message as Float.parseFloat().
+   */
+  public static float parseFloat( ByteBuffer buffer, int start, int end )
+                      throws NumberFormatException
+  {
+    double value  = parseDouble( buffer, start, end );
+    float  result = (float)value;
+    if ( (double)result == value || Float.isInfinite( result ) ||
+         Double.isNaN( value ) )
+      return result;
+                                    // Rounding the correctly rounded double
+                                    // to a float can only differ from 
+                                    // rounding the exact value, if the double
+                                    // is exactly halfway between two floats.
+    float other;
+    if ( value > result )
+      other = Math.nextUp( result );
+    else
+      other = -Math.nextUp( -result );
+
+    if ( value == ((double)result + (double)other) / 2 )
+      return Float.parseFloat( getString( buffer, start, end ) );
+
+    return result;
+  }
+
+
+  /**
+   *  Convert the characters stored in positions start, start+1, ..., end-1
+   *  of the buffer to an int, giving exactly the same value as 
+   *  Integer.parseInt() would give for those characters.  White space is
+   *  removed from both ends first.  The position of the buffer is not 
+   *  changed.
+   *
+   *  @param  buffer  The buffer holding the characters.
+   *  @param  start   The position of the first character.
+   *  @param  end     One more than the position of the last character.
+   *
+   *  @return the int value represented by the characters.
+   *
+   *  @throws NumberFormatException if the characters do not represent
+   *          an int, with the same message as Integer.parseInt().
+   */
+  public static int parseInt( ByteBuffer buffer, int start, int end )
+                    throws NumberFormatException
+  {
+    while ( start < end && (buffer.get(start) & 0xFF) <= ' ' )
+      start++;
+    while ( end > start && (buffer.get(end-1) & 0xFF) <= ' ' )
+      end--;
+
+    int     i        = start;
+    boolean negative = false;
+    if ( i < end )
+    {
+      byte sign = buffer.get(i);
+      if ( sign == '-' || sign == '+' )
+      {
+        negative = (sign == '-');
+        i++;
+      }
+    }
+                                        // at most 9 digits can't overflow
+    if ( i >= end || end - i > 9 )
+      return Integer.parseInt( getString( buffer, start, end ) );
+
+    int value = 0;
+    for ( ; i < end; i++ )
+    {
+      byte ch = buffer.get(i);
+      if ( ch < '0' || ch > '9' )
+        return Integer.parseInt( getString( buffer, start, end ) );
+      value = value * 10 + (ch - '0');
+    }
+
+    if ( negative )
+      return -value;
+    return value;
+  }
+
+
+  /**
+   *  Convert the characters in the specified range of the buffer to a 
+   *  String, using one byte per character.
+   *
+   *  @param  buffer  The buffer holding the characters.
+   *  @param  start   The position of the first character.
+   *  @param  end     One more than the position of the last character.
+   *
+   *  @return a String containing the characters.
+   */
+  public static String getString( ByteBuffer buffer, int start, int end )
+  {
+    char[] chars = new char[ end - start ];
+    for ( int i = start; i < end; i++ )
+      chars[ i - start ] = (char)(buffer.get(i) & 0xFF);
+    return new String( chars );
+  }
+
+
+  /**
+   *  Use Double.parseDouble() for characters that can't be converted 
+   *  directly.
+   */
+  private static double parseString( ByteBuffer buffer, int start, int end )
+                        throws NumberFormatException
+  {
+    return Double.parseDouble( getString( buffer, start, end ) );
+  }
+
+}
@@ -732,6 +732,18 @@ public class FileIO{
 
 
   }
+
+  /**
+  *    Checks whether a value satisfies an end condition, so that classes
+  *    that read files in other ways can use the end conditions from
+  *    getEndCondition()
+  *   @param  EndCondition  An end condition from getEndCondition()
+  *   @param  Val           The value read for the corresponding variable
+  *   @return  true if the end condition is satisfied, so reading is done
+  */
+  static boolean isEndConditionMet( Object EndCondition, Object Val){
+     return ((EndCond)EndCondition).done( Val);
+  }
 }//end FileIO
 
 /** 
@@ -0,0 +1,838 @@
+/* 
+ * File: FormattedFileReader.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Revision$
+ */
+
+package gov.anl.ipns.Util.File;
+
+import java.io.*;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Vector;
+
+import gov.anl.ipns.Util.SpecialStrings.ErrorString;
+
+/**
+ *  This class reads sequential data from a text file, using the same 
+ *  simple FORTRAN-like format descriptors as FileIO.Read(), and fills 
+ *  the same Vector of arrays.  Rather than reading one byte at a time
+ *  from a FileInputStream and building a String for each number, the 
+ *  file is memory mapped and numbers are converted directly from the 
+ *  bytes into primitive arrays.  This is much faster for large tables.
+ *  The supported format descriptors are:
+ *  <ul>
+ *  <li> Iw   - an integer in a field of w characters </li>
+ *  <li> Fw.d - a float in a field of w characters </li>
+ *  <li> Ew.d - a float in a field of w characters </li>
+ *  <li> Sw or Aw - a String of at most w characters </li>
+ *  <li> /    - skip to the start of the next line </li>
+ *  <li> B    - free form mode, which is accepted but has no effect </li>
+ *  </ul>
+ *  A negative width specifies a free form field, which is delimited by
+ *  white space.  A free form String may also be enclosed in double quotes.
+ *  As with FileIO.Read(), the format descriptors are used cyclically.
+ *  NOTE: Since the file is memory mapped, at most 2GB can be read by one 
+ *  FormattedFileReader.
+ */
+public class FormattedFileReader
+{
+  private static final int INT_OP      = 0;   // kinds of format descriptors
+  private static final int FLOAT_OP    = 1;
+  private static final int STRING_OP   = 2;
+  private static final int NEW_LINE_OP = 3;
+  private static final int FREE_OP     = 4;
+  private static final int ERROR_OP    = 5;
+
+  private static final int OK          = 0;   // status of reading one item
+  private static final int NO_MORE     = 1;
+  private static final int ERROR       = 2;
+
+  private ByteBuffer buffer;
+  private int        pos;            // position of next byte to read
+  private int        end;            // position after last byte
+
+  private int[]      op_kind;        // the parsed format
+  private int[]      op_width;
+  private int        current_op;
+  private boolean    line_ended;     // last item used up the end of line
+
+  private double     num_value;      // value of last item read
+  private String     string_value;
+  private String     error_message;
+
+
+  /**
+   *  Construct a FormattedFileReader to read the specified file.
+   *
+   *  @param  file_name  The name of the file to read.
+   *
+   *  @throws IOException if the file can't be opened or mapped.
+   */
+  public FormattedFileReader( String file_name ) throws IOException
+  {
+    RandomAccessFile file = new RandomAccessFile( file_name, "r" );
+    try
+    {
+      FileChannel channel = file.getChannel();
+      setBuffer( channel.map( FileChannel.MapMode.READ_ONLY, 
+                              0, 
+                              mapSize( channel.size() ) ) );
+    }
+    finally
+    {
+      file.close();
+    }
+  }
+
+
+  /**
+   *  Construct a FormattedFileReader to read the bytes between the 
+   *  position and limit of the specified buffer.
+   *
+   *  @param  buffer  The buffer holding the text to read.
+   */
+  public FormattedFileReader( ByteBuffer buffer )
+  {
+    if ( buffer == null )
+      throw new IllegalArgumentException( "buffer is null" );
+
+    setBuffer( buffer );
+  }
+
+
+  /**
+   *  Get the number of bytes that have been read so far.
+   *
+   *  @return the number of bytes read.
+   */
+  public int getBytesRead()
+  {
+    return pos - buffer.position();
+  }
+
+
+  /**
+   *  Read data from the current position in the specified stream, in the
+   *  same way as FileIO.Read().  The data from the current position of 
+   *  the stream to the end of the file is memory mapped and read, and 
+   *  the position of the stream is then set to follow the last character
+   *  used, so further data can be read from the stream.
+   *
+   *  @see FileIO#Read(FileInputStream,Vector,String,int,Vector)
+   *
+   *  @param  f             The FileInputStream to read from.
+   *  @param  V             Contains on input a list of data types for the
+   *                        variables to be read.  On output, the values
+   *                        are all set into the Vector.
+   *  @param  Format        Specifies how the entries are to be read.
+   *  @param  MaxLines      The maximum number of lines to be read or -1 if 
+   *                        that is not an end condition.
+   *  @param  EndConditions A Vector of end conditions obtained from
+   *                        FileIO.getEndCondition(), or null.
+   *
+   *  @return The length of the arrays filled up or an ErrorString.
+   */
+  public static Object Read( FileInputStream f, 
+                             Vector          V, 
+                             String          Format, 
+                             int             MaxLines,
+                             Vector          EndConditions )
+  {
+    try
+    {
+      FileChannel channel = f.getChannel();
+      long        start   = channel.position();
+      ByteBuffer  buffer  = channel.map( FileChannel.MapMode.READ_ONLY, 
+                                         start,
+                                         mapSize( channel.size() - start ) );
+
+      FormattedFileReader reader = new FormattedFileReader( buffer );
+      Object result = reader.Read( V, Format, MaxLines, EndConditions );
+      channel.position( start + reader.getBytesRead() );
+      return result;
+    }
+    catch ( IOException ex )
+    {
+      return new ErrorString( "IOerror=" + ex.getMessage() );
+    }
+  }
+
+
+  /**
+   *  Read data sequentially from the current position of this reader and
+   *  assign it to the arrays or Vectors in V.  The type of each entry of V
+   *  determines the type of array that replaces it.  For example, if the
+   *  entry is an int[] or a float[], it will be replaced by an int[] or 
+   *  float[] containing the values read for that variable.  If the entry
+   *  is a Vector, it is replaced by a Vector of Integer, Float or String
+   *  objects.  
+   *
+   *  @param  V             Contains on input a list of data types for the
+   *                        variables to be read.  On output, the values
+   *                        are all set into the Vector.
+   *  @param  Format        Specifies how the entries are to be read.
+   *  @param  MaxLines      The maximum number of lines to be read or -1 if 
+   *                        that is not an end condition.
+   *  @param  EndConditions A Vector of end conditions obtained from
+   *                        FileIO.getEndCondition(), or null.  The first
+   *                        refers to the first variable in V, etc.  All 
+   *                        conditions must be true to stop reading.
+   *
+   *  @return The length of the arrays filled up or an ErrorString.
+   */
+  public Object Read( Vector V, String Format, int MaxLines, 
+                      Vector EndConditions )
+  {
+    if ( V == null || Format == null )
+      return new ErrorString( "null Vector or Format" );
+
+    setFormat( Format );
+
+    int        n_vars   = V.size();
+    double[][] values   = new double[ n_vars ][];   // numeric columns
+    String[][] strings  = new String[ n_vars ][];   // String columns
+    boolean[]  all_int  = new boolean[ n_vars ];    // true if only I read
+    boolean[]  any_num  = new boolean[ n_vars ];
+    boolean[]  any_str  = new boolean[ n_vars ];
+    int        capacity = 1024;
+
+    for ( int i = 0; i < n_vars; i++ )
+      all_int[i] = true;
+
+    double[] line_values  = new double[ n_vars ];  // values for the current
+    String[] line_strings = new String[ n_vars ];  // line
+    int[]    line_kinds   = new int[ n_vars ];
+
+    int     line    = 0;
+    int     lineNum = 0;
+    boolean done    = false;
+    while ( !done )
+    {
+      boolean omitLast = false;
+      lineNum++;
+      for ( int i = 0; i < n_vars && !omitLast; i++ )
+      {
+        int kind   = nextItemKind();
+        int status = readItem();
+        if ( status == ERROR )
+          return new ErrorString( error_message + " at line " + lineNum + 
+                                  " entry " + i );
+        if ( status == NO_MORE )
+        {
+          done     = true;
+          omitLast = true;
+        }
+        line_kinds[i] = kind;
+        if ( kind == STRING_OP )
+          line_strings[i] = string_value;
+        else
+          line_values[i]  = num_value;
+      }
+
+      if ( !omitLast )
+        line++;
+
+      if ( MaxLines >= 0 && line >= MaxLines )
+        done = true;
+      else if ( !omitLast && EndConditions != null )
+      {
+        boolean end_found = true;
+        for ( int j = 0; j < n_vars && j < EndConditions.size() && end_found;
+              j++ )
+          end_found = FileIO.isEndConditionMet( EndConditions.elementAt(j),
+                    box( line_kinds[j], line_values[j], line_strings[j] ) );
+        if ( end_found )
+        {
+          done     = true;
+          omitLast = true;
+          line--;
+        }
+      }
+
+      if ( !omitLast )                             // save values for line
+      {
+        if ( line > capacity )
+          capacity = 2 * capacity;
+
+        for ( int j = 0; j < n_vars; j++ )
+          if ( line_kinds[j] == STRING_OP )
+          {
+            strings[j] = grow( strings[j], capacity );
+            strings[j][line-1] = line_strings[j];
+            any_str[j] = true;
+          }
+          else
+          {
+            values[j] = grow( values[j], capacity );
+            values[j][line-1] = line_values[j];
+            any_num[j] = true;
+            if ( line_kinds[j] != INT_OP )
+              all_int[j] = false;
+          }
+      }
+    }
+                                               // Now copy the values back
+    for ( int i = 0; i < n_vars; i++ )         // into Vector V
+    {
+      Object O = V.elementAt( i );
+      if ( O == null )
+        continue;
+
+      if ( any_num[i] && any_str[i] )
+        return new ErrorString( "Mixed numbers and Strings for entry " + i );
+
+      if ( O instanceof Vector )
+      {
+        Vector C = new Vector( line );
+        for ( int j = 0; j < line; j++ )
+          if ( any_str[i] )
+            C.addElement( strings[i][j] );
+          else if ( all_int[i] )
+            C.addElement( new Integer( (int)values[i][j] ) );
+          else
+            C.addElement( new Float( (float)values[i][j] ) );
+        V.setElementAt( C, i );
+      }
+      else
+      {
+        Object array = makeArray( getBaseClass( O ), line,
+                                  values[i], strings[i], all_int[i] );
+        if ( array instanceof ErrorString )
+          return array;
+        V.setElementAt( array, i );
+      }
+    }
+
+    return new Integer( line );
+  }
+
+
+  /**
+   *  Set the buffer to read and reset the read position to the buffer's
+   *  position.
+   */
+  private void setBuffer( ByteBuffer buffer )
+  {
+    this.buffer = buffer;
+    pos = buffer.position();
+    end = buffer.limit();
+  }
+
+
+  /**
+   *  Check that a file region can be memory mapped and get its size as
+   *  an int.
+   */
+  private static long mapSize( long size ) throws IOException
+  {
+    if ( size > Integer.MAX_VALUE )
+      throw new IOException( "File too large to map, " + size + " bytes" );
+    return size;
+  }
+
+
+  /**
+   *  Split the format into its descriptors, in the same way as the 
+   *  FormatHandler used by FileIO.
+   */
+  private void setFormat( String Format )
+  {
+    Format = Format.trim();
+    if ( Format.startsWith("(") )
+      Format = Format.substring( 1 );
+    if ( Format.endsWith(")") )
+      Format = Format.substring( 0, Format.length() - 1 );
+
+    String[] specs = Format.split( ",", -1 );
+    op_kind  = new int[ specs.length ];
+    op_width = new int[ specs.length ];
+    for ( int i = 0; i < specs.length; i++ )
+    {
+      String S = specs[i].trim();
+      int    j = S.indexOf( '.' );
+      try
+      {
+        if ( S.startsWith( "I" ) )
+        {
+          op_kind[i]  = INT_OP;
+          op_width[i] = Integer.parseInt( S.substring(1) );
+        }
+        else if ( S.startsWith( "F" ) || S.startsWith( "E" ) )
+        {
+          op_kind[i]  = FLOAT_OP;
+          op_width[i] = Integer.parseInt( S.substring(1, j) );
+          Integer.parseInt( S.substring(j+1) );
+        }
+        else if ( S.startsWith( "S" ) || S.startsWith( "A" ) )
+        {
+          char c = S.charAt( S.length() - 1 );     // justification is only
+          if ( c == '+' || c == '-' )              // used for writing
+            S = S.substring( 0, S.length() - 1 );
+          op_kind[i]  = STRING_OP;
+          op_width[i] = Integer.parseInt( S.substring(1) );
+        }
+        else if ( S.startsWith( "/" ) )
+          op_kind[i] = NEW_LINE_OP;
+        else if ( S.startsWith( "B" ) )
+          op_kind[i] = FREE_OP;
+        else
+          op_kind[i] = ERROR_OP;
+      }
+      catch ( RuntimeException ex )
+      {
+        op_kind[i] = ERROR_OP;
+      }
+    }
+
+    current_op = 0;
+    line_ended = false;
+  }
+
+
+  /**
+   *  Step past any "/" or "B" descriptors, skipping to the next line for
+   *  "/" descriptors, unless the last item read already used up the end 
+   *  of the line.
+   *
+   *  @return the kind of descriptor that will be used for the next item.
+   */
+  private int nextItemKind()
+  {
+    int n_skipped = 0;
+    while ( op_kind[ current_op ] == NEW_LINE_OP || 
+            op_kind[ current_op ] == FREE_OP       )
+    {
+      if ( op_kind[ current_op ] == NEW_LINE_OP )
+      {
+        if ( !line_ended )
+          skipLine();
+        line_ended = false;
+      }
+      current_op = (current_op + 1) % op_kind.length;
+
+      n_skipped++;
+      if ( n_skipped > op_kind.length )        // only "/" and "B" given
+        return ERROR_OP;
+    }
+    return op_kind[ current_op ];
+  }
+
+
+  /**
+   *  Read the next item using the current format descriptor, and move on
+   *  to the next descriptor.  The value is stored in num_value or 
+   *  string_value.
+   *
+   *  @return OK, NO_MORE if there was no more data, or ERROR if the data
+   *          did not match the format, in which case error_message is set.
+   */
+  private int readItem()
+  {
+    int kind = nextItemKind();
+    int status;
+    if ( kind == INT_OP || kind == FLOAT_OP )
+      status = readNumber( kind, op_width[ current_op ] );
+    else if ( kind == STRING_OP )
+      status = readString( op_width[ current_op ] );
+    else
+    {
+      error_message = "Improper Format specifier";
+      return ERROR;
+    }
+    current_op = (current_op + 1) % op_kind.length;
+    return status;
+  }
+
+
+  /**
+   *  Read a number in a field of the specified width, or a free form 
+   *  number if the width is negative.
+   */
+  private int readNumber( int kind, int width )
+  {
+    line_ended = false;
+    int start;
+    int stop;
+    if ( width < 0 )                              // free form
+    {
+      while ( pos < end && (buffer.get(pos) & 0xFF) <= ' ' )
+        pos++;
+      if ( pos >= end )
+        return NO_MORE;
+
+      start = pos;
+      while ( pos < end && isNumberChar( buffer.get(pos) ) )
+        pos++;
+      stop = pos;
+
+      if ( pos < end )
+      {
+        int c = buffer.get(pos) & 0xFF;
+        if ( c > ' ' )
+        {
+          error_message = "improper Numeric Format " + 
+                           ByteNumberParser.getString( buffer, start, stop );
+          return ERROR;
+        }
+        pos++;                                     // use up the delimiter
+        if ( c < ' ' )
+          line_ended = true;
+      }
+      else
+        line_ended = true;
+    }
+    else                                           // fixed width
+    {
+      while ( pos < end && (buffer.get(pos) & 0xFF) < ' ' )
+        pos++;
+      if ( pos >= end )
+        return NO_MORE;
+
+      start = pos;
+      pos   = Math.min( end, pos + Math.max( width, 1 ) );
+      stop  = pos;
+      if ( buffer.get( stop - 1 ) == '\n' )
+        line_ended = true;
+
+      if ( isBlank( start, stop ) && pos >= end )
+        return NO_MORE;
+    }
+
+    try
+    {
+      num_value = ByteNumberParser.parseDouble( buffer, start, stop );
+      if ( kind == INT_OP )
+        num_value = (int)num_value;
+      else
+        num_value = (float)num_value;
+      return OK;
+    }
+    catch ( NumberFormatException ex )
+    {
+      error_message = ex.getMessage();
+      return ERROR;
+    }
+  }
+
+
+  /**
+   *  Read a String in a field of at most the specified width, or a free
+   *  form String if the width is negative.  A free form String ends at
+   *  white space, or is enclosed in double quotes.  A fixed width String 
+   *  ends at the end of the line, if that comes before width characters.
+   */
+  private int readString( int width )
+  {
+    line_ended = false;
+    while ( pos < end && (buffer.get(pos) & 0xFF) <= ' ' )
+      pos++;
+    if ( pos >= end )
+      return NO_MORE;
+
+    int start = pos;
+    int stop;
+    if ( width < 0 )
+    {
+      if ( buffer.get(pos) == '"' )
+      {
+        start = ++pos;
+        while ( pos < end && buffer.get(pos) != '"' )
+          pos++;
+        stop = pos;
+        if ( pos < end )
+          pos++;
+      }
+      else
+      {
+        while ( pos < end && (buffer.get(pos) & 0xFF) > ' ' )
+          pos++;
+        stop = pos;
+      }
+      if ( pos >= end )
+        line_ended = true;
+      else if ( (buffer.get(pos) & 0xFF) <= ' ' )
+      {
+        line_ended = (buffer.get(pos) & 0xFF) < ' ';
+        pos++;
+      }
+    }
+    else
+    {
+      while ( pos < end && pos - start < width && 
+              (buffer.get(pos) & 0xFF) >= ' ' )
+        pos++;
+      stop = pos;
+      if ( pos - start < width )                   // stopped at end of line
+      {
+        line_ended = true;
+        if ( pos < end )
+          pos++;
+      }
+    }
+
+    string_value = ByteNumberParser.getString( buffer, start, stop );
+    return OK;
+  }
+
+
+  /**
+   *  Skip to the start of the next line.
+   */
+  private void skipLine()
+  {
+    while ( pos < end )
+    {
+      int c = buffer.get(pos++) & 0xFF;
+      if ( c < ' ' && c != '\t' )
+        return;
+    }
+  }
+
+
+  /**
+   *  Check whether a byte can be part of a free form number.
+   */
+  private static boolean isNumberChar( byte c )
+  {
+    return ( c >= '0' && c <= '9' ) || c == '.' || c == '+' || c == '-' ||
+             c == 'e' || c == 'E';
+  }
+
+
+  /**
+   *  Check whether all bytes in the specified range are white space.
+   */
+  private boolean isBlank( int start, int stop )
+  {
+    for ( int i = start; i < stop; i++ )
+      if ( (buffer.get(i) & 0xFF) > ' ' )
+        return false;
+    return true;
+  }
+
+
+  /**
+   *  Make the Integer, Float or String object for an item, as needed to 
+   *  check end conditions.
+   */
+  private static Object box( int kind, double value, String string )
+  {
+    if ( kind == STRING_OP )
+      return string;
+    if ( kind == INT_OP )
+      return new Integer( (int)value );
+    return new Float( (float)value );
+  }
+
+
+  /**
+   *  Get the class of the entries of the array that should hold the values
+   *  read for a variable, as for FileIO.
+   */
+  private static Class getBaseClass( Object O )
+  {
+    if ( !O.getClass().isArray() )
+      return O.getClass();
+    return O.getClass().getComponentType();
+  }
+
+
+  /**
+   *  Make an array of the specified class holding the first n values or
+   *  Strings read for a variable.
+   */
+  private static Object makeArray( Class    c, 
+                                   int      n,
+                                   double[] values, 
+                                   String[] strings, 
+                                   boolean  all_int )
+  {
+    if ( strings != null )
+    {
+      if ( !c.isAssignableFrom( String.class ) )
+        return new ErrorString( "Can't store Strings in " + c + " array" );
+      Object array = Array.newInstance( c, n );
+      System.arraycopy( strings, 0, array, 0, n );
+      return array;
+    }
+
+    if ( c == int.class )
+    {
+      if ( !all_int )
+        return new ErrorString( "Can't store float values in int array" );
+      int[] array = new int[n];
+      for ( int i = 0; i < n; i++ )
+        array[i] = (int)values[i];
+      return array;
+    }
+    if ( c == float.class )
+    {
+      float[] array = new float[n];
+      for ( int i = 0; i < n; i++ )
+        array[i] = (float)values[i];
+      return array;
+    }
+    if ( c == double.class )
+    {
+      double[] array = new double[n];
+      System.arraycopy( values, 0, array, 0, n );
+      return array;
+    }
+    if ( c == long.class )
+    {
+      if ( !all_int )
+        return new ErrorString( "Can't store float values in long array" );
+      long[] array = new long[n];
+      for ( int i = 0; i < n; i++ )
+        array[i] = (long)values[i];
+      return array;
+    }
+
+    Object array = Array.newInstance( c, n );     // other types, such as
+    try                                           // Float, Object or Number
+    {
+      for ( int i = 0; i < n; i++ )
+        if ( all_int )
+          Array.set( array, i, new Integer( (int)values[i] ) );
+        else
+          Array.set( array, i, new Float( (float)values[i] ) );
+    }
+    catch ( Exception ex )
+    {
+      return new ErrorString( ex.toString() );
+    }
+    return array;
+  }
+
+
+  /**
+   *  Make sure the array has at least the specified capacity, copying it
+   *  to a larger array if needed.
+   */
+  private static double[] grow( double[] array, int capacity )
+  {
+    if ( array != null && array.length >= capacity )
+      return array;
+
+    double[] new_array = new double[ capacity ];
+    if ( array != null )
+      System.arraycopy( array, 0, new_array, 0, array.length );
+    return new_array;
+  }
+
+
+  private static String[] grow( String[] array, int capacity )
+  {
+    if ( array != null && array.length >= capacity )
+      return array;
+
+    String[] new_array = new String[ capacity ];
+    if ( array != null )
+      System.arraycopy( array, 0, new_array, 0, array.length );
+    return new_array;
+  }
+
+
+  /**
+   *  Write a table with the specified number of lines, read it with 
+   *  FileIO.Read() and with this class, check that the results agree and
+   *  print the times.
+   *
+   *  @param args  args[0] - number of lines (default 200000)
+   */
+  public static void main( String args[] ) throws IOException
+  {
+    int n_lines = 200000;
+    if ( args.length > 0 )
+      n_lines = Integer.parseInt( args[0] );
+
+    String file_name = File.createTempFile( "FormattedFileReader", ".dat" )
+                           .getAbsolutePath();
+    int[]   ids    = new int[ n_lines ];
+    float[] x_vals = new float[ n_lines ];
+    float[] y_vals = new float[ n_lines ];
+    for ( int i = 0; i < n_lines; i++ )
+    {
+      ids[i]    = i - n_lines/2;
+      x_vals[i] = i / 7.0f;
+      y_vals[i] = (float)Math.sin( i ) * 1.0e5f;
+    }
+    Vector out = new Vector();
+    out.add( ids );
+    out.add( x_vals );
+    out.add( y_vals );
+    String format = "/,I10,F15.4,E15.6";
+    FileIO.Write( file_name, false, true, out, format );
+    System.out.println("File size = " + new File( file_name ).length() );
+
+    for ( int trial = 0; trial < 3; trial++ )
+    {
+      Vector old_V = new Vector();
+      old_V.add( new int[0] );
+      old_V.add( new float[0] );
+      old_V.add( new float[0] );
+      FileInputStream fin = new FileInputStream( file_name );
+      long start = System.nanoTime();
+      Object old_result = FileIO.Read( fin, old_V, format, -1, null );
+      long old_time = System.nanoTime() - start;
+      fin.close();
+
+      Vector new_V = new Vector();
+      new_V.add( new int[0] );
+      new_V.add( new float[0] );
+      new_V.add( new float[0] );
+      fin = new FileInputStream( file_name );
+      start = System.nanoTime();
+      Object new_result = Read( fin, new_V, format, -1, null );
+      long new_time = System.nanoTime() - start;
+      fin.close();
+
+      boolean same = old_result.equals( new_result ) &&
+             java.util.Arrays.equals( (int[])old_V.elementAt(0), 
+                                      (int[])new_V.elementAt(0) ) &&
+             java.util.Arrays.equals( (float[])old_V.elementAt(1), 
+                                      (float[])new_V.elementAt(1) ) &&
+             java.util.Arrays.equals( (float[])old_V.elementAt(2), 
+                                      (float[])new_V.elementAt(2) );
+
+      System.out.println("Lines read: FileIO = " + old_result + 
+                         ", FormattedFileReader = " + new_result +
+                         ", same values = " + same );
+      System.out.println("FileIO.Read (ms) = " + old_time/1000000 + 
+                         ", FormattedFileReader (ms) = " + new_time/1000000 +
+                         ", speedup = " + (float)old_time/new_time );
+    }
+    new File( file_name ).delete();
+  }
+
+}
@@ -0,0 +1,756 @@
+/* 
+ * File: MappedTextFileReader.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Revision$
+ */
+
+package gov.anl.ipns.Util.File;
+
+import java.io.*;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ *  This class reads numbers and Strings from an ASCII text file, with the
+ *  same rules and the same EOF and EOL exceptions as TextFileReader, but
+ *  is intended for reading large tables of numbers.  The file is memory 
+ *  mapped, a window at a time, so files larger than 2GB can be read.  
+ *  Numbers are converted directly from the mapped bytes, without 
+ *  creating a String or a buffer for each value, and whole columns can be
+ *  read at once into float[] or int[] arrays, or into a FloatBuffer.  
+ *  The single value read methods can be used to read header information 
+ *  before reading the columns.  Unlike TextFileReader, there is no 
+ *  unread() method.
+ */
+public class MappedTextFileReader 
+{
+  public  static final int WINDOW_SIZE = 1 << 26;   // bytes mapped at once
+
+  private RandomAccessFile file;
+  private FileChannel      channel;
+  private long             file_size;
+  private int              window_size;
+
+  private MappedByteBuffer window;        // the currently mapped bytes
+  private long             window_start;  // file position of window
+  private int              window_end;    // number of bytes in window
+  private int              pos;           // position of the next character
+                                          // in the window
+
+  /* -------------------------- Constructor -------------------------- */
+  /**
+   *  Construct a MappedTextFileReader to read from the specified file.
+   *
+   *  @param file_name  The fully qualified file name.
+   *
+   *  @throws IOException if the file can't be opened or mapped.
+   */
+  public MappedTextFileReader( String file_name ) throws IOException
+  {
+    this( file_name, WINDOW_SIZE );
+  }
+
+
+  /* -------------------------- Constructor -------------------------- */
+  /**
+   *  Construct a MappedTextFileReader to read from the specified file, 
+   *  mapping at most the specified number of bytes at one time.
+   *
+   *  @param file_name    The fully qualified file name.
+   *  @param window_size  The maximum number of bytes to map at once.  This
+   *                      must be larger than the longest line that will be
+   *                      read with read_line().
+   *
+   *  @throws IOException if the file can't be opened or mapped.
+   */
+  public MappedTextFileReader( String file_name, int window_size )
+         throws IOException
+  {
+    if ( window_size < 2 * TextFileReader.BUFFER_SIZE )
+      throw new IllegalArgumentException( "window_size too small" );
+
+    this.window_size = window_size;
+    file      = new RandomAccessFile( file_name, "r" );
+    channel   = file.getChannel();
+    file_size = channel.size();
+    map( 0 );
+  }
+
+
+  /* ---------------------------- eof -------------------------------- */
+  /**
+   *  Check for the end of file.  
+   *  NOTE: This may be misleading, since there may just be whitespace 
+   *        remaining in the file.
+   *
+   *  @return true if the last character has been read from the file.
+   */
+  public boolean eof()
+  {
+    return window_start + pos >= file_size;
+  }
+
+
+  /* ------------------------- end_of_data ------------------------ */
+  /**
+   *  Check for the end of non-blank characters in the file.  Any blanks 
+   *  starting at the current position are skipped.
+   *
+   *  @return true if no non-blank characters remain past the current 
+   *          position in the file.   
+   */
+  public boolean end_of_data()
+  {
+    try
+    {
+      skip_blanks();
+    }
+    catch ( IOException e )
+    {
+      return true;
+    }
+    return false;
+  }
+
+
+  /* -------------------------- read_line ---------------------------- */
+  /**
+   *  Read the rest of the current line from the file, starting at the 
+   *  current position in the file.  
+   *
+   *  @return The remaining characters on the current line of the file,
+   *          without the end of line character(s).
+   *
+   *  @throws IOException with the message TextFileReader.EOF, if the end
+   *          of file has been reached.
+   */
+  public String read_line() throws IOException
+  {
+    if ( eof() )
+      throw new IOException( TextFileReader.EOF );
+
+    int start = pos;
+    while ( true )
+    {
+      while ( pos < window_end )
+      {
+        byte ch = window.get( pos );
+        if ( ch == '\n' || ch == '\r' )
+        {
+          String line = ByteNumberParser.getString( window, start, pos );
+          pos++;
+          if ( ch == '\r' )
+          {
+            ensure( 1 );
+            if ( pos < window_end && window.get( pos ) == '\n' )
+              pos++;
+          }
+          return line;
+        }
+        pos++;
+      }
+      if ( window_start + window_end >= file_size )
+        return ByteNumberParser.getString( window, start, pos );
+
+      if ( start == 0 )
+        throw new IOException( "Line longer than " + window_size );
+
+      pos = start;                       // remap starting at this line
+      map( window_start + start );
+      start = pos;
+    }
+  }
+ 
+
+  /* -------------------------- skip_blanks ---------------------------- */
+  /**
+   *  Skip whitespace characters in the file, starting at the current 
+   *  position, stopping at the first non-blank character.  
+   *
+   *  @throws IOException with the message TextFileReader.EOF, if the end
+   *          of file has been reached.
+   */
+  public void skip_blanks() throws IOException
+  {
+    while ( true )
+    {
+      while ( pos < window_end && isWhitespace( window.get( pos ) ) )
+        pos++;
+
+      if ( pos < window_end )
+        return;
+
+      if ( window_start + window_end >= file_size )
+        throw new IOException( TextFileReader.EOF );
+
+      map( window_start + pos );
+    }
+  }
+
+
+  /* ---------------------- SkipLinesStartingWith ------------------------ */
+  /**
+   *  Skip lines that begin with a certain string, such as "#"
+   * 
+   *  @param  skip_string  The tag at the start of the line, indicating
+   *                       that it should be skipped.
+   */
+  public void SkipLinesStartingWith( String skip_string ) throws IOException
+  {
+    while ( true )
+    {
+      long   line_start = window_start + pos;
+      String line       = read_line();
+      if ( !line.startsWith( skip_string ) )
+      {
+        seek( line_start );
+        return;
+      }
+    }
+  }
+
+
+  /* -------------------------- read_String ---------------------------- */
+  /**
+   *  Read a sequence of non-whitespace characters from the file, as 
+   *  TextFileReader.read_String() does.
+   *
+   *  @return The first non-blank sequence of characters encountered, 
+   *          starting from the current position.
+   *
+   *  @throws IOException with the message TextFileReader.EOF, if the end
+   *          of file has been reached.
+   */
+  public String read_String() throws IOException
+  {
+    int start = next_token();
+    return ByteNumberParser.getString( window, start, pos );
+  }
+
+
+  /* -------------------------- read_int ---------------------------- */
+  /**
+   *  Read the next sequence of non-whitespace characters from the file
+   *  as an int.
+   *
+   *  @return The int value represented by the next sequence of non-blank
+   *          characters in the file.
+   *
+   *  @throws IOException with the message TextFileReader.EOF, if the end
+   *          of file has been reached.
+   *  @throws NumberFormatException if the characters don't represent
+   *          an int.
+   */
+  public int read_int() throws IOException, NumberFormatException
+  {
+    int start = next_token();
+    return ByteNumberParser.parseInt( window, start, pos );
+  }
+
+
+  /* -------------------------- read_int ---------------------------- */
+  /**
+   *  Read the specified number of characters from the file as an int,
+   *  for use with fixed format files.
+   *
+   *  @param n_char The number of characters to read in.
+   *
+   *  @return The int value represented by the characters.
+   *
+   *  @throws IOException with the message TextFileReader.EOF, if the
+   *          end of the file has been reached or TextFileReader.EOL
+   *          if the end of the line has been reached.
+   *  @throws NumberFormatException if the characters don't represent
+   *          an int.
+   */
+  public int read_int( int n_char ) throws IOException, NumberFormatException
+  {
+    int start = next_field( n_char );
+    return ByteNumberParser.parseInt( window, start, pos );
+  }
+
+
+  /* -------------------------- read_float ---------------------------- */
+  /**
+   *  Read the next sequence of non-whitespace characters from the file
+   *  as a float.
+   *
+   *  @return The float value represented by the next sequence of non-blank
+   *          characters in the file.
+   *
+   *  @throws IOException with the message TextFileReader.EOF, if the end
+   *          of file has been reached.
+   *  @throws NumberFormatException if the characters don't represent
+   *          a float.
+   */
+  public float read_float() throws IOException, NumberFormatException
+  {
+    int start = next_token();
+    return ByteNumberParser.parseFloat( window, start, pos );
+  }
+
+
+  /* -------------------------- read_float ---------------------------- */
+  /**
+   *  Read the specified number of characters from the file as a float,
+   *  for use with fixed format files.
+   *
+   *  @param n_char The number of characters to read in.
+   *
+   *  @return The float value represented by the characters.
+   *
+   *  @throws IOException with the message TextFileReader.EOF, if the
+   *          end of the file has been reached or TextFileReader.EOL
+   *          if the end of the line has been reached.
+   *  @throws NumberFormatException if the characters don't represent
+   *          a float.
+   */
+  public float read_float( int n_char ) throws IOException, 
+                                               NumberFormatException
+  {
+    int start = next_field( n_char );
+    return ByteNumberParser.parseFloat( window, start, pos );
+  }
+
+
+  /* -------------------------- read_double ---------------------------- */
+  /**
+   *  Read the next sequence of non-whitespace characters from the file
+   *  as a double.
+   *
+   *  @return The double value represented by the next sequence of 
+   *          non-blank characters in the file.
+   *
+   *  @throws IOException with the message TextFileReader.EOF, if the end
+   *          of file has been reached.
+   *  @throws NumberFormatException if the characters don't represent
+   *          a double.
+   */
+  public double read_double() throws IOException, NumberFormatException
+  {
+    int start = next_token();
+    return ByteNumberParser.parseDouble( window, start, pos );
+  }
+
+
+  /* ----------------------- read_float_columns ------------------------ */
+  /**
+   *  Read a table of white space separated values, with the specified
+   *  number of values per row, and return the columns as float arrays.
+   *  Line breaks are treated as white space, as they are by read_float(),
+   *  so a row may span more than one line.
+   *
+   *  @param n_columns  The number of values in each row.
+   *  @param n_rows     The number of rows to read, or -1 to read rows 
+   *                    until the end of the data is reached.
+   *
+   *  @return An array with one float[] per column, each containing one
+   *          value per row read.
+   *
+   *  @throws IOException with the message TextFileReader.EOF, if the end
+   *          of file is reached before n_rows rows are read, or in the 
+   *          middle of a row.
+   *  @throws NumberFormatException if a value is not a float.
+   */
+  public float[][] read_float_columns( int n_columns, int n_rows )
+                   throws IOException, NumberFormatException
+  {
+    if ( n_columns <= 0 )
+      throw new IllegalArgumentException( "n_columns <= 0" );
+
+    int capacity = n_rows;
+    if ( n_rows < 0 )
+      capacity = 1024;
+
+    float[][] columns = new float[ n_columns ][ capacity ];
+    int row = 0;
+    while ( row != n_rows && (n_rows >= 0 || !end_of_data()) )
+    {
+      if ( row >= capacity )
+      {
+        capacity = 2 * capacity;
+        for ( int col = 0; col < n_columns; col++ )
+          columns[col] = copy( columns[col], capacity );
+      }
+      for ( int col = 0; col < n_columns; col++ )
+        columns[col][row] = read_float();
+      row++;
+    }
+
+    if ( row != capacity )
+      for ( int col = 0; col < n_columns; col++ )
+        columns[col] = copy( columns[col], row );
+    return columns;
+  }
+
+
+  /* ----------------------- read_float_columns ------------------------ */
+  /**
+   *  Read a table of fixed width values, one row per line, and return 
+   *  the columns as float arrays.  The fields are read as by 
+   *  read_float( n_char ), and any characters after the last field are
+   *  skipped, up to the start of the next line.
+   *
+   *  @param widths  The number of characters in each field of a row.
+   *  @param n_rows  The number of rows to read, or -1 to read rows 
+   *                 until the end of the data is reached.
+   *
+   *  @return An array with one float[] per field, each containing one
+   *          value per row read.
+   *
+   *  @throws IOException with the message TextFileReader.EOF, or 
+   *          TextFileReader.EOL, if the end of the file or of a line
+   *          is reached in the middle of a field.
+   *  @throws NumberFormatException if a value is not a float.
+   */
+  public float[][] read_float_columns( int[] widths, int n_rows )
+                   throws IOException, NumberFormatException
+  {
+    if ( widths == null || widths.length == 0 )
+      throw new IllegalArgumentException( "no field widths given" );
+
+    int n_columns = widths.length;
+    int capacity  = n_rows;
+    if ( n_rows < 0 )
+      capacity = 1024;
+
+    float[][] columns = new float[ n_columns ][ capacity ];
+    int row = 0;
+    while ( row != n_rows && (n_rows >= 0 || !eof()) )
+    {
+      if ( row >= capacity )
+      {
+        capacity = 2 * capacity;
+        for ( int col = 0; col < n_columns; col++ )
+          columns[col] = copy( columns[col], capacity );
+      }
+      for ( int col = 0; col < n_columns; col++ )
+        columns[col][row] = read_float( widths[col] );
+      if ( !eof() )
+        read_line();
+      row++;
+
+      if ( n_rows < 0 )                         // ignore trailing blank
+      {                                         // lines
+        long here = window_start + pos;
+        if ( end_of_data() )
+          break;
+        seek( here );
+      }
+    }
+
+    if ( row != capacity )
+      for ( int col = 0; col < n_columns; col++ )
+        columns[col] = copy( columns[col], row );
+    return columns;
+  }
+
+
+  /* ------------------------ read_int_columns ------------------------- */
+  /**
+   *  Read a table of white space separated values, with the specified
+   *  number of values per row, and return the columns as int arrays.
+   *
+   *  @param n_columns  The number of values in each row.
+   *  @param n_rows     The number of rows to read, or -1 to read rows 
+   *                    until the end of the data is reached.
+   *
+   *  @return An array with one int[] per column, each containing one
+   *          value per row read.
+   *
+   *  @throws IOException with the message TextFileReader.EOF, if the end
+   *          of file is reached before n_rows rows are read, or in the 
+   *          middle of a row.
+   *  @throws NumberFormatException if a value is not an int.
+   */
+  public int[][] read_int_columns( int n_columns, int n_rows )
+                 throws IOException, NumberFormatException
+  {
+    if ( n_columns <= 0 )
+      throw new IllegalArgumentException( "n_columns <= 0" );
+
+    int capacity = n_rows;
+    if ( n_rows < 0 )
+      capacity = 1024;
+
+    int[][] columns = new int[ n_columns ][ capacity ];
+    int row = 0;
+    while ( row != n_rows && (n_rows >= 0 || !end_of_data()) )
+    {
+      if ( row >= capacity )
+      {
+        capacity = 2 * capacity;
+        for ( int col = 0; col < n_columns; col++ )
+          columns[col] = copy( columns[col], capacity );
+      }
+      for ( int col = 0; col < n_columns; col++ )
+        columns[col][row] = read_int();
+      row++;
+    }
+
+    if ( row != capacity )
+      for ( int col = 0; col < n_columns; col++ )
+        columns[col] = copy( columns[col], row );
+    return columns;
+  }
+
+
+  /* -------------------------- read_floats ---------------------------- */
+  /**
+   *  Read white space separated float values into the specified buffer,
+   *  until the buffer is full or the end of the data is reached.  Values
+   *  are stored starting at the buffer's position, and the position is
+   *  advanced past the values read.  Since a direct FloatBuffer can be 
+   *  used, this allows very large tables to be loaded without using space
+   *  on the Java heap.  Multi-column tables are stored in row order.
+   *
+   *  @param buffer  The buffer to fill.
+   *
+   *  @return The number of values read.
+   *
+   *  @throws NumberFormatException if a value is not a float.
+   */
+  public int read_floats( FloatBuffer buffer ) throws NumberFormatException
+  {
+    int count = 0;
+    try
+    {
+      while ( buffer.hasRemaining() && !end_of_data() )
+      {
+        buffer.put( read_float() );
+        count++;
+      }
+    }
+    catch ( IOException ex )         // can't happen after !end_of_data()
+    {
+    }
+    return count;
+  }
+
+
+  /* ----------------------------- close ------------------------------ */
+  /**
+   *  Close the file.
+   *
+   *  @throws IOException if something goes wrong when trying to close the
+   *          file.
+   */
+  public void close() throws IOException
+  {
+    window = null;
+    file.close();
+  }
+
+
+  /* --------------------------- next_token ----------------------------- */
+  /*
+   *  Skip blanks and then advance past the next sequence of non-blank 
+   *  characters, of at most TextFileReader.BUFFER_SIZE characters, as 
+   *  TextFileReader.read_String() does.  The whitespace character that
+   *  ends the token is not used up.
+   *
+   *  @return The starting position of the token in the current window.
+   *          The token ends at the new value of pos.
+   */
+  private int next_token() throws IOException
+  {
+    skip_blanks();
+    ensure( TextFileReader.BUFFER_SIZE );
+
+    int start = pos;
+    int last  = Math.min( window_end, start + TextFileReader.BUFFER_SIZE );
+    while ( pos < last && !isWhitespace( window.get( pos ) ) )
+      pos++;
+
+    return start;
+  }
+
+
+  /* --------------------------- next_field ----------------------------- */
+  /*
+   *  Advance past the next n_char characters, as 
+   *  TextFileReader.read_String( n_char ) does.
+   *
+   *  @return The starting position of the field in the current window.
+   */
+  private int next_field( int n_char ) throws IOException
+  {
+    ensure( n_char );
+
+    int start = pos;
+    for ( int i = 0; i < n_char; i++ )
+    {
+      if ( pos >= window_end )
+        throw new IOException( TextFileReader.EOF );
+      if ( window.get( pos ) == '\n' )
+      {
+        pos++;
+        throw new IOException( TextFileReader.EOL );
+      }
+      pos++;
+    }
+    return start;
+  }
+
+
+  /*
+   *  Make sure that at least n bytes after pos are in the window, if 
+   *  there are that many bytes left in the file.
+   */
+  private void ensure( int n ) throws IOException
+  {
+    if ( window_end - pos < n && window_start + window_end < file_size )
+      map( window_start + pos );
+  }
+
+
+  /*
+   *  Move to the specified position in the file.
+   */
+  private void seek( long file_pos ) throws IOException
+  {
+    if ( file_pos >= window_start && file_pos <= window_start + window_end )
+      pos = (int)(file_pos - window_start);
+    else
+      map( file_pos );
+  }
+
+
+  /*
+   *  Map the window starting at the specified file position.
+   */
+  private void map( long start ) throws IOException
+  {
+    long size = Math.min( window_size, file_size - start );
+    window       = channel.map( FileChannel.MapMode.READ_ONLY, start, size );
+    window_start = start;
+    window_end   = (int)size;
+    pos          = 0;
+  }
+
+
+  /*
+   *  Check for whitespace in the same way as Character.isWhitespace(),
+   *  for ASCII characters.
+   */
+  private static boolean isWhitespace( byte ch )
+  {
+    return ch == ' ' || (ch >= 0x09 && ch <= 0x0D) || 
+           (ch >= 0x1C && ch <= 0x1F);
+  }
+
+
+  private static float[] copy( float[] array, int length )
+  {
+    float[] new_array = new float[ length ];
+    System.arraycopy( array, 0, new_array, 0, 
+                      Math.min( length, array.length ) );
+    return new_array;
+  }
+
+
+  private static int[] copy( int[] array, int length )
+  {
+    int[] new_array = new int[ length ];
+    System.arraycopy( array, 0, new_array, 0, 
+                      Math.min( length, array.length ) );
+    return new_array;
+  }
+
+
+  /* --------------------------  main  ---------------------------------- */
+  /*
+   *  Write a table of numbers, read it with TextFileReader and with 
+   *  MappedTextFileReader, using both the default window size and a small
+   *  window size to test values that cross window boundaries, check that
+   *  the values agree and print the times.
+   *
+   *  args[0] - number of rows (default 1000000)
+   */
+  public static void main( String args[] ) throws IOException
+  {
+    int n_rows = 1000000;
+    if ( args.length > 0 )
+      n_rows = Integer.parseInt( args[0] );
+
+    File temp = File.createTempFile( "MappedTextFileReader", ".dat" );
+    PrintWriter out = new PrintWriter( new BufferedWriter( 
+                                       new FileWriter( temp ) ) );
+    out.println( "# id  x  y  intensity" );
+    java.util.Random random = new java.util.Random( 1 );
+    for ( int i = 0; i < n_rows; i++ )
+      out.println( i + " " + random.nextFloat() * 1000 + "  " + 
+                   (float)(random.nextGaussian() * 1.0e-4) + "\t" + 
+                   random.nextInt( 100000 ) );
+    out.close();
+    String name = temp.getAbsolutePath();
+    System.out.println("File size = " + temp.length() );
+
+    for ( int trial = 0; trial < 3; trial++ )
+    {
+      long start = System.nanoTime();
+      TextFileReader reader = new TextFileReader( name );
+      reader.read_line();
+      float[][] old_cols = new float[4][n_rows];
+      for ( int i = 0; i < n_rows; i++ )
+        for ( int col = 0; col < 4; col++ )
+          old_cols[col][i] = reader.read_float();
+      boolean old_end = reader.end_of_data();
+      reader.close();
+      long old_time = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      MappedTextFileReader mapped = new MappedTextFileReader( name );
+      mapped.SkipLinesStartingWith( "#" );
+      float[][] new_cols = mapped.read_float_columns( 4, -1 );
+      mapped.close();
+      long new_time = System.nanoTime() - start;
+
+      mapped = new MappedTextFileReader( name, 1000 );
+      mapped.read_line();
+      float[][] small_cols = mapped.read_float_columns( 4, n_rows );
+      boolean small_end = mapped.end_of_data();
+      mapped.close();
+
+      boolean same = old_end && small_end;
+      for ( int col = 0; col < 4; col++ )
+        same = same && java.util.Arrays.equals( old_cols[col], new_cols[col] )
+                    && java.util.Arrays.equals( old_cols[col], small_cols[col]);
+
+      System.out.println("Same values = " + same + 
+                         ", TextFileReader (ms) = " + old_time/1000000 +
+                         ", MappedTextFileReader (ms) = " + new_time/1000000 );
+    }
+    temp.delete();
+  }
+
+}
@@ -0,0 +1,663 @@
+/* 
+ * File: XmlTokenizer.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Revision$
+ */
+
+package gov.anl.ipns.Util.File;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ *  This class provides the same operations as the static methods of
+ *  xml_utils, getTag(), getEndTag(), getNextAttribute(), skipAttributes(),
+ *  getValue() and skipBlock(), for reading through sections of an xml 
+ *  file sequentially.  Unlike xml_utils, all of the state, including the 
+ *  last character read and the last error message, is kept in the 
+ *  XmlTokenizer object, so separate threads can each read a separate 
+ *  stream at the same time.  A single XmlTokenizer should only be used by 
+ *  one thread at a time.
+ *  <P>
+ *  The bytes are read from the underlying stream in blocks, so an 
+ *  XmlTokenizer reads ahead of the position it has reached in the xml.
+ *  For this reason, an XmlTokenizer is itself an InputStream, and should be
+ *  passed to the XMLread() methods of the IXmlIO objects in place of the 
+ *  underlying stream.  XMLread() methods should call getTokenizer() to
+ *  get the XmlTokenizer for the stream they are given.
+ */
+public class XmlTokenizer extends InputStream
+{
+  public static final int DEFAULT_BUFFER_SIZE = 65536;
+
+  private static final String DELIMITERS = " =\n\t\r\f\"";
+
+  private static final boolean[] DELIMITER  = charSet( DELIMITERS );
+  private static final boolean[] TAG_END    = charSet( DELIMITERS + 
+                                                       "=<>\\/+-*" );
+  private static final boolean[] WORD_END   = charSet( DELIMITERS + 
+                                                       "=></\"" );
+  private static final boolean[] WHITESPACE = charSet( " \t\r\n\f" );
+  private static final boolean[] TAG_START  = charSet( "<" );
+
+  private InputStream   in;
+  private byte[]        buffer;
+  private int           pos   = 0;          // next byte in buffer to use
+  private int           count = 0;          // number of valid bytes
+
+  private char          lastchar     = 0;
+  private String        errormessage = null;
+  private StringBuilder sb           = new StringBuilder( 2000 );
+
+
+  /**
+   *  Construct an XmlTokenizer to read from the specified stream, 
+   *  using a buffer of the default size.
+   *
+   *  @param  in  The stream containing the xml.
+   */
+  public XmlTokenizer( InputStream in )
+  {
+    this( in, DEFAULT_BUFFER_SIZE );
+  }
+
+
+  /**
+   *  Construct an XmlTokenizer to read from the specified stream, 
+   *  reading up to buffer_size bytes at a time.
+   *
+   *  @param  in           The stream containing the xml.
+   *  @param  buffer_size  The size of the read buffer.  If this is one,
+   *                       no bytes are read past the current position. 
+   *
+   *  @throws IllegalArgumentException if the stream is null or the
+   *          buffer size is less than one.
+   */
+  public XmlTokenizer( InputStream in, int buffer_size )
+  {
+    if ( in == null )
+      throw new IllegalArgumentException( "InputStream is null" );
+
+    if ( buffer_size < 1 )
+      throw new IllegalArgumentException( "Invalid buffer size " + 
+                                           buffer_size );
+    this.in = in;
+    buffer  = new byte[ buffer_size ];
+  }
+
+
+  /**
+   *  Get an XmlTokenizer for the specified stream.  If the stream is
+   *  already an XmlTokenizer it is returned, so that the state and buffered
+   *  bytes are shared by the XMLread() methods of nested objects.  
+   *  Otherwise, a new XmlTokenizer that does not read past its position 
+   *  is returned, so that the caller can continue to read from the
+   *  stream.
+   *
+   *  @param  stream  The stream passed to an XMLread() method.
+   *
+   *  @return an XmlTokenizer reading from the stream.
+   */
+  public static XmlTokenizer getTokenizer( InputStream stream )
+  {
+    if ( stream instanceof XmlTokenizer )
+      return (XmlTokenizer)stream;
+
+    return new XmlTokenizer( stream, 1 );
+  }
+
+
+  /* ------------------------------ getTag -------------------------------- */
+  /** 
+   *  Gets the next tag name.  This may be an end tag.  This finds the 
+   *  next "<", reading past everything else.  Use getEndTag if the 
+   *  "<" has been consumed.
+   *
+   *  @return the tag name, or null if there was an error.
+   */
+  public String getTag()
+  {
+    errormessage = null;
+    try
+    {
+      findChar( TAG_START, true );
+      return getEndTag();
+    }
+    catch ( Exception ex )
+    {
+      errormessage = ex.getMessage();
+      return null;
+    }
+  }
+
+
+  /* ----------------------------- getEndTag ------------------------------ */
+  /** 
+   *  Use this instead of getTag if the leading "<" has already been read.
+   *  This happens with the getValue method.
+   *
+   *  @return the tag name, or null if there was an error.
+   */
+  public String getEndTag()
+  {
+    errormessage = null;
+    try
+    {
+      sb.setLength( 0 );
+      char c = findChar( DELIMITER, false );
+      sb.append( c );
+      for ( c = next(); !TAG_END[c]; c = next() )
+        sb.append( c );
+      lastchar = c;
+      return sb.toString();
+    }
+    catch ( Exception ex )
+    {
+      errormessage = ex.getMessage();
+      return null;
+    }
+  }
+
+
+  /* -------------------------- getErrorMessage --------------------------- */
+  /**
+   *  Get the error message from the last operation.
+   *
+   *  @return an error message or null if there was no error.
+   */
+  public String getErrorMessage()
+  {
+    return errormessage;
+  }
+
+
+  /* -------------------------- getNextAttribute -------------------------- */
+  /**
+   *  Reads the next xml attribute in a tag.
+   *
+   *  @return A vector with two elements.  The first element is the xml 
+   *          attribute's key and the second its value as a String.  The
+   *          Vector is empty if there are no more attributes, and null 
+   *          if there was an error.
+   */
+  public Vector getNextAttribute()
+  {
+    errormessage = null;
+    Vector result = new Vector();
+    try
+    {
+      char c;
+      sb.setLength( 0 );
+      if ( lastchar == '>' )
+        return result;
+      else
+        c = findChar( DELIMITER, false );
+
+      if ( c == '>' )
+      {
+        lastchar = '>';
+        return result;
+      }
+      sb.setLength( 0 );
+      sb.append( c );
+
+      getNextWord();
+      String key = sb.toString();
+      sb.setLength( 0 );
+      result.addElement( key );
+
+      if ( lastchar == '=' )
+        c = lastchar;
+      else
+        c = findChar( WHITESPACE, false );
+
+      if ( c != '=' )
+      {
+        errormessage = "Improperly formed attribute. Need =" + key + "::" + c;
+        return null;
+      }
+
+      c = findChar( WHITESPACE, false );
+      if ( c != '\"' )
+      {
+        errormessage = "Attribute values must be quoted " + c + key;
+        return null;
+      }
+
+      sb.setLength( 0 );
+      for ( c = next(); c != '\"'; c = next() )
+        sb.append( c );
+      lastchar = 0;
+
+      result.addElement( sb.toString() );
+      return result;
+    }
+    catch ( Exception ex )
+    {
+      errormessage = ex.getMessage();
+      return null;
+    }
+  }
+
+
+  /* --------------------------- skipAttributes --------------------------- */
+  /** 
+   *  Skips to the end of the xml attributes associated with a tag.  
+   *  Use this only one time after a getTag, getEndTag, or getNextAttribute
+   *  method call.  A ">" inside a quoted attribute value does not end
+   *  the tag.
+   *
+   *  @return true if successful, false if there was an error.
+   */
+  public boolean skipAttributes()
+  {
+    errormessage = null;
+    try
+    {
+      if ( lastchar == '>' )
+      {
+        lastchar = 0;
+        return true;
+      }
+
+      boolean quote = false;
+      for ( char c = next(); c != '>' || quote; c = next() )
+        if ( c == '\"' )
+          quote = !quote;
+
+      lastchar = 0;
+    }
+    catch ( Exception ex )
+    {
+      errormessage = ex.getMessage();
+      return false;
+    }
+
+    return true;
+  }
+
+
+  /* ------------------------------ getValue ------------------------------ */
+  /** 
+   *  Returns the value associated with the tag.  This must be invoked 
+   *  after the tag and all attributes have been dealt with.  The "<" that 
+   *  follows the value is consumed, so the following tag should be read 
+   *  with getEndTag.
+   *
+   *  @return the value, or null if there was an error.
+   */
+  public String getValue()
+  {
+    errormessage = null;
+    try
+    {
+      sb.setLength( 0 );
+      for ( char c = next(); c != '<'; c = next() )
+        sb.append( c );
+      return sb.toString();
+    }
+    catch ( Exception ex )
+    {
+      errormessage = ex.getMessage();
+      return null;
+    }
+  }
+
+
+  /* ----------------------------- skipBlock ------------------------------ */
+  /** 
+   *  This will ignore all values in a block.  Invoke this method AFTER 
+   *  the tag and all its attributes have been dealt with (">" has been 
+   *  read).
+   *
+   *  @return the end tag of the block, or null if there was an error.
+   */
+  public String skipBlock()
+  {
+    errormessage = null;
+    int nblocks = 0;
+    String tag  = getTag();
+    while ( true )
+    {
+      if ( tag == null )
+        return null;
+
+      tag = tag.trim();
+      if ( tag.length() < 1 )
+      {
+        errormessage = "improper tag name";
+        return null;
+      }
+
+      if ( tag.charAt(0) == '/' )
+        nblocks--;
+      else
+        nblocks++;
+
+      skipAttributes();
+      if ( nblocks < 0 )
+        return tag;
+
+      tag = getTag();
+    }
+  }
+
+
+  /* -------------------------------- read -------------------------------- */
+  /**
+   *  Read the next byte from the buffer, refilling it from the underlying
+   *  stream when needed.
+   *
+   *  @return the next byte, or -1 at the end of the stream.
+   */
+  public int read() throws IOException
+  {
+    if ( pos >= count && !fill() )
+      return -1;
+
+    return buffer[ pos++ ] & 0xFF;
+  }
+
+
+  /* -------------------------------- read -------------------------------- */
+  /**
+   *  Read up to len bytes, taking any buffered bytes first.
+   */
+  public int read( byte[] b, int off, int len ) throws IOException
+  {
+    if ( len == 0 )
+      return 0;
+
+    if ( pos >= count )
+    {
+      if ( len >= buffer.length )          // don't copy through the buffer
+        return in.read( b, off, len );
+
+      if ( !fill() )
+        return -1;
+    }
+
+    int n = Math.min( len, count - pos );
+    System.arraycopy( buffer, pos, b, off, n );
+    pos += n;
+    return n;
+  }
+
+
+  /* ------------------------------ available ----------------------------- */
+  public int available() throws IOException
+  {
+    return ( count - pos ) + in.available();
+  }
+
+
+  /* -------------------------------- close ------------------------------- */
+  /**
+   *  Close the underlying stream.
+   */
+  public void close() throws IOException
+  {
+    in.close();
+  }
+
+
+  /* -------------------------------- fill -------------------------------- */
+  /*
+   *  Refill the buffer from the underlying stream.  Return false at
+   *  the end of the stream.
+   */
+  private boolean fill() throws IOException
+  {
+    pos   = 0;
+    count = 0;
+    int n = in.read( buffer, 0, buffer.length );
+    while ( n == 0 )
+      n = in.read( buffer, 0, buffer.length );
+
+    if ( n < 0 )
+      return false;
+
+    count = n;
+    return true;
+  }
+
+
+  /* -------------------------------- next -------------------------------- */
+  /*
+   *  Get the next character, or throw an EOFException at the end of the
+   *  stream, so that the operations don't scan past the end.
+   */
+  private char next() throws IOException
+  {
+    if ( pos >= count && !fill() )
+      throw new EOFException( "Unexpected end of xml stream" );
+
+    return (char)( buffer[ pos++ ] & 0xFF );
+  }
+
+
+  /* ------------------------------ findChar ------------------------------ */
+  /*
+   *  If stop is true, read up to and including the first character in the 
+   *  set, otherwise read up to and including the first character NOT in 
+   *  the set.  A '>' left from a previous operation is used first.
+   */
+  private char findChar( boolean[] set, boolean stop ) throws IOException
+  {
+    char c;
+    if ( lastchar == '>' )
+      c = lastchar;
+    else
+      c = next();
+    lastchar = 0;
+
+    while ( set[c] != stop )
+      c = next();
+
+    return c;
+  }
+
+
+  /* ---------------------------- getNextWord ----------------------------- */
+  /*
+   *  Append characters to sb up to the next word delimiter, which is 
+   *  saved in lastchar.
+   */
+  private String getNextWord() throws IOException
+  {
+    if ( lastchar == '>' )
+      return null;
+
+    char c = next();
+    lastchar = 0;
+    if ( DELIMITER[c] )
+      return sb.toString();
+
+    sb.append( c );
+    for ( c = next(); !WORD_END[c]; c = next() )
+      sb.append( c );
+    lastchar = c;
+
+    return sb.toString();
+  }
+
+
+  /* ------------------------------ charSet ------------------------------- */
+  /*
+   *  Make a table with true at the positions of the specified characters.
+   */
+  private static boolean[] charSet( String chars )
+  {
+    boolean[] set = new boolean[ 256 ];
+    for ( int i = 0; i < chars.length(); i++ )
+      set[ chars.charAt(i) ] = true;
+    return set;
+  }
+
+
+  /* ----------------------------- sumValues ------------------------------ */
+  /*
+   *  Read a document consisting of an outer block containing records of
+   *  tag, value pairs, using an XmlTokenizer, and return the sum of the
+   *  values.
+   */
+  private static double sumValues( InputStream stream, int n_values )
+  {
+    XmlTokenizer xml = new XmlTokenizer( stream );
+    double sum = 0;
+    xml.getTag();
+    xml.skipAttributes();
+    for ( int i = 0; i < n_values; i++ )
+    {
+      String tag = xml.getTag();
+      while ( tag.equals( "record" ) || tag.equals( "/record" ) )
+      {
+        xml.skipAttributes();
+        tag = xml.getTag();
+      }
+      xml.skipAttributes();
+      sum += Double.parseDouble( xml.getValue() );
+    }
+    return sum;
+  }
+
+
+  /* ------------------------ sumValues_xml_utils ------------------------- */
+  /*
+   *  Read the same document using the static methods of xml_utils.
+   */
+  private static double sumValues_xml_utils( InputStream stream, int n_values )
+  {
+    double sum = 0;
+    xml_utils.getTag( stream );
+    xml_utils.skipAttributes( stream );
+    for ( int i = 0; i < n_values; i++ )
+    {
+      String tag = xml_utils.getTag( stream );
+      while ( tag.equals( "record" ) || tag.equals( "/record" ) )
+      {
+        xml_utils.skipAttributes( stream );
+        tag = xml_utils.getTag( stream );
+      }
+      xml_utils.skipAttributes( stream );
+      sum += Double.parseDouble( xml_utils.getValue( stream ) );
+    }
+    return sum;
+  }
+
+
+  /* -------------------------------- main -------------------------------- */
+  /**
+   *  Basic timing test, comparing a single load with xml_utils and with
+   *  an XmlTokenizer, then loading several documents concurrently, with
+   *  one XmlTokenizer per thread.
+   *
+   *  @param args  Optional number of records and number of threads.
+   */
+  public static void main( String args[] ) throws Exception
+  {
+    int n_records = 200000;
+    int n_threads = Runtime.getRuntime().availableProcessors();
+    if ( args.length > 0 )
+      n_records = Integer.parseInt( args[0] );
+    if ( args.length > 1 )
+      n_threads = Integer.parseInt( args[1] );
+
+    StringBuilder doc = new StringBuilder();
+    doc.append( "<DetectorPositions>\n" );
+    double expected = 0;
+    Random random = new Random( 1 );
+    for ( int i = 0; i < n_records; i++ )
+    {
+      doc.append( "<record>\n" );
+      String[] names = { "sph_radius", "azimuth_angle", "polar_angle" };
+      for ( int k = 0; k < names.length; k++ )
+      {
+        float val = random.nextFloat();
+        expected += Double.parseDouble( "" + val );
+        doc.append( "<" + names[k] + ">" + val + "</" + names[k] + ">\n" );
+      }
+      doc.append( "</record>\n" );
+    }
+    doc.append( "</DetectorPositions>\n" );
+    final byte[] bytes    = doc.toString().getBytes( "ISO-8859-1" );
+    final int    n_values = 3 * n_records;
+    System.out.println( "Document size = " + bytes.length + 
+                        " bytes, values = " + n_values );
+
+    for ( int rep = 0; rep < 3; rep++ )
+    {
+      long start = System.currentTimeMillis();
+      double sum = sumValues_xml_utils( new BufferedInputStream(
+                                new ByteArrayInputStream( bytes ) ), n_values );
+      long time  = System.currentTimeMillis() - start;
+      System.out.println( "xml_utils    : " + time + " ms, sum = " + sum );
+
+      start = System.currentTimeMillis();
+      sum   = sumValues( new ByteArrayInputStream( bytes ), n_values );
+      time  = System.currentTimeMillis() - start;
+      System.out.println( "XmlTokenizer : " + time + " ms, sum = " + sum );
+    }
+    System.out.println( "Expected sum = " + expected );
+
+    final double[] sums = new double[ n_threads ];
+    Thread[] threads = new Thread[ n_threads ];
+    for ( int rep = 0; rep < 3; rep++ )
+    {
+      long start = System.currentTimeMillis();
+      for ( int i = 0; i < n_threads; i++ )
+      {
+        final int index = i;
+        threads[i] = new Thread()
+        {
+          public void run()
+          {
+            sums[index] = sumValues( new ByteArrayInputStream( bytes ), 
+                                     n_values );
+          }
+        };
+        threads[i].start();
+      }
+      for ( int i = 0; i < n_threads; i++ )
+        threads[i].join();
+      long time = System.currentTimeMillis() - start;
+
+      boolean all_same = true;
+      for ( int i = 1; i < n_threads; i++ )
+        if ( sums[i] != sums[0] )
+          all_same = false;
+      System.out.println( n_threads + " concurrent loads : " + time + 
+                          " ms, same sums = " + all_same + ", sum = " + 
+                          sums[0] );
+    }
+  }
+
+}
@@ -74,7 +74,10 @@ import java.util.*;
 
 
 /** Provides utilities for reading through sections of an
-*   xml file representing a DataSet sequentially
+*   xml file representing a DataSet sequentially<P>
+*   NOTE: The state used by these methods is static, so only one stream
+*   can be read at a time.  XmlTokenizer provides the same operations
+*   with per-stream state and buffering.
 */
 public class xml_utils
 { public static String delimiters = " =\n\t\r\f\"";
@@ -354,145 +357,321 @@ public class xml_utils
 
 
 
+   /**
+    *  Encode the specified floats in base 64, using the same byte order
+    *  as DataOutputStream.writeFloat().  The values are encoded directly,
+    *  without first copying them to an array of bytes.
+    *
+    *  @param  a  The values to encode.
+    *
+    *  @return the base 64 characters, stored one per byte.
+    */
     public static byte[] convertToB64( float[] a)
-      {ByteArrayOutputStream os= new ByteArrayOutputStream( a.length*4+2);
-       DataOutputStream dou= new DataOutputStream( os);
-       try{
-       for( int i=0;i<a.length;i++)
-         dou.writeFloat( a[i]);
-       return encode(os.toByteArray());
-          }
-       catch(Exception s){return null;}
+      {byte[] result = new byte[ b64Length( a.length * 4 ) ];
+       encodeWords( null, a, 0, a.length, result );
+       return result;
        }
 
+   /**
+    *  Encode the specified ints in base 64, using the same byte order
+    *  as DataOutputStream.writeInt().
+    *
+    *  @param  a  The values to encode.
+    *
+    *  @return the base 64 characters, stored one per byte.
+    */
     public static byte[] convertToB64( int[] a)
-      {ByteArrayOutputStream os= new ByteArrayOutputStream( a.length*4+2);
-        try{
-       DataOutputStream dou= new DataOutputStream( os);
-       for( int i=0;i<a.length;i++)
-         dou.writeInt( a[i]);
-       return encode(os.toByteArray());
-         }
-       catch(Exception s){return null;}
+      {byte[] result = new byte[ b64Length( a.length * 4 ) ];
+       encodeWords( a, null, 0, a.length, result );
+       return result;
+       }
+
+   /**
+    *  Write the specified floats to the stream in base 64, using the same
+    *  characters as convertToB64( float[] ).  The values are encoded a 
+    *  block at a time, so the encoded form of the whole array is never 
+    *  held in memory.  This is intended for use by XMLwrite() methods
+    *  in IXmlIO.BASE64 mode.
+    *
+    *  @param  os  The stream to write to.
+    *  @param  a   The values to encode.
+    *
+    *  @throws IOException if writing to the stream fails.
+    */
+    public static void writeB64( OutputStream os, float[] a) 
+                                 throws IOException
+      {writeWords( os, null, a, a.length );
+       }
+
+   /**
+    *  Write the specified ints to the stream in base 64, using the same
+    *  characters as convertToB64( int[] ).
+    *
+    *  @param  os  The stream to write to.
+    *  @param  a   The values to encode.
+    *
+    *  @throws IOException if writing to the stream fails.
+    */
+    public static void writeB64( OutputStream os, int[] a) 
+                                 throws IOException
+      {writeWords( os, a, null, a.length );
        }
    
+   /**
+    *  Decode base 64 characters, such as those produced by 
+    *  convertToB64( float[] ), to an array of floats.  White space in 
+    *  the characters is ignored.
+    *
+    *  @param  a1  The base 64 characters, stored one per byte.
+    *
+    *  @return the decoded values.
+    */
     public static float[] convertB64Tofloat( byte[] a1)
-      {byte[] a=decode(a1);
-        try{
-       ByteArrayInputStream is= new ByteArrayInputStream(a);
-       DataInputStream di= new DataInputStream( is);
-       float[] f = new float[ a.length/4];
-       for(int i=0; i<f.length; i++)
-          f[i]=di.readFloat();
+      {float[] f = new float[ b64DecodedLength( a1 ) / 4 ];
+       decodeWords( a1, null, f );
        return f;
-         }
-       catch(Exception s){return null;}
        }
 
+   /**
+    *  Decode base 64 characters, such as those produced by 
+    *  convertToB64( int[] ), to an array of ints.  White space in the
+    *  characters is ignored.
+    *
+    *  @param  a1  The base 64 characters, stored one per byte.
+    *
+    *  @return the decoded values.
+    */
      public static int[] convertB64Toint(byte[] a1)
-       {byte[] a=decode(a1);
-         try{
-        ByteArrayInputStream is= new ByteArrayInputStream( a1);
-        DataInputStream di= new DataInputStream( is);
-       int[] f = new int[ a.length/4];
-       for(int i=0; i<f.length; i++)
-          f[i]=di.readInt();
-       return f;
-         }
-       catch(Exception s){return null;}
-       
+       {int[] f = new int[ b64DecodedLength( a1 ) / 4 ];
+        decodeWords( a1, f, null );
+        return f;
        }
+
                   //base64
       public static byte[] encode(byte[] data)
     {
-        int c;
-        int len = data.length;
-        StringBuffer ret = new StringBuffer(((len / 3) + 1) * 4);
-        for (int i = 0; i < len; ++i)
+        int    len = data.length;
+        byte[] ret = new byte[ b64Length( len ) ];
+        int    d   = 0;
+        int    i   = 0;
+        for ( ; i + 2 < len; i += 3 )
         {
-            c = (data[i] >> 2) & 0x3f;
-            ret.append(cvt.charAt(c));
-            c = (data[i] << 4) & 0x3f;
-            if (++i < len)
-                c |= (data[i] >> 4) & 0x0f;
-
-            ret.append(cvt.charAt(c));
-            if (i < len)
-            {
-                c = (data[i] << 2) & 0x3f;
-                if (++i < len)
-                    c |= (data[i] >> 6) & 0x03;
-
-                ret.append(cvt.charAt(c));
-            }
-            else
-            {
-                ++i;
-                ret.append((char) fillchar);
-            }
+            int bits = ((data[i] & 0xff) << 16) | 
+                       ((data[i+1] & 0xff) << 8) | 
+                        (data[i+2] & 0xff);
+            ret[d++] = B64_CHARS[ bits >>> 18 ];
+            ret[d++] = B64_CHARS[ (bits >>> 12) & 0x3f ];
+            ret[d++] = B64_CHARS[ (bits >>> 6) & 0x3f ];
+            ret[d++] = B64_CHARS[ bits & 0x3f ];
+        }
+        encodeTail( data, i, len - i, ret, d );
+        return ret;
+    }
 
-            if (i < len)
+   
+                                //base64
+    public static byte[] decode(byte[] data)
+    {
+        byte[] ret = new byte[ b64DecodedLength( data ) ];
+        int    acc    = 0;
+        int    n_bits = 0;
+        int    d      = 0;
+        for ( int i = 0; i < data.length && d < ret.length; i++ )
+        {
+            int c = B64_VALUES[ data[i] & 0xff ];
+            if ( c < 0 )
             {
-                c = data[i] & 0x3f;
-                ret.append(cvt.charAt(c));
+                if ( data[i] == fillchar )
+                    break;
+                continue;
             }
-            else
+            acc = (acc << 6) | c;
+            n_bits += 6;
+            if ( n_bits >= 8 )
             {
-                ret.append((char) fillchar);
+                n_bits -= 8;
+                ret[d++] = (byte)(acc >>> n_bits);
             }
         }
+        return ret;
+    }
 
-        return(getBinaryBytes(ret.toString()));
+   /*
+    *  Get the number of base 64 characters needed for n_bytes bytes.
+    */
+    private static int b64Length( int n_bytes )
+    {
+        return ((n_bytes + 2) / 3) * 4;
     }
 
-   
-                                //base64
-    public static byte[] decode(byte[] data)
+   /*
+    *  Get the number of bytes represented by the base 64 characters, 
+    *  which are the characters before the first fill character, other 
+    *  than white space.
+    */
+    private static int b64DecodedLength( byte[] data )
     {
-        int c;
-        int c1;
-        int len = data.length;
-        StringBuffer ret = new StringBuffer((len * 3) / 4);
-        for (int i = 0; i < len; ++i)
+        int n_chars = 0;
+        for ( int i = 0; i < data.length; i++ )
+            if ( B64_VALUES[ data[i] & 0xff ] >= 0 )
+                n_chars++;
+            else if ( data[i] == fillchar )
+                break;
+
+        return (int)( (long)n_chars * 6 / 8 );
+    }
+
+   /*
+    *  Encode the last one or two bytes of a sequence, whose length is not
+    *  a multiple of three, adding fill characters.
+    */
+    private static void encodeTail( byte[] data, int start, int n, 
+                                     byte[] ret, int d )
+    {
+        for ( ; n > 0; n -= 3, start += 3 )
         {
-            c = cvt.indexOf(data[i]);
-            ++i;
-            c1 = cvt.indexOf(data[i]);
-            c = ((c << 2) | ((c1 >> 4) & 0x3));
-            ret.append((char) c);
-            if (++i < len)
-            {
-                c = data[i];
-                if (fillchar == c)
-                    break;
+            int b0 = data[start] & 0xff;
+            int b1 = (n > 1) ? data[start+1] & 0xff : 0;
+            int b2 = (n > 2) ? data[start+2] & 0xff : 0;
+            int bits = (b0 << 16) | (b1 << 8) | b2;
+            ret[d++] = B64_CHARS[ bits >>> 18 ];
+            ret[d++] = B64_CHARS[ (bits >>> 12) & 0x3f ];
+            ret[d++] = (n > 1) ? B64_CHARS[ (bits >>> 6) & 0x3f ] 
+                               : (byte)fillchar;
+            ret[d++] = (n > 2) ? B64_CHARS[ bits & 0x3f ] 
+                               : (byte)fillchar;
+        }
+    }
 
-                c = cvt.indexOf((char) c);
-                c1 = ((c1 << 4) & 0xf0) | ((c >> 2) & 0xf);
-                ret.append((char) c1);
+   /*
+    *  Encode count 4-byte words, starting at word first, from either the 
+    *  ints or the floats array, into ret.  Three words at a time are 
+    *  encoded to 16 characters.  Any remaining one or two words are 
+    *  encoded with fill characters, so count must be a multiple of three,
+    *  unless this is the last block of words.
+    *
+    *  @return the number of characters stored in ret.
+    */
+    private static int encodeWords( int[] ints, float[] floats, 
+                                    int first, int count, byte[] ret )
+    {
+        int d    = 0;
+        int i    = first;
+        int last = first + (count / 3) * 3;
+        byte[] chars = B64_CHARS;
+        for ( ; i < last; i += 3 )
+        {
+            int w0, w1, w2;
+            if ( ints != null )
+            {
+                w0 = ints[i];
+                w1 = ints[i+1];
+                w2 = ints[i+2];
             }
-
-            if (++i < len)
+            else
             {
-                c1 = data[i];
-                if (fillchar == c1)
-                    break;
-
-                c1 = cvt.indexOf((char) c1);
-                c = ((c << 6) & 0xc0) | c1;
-                ret.append((char) c);
+                w0 = Float.floatToIntBits( floats[i] );
+                w1 = Float.floatToIntBits( floats[i+1] );
+                w2 = Float.floatToIntBits( floats[i+2] );
             }
+            ret[d++] = chars[ w0 >>> 26 ];
+            ret[d++] = chars[ (w0 >>> 20) & 0x3f ];
+            ret[d++] = chars[ (w0 >>> 14) & 0x3f ];
+            ret[d++] = chars[ (w0 >>>  8) & 0x3f ];
+            ret[d++] = chars[ (w0 >>>  2) & 0x3f ];
+            ret[d++] = chars[ ((w0 & 0x3) << 4) | (w1 >>> 28) ];
+            ret[d++] = chars[ (w1 >>> 22) & 0x3f ];
+            ret[d++] = chars[ (w1 >>> 16) & 0x3f ];
+            ret[d++] = chars[ (w1 >>> 10) & 0x3f ];
+            ret[d++] = chars[ (w1 >>>  4) & 0x3f ];
+            ret[d++] = chars[ ((w1 & 0xf) << 2) | (w2 >>> 30) ];
+            ret[d++] = chars[ (w2 >>> 24) & 0x3f ];
+            ret[d++] = chars[ (w2 >>> 18) & 0x3f ];
+            ret[d++] = chars[ (w2 >>> 12) & 0x3f ];
+            ret[d++] = chars[ (w2 >>>  6) & 0x3f ];
+            ret[d++] = chars[ w2 & 0x3f ];
         }
 
-        return(getBinaryBytes(ret.toString()));
+        int n_left = first + count - i;
+        if ( n_left > 0 )
+        {
+            byte[] tail = new byte[ 4 * n_left ];
+            for ( int k = 0; k < n_left; k++ )
+            {
+                int w;
+                if ( ints != null )
+                    w = ints[ i+k ];
+                else
+                    w = Float.floatToIntBits( floats[ i+k ] );
+                tail[4*k  ] = (byte)(w >>> 24);
+                tail[4*k+1] = (byte)(w >>> 16);
+                tail[4*k+2] = (byte)(w >>>  8);
+                tail[4*k+3] = (byte) w;
+            }
+            encodeTail( tail, 0, tail.length, ret, d );
+            d += b64Length( tail.length );
+        }
+        return d;
     }
 
-   private static byte[] getBinaryBytes(String str)
+   /*
+    *  Write n words from either the ints or the floats array to the 
+    *  stream in base 64, one block at a time.
+    */
+    private static void writeWords( OutputStream os, int[] ints, 
+                                    float[] floats, int n ) 
+                                    throws IOException
     {
-        byte[] b = new byte[str.length()];
-        for (int i = 0; i < b.length; ++i)
-            b[i] = (byte) str.charAt(i);
+        int    block = 3 * 1024;                  // words per block
+        byte[] chars = new byte[ b64Length( 4 * block ) ];
+        for ( int first = 0; first < n; first += block )
+        {
+            int count   = Math.min( block, n - first );
+            int n_chars = encodeWords( ints, floats, first, count, chars );
+            os.write( chars, 0, n_chars );
+        }
+    }
 
-        return(b);
+   /*
+    *  Decode base 64 characters directly into 4-byte words, stored in 
+    *  either ints or floats, until the array is full.
+    */
+    private static void decodeWords( byte[] data, int[] ints, float[] floats )
+    {
+        int n_words = (ints != null) ? ints.length : floats.length;
+        int acc     = 0;
+        int n_bits  = 0;
+        int word    = 0;
+        int n_bytes = 0;
+        int k       = 0;
+        for ( int i = 0; i < data.length && k < n_words; i++ )
+        {
+            int c = B64_VALUES[ data[i] & 0xff ];
+            if ( c < 0 )                         // skip white space, and
+            {                                    // stop at fill character
+                if ( data[i] == fillchar )
+                    break;
+                continue;
+            }
+            acc = (acc << 6) | c;
+            n_bits += 6;
+            if ( n_bits >= 8 )
+            {
+                n_bits -= 8;
+                word = (word << 8) | ((acc >>> n_bits) & 0xff);
+                n_bytes++;
+                if ( n_bytes == 4 )
+                {
+                    if ( ints != null )
+                        ints[k] = word;
+                    else
+                        floats[k] = Float.intBitsToFloat( word );
+                    k++;
+                    n_bytes = 0;
+                    word    = 0;
+                }
+            }
+        }
     }
 
     private static final int    fillchar = '=';
@@ -509,6 +688,22 @@ public class xml_utils
                                     // 234567890123
                                     + "0123456789+/";
 
+                                    // lookup tables from the 6-bit value
+                                    // to the character and back.  Bytes 
+                                    // that are not base 64 characters 
+                                    // have value -1.
+    private static final byte[] B64_CHARS  = new byte[ 64 ];
+    private static final byte[] B64_VALUES = new byte[ 256 ];
+    static
+    {
+        java.util.Arrays.fill( B64_VALUES, (byte)-1 );
+        for ( int i = 0; i < 64; i++ )
+        {
+            B64_CHARS[i] = (byte)cvt.charAt(i);
+            B64_VALUES[ cvt.charAt(i) ] = (byte)i;
+        }
+    }
+
    
  /** Test program for this module
  *
@@ -89,4 +89,36 @@ public class UniqueIntGenerator
     
     return currentValue;
   }
+
+  /**
+   * This reserves a block of consecutive integer values, for 
+   * example one for each pixel of a detector, and returns the 
+   * first one.  The values first, first+1, ..., first+count-1 
+   * will not be returned by later calls.  If the block would 
+   * reach the maximum integer value, the cycle is restarted at 
+   * INTIAL_INT as in getNextInt().
+   *
+   * @param  count  The number of integers to reserve.
+   * @return The first integer of the block.
+   * @throws IllegalArgumentException If count is not positive.
+   */
+  public static int getNextInts( int count )
+  {
+    if( count <= 0 )
+      throw new IllegalArgumentException("Number of integers must be " +
+                                         "positive, not " + count );
+
+    if( currentValue >= Integer.MAX_VALUE - count * increment )
+    {
+      System.err.println("UniqueIntGenerator.getNextInts():" +
+      		             " maximum integer value reached. " +
+						 "Restarting cycle at integer " + INTIAL_INT);
+      currentValue = INTIAL_INT - increment;
+    }
+
+    int first = currentValue + increment;
+    currentValue += count * increment;
+
+    return first;
+  }
 }
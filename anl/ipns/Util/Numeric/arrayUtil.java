@@ -370,6 +370,72 @@ public static void q_sort( int list[], int start, int end )
 }
 
 
+/**
+ *  Reorder a list of indices so that the corresponding float keys are
+ *  in increasing order, that is keys[index[0]] <= keys[index[1]] <= ... 
+ *  This is a stable radix sort on the bits of the float values, so it
+ *  takes time proportional to the number of indices and does not compare
+ *  or box the keys.  Indices with equal keys keep their relative order.
+ *  Negative zero is placed before zero and NaN values are placed last.
+ *
+ *  @param  keys   The array of float values used to order the indices.
+ *  @param  index  The array of indices into the keys array to sort.
+ */
+public static void sortIndex( float keys[], int index[] )
+{
+  int n = index.length;
+  if ( n < 2 )
+    return;
+
+  int key[]        = new int[ n ];     // map the floats to ints that are
+  int temp_key[]   = new int[ n ];     // in the same order when compared
+  int list[]       = index;            // as unsigned ints
+  int temp_list[]  = new int[ n ];
+  int bits;
+  for ( int i = 0; i < n; i++ )
+  {
+    bits = Float.floatToIntBits( keys[ index[i] ] );
+    key[i] = bits ^ ( ( bits >> 31 ) | 0x80000000 );
+  }
+
+  int count[] = new int[ 256 ];
+  int swap[];
+  int digit,
+      sum;
+  for ( int shift = 0; shift < 32; shift += 8 )   // one pass per byte, 
+  {                                               // least significant first
+    java.util.Arrays.fill( count, 0 );
+    for ( int i = 0; i < n; i++ )
+      count[ ( key[i] >>> shift ) & 0xFF ]++;
+
+    if ( count[ ( key[0] >>> shift ) & 0xFF ] == n )
+      continue;                                   // all the same, skip pass
+
+    sum = 0;
+    for ( int d = 0; d < 256; d++ )
+    {
+      digit    = count[d];
+      count[d] = sum;
+      sum     += digit;
+    }
+
+    for ( int i = 0; i < n; i++ )
+    {
+      digit = ( key[i] >>> shift ) & 0xFF;
+      temp_key [ count[digit] ] = key[i];
+      temp_list[ count[digit] ] = list[i];
+      count[digit]++;
+    }
+
+    swap = key;   key  = temp_key;  temp_key  = swap;
+    swap = list;  list = temp_list; temp_list = swap;
+  }
+
+  if ( list != index )
+    System.arraycopy( list, 0, index, 0, n );
+}
+
+
 /**
  *  Determine whether or not an array of integers contains a strictly 
  *  increasing sequence of distinct integer values.
@@ -0,0 +1,60 @@
+/* 
+ * File: IStreamMatchHandler.java
+ *
+ * Copyright (C) 2011, Ruth Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Ruth Mikkelson <mikkelsonr@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author:$
+ *  $Date:$            
+ *  $Rev:$
+ */
+package gov.anl.ipns.Util.xml;
+
+import org.w3c.dom.*;
+
+/**
+ * This interface is implemented by objects that receive the nodes
+ * found by the StreamSm search methods, as the xml file is read.
+ * 
+ * @author ruth
+ *
+ */
+public interface IStreamMatchHandler
+{
+
+   /**
+    * Called once for each element that matches the search criteria, in
+    * the same order that UtilSm.NextChildNodeRecursive would return them.
+    * The element holds the complete subtree of the matching node, but
+    * is not connected to the rest of the document.
+    * 
+    * @param node   The matching element with its attributes and children.
+    * 
+    * @return true to continue the search, false to stop reading the file.
+    */
+   public boolean matched( Element node );
+
+}
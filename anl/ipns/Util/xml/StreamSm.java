@@ -0,0 +1,472 @@
+/* 
+ * File: StreamSm.java
+ *
+ * Copyright (C) 2011, Ruth Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Ruth Mikkelson <mikkelsonr@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author:$
+ *  $Date:$            
+ *  $Rev:$
+ */
+package gov.anl.ipns.Util.xml;
+
+
+import java.io.*;
+import java.util.*;
+
+import javax.xml.parsers.*;
+import javax.xml.stream.*;
+import org.w3c.dom.*;
+/**
+ * This class contains streaming versions of the UtilSm searches, for 
+ * finding information in large "general" xml files.  The file is read 
+ * with a StAX XMLStreamReader and a DOM subtree is built ONLY for the 
+ * elements that match the node name and attribute criteria, so the memory
+ * needed depends on the size of the matching subtrees, not the size of the
+ * document.  The criteria are the same as used by UtilSm.Match, and can be
+ * built with UtilSm.Add.
+ * 
+ * Only element nodes are matched.  The subtree of a match includes 
+ * elements, text, CDATA sections and comments.
+ * 
+ * @author ruth
+ *
+ */
+public class StreamSm
+{
+
+   /**
+    * Reads the xml file and passes each element that matches the 
+    * conditions, at any depth, to the handler as soon as its end tag has 
+    * been read.  If a matching element contains other matching elements, 
+    * they are all passed to the handler when the outer element ends, 
+    * outer element first, as UtilSm.NextChildNodeRecursive would return 
+    * them.
+    * 
+    * @param xml_fileName  The name of the xml file.
+    * @param nodeName      The xml name of the node. If null all elements
+    *                      will be considered.
+    * @param attributes    Vector of key and value pairs for match, as used
+    *                      by UtilSm.Match.
+    * @param handler       The object that receives the matching nodes.
+    * 
+    * @return the number of matching nodes passed to the handler.
+    */
+   public static int Search( String              xml_fileName, 
+                             String              nodeName, 
+                             Vector<String[]>    attributes,
+                             IStreamMatchHandler handler ) 
+                                               throws IOException,
+                                                      XMLStreamException,
+                                                      ParserConfigurationException
+   {
+      InputStream in = new BufferedInputStream( 
+                             new FileInputStream( xml_fileName ), 65536 );
+      try
+      {
+         return Search( in, nodeName, attributes, handler );
+      }
+      finally
+      {
+         in.close( );
+      }
+   }
+   
+   
+   /**
+    * Reads the xml from the stream and passes each element that matches 
+    * the conditions to the handler.  The stream is not closed.
+    * 
+    * @see #Search(String, String, Vector, IStreamMatchHandler)
+    * 
+    * @param stream        The stream containing the xml.
+    * @param nodeName      The xml name of the node. If null all elements
+    *                      will be considered.
+    * @param attributes    Vector of key and value pairs for match.
+    * @param handler       The object that receives the matching nodes.
+    * 
+    * @return the number of matching nodes passed to the handler.
+    */
+   public static int Search( InputStream         stream, 
+                             String              nodeName, 
+                             Vector<String[]>    attributes,
+                             IStreamMatchHandler handler ) 
+                                               throws XMLStreamException,
+                                                      ParserConfigurationException
+   {
+      if( handler == null)
+         throw new IllegalArgumentException( "null IStreamMatchHandler" );
+      
+      XMLInputFactory factory = XMLInputFactory.newInstance( );
+      factory.setProperty( XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE );
+      factory.setProperty( XMLInputFactory.IS_COALESCING, Boolean.FALSE );
+      
+      XMLStreamReader reader = factory.createXMLStreamReader( stream );
+      
+      Document doc = null;                      // only made if there is a match
+      Node current = null;                      // null if not inside a match
+      Vector<Element> found = new Vector<Element>();
+      int n_found = 0;
+      try
+      {
+         while( reader.hasNext( ))
+         {
+            int event = reader.next( );
+            
+            if( event == XMLStreamConstants.START_ELEMENT )
+            {
+               boolean match = Match( reader, nodeName, attributes );
+               if( current == null && !match )
+                  continue;
+               
+               if( doc == null)
+                  doc = DocumentBuilderFactory.newInstance( )
+                                         .newDocumentBuilder( ).newDocument( );
+               
+               Element elem = doc.createElement( getName( reader ) );
+               for( int i = 0; i < reader.getAttributeCount( ); i++ )
+                  elem.setAttribute( getAttributeName( reader, i ), 
+                                     reader.getAttributeValue( i ) );
+               
+               if( current != null)
+                  current.appendChild( elem );
+               current = elem;
+               
+               if( match )
+                  found.add( elem );
+            }
+            
+            else if( current == null)
+               continue;
+            
+            else if( event == XMLStreamConstants.END_ELEMENT )
+            {
+               Node parent = current.getParentNode( );
+               if( parent == null)               // end of outermost match
+               {
+                  for( int i = 0; i < found.size( ); i++ )
+                  {
+                     n_found++;
+                     if( !handler.matched( found.elementAt( i ) ))
+                        return n_found;
+                  }
+                  found.clear( );
+               }
+               current = parent;
+            }
+            
+            else if( event == XMLStreamConstants.CHARACTERS ||
+                     event == XMLStreamConstants.SPACE )
+               current.appendChild( doc.createTextNode( reader.getText( ) ) );
+            
+            else if( event == XMLStreamConstants.CDATA )
+               current.appendChild( doc.createCDATASection( reader.getText( ) ) );
+            
+            else if( event == XMLStreamConstants.COMMENT )
+               current.appendChild( doc.createComment( reader.getText( ) ) );
+         }
+      }
+      finally
+      {
+         reader.close( );
+      }
+      
+      return n_found;
+   }
+   
+   
+   /**
+    * Returns the first element of the file, at any depth, that satisfies 
+    * the conditions, reading no further into the file than the end of that
+    * element.
+    * 
+    * @param xml_fileName  The name of the xml file.
+    * @param nodeName      The xml name of the node. If null all elements
+    *                      will be considered.
+    * @param attributes    Vector of key and value pairs for match.
+    * 
+    * @return the first matching element, or null if there is none.
+    */
+   public static Element FirstNode( String           xml_fileName, 
+                                    String           nodeName, 
+                                    Vector<String[]> attributes ) 
+                                               throws IOException,
+                                                      XMLStreamException,
+                                                      ParserConfigurationException
+   {
+      Element[] nodes = SearchNodes( xml_fileName, nodeName, attributes, 1 );
+      
+      if( nodes.length < 1)
+         return null;
+      
+      return nodes[0];
+   }
+   
+   
+   /**
+    * Returns the elements of the file, at any depth, that satisfy the 
+    * conditions.
+    * 
+    * @param xml_fileName  The name of the xml file.
+    * @param nodeName      The xml name of the node. If null all elements
+    *                      will be considered.
+    * @param attributes    Vector of key and value pairs for match.
+    * @param max_nodes     The maximum number of elements to return. If this
+    *                      is less than 1, all matches will be returned.
+    * 
+    * @return the list of matching elements, with their subtrees.
+    */
+   public static Element[] SearchNodes( String           xml_fileName, 
+                                        String           nodeName, 
+                                        Vector<String[]> attributes,
+                                        final int        max_nodes ) 
+                                               throws IOException,
+                                                      XMLStreamException,
+                                                      ParserConfigurationException
+   {
+      final Vector<Element> nodes = new Vector<Element>();
+      
+      Search( xml_fileName, nodeName, attributes, new IStreamMatchHandler()
+      {
+         public boolean matched( Element node )
+         {
+            nodes.add( node );
+            return max_nodes < 1 || nodes.size( ) < max_nodes;
+         }
+      });
+      
+      return nodes.toArray( new Element[0] );
+   }
+   
+   
+   /**
+    * Returns the text values of the elements of the file that satisfy the
+    * conditions.  The value of an element is the text of all of its 
+    * descendants, including CDATA sections.  The subtree for each element
+    * is discarded once its value has been found.
+    * 
+    * @param xml_fileName  The name of the xml file.
+    * @param nodeName      The xml name of the node. If null all elements
+    *                      will be considered.
+    * @param attributes    Vector of key and value pairs for match.
+    * @param max_values    The maximum number of values to return. If this
+    *                      is less than 1, all values will be returned.
+    * 
+    * @return the list of values of the matching elements.
+    */
+   public static String[] getNodeValues( String           xml_fileName, 
+                                         String           nodeName, 
+                                         Vector<String[]> attributes,
+                                         final int        max_values ) 
+                                               throws IOException,
+                                                      XMLStreamException,
+                                                      ParserConfigurationException
+   {
+      final Vector<String> values = new Vector<String>();
+      
+      Search( xml_fileName, nodeName, attributes, new IStreamMatchHandler()
+      {
+         public boolean matched( Element node )
+         {
+            values.add( node.getTextContent( ) );
+            return max_values < 1 || values.size( ) < max_values;
+         }
+      });
+      
+      return values.toArray( new String[0] );
+   }
+   
+   
+   /**
+    * Checks the element at the current position of the reader for an exact
+    * match, using the same rules as UtilSm.Match.
+    * 
+    * @param reader     The reader, positioned at a START_ELEMENT.
+    * 
+    * @param nodeName   The nodeName to match( null means they all match)
+    * 
+    * @param attributes The attributes and corresponding values to match
+    * 
+    * @return           true if there is a match, otherwise false.
+    */
+   public static boolean Match( XMLStreamReader reader, String nodeName, 
+                                Vector<String[]>attributes)
+   {
+      if( nodeName != null)
+         if( !nodeName.equals( getName( reader ) ))
+               return false;
+      
+      if( attributes == null || attributes.size() < 1)
+         return true;
+      
+      for( int i=0; i< attributes.size( ); i++)
+      {
+         String[] attr = attributes.elementAt(i);
+         
+         if ( attr != null && attr.length > 1 )
+         {
+            String S = getAttributeValue( reader, attr[0] );
+            if ( S == null )
+               return false;
+
+            if ( attr[1] != null )
+               if ( !attr[1].trim( ).equals( S.trim( ) ) )
+                  return false;
+         }
+      }
+      return true;
+   }
+   
+   
+   /**
+    * Get the value of the named attribute of the current element, or null
+    * if the element has no such attribute.
+    */
+   private static String getAttributeValue( XMLStreamReader reader, 
+                                            String          name )
+   {
+      for( int i = 0; i < reader.getAttributeCount( ); i++ )
+         if( name.equals( getAttributeName( reader, i ) ))
+            return reader.getAttributeValue( i );
+      
+      return null;
+   }
+   
+   
+   /**
+    * Get the name of the current element as DOM's getNodeName would give 
+    * it, including any prefix.
+    */
+   private static String getName( XMLStreamReader reader )
+   {
+      String prefix = reader.getPrefix( );
+      if( prefix == null || prefix.length( ) < 1)
+         return reader.getLocalName( );
+      
+      return prefix + ":" + reader.getLocalName( );
+   }
+   
+   
+   /**
+    * Get the name of the i-th attribute, including any prefix.
+    */
+   private static String getAttributeName( XMLStreamReader reader, int i )
+   {
+      String prefix = reader.getAttributePrefix( i );
+      if( prefix == null || prefix.length( ) < 1)
+         return reader.getAttributeLocalName( i );
+      
+      return prefix + ":" + reader.getAttributeLocalName( i );
+   }
+   
+   
+   /**
+    * Compares the time and memory used to find the values of matching
+    * nodes with UtilSm and with StreamSm.
+    * 
+    * @param args  Optional file name, node name, and attribute name and
+    *              value pairs.  If absent, a test file is written with
+    *              many cvlog nodes, and the one with name="Speed2" and
+    *              device="ChopperSystem" is found.
+    */
+   public static void main(String[] args) throws Exception
+   {
+      String fileName;
+      String nodeName = "cvlog";
+      Vector<String[]> attributes = null;
+      
+      if( args.length > 0)
+      {
+         fileName = args[0];
+         if( args.length > 1)
+            nodeName = args[1];
+         for( int i = 2; i + 1 < args.length; i += 2 )
+            attributes = UtilSm.Add( attributes, args[i], args[i+1], null);
+      }
+      else
+      {
+         File file = File.createTempFile( "StreamSm", ".xml" );
+         file.deleteOnExit( );
+         fileName = file.getPath( );
+         
+         PrintStream out = new PrintStream( new BufferedOutputStream( 
+                                  new FileOutputStream( file ) ) );
+         out.println( "<?xml version=\"1.0\"?>" );
+         out.println( "<cvinfo>\n<Process>" );
+         for( int i = 0; i < 300000; i++ )
+         {
+            String name = ( i == 250000 ) ? "Speed2" : "Speed" + (i % 1000 + 10);
+            out.print( "<cvlog name=\"" + name + 
+                       "\" device=\"ChopperSystem\" id=\"" + i + "\">" );
+            out.print( "<![CDATA[" );
+            for( int k = 0; k < 10; k++ )
+               out.print( " " + (i * 0.001 + k) );
+            out.println( "]]></cvlog>" );
+         }
+         out.println( "</Process>\n</cvinfo>" );
+         out.close( );
+         
+         attributes = UtilSm.Add( UtilSm.Add( null , "name" , "Speed2" , null),
+                                  "device","ChopperSystem" ,null);
+      }
+      System.out.println( "File size = " + new File( fileName ).length( ) );
+      
+      Runtime rt = Runtime.getRuntime( );
+      
+      System.gc( );
+      long start = System.currentTimeMillis( );
+      long base  = rt.totalMemory( ) - rt.freeMemory( );
+      Document D = UtilSm.Open( fileName );
+      Node[] Nds = UtilSm.SearchChildrenNodes( 
+                          UtilSm.NextChildNode( D.getDocumentElement( ), null,
+                                                "Process", null ),
+                          nodeName, attributes );
+      long used  = rt.totalMemory( ) - rt.freeMemory( ) - base;
+      long time  = System.currentTimeMillis( ) - start;
+      System.out.println( "UtilSm   : " + Nds.length + " nodes, " + time + 
+                          " ms, heap used " + used / 1000000 + " MB" );
+      String dom_value = Nds.length > 0 ? Nds[0].getTextContent( ) : null;
+      D   = null;
+      Nds = null;
+      
+      System.gc( );
+      start = System.currentTimeMillis( );
+      base  = rt.totalMemory( ) - rt.freeMemory( );
+      String[] values = getNodeValues( fileName, nodeName, attributes, 0 );
+      used  = rt.totalMemory( ) - rt.freeMemory( ) - base;
+      time  = System.currentTimeMillis( ) - start;
+      System.out.println( "StreamSm : " + values.length + " nodes, " + time + 
+                          " ms, heap used " + used / 1000000 + " MB" );
+      
+      if( values.length > 0)
+      {
+         System.out.println( "Same first value = " + 
+                              values[0].equals( dom_value ) );
+         System.out.println( "Node value is\n" + values[0] );
+      }
+   }
+
+}
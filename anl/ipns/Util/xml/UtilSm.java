@@ -45,6 +45,8 @@ import org.xml.sax.*;
  * with some known structure( names for tags, attributes, etc.).
  * 
  * All these methods use the DOM model for the xml parsing
+ * so the whole document is held in memory.  StreamSm has streaming
+ * versions of the searches for large files.
  * 
  * @author ruth
  *
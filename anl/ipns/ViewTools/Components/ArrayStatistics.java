@@ -0,0 +1,620 @@
+/* 
+ * File: ArrayStatistics.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Revision$
+ */
+
+package gov.anl.ipns.ViewTools.Components;
+
+import java.util.Arrays;
+import java.util.concurrent.*;
+
+/**
+ *  An ArrayStatistics object keeps the minimum, maximum, smallest positive
+ *  value, sum, count and a histogram of the values in an IVirtualArray2D,
+ *  and only recomputes them when they are asked for after the values have
+ *  changed.  The statistics are kept for bands of consecutive rows, so 
+ *  when only some rows are marked as changed, by invalidateRows(), only
+ *  the bands containing those rows are read again.  All of the statistics
+ *  for a band, including its histogram, are found in one pass over the 
+ *  values of the band.  The bands are binned using the range of the 
+ *  histogram from the previous pass, so the whole array only needs to be
+ *  binned again if a changed value falls outside of that range.  Values
+ *  that are NaN are ignored.
+ *    The rows of a VirtualArray2D are read directly from the underlying
+ *  array.  Other IVirtualArray2D implementations are read using 
+ *  getRowValues().  If the object is constructed to work in parallel, 
+ *  the bands are processed using fork/join, so that should only be 
+ *  requested if getRowValues() is thread safe.
+ *
+ *  @see IStatisticsArray2D
+ */
+public class ArrayStatistics
+{
+  /**
+   *  The number of bins in the histogram, if not specified.
+   */
+  public static final int DEFAULT_NUM_BINS = 256;
+
+  private static final int ROWS_PER_BAND       = 16;
+  private static final int MIN_VALUES_PER_TASK = 65536;
+
+  private IVirtualArray2D data;
+  private boolean         parallel;
+  private int             n_bins;
+
+  private int             n_rows = -1;      // rows when bands were made
+  private int             n_cols;
+  private float[][]       rows;             // values of a VirtualArray2D
+
+  private float[]         band_min;         // statistics of each band
+  private float[]         band_max;
+  private float[]         band_pos_min;
+  private double[]        band_sum;
+  private long[]          band_count;
+  private int[][]         band_hist;
+  private boolean[]       dirty;            // bands to recompute
+  private boolean         any_dirty;
+
+  private float           min;              // statistics of whole array
+  private float           max;
+  private float           pos_min;
+  private double          sum;
+  private long            count;
+
+  private float           hist_min;         // range used to bin the bands
+  private float           hist_max;
+  private boolean         hist_valid = false;
+
+
+  /* --------------------------- constructor ----------------------------- */
+  /**
+   *  Construct an ArrayStatistics object for the specified array, with 
+   *  a histogram with DEFAULT_NUM_BINS bins.
+   *
+   *  @param  data      The array of values.
+   *  @param  parallel  Flag indicating whether the rows can be read from
+   *                    several threads at once.
+   */
+  public ArrayStatistics( IVirtualArray2D data, boolean parallel )
+  {
+    this( data, parallel, DEFAULT_NUM_BINS );
+  }
+
+
+  /* --------------------------- constructor ----------------------------- */
+  /**
+   *  Construct an ArrayStatistics object for the specified array.
+   *
+   *  @param  data      The array of values.
+   *  @param  parallel  Flag indicating whether the rows can be read from
+   *                    several threads at once.
+   *  @param  n_bins    The number of bins in the histogram.
+   *
+   *  @throws IllegalArgumentException if the array is null or the number
+   *          of bins is less than one.
+   */
+  public ArrayStatistics( IVirtualArray2D data, boolean parallel, int n_bins )
+  {
+    if ( data == null )
+      throw new IllegalArgumentException( "IVirtualArray2D is null" );
+
+    if ( n_bins < 1 )
+      throw new IllegalArgumentException( "Number of bins must be positive: "
+                                          + n_bins );
+    this.data     = data;
+    this.parallel = parallel;
+    this.n_bins   = n_bins;
+  }
+
+
+  /* --------------------------- invalidateRows -------------------------- */
+  /**
+   *  Mark the specified rows of the array as changed, so that the 
+   *  statistics for those rows are recomputed when next needed.  The 
+   *  rows may be given in either order, and are clamped to the rows of
+   *  the array.
+   *
+   *  @param  first_row  The first row that changed.
+   *  @param  last_row   The last row that changed.
+   */
+  public synchronized void invalidateRows( int first_row, int last_row )
+  {
+    if ( dirty == null || n_rows < 0 )      // all will be recomputed
+      return;
+
+    if ( first_row > last_row )
+    {
+      int temp  = first_row;
+      first_row = last_row;
+      last_row  = temp;
+    }
+
+    if ( first_row < 0 )
+      first_row = 0;
+
+    if ( last_row >= n_rows )
+      last_row = n_rows - 1;
+
+    for ( int band  = first_row / ROWS_PER_BAND; 
+              band <= last_row  / ROWS_PER_BAND; band++ )
+    {
+      dirty[band] = true;
+      any_dirty   = true;
+    }
+  }
+
+
+  /* --------------------------- invalidateAll --------------------------- */
+  /**
+   *  Mark all of the array as changed, so that all of the statistics are
+   *  recomputed when next needed.  This must be called if the values are
+   *  changed without calling invalidateRows(), for example by changing 
+   *  the values in the array returned by the getRegionValues() method of
+   *  a VirtualArray2D.
+   */
+  public synchronized void invalidateAll()
+  {
+    n_rows = -1;
+  }
+
+
+  /* ------------------------------ getMin ------------------------------- */
+  /**
+   *  Get the minimum of all values in the array that are not NaN.
+   *
+   *  @return the minimum, or positive infinity if all values are NaN.
+   */
+  public synchronized float getMin()
+  {
+    update();
+    return min;
+  }
+
+
+  /* ------------------------------ getMax ------------------------------- */
+  /**
+   *  Get the maximum of all values in the array that are not NaN.
+   *
+   *  @return the maximum, or negative infinity if all values are NaN.
+   */
+  public synchronized float getMax()
+  {
+    update();
+    return max;
+  }
+
+
+  /* --------------------------- getPositiveMin -------------------------- */
+  /**
+   *  Get the smallest value in the array that is greater than zero, as 
+   *  needed for log scaling.
+   *
+   *  @return the smallest positive value, or positive infinity if there
+   *          are no positive values.
+   */
+  public synchronized float getPositiveMin()
+  {
+    update();
+    return pos_min;
+  }
+
+
+  /* ------------------------------ getSum ------------------------------- */
+  /**
+   *  Get the sum of all values in the array that are not NaN.
+   *
+   *  @return the sum of the values.
+   */
+  public synchronized double getSum()
+  {
+    update();
+    return sum;
+  }
+
+
+  /* ----------------------------- getCount ------------------------------ */
+  /**
+   *  Get the number of values in the array that are not NaN.
+   *
+   *  @return the number of values included in the statistics.
+   */
+  public synchronized long getCount()
+  {
+    update();
+    return count;
+  }
+
+
+  /* ---------------------------- getNumBins ----------------------------- */
+  /**
+   *  Get the number of bins in the histogram.
+   *
+   *  @return the number of bins.
+   */
+  public int getNumBins()
+  {
+    return n_bins;
+  }
+
+
+  /* ---------------------------- getHistogram --------------------------- */
+  /**
+   *  Get a histogram of the values in the array, with getNumBins() bins of
+   *  equal width covering the interval from getHistogramMin() to 
+   *  getHistogramMax().  Values equal to getHistogramMax() are counted in
+   *  the last bin.
+   *
+   *  @return a new array with the number of values in each bin.
+   */
+  public synchronized int[] getHistogram()
+  {
+    update();
+    if ( !hist_valid )
+    {
+      hist_min   = min;
+      hist_max   = max;
+      hist_valid = true;
+      Arrays.fill( dirty, true );
+      any_dirty  = true;
+      update();
+    }
+
+    int[] hist = new int[ n_bins ];
+    for ( int band = 0; band < band_hist.length; band++ )
+    {
+      int[] b_hist = band_hist[band];
+      for ( int bin = 0; bin < n_bins; bin++ )
+        hist[bin] += b_hist[bin];
+    }
+    return hist;
+  }
+
+
+  /* -------------------------- getHistogramMin -------------------------- */
+  /**
+   *  Get the lower end of the interval covered by the histogram.  This is
+   *  at most getMin(), and is equal to getMin() unless values have changed
+   *  since the histogram was last rebinned, so that the minimum increased.
+   *
+   *  @return the lower end of the first bin.
+   */
+  public synchronized float getHistogramMin()
+  {
+    getHistogram();
+    return hist_min;
+  }
+
+
+  /* -------------------------- getHistogramMax -------------------------- */
+  /**
+   *  Get the upper end of the interval covered by the histogram.  This is
+   *  at least getMax(), and is equal to getMax() unless values have 
+   *  changed since the histogram was last rebinned, so that the maximum 
+   *  decreased.
+   *
+   *  @return the upper end of the last bin.
+   */
+  public synchronized float getHistogramMax()
+  {
+    getHistogram();
+    return hist_max;
+  }
+
+
+  /* ------------------------------ update ------------------------------- */
+  /*
+   *  Recompute the statistics of any bands that have changed, and combine
+   *  the statistics of the bands.
+   */
+  private void update()
+  {
+    if ( n_rows != data.getNumRows() || n_cols != data.getNumColumns() )
+      allocate();
+
+    if ( !any_dirty )
+      return;
+
+    if ( data instanceof VirtualArray2D )
+      rows = data.getRegionValues( 0, n_rows - 1, 0, n_cols - 1 );
+    else
+      rows = null;
+
+    int[] bands   = new int[ dirty.length ];
+    int   n_bands = 0;
+    for ( int band = 0; band < dirty.length; band++ )
+      if ( dirty[band] )
+      {
+        bands[ n_bands++ ] = band;
+        dirty[band] = false;
+      }
+    any_dirty = false;
+
+    BandTask task = new BandTask( bands, 0, n_bands - 1 );
+    if ( parallel && 
+         (long)n_bands * ROWS_PER_BAND * n_cols > 2 * MIN_VALUES_PER_TASK )
+      ForkJoinPool.commonPool().invoke( task );
+    else
+      task.compute();
+    rows = null;
+
+    min     = Float.POSITIVE_INFINITY;
+    max     = Float.NEGATIVE_INFINITY;
+    pos_min = Float.POSITIVE_INFINITY;
+    sum     = 0;
+    count   = 0;
+    for ( int band = 0; band < dirty.length; band++ )
+    {
+      if ( band_min[band] < min )
+        min = band_min[band];
+      if ( band_max[band] > max )
+        max = band_max[band];
+      if ( band_pos_min[band] < pos_min )
+        pos_min = band_pos_min[band];
+      sum   += band_sum[band];
+      count += band_count[band];
+    }
+                                     // changed values outside of the bins 
+    if ( min < hist_min || max > hist_max )
+      hist_valid = false;
+  }
+
+
+  /* ----------------------------- allocate ------------------------------ */
+  /*
+   *  Make new arrays for the statistics of the bands, and mark all bands
+   *  as changed.
+   */
+  private void allocate()
+  {
+    n_rows = data.getNumRows();
+    n_cols = data.getNumColumns();
+    if ( n_rows < 0 )
+      n_rows = 0;
+
+    int n_bands = (n_rows + ROWS_PER_BAND - 1) / ROWS_PER_BAND;
+    band_min     = new float  [ n_bands ];
+    band_max     = new float  [ n_bands ];
+    band_pos_min = new float  [ n_bands ];
+    band_sum     = new double [ n_bands ];
+    band_count   = new long   [ n_bands ];
+    band_hist    = new int    [ n_bands ][];
+    dirty        = new boolean[ n_bands ];
+    Arrays.fill( dirty, true );
+    any_dirty    = true;
+  }
+
+
+  /* ---------------------------- computeBand ---------------------------- */
+  /*
+   *  Find the statistics of one band in one pass over its values, binning
+   *  the values if the histogram range is valid.
+   */
+  private void computeBand( int band )
+  {
+    int first_row = band * ROWS_PER_BAND;
+    int last_row  = Math.min( first_row + ROWS_PER_BAND, n_rows ) - 1;
+
+    float  b_min     = Float.POSITIVE_INFINITY;
+    float  b_max     = Float.NEGATIVE_INFINITY;
+    float  b_pos_min = Float.POSITIVE_INFINITY;
+    double b_sum     = 0;
+    long   b_count   = 0;
+
+    int[] hist    = null;
+    float h_min   = hist_min;
+    float h_scale = 0;
+    int   h_last  = n_bins - 1;
+    if ( hist_valid )
+    {
+      hist = band_hist[band];
+      if ( hist == null )
+        hist = new int[ n_bins ];
+      else
+        Arrays.fill( hist, 0 );
+
+      if ( hist_max > hist_min )
+        h_scale = n_bins / (hist_max - hist_min);
+    }
+
+    for ( int row = first_row; row <= last_row; row++ )
+    {
+      float[] values;
+      if ( rows != null )
+        values = rows[row];
+      else
+        values = data.getRowValues( row, 0, n_cols - 1 );
+
+      double row_sum = 0;
+      for ( int col = 0; col < values.length; col++ )
+      {
+        float val = values[col];
+        if ( val == val )                                 // not NaN
+        {
+          if ( val < b_min )
+            b_min = val;
+          if ( val > b_max )
+            b_max = val;
+          if ( val > 0 && val < b_pos_min )
+            b_pos_min = val;
+          row_sum += val;
+          b_count++;
+
+          if ( hist != null )
+          {
+            int bin = (int)((val - h_min) * h_scale);
+            if ( bin < 0 )
+              bin = 0;
+            else if ( bin > h_last )
+              bin = h_last;
+            hist[bin]++;
+          }
+        }
+      }
+      b_sum += row_sum;
+    }
+
+    band_min    [band] = b_min;
+    band_max    [band] = b_max;
+    band_pos_min[band] = b_pos_min;
+    band_sum    [band] = b_sum;
+    band_count  [band] = b_count;
+    band_hist   [band] = hist;
+  }
+
+
+  /* ----------------------------- BandTask ------------------------------ */
+  /*
+   *  Computes the statistics of a range of the listed bands, splitting the
+   *  range in half until it is small enough.
+   */
+  private class BandTask extends RecursiveAction
+  {
+    private int[] bands;
+    private int   first;
+    private int   last;
+
+    BandTask( int[] bands, int first, int last )
+    {
+      this.bands = bands;
+      this.first = first;
+      this.last  = last;
+    }
+
+    protected void compute()
+    {
+      if ( parallel &&
+           (long)(last - first + 1) * ROWS_PER_BAND * n_cols > 
+                                                  2 * MIN_VALUES_PER_TASK )
+      {
+        int mid = (first + last + 1) / 2;
+        invokeAll( new BandTask( bands, first, mid - 1 ),
+                   new BandTask( bands, mid,   last ) );
+        return;
+      }
+
+      for ( int i = first; i <= last; i++ )
+        computeBand( bands[i] );
+    }
+  }
+
+
+  /* ------------------------------- main -------------------------------- */
+  /**
+   *  Basic test and timing of the statistics for a VirtualArray2D, after 
+   *  changing random rows and columns.  The size of the square array can 
+   *  be given on the command line.
+   *
+   *  @param  args  Optionally, the number of rows and columns.
+   */
+  public static void main( String args[] )
+  {
+    int size = 4096;
+    if ( args.length > 0 )
+      size = Integer.parseInt( args[0] );
+
+    java.util.Random random = new java.util.Random( 1 );
+    float[][] values = new float[size][size];
+    for ( int row = 0; row < size; row++ )
+      for ( int col = 0; col < size; col++ )
+        values[row][col] = random.nextFloat() * 1000 - 10;
+    values[ size/2 ][ size/3 ] = Float.NaN;
+
+    VirtualArray2D  array = new VirtualArray2D( values );
+    ArrayStatistics stats = array.getStatistics();
+
+    long start = System.nanoTime();
+    stats.getMax();
+    System.out.println( "First pass for " + size + "x" + size + " : " +
+                        (System.nanoTime() - start) / 1000000 + " ms" );
+    start = System.nanoTime();
+    stats.getHistogram();
+    System.out.println( "Histogram     : " +
+                        (System.nanoTime() - start) / 1000000 + " ms" );
+
+    int n_errors = 0;
+    for ( int change = 0; change < 20; change++ )
+    {
+      float[] new_values = new float[ size / 2 ];
+      for ( int i = 0; i < new_values.length; i++ )
+        new_values[i] = random.nextFloat() * 1000 * (1 + change % 3) - 10;
+
+      if ( change % 2 == 0 )
+        array.setRowValues( new_values, random.nextInt(size), size / 4 );
+      else
+        array.setColumnValues( new_values, random.nextInt(size), size / 4 );
+      array.setDataValue( random.nextInt(size), random.nextInt(size), 
+                          random.nextFloat() );
+
+      start = System.nanoTime();
+      float  s_min   = stats.getMin();
+      float  s_max   = stats.getMax();
+      int[]  s_hist  = stats.getHistogram();
+      long   elapsed = System.nanoTime() - start;
+
+      float  c_min   = Float.POSITIVE_INFINITY;
+      float  c_max   = Float.NEGATIVE_INFINITY;
+      float  c_pos   = Float.POSITIVE_INFINITY;
+      double c_sum   = 0;
+      long   c_count = 0;
+      for ( int row = 0; row < size; row++ )
+        for ( int col = 0; col < size; col++ )
+        {
+          float val = values[row][col];
+          if ( !Float.isNaN( val ) )
+          {
+            c_min = Math.min( c_min, val );
+            c_max = Math.max( c_max, val );
+            if ( val > 0 )
+              c_pos = Math.min( c_pos, val );
+            c_sum += val;
+            c_count++;
+          }
+        }
+
+      long h_count = 0;
+      for ( int bin = 0; bin < s_hist.length; bin++ )
+        h_count += s_hist[bin];
+
+      if ( s_min != c_min || s_max != c_max || 
+           stats.getPositiveMin() != c_pos || stats.getCount() != c_count ||
+           Math.abs( stats.getSum() - c_sum ) > 1e-9 * Math.abs( c_sum ) ||
+           h_count != c_count || stats.getHistogramMin() > c_min ||
+           stats.getHistogramMax() < c_max )
+        n_errors++;
+
+      System.out.println( "Update " + change + " : " + 
+                          elapsed / 1000 + " us, max = " + s_max );
+    }
+    System.out.println( "Number of errors = " + n_errors );
+  }
+
+}
@@ -68,13 +68,16 @@ import gov.anl.ipns.MathTools.Geometry.Vector3D;
  * method recalcMaxMinExtents() should be called to lineraly deterimine the
  * max and min extents. If no extentsion information is given on construction,
  * the max extents are set to zero and min extents are set to Float.MAX_VALUE.
+ *
+ * The extents and axes are kept in packed float arrays, x, y, z for each
+ * element, rather than as Vector3D objects.
  */
 public class BoundsList3D implements IBoundsList3D
 {
-  // Data
-  private Vector3D[] extents_list;  // Extent information. Vector3D for each.
-  private Vector3D[] x_axes_list;   // Direction of x axis. Vector3D for each.
-  private Vector3D[] y_axes_list;   // Direction of y axis. Vector3D for each.
+  // Data, packed as x, y, z for each element
+  private float[] extents_list;     // Extent information.
+  private float[] x_axes_list;      // Direction of x axis.
+  private float[] y_axes_list;      // Direction of y axis.
 
   private int numbounds;            // Total number of bounds info, Extents & Orient
   
@@ -94,15 +97,14 @@ public class BoundsList3D implements IBoundsList3D
   {
     numbounds = totalbounds;
     
-    extents_list = new Vector3D[numbounds];
-    x_axes_list = new Vector3D[numbounds];
-    y_axes_list = new Vector3D[numbounds];
+    extents_list = new float[3*numbounds];
+    x_axes_list = new float[3*numbounds];
+    y_axes_list = new float[3*numbounds];
     
     for(int i = 0; i < numbounds; i++)
     {
-      extents_list[i] = new Vector3D(0.0f, 0.0f, 0.0f);
-      x_axes_list[i] = new Vector3D(1.0f, 0.0f, 0.0f);
-      y_axes_list[i] = new Vector3D(0.0f, 1.0f, 0.0f); 
+      x_axes_list[3*i] = 1.0f;
+      y_axes_list[3*i+1] = 1.0f;
     }
     
     minextents = new float[3];
@@ -129,36 +131,19 @@ public class BoundsList3D implements IBoundsList3D
   public BoundsList3D( int totalbounds, Vector3D[] extents, Vector3D[] xaxes,
                        Vector3D[] yaxes )
   {
-    numbounds = totalbounds;
-    
-    extents_list = new Vector3D[numbounds];
-    x_axes_list = new Vector3D[numbounds];
-    y_axes_list = new Vector3D[numbounds];
-    
-    minextents = new float[3];
-    maxextents = new float[3];
-    for(int i = 0; i < 3; i++) {
-      minextents[i] = Float.MAX_VALUE;
-      maxextents[i] = 0f; 
-    }
+    this( totalbounds );
     
     for(int i = 0; i < numbounds; i ++) {
       if(i < extents.length) {
-        extents_list[i] = new Vector3D(extents[i]);
-        updateMaxMinExtents( extents_list[i] );
+        put( extents_list, i, extents[i] );
+        updateMaxMinExtents( i );
       }
-      else 
-        extents_list[i] = new Vector3D(0.0f, 0.0f, 0.0f);
       
       if(i < xaxes.length)
-        x_axes_list[i] = new Vector3D(xaxes[i]);
-      else 
-        x_axes_list[i] = new Vector3D(1.0f, 0.0f, 0.0f);
+        put( x_axes_list, i, xaxes[i] );
         
       if(i < yaxes.length)
-        y_axes_list[i] = new Vector3D(yaxes[i]);
-      else 
-        y_axes_list[i] = new Vector3D(0.0f, 1.0f, 0.0f);
+        put( y_axes_list, i, yaxes[i] );
     }
   }
   
@@ -212,7 +197,7 @@ public class BoundsList3D implements IBoundsList3D
     
     for(int i=0; i < numbounds; i++)
     {
-      updateMaxMinExtents( extents_list[i] );
+      updateMaxMinExtents( i );
     }
   }
   
@@ -231,12 +216,11 @@ public class BoundsList3D implements IBoundsList3D
     if(index < 0 || index >= numbounds)
       throw new IndexOutOfBoundsException("Unable to set.");
     
-    float[] ext_array = extents.get();
-    if(ext_array[0] < 0f || ext_array[1] < 0f || ext_array[2] < 0f)
+    if(extents.getX() < 0f || extents.getY() < 0f || extents.getZ() < 0f)
       throw new IllegalArgumentException("All extents must be nonnegative.");
       
-    extents_list[index] = new Vector3D(extents);
-    updateMaxMinExtents( extents_list[index] );
+    put( extents_list, index, extents );
+    updateMaxMinExtents( index );
   }
   
  /**
@@ -263,17 +247,46 @@ public class BoundsList3D implements IBoundsList3D
     if(extents.length < (index_end-index_start+1))
       throw new IllegalArgumentException("Array of extents not large enough.");
       
-    float[] ext_array;
+    Vector3D ext;
     for(int i = index_start; i <= index_end; i++) {
-      ext_array = extents[i-index_start].get();
-      if(ext_array[0] < 0f || ext_array[1] < 0f || ext_array[2] < 0f)
+      ext = extents[i-index_start];
+      if(ext.getX() < 0f || ext.getY() < 0f || ext.getZ() < 0f)
         throw new IllegalArgumentException("All extents must be nonnegative.");
         
-      extents_list[i] = new Vector3D(extents[i-index_start]);
-      updateMaxMinExtents( extents_list[i] );
+      put( extents_list, i, ext );
+      updateMaxMinExtents( i );
     }
   }
   
+ /**
+  * Sets extents over specified range of indices from a packed array
+  * holding the x, y, z extents for each index.  The extents for 
+  * index_start are taken from ext[offset], ext[offset+1] and ext[offset+2],
+  * those for the next index from the following three entries, and so on.
+  *
+  *  @param  index_start  First index of the range.
+  *  @param  index_end    Last index of the range.
+  *  @param  ext          The packed x, y, z extents.
+  *  @param  offset       Position in ext of the first x extent.
+  *  @throws IndexOutOfBoundsException If index range goes 
+  *          outside of valid  range of indices: 0...NumElements.
+  *  @throws IllegalArgumentException If given extents array is 
+  *          smaller than specified range or any of the extents are nonnegative.
+  */ 
+  public void setExtents( int index_start, int index_end,
+                          float[] ext, int offset )
+  {
+    int length = checkRange( index_start, index_end, ext, offset );
+
+    for(int i = offset; i < offset + length; i++)
+      if(ext[i] < 0f)
+        throw new IllegalArgumentException("All extents must be nonnegative.");
+
+    System.arraycopy( ext, offset, extents_list, 3*index_start, length );
+    for(int i = index_start; i <= index_end; i++)
+      updateMaxMinExtents( i );
+  }
+  
  /**
   * Set orientation for a single array element at given index.
   * Orientation is set by giving the direction of oriented X
@@ -292,8 +305,8 @@ public class BoundsList3D implements IBoundsList3D
     if(index < 0 || index >= numbounds)
       throw new IndexOutOfBoundsException("Unable to set.");
     
-    x_axes_list[index] = new Vector3D(x_axis);
-    y_axes_list[index] = new Vector3D(y_axis);
+    put( x_axes_list, index, x_axis );
+    put( y_axes_list, index, y_axis );
   }
   
  /**
@@ -326,10 +339,38 @@ public class BoundsList3D implements IBoundsList3D
       throw new IllegalArgumentException("Array of axes not large enough.");
       
     for(int i = index_start; i <= index_end; i++) {
-      x_axes_list[i] = new Vector3D(x_axes[i-index_start]);
-      y_axes_list[i] = new Vector3D(y_axes[i-index_start]);
+      put( x_axes_list, i, x_axes[i-index_start] );
+      put( y_axes_list, i, y_axes[i-index_start] );
     }
   }
+  
+ /**
+  * Sets orientation over specified range of indices from packed arrays
+  * holding the x, y, z components of the directions of the adjusted x
+  * and y axes, starting at position offset in each array.
+  *
+  *  @param  index_start  First index of the range.
+  *  @param  index_end    Last index of the range.
+  *  @param  x_axes       The packed directions for adjusted X axes
+  *  @param  y_axes       The packed directions for adjusted Y axes
+  *  @param  offset       Position in x_axes and y_axes of the first 
+  *                       x component.
+  *  @throws IndexOutOfBoundsException If index range goes 
+  *          outside of valid  range of indices: 0...NumElements.
+  *  @throws IllegalArgumentException If given axes arrays are 
+  *          smaller than specified range.
+  */ 
+  public void setOrientations( int index_start, int index_end,
+                               float[] x_axes, 
+                               float[] y_axes,
+                               int     offset )
+  {
+    int length = checkRange( index_start, index_end, x_axes, offset );
+    checkRange( index_start, index_end, y_axes, offset );
+
+    System.arraycopy( x_axes, offset, x_axes_list, 3*index_start, length );
+    System.arraycopy( y_axes, offset, y_axes_list, 3*index_start, length );
+  }
    
  /**
   * Get extents for a single array element based on index.
@@ -347,7 +388,7 @@ public class BoundsList3D implements IBoundsList3D
     if(index < 0 || index >= numbounds)
       throw new IndexOutOfBoundsException("Unable to set.");
       
-    return new Vector3D(extents_list[index]);
+    return get( extents_list, index );
   }
   
  /**
@@ -376,11 +417,32 @@ public class BoundsList3D implements IBoundsList3D
       
     for(int i = index_start; i <= index_end; i++)
     {
-      ext_copy[i-index_start] = new Vector3D(extents_list[i]);
+      ext_copy[i-index_start] = get( extents_list, i );
     }
     
     return ext_copy;
   }
+  
+ /**
+  * Copies the extents of the specified range of indices into a packed
+  * array, x, y, z extents for each index, starting at ext[offset].
+  * No objects are created.
+  *
+  *  @param  index_start  First index of the range.
+  *  @param  index_end    Last index of the range.
+  *  @param  ext          Array to hold the packed x, y, z extents.
+  *  @param  offset       Position in ext for the first x extent.
+  *  @throws IndexOutOfBoundsException If index range goes 
+  *          outside of valid  range of indices: 0...NumElements.
+  *  @throws IllegalArgumentException If given extents array is 
+  *          smaller than specified range.
+  */ 
+  public void getExtents( int index_start, int index_end, 
+                          float[] ext, int offset )
+  {
+    int length = checkRange( index_start, index_end, ext, offset );
+    System.arraycopy( extents_list, 3*index_start, ext, offset, length );
+  }
 
  /**
   * Get orientation for a single array element based on index.
@@ -405,8 +467,8 @@ public class BoundsList3D implements IBoundsList3D
       
     Vector3D[] axes = new Vector3D[2];
     
-    axes[0] = new Vector3D(x_axes_list[index]);
-    axes[1] = new Vector3D(y_axes_list[index]);
+    axes[0] = get( x_axes_list, index );
+    axes[1] = get( y_axes_list, index );
     
     return axes;
   }
@@ -445,8 +507,8 @@ public class BoundsList3D implements IBoundsList3D
       
     for(int i = index_start; i <= index_end; i++)
     {
-      orient_copy[0][i-index_start] = new Vector3D(x_axes_list[i]);
-      orient_copy[1][i-index_start] = new Vector3D(y_axes_list[i]);
+      orient_copy[0][i-index_start] = get( x_axes_list, i );
+      orient_copy[1][i-index_start] = get( y_axes_list, i );
     }
     
     return orient_copy;
@@ -477,7 +539,7 @@ public class BoundsList3D implements IBoundsList3D
       
     for(int i = index_start; i <= index_end; i++)
     {
-      orient_copy[i-index_start] = new Vector3D(x_axes_list[i]);
+      orient_copy[i-index_start] = get( x_axes_list, i );
     }
     
     return orient_copy;
@@ -508,25 +570,86 @@ public class BoundsList3D implements IBoundsList3D
       
     for(int i = index_start; i <= index_end; i++)
     {
-      orient_copy[i-index_start] = new Vector3D(y_axes_list[i]);
+      orient_copy[i-index_start] = get( y_axes_list, i );
     }
     
     return orient_copy;
   }
+  
+ /**
+  * Copies the X and Y orientation vectors of the specified range of 
+  * indices into packed arrays, x, y, z components for each index, 
+  * starting at position offset in each array.  No objects are created.
+  * 
+  *  @param  index_start  First index of the range.
+  *  @param  index_end    Last index of the range.
+  *  @param  x_axes       Array to hold the packed X axis directions.
+  *  @param  y_axes       Array to hold the packed Y axis directions.
+  *  @param  offset       Position in x_axes and y_axes for the first
+  *                       x component.
+  *  @throws IndexOutOfBoundsException If index range goes 
+  *          outside of valid  range of indices: 0...NumElements.
+  *  @throws IllegalArgumentException If given axes arrays are 
+  *          smaller than specified range.
+  */ 
+  public void getOrientations( int index_start, int index_end,
+                               float[] x_axes, float[] y_axes, int offset )
+  {
+    int length = checkRange( index_start, index_end, x_axes, offset );
+    checkRange( index_start, index_end, y_axes, offset );
+
+    System.arraycopy( x_axes_list, 3*index_start, x_axes, offset, length );
+    System.arraycopy( y_axes_list, 3*index_start, y_axes, offset, length );
+  }
    
  /*-----------------PRIVATE METHODS--------------------*/
  
-  private void updateMaxMinExtents( Vector3D ext )
+  private void updateMaxMinExtents( int index )
   {
-    float[] ext_array = ext.get();
+    int i = 3*index;
     
-    if(ext_array[0] > maxextents[0]) maxextents[0] = ext_array[0];
-    if(ext_array[1] > maxextents[1]) maxextents[1] = ext_array[1];
-    if(ext_array[2] > maxextents[2]) maxextents[2] = ext_array[2];
+    if(extents_list[i]   > maxextents[0]) maxextents[0] = extents_list[i];
+    if(extents_list[i+1] > maxextents[1]) maxextents[1] = extents_list[i+1];
+    if(extents_list[i+2] > maxextents[2]) maxextents[2] = extents_list[i+2];
     
-    if(ext_array[0] < minextents[0]) minextents[0] = ext_array[0];
-    if(ext_array[1] < minextents[1]) minextents[1] = ext_array[1];
-    if(ext_array[2] < minextents[2]) minextents[2] = ext_array[2];
+    if(extents_list[i]   < minextents[0]) minextents[0] = extents_list[i];
+    if(extents_list[i+1] < minextents[1]) minextents[1] = extents_list[i+1];
+    if(extents_list[i+2] < minextents[2]) minextents[2] = extents_list[i+2];
+  }
+  
+
+  private static void put( float[] list, int index, Vector3D vec )
+  {
+    list[3*index]   = vec.getX();
+    list[3*index+1] = vec.getY();
+    list[3*index+2] = vec.getZ();
+  }
+
+
+  private static Vector3D get( float[] list, int index )
+  {
+    return new Vector3D( list[3*index], list[3*index+1], list[3*index+2] );
+  }
+
+  
+  /*
+   *  Check the index range and the size of a packed array for the range.
+   *  Return the number of entries in the packed array for the range.
+   */
+  private int checkRange( int index_start, int index_end, 
+                          float[] packed, int offset )
+  {
+    if(index_start < 0 || index_start >= numbounds)
+      throw new IndexOutOfBoundsException("Start index out of bounds.");
+      
+    if(index_end < index_start || index_end >= numbounds)
+      throw new IndexOutOfBoundsException("End index out of bounds.");
+
+    int length = 3*(index_end - index_start + 1);
+    if(offset < 0 || packed.length - offset < length)
+      throw new IllegalArgumentException("Array not large enough.");
+
+    return length;
   }
   
  /*
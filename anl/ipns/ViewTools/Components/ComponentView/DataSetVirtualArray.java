@@ -47,7 +47,9 @@
 package gov.anl.ipns.ViewTools.Components.ComponentView;
 
 import gov.anl.ipns.Util.Numeric.ClosedInterval;
+import gov.anl.ipns.ViewTools.Components.ArrayStatistics;
 import gov.anl.ipns.ViewTools.Components.AxisInfo;
+import gov.anl.ipns.ViewTools.Components.IStatisticsArray2D;
 import gov.anl.ipns.ViewTools.Components.IVirtualArray2D;
 import gov.anl.ipns.ViewTools.Components.IVirtualArrayList1D;
 import DataSetTools.dataset.Attribute;
@@ -67,7 +69,7 @@ import DataSetTools.dataset.XScale;
  * makes it act like an <code>IVirtualArray2D</code> and 
  * <code>IVirtualArrayList1D</code>.
  */
-public class DataSetVirtualArray implements IVirtualArray2D, 
+public class DataSetVirtualArray implements IStatisticsArray2D, 
                                             IVirtualArrayList1D
 {
    /**
@@ -99,6 +101,9 @@ public class DataSetVirtualArray implements IVirtualArray2D,
    /** The number of columns in this array. */
    private int numCols;
    
+   /** The statistics of the values, made when first needed. */
+   private ArrayStatistics statistics;
+   
    /**
     * Constructs a virtual array with the given <code>DataSet</code> and 
     * number of columns.
@@ -181,6 +186,29 @@ public class DataSetVirtualArray implements IVirtualArray2D,
          numCols = 0;
       
       this.numCols = numCols;
+      
+      if (this.statistics != null)
+         this.statistics.invalidateAll();
+   }
+   
+   /**
+    * Used to get the statistics of the values in this virtual array.  
+    * The statistics are computed when first needed, and are then kept 
+    * until the number of columns is changed.  If the <code>Data</code> 
+    * in the <code>DataSet</code> are changed, the 
+    * <code>invalidateAll()</code> method of the statistics must be 
+    * called.  The rows are read from one thread, since a 
+    * <code>Data</code> block may find its values when they are first 
+    * requested.
+    * 
+    * @return The <code>ArrayStatistics</code> for this virtual array.
+    */
+   public ArrayStatistics getStatistics()
+   {
+      if (this.statistics == null)
+         this.statistics = new ArrayStatistics(this, false);
+      
+      return this.statistics;
    }
    
 //-------------=[ Implemented for the IVirtualArray2D interface ]=------------//
@@ -289,7 +317,7 @@ public class DataSetVirtualArray implements IVirtualArray2D,
       
       float[] dataArr = new float[(to-from)+1];
       for (int i=from; i<=to; i++)
-         dataArr[i] = getDataValue(row, i);
+         dataArr[i-from] = getDataValue(row, i);
       
       return dataArr;
    }
@@ -322,7 +350,7 @@ public class DataSetVirtualArray implements IVirtualArray2D,
       
       float[] dataArr = new float[(to-from)+1];
       for (int i=from; i<=to; i++)
-         dataArr[i] = getDataValue(i, column);
+         dataArr[i-from] = getDataValue(i, column);
       
       return dataArr;
    }
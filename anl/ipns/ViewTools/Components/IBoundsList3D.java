@@ -124,6 +124,24 @@ public interface IBoundsList3D
   public void setExtents( int index_start, int index_end,
                           Vector3D[] extents );
   
+ /**
+  * Sets extents over specified range of indices from a packed array
+  * holding the x, y, z extents for each index.  The extents for 
+  * index_start are taken from ext[offset], ext[offset+1] and ext[offset+2],
+  * those for the next index from the following three entries, and so on.
+  *
+  *  @param  index_start  First index of the range.
+  *  @param  index_end    Last index of the range.
+  *  @param  ext          The packed x, y, z extents.
+  *  @param  offset       Position in ext of the first x extent.
+  *  @throws IndexOutOfBoundsException If index range goes 
+  *          outside of valid  range of indices: 0...NumElements.
+  *  @throws IllegalArgumentException If given extents array is 
+  *          smaller than specified range or any of the extents are nonnegative.
+  */ 
+  public void setExtents( int index_start, int index_end,
+                          float[] ext, int offset );
+  
  /**
   * Set orientation for a single array element at given index.
   * Orientation is set by giving the direction of oriented X
@@ -157,6 +175,27 @@ public interface IBoundsList3D
   public void setOrientations( int index_start, int index_end,
                                Vector3D[] x_axes, 
                                Vector3D[] y_axes );
+  
+ /**
+  * Sets orientation over specified range of indices from packed arrays
+  * holding the x, y, z components of the directions of the adjusted x
+  * and y axes, starting at position offset in each array.
+  *
+  *  @param  index_start  First index of the range.
+  *  @param  index_end    Last index of the range.
+  *  @param  x_axes       The packed directions for adjusted X axes
+  *  @param  y_axes       The packed directions for adjusted Y axes
+  *  @param  offset       Position in x_axes and y_axes of the first 
+  *                       x component.
+  *  @throws IndexOutOfBoundsException If index range goes 
+  *          outside of valid  range of indices: 0...NumElements.
+  *  @throws IllegalArgumentException If given axes arrays are 
+  *          smaller than specified range.
+  */ 
+  public void setOrientations( int index_start, int index_end,
+                               float[] x_axes, 
+                               float[] y_axes,
+                               int     offset );
    
  /**
   * Get extents for a single array element based on index.
@@ -183,6 +222,23 @@ public interface IBoundsList3D
   *          outside of valid  range of indices: 0...NumElements.
   */ 
   public Vector3D[] getExtents( int index_start, int index_end );
+  
+ /**
+  * Copies the extents of the specified range of indices into a packed
+  * array, x, y, z extents for each index, starting at ext[offset].
+  * No objects are created.
+  *
+  *  @param  index_start  First index of the range.
+  *  @param  index_end    Last index of the range.
+  *  @param  ext          Array to hold the packed x, y, z extents.
+  *  @param  offset       Position in ext for the first x extent.
+  *  @throws IndexOutOfBoundsException If index range goes 
+  *          outside of valid  range of indices: 0...NumElements.
+  *  @throws IllegalArgumentException If given extents array is 
+  *          smaller than specified range.
+  */ 
+  public void getExtents( int index_start, int index_end, 
+                          float[] ext, int offset );
 
  /**
   * Get orientation for a single array element based on index.
@@ -246,4 +302,23 @@ public interface IBoundsList3D
    *          outside of valid  range of indices: 0...NumElements.
    */ 
    public Vector3D[] getYOrientations( int index_start, int index_end );
+  
+ /**
+  * Copies the X and Y orientation vectors of the specified range of 
+  * indices into packed arrays, x, y, z components for each index, 
+  * starting at position offset in each array.  No objects are created.
+  * 
+  *  @param  index_start  First index of the range.
+  *  @param  index_end    Last index of the range.
+  *  @param  x_axes       Array to hold the packed X axis directions.
+  *  @param  y_axes       Array to hold the packed Y axis directions.
+  *  @param  offset       Position in x_axes and y_axes for the first
+  *                       x component.
+  *  @throws IndexOutOfBoundsException If index range goes 
+  *          outside of valid  range of indices: 0...NumElements.
+  *  @throws IllegalArgumentException If given axes arrays are 
+  *          smaller than specified range.
+  */ 
+  public void getOrientations( int index_start, int index_end,
+                               float[] x_axes, float[] y_axes, int offset );
 }
\ No newline at end of file
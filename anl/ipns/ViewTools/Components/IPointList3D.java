@@ -59,6 +59,11 @@ import gov.anl.ipns.MathTools.Geometry.Vector3D;
  *
  * If no positions are given at construction, the points are intitalized as
  * Vector3D objects with Float.NaN for the x, y, and z fields. 
+ *
+ * Besides the Vector3D methods, the coordinates can be copied to and
+ * from packed float arrays, with x, y, z for each point, using 
+ * getCoordinates() and setCoordinates().  These do not make an object per
+ * point and should be used for lists with a large number of points.
  */
 public interface IPointList3D extends IVirtualArray 
 {  
@@ -125,4 +130,70 @@ public interface IPointList3D extends IVirtualArray
   *  @return A copy of all the Points.
   */ 
   public Vector3D[] getPoints( );
+  
+ /**
+  * Get the x coordinate of the point at the specified index.
+  *
+  *  @param  index   Index of the element.
+  *  @return The x coordinate of the point.
+  *  @throws IndexOutOfBoundsException If index is outside of valid
+  *          range of indices: 0...getNumPoints().
+  */ 
+  public float getX( int index );
+  
+ /**
+  * Get the y coordinate of the point at the specified index.
+  *
+  *  @param  index   Index of the element.
+  *  @return The y coordinate of the point.
+  *  @throws IndexOutOfBoundsException If index is outside of valid
+  *          range of indices: 0...getNumPoints().
+  */ 
+  public float getY( int index );
+  
+ /**
+  * Get the z coordinate of the point at the specified index.
+  *
+  *  @param  index   Index of the element.
+  *  @return The z coordinate of the point.
+  *  @throws IndexOutOfBoundsException If index is outside of valid
+  *          range of indices: 0...getNumPoints().
+  */ 
+  public float getZ( int index );
+  
+ /**
+  * Sets the 3d points for each index in range, including the start and
+  * end indices, from a packed array of coordinates.  The x, y, z values
+  * for index_start are taken from xyz[offset], xyz[offset+1] and
+  * xyz[offset+2], those for the next index from the following three
+  * entries, and so on.
+  *
+  *  @param  index_start  First index of the range.
+  *  @param  index_end    Last index of the range.
+  *  @param  xyz          The packed x, y, z coordinates.
+  *  @param  offset       Position in xyz of the first x coordinate.
+  *  @throws IndexOutOfBoundsException If index is outside of valid
+  *          range of indices: 0...getNumPoints().
+  *  @throws IllegalArgumentException If given xyz array is 
+  *          smaller than specified range.
+  */
+  public void setCoordinates( int index_start, int index_end, 
+                              float[] xyz, int offset );
+  
+ /**
+  * Copies the 3d coordinates of the specified range of indices into a
+  * packed array of coordinates, x, y, z for each point, starting at
+  * xyz[offset].  No objects are created.
+  *
+  *  @param  index_start  First index of the range.
+  *  @param  index_end    Last index of the range.
+  *  @param  xyz          Array to hold the packed x, y, z coordinates.
+  *  @param  offset       Position in xyz for the first x coordinate.
+  *  @throws IndexOutOfBoundsException If index range goes outside 
+  *          of valid range of indices: 0...getNumPoints().
+  *  @throws IllegalArgumentException If given xyz array is 
+  *          smaller than specified range.
+  */ 
+  public void getCoordinates( int index_start, int index_end, 
+                              float[] xyz, int offset );
 }
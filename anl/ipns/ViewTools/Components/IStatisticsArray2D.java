@@ -0,0 +1,54 @@
+/* 
+ * File: IStatisticsArray2D.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Revision$
+ */
+
+package gov.anl.ipns.ViewTools.Components;
+
+/**
+ *  This interface is implemented by IVirtualArray2D implementations that
+ *  keep an ArrayStatistics object with the statistics of their values, 
+ *  and mark the rows that are changed by their set methods, so that the
+ *  statistics are only recomputed where needed.
+ */
+public interface IStatisticsArray2D extends IVirtualArray2D
+{
+
+  /**
+   *  Get the statistics of the values in this array.  The same object is
+   *  returned each time, so its cached values are reused.
+   *
+   *  @return the ArrayStatistics object for this array.
+   */
+  public ArrayStatistics getStatistics();
+
+}
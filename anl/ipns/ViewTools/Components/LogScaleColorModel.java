@@ -248,6 +248,21 @@ public class LogScaleColorModel
   * @throws IllegalArgumentException If data_value is outside of value range.
   */ 
   public Color getColor(float data_value)
+  {
+    return new Color( getRGB( data_value ) );
+  }
+
+ /**
+  * Generates the RGB value of the color for given data value, as an
+  * int with 8 bits each for red, green and blue, as in 
+  * Color.getRGB().  This does not make a Color object, so it is 
+  * suitable for coloring many pixels at once.
+  * 
+  * @param  data_value  The data value that gets mapped to a color.
+  * @return The RGB value of the color for that data value.
+  * @throws IllegalArgumentException If data_value is outside of value range.
+  */ 
+  public int getRGB(float data_value)
   {
   	// Make sure the data value is in given range
     float max_abs = 0;
@@ -290,8 +305,6 @@ public class LogScaleColorModel
       index = (int)(zero_index - log_scale[(int)(-temp)]);
 
 	// Generate RGB int representing the color
-	int rgb = color_model.getRGB(index);
-	
-	return new Color(rgb);
+	return color_model.getRGB(index);
   }
 }
\ No newline at end of file
@@ -96,6 +96,8 @@ public class PhysicalArray3DList implements IPhysicalArray3DList
   private float[] minedges;
 
   private int array_id = 0;
+  
+  private float[] ext_temp = new float[3];     // extents, for edge updates
  
  /**
   * Constructor that intializes array for data points,
@@ -476,6 +478,87 @@ public class PhysicalArray3DList implements IPhysicalArray3DList
     return array.getPoints();
   }
   
+ /**
+  * Get the x coordinate of the point at the specified index.
+  *
+  *  @param  index   Index of the element.
+  *  @return The x coordinate of the point.
+  *  @throws IndexOutOfBoundsException If index is outside of valid
+  *          range of indices: 0...getNumPoints().
+  */ 
+  public float getX( int index )
+  {
+    return array.getX(index);
+  }
+  
+ /**
+  * Get the y coordinate of the point at the specified index.
+  *
+  *  @param  index   Index of the element.
+  *  @return The y coordinate of the point.
+  *  @throws IndexOutOfBoundsException If index is outside of valid
+  *          range of indices: 0...getNumPoints().
+  */ 
+  public float getY( int index )
+  {
+    return array.getY(index);
+  }
+  
+ /**
+  * Get the z coordinate of the point at the specified index.
+  *
+  *  @param  index   Index of the element.
+  *  @return The z coordinate of the point.
+  *  @throws IndexOutOfBoundsException If index is outside of valid
+  *          range of indices: 0...getNumPoints().
+  */ 
+  public float getZ( int index )
+  {
+    return array.getZ(index);
+  }
+  
+ /**
+  * Sets the 3d points for each index in range, including the start and
+  * end indices, from a packed array of coordinates, x, y, z for each
+  * point, starting at xyz[offset].
+  *
+  *  @param  index_start  First index of the range.
+  *  @param  index_end    Last index of the range.
+  *  @param  xyz          The packed x, y, z coordinates.
+  *  @param  offset       Position in xyz of the first x coordinate.
+  *  @throws IndexOutOfBoundsException If index is outside of valid
+  *          range of indices: 0...getNumPoints().
+  *  @throws IllegalArgumentException If given xyz array is 
+  *          smaller than specified range.
+  */
+  public void setCoordinates( int index_start, int index_end, 
+                              float[] xyz, int offset )
+  {
+    array.setCoordinates(index_start, index_end, xyz, offset);
+    for(int i = index_start; i <= index_end; i++)
+      updateMaxMinEdges(i);
+  }
+  
+ /**
+  * Copies the 3d coordinates of the specified range of indices into a
+  * packed array of coordinates, x, y, z for each point, starting at
+  * xyz[offset].  No objects are created.
+  *
+  *  @param  index_start  First index of the range.
+  *  @param  index_end    Last index of the range.
+  *  @param  xyz          Array to hold the packed x, y, z coordinates.
+  *  @param  offset       Position in xyz for the first x coordinate.
+  *  @throws IndexOutOfBoundsException If index range goes outside 
+  *          of valid range of indices: 0...getNumPoints().
+  *  @throws IllegalArgumentException If given xyz array is 
+  *          smaller than specified range.
+  */ 
+  public void getCoordinates( int index_start, int index_end, 
+                              float[] xyz, int offset )
+  {
+    array.getCoordinates(index_start, index_end, xyz, offset);
+  }
+  
 /* * *
  * SparseArray3DList
  * * */
@@ -740,6 +823,27 @@ public class PhysicalArray3DList implements IPhysicalArray3DList
       updateMaxMinEdges(i);
   }
   
+ /**
+  * Sets extents over specified range of indices from a packed array
+  * holding the x, y, z extents for each index, starting at ext[offset].
+  *
+  *  @param  index_start  First index of the range.
+  *  @param  index_end    Last index of the range.
+  *  @param  ext          The packed x, y, z extents.
+  *  @param  offset       Position in ext of the first x extent.
+  *  @throws IndexOutOfBoundsException If index range goes 
+  *          outside of valid  range of indices: 0...NumElements.
+  *  @throws IllegalArgumentException If given extents array is 
+  *          smaller than specified range or any of the extents are nonnegative.
+  */ 
+  public void setExtents( int index_start, int index_end,
+                          float[] ext, int offset )
+  {
+    bounds.setExtents( index_start, index_end, ext, offset );
+    for(int i = index_start; i <= index_end; i++)
+      updateMaxMinEdges(i);
+  }
+  
  /**
   * Set orientation for a single array element at given index.
   * Orientation is set by giving the direction of oriented X
@@ -779,6 +883,30 @@ public class PhysicalArray3DList implements IPhysicalArray3DList
   {
     bounds.setOrientations( index_start, index_end, x_axes, y_axes);
   }
+  
+ /**
+  * Sets orientation over specified range of indices from packed arrays
+  * holding the directions of the adjusted x and y axes, starting at 
+  * position offset in each array.
+  *
+  *  @param  index_start  First index of the range.
+  *  @param  index_end    Last index of the range.
+  *  @param  x_axes       The packed directions for adjusted X axes
+  *  @param  y_axes       The packed directions for adjusted Y axes
+  *  @param  offset       Position in x_axes and y_axes of the first 
+  *                       x component.
+  *  @throws IndexOutOfBoundsException If index range goes 
+  *          outside of valid  range of indices: 0...NumElements.
+  *  @throws IllegalArgumentException If given axes arrays are 
+  *          smaller than specified range.
+  */ 
+  public void setOrientations( int index_start, int index_end,
+                               float[] x_axes, 
+                               float[] y_axes,
+                               int     offset )
+  {
+    bounds.setOrientations( index_start, index_end, x_axes, y_axes, offset );
+  }
    
  /**
   * Get extents for a single array element based on index.
@@ -811,6 +939,26 @@ public class PhysicalArray3DList implements IPhysicalArray3DList
   {
     return bounds.getExtents( index_start, index_end );
   }
+  
+ /**
+  * Copies the extents of the specified range of indices into a packed
+  * array, x, y, z extents for each index, starting at ext[offset].
+  * No objects are created.
+  *
+  *  @param  index_start  First index of the range.
+  *  @param  index_end    Last index of the range.
+  *  @param  ext          Array to hold the packed x, y, z extents.
+  *  @param  offset       Position in ext for the first x extent.
+  *  @throws IndexOutOfBoundsException If index range goes 
+  *          outside of valid  range of indices: 0...NumElements.
+  *  @throws IllegalArgumentException If given extents array is 
+  *          smaller than specified range.
+  */ 
+  public void getExtents( int index_start, int index_end, 
+                          float[] ext, int offset )
+  {
+    bounds.getExtents( index_start, index_end, ext, offset );
+  }
 
  /**
   * Get orientation for a single array element based on index.
@@ -887,6 +1035,28 @@ public class PhysicalArray3DList implements IPhysicalArray3DList
      return bounds.getYOrientations( index_start, index_end);
    }
   
+ /**
+  * Copies the X and Y orientation vectors of the specified range of 
+  * indices into packed arrays, x, y, z components for each index, 
+  * starting at position offset in each array.  No objects are created.
+  * 
+  *  @param  index_start  First index of the range.
+  *  @param  index_end    Last index of the range.
+  *  @param  x_axes       Array to hold the packed X axis directions.
+  *  @param  y_axes       Array to hold the packed Y axis directions.
+  *  @param  offset       Position in x_axes and y_axes for the first
+  *                       x component.
+  *  @throws IndexOutOfBoundsException If index range goes 
+  *          outside of valid  range of indices: 0...NumElements.
+  *  @throws IllegalArgumentException If given axes arrays are 
+  *          smaller than specified range.
+  */ 
+  public void getOrientations( int index_start, int index_end,
+                               float[] x_axes, float[] y_axes, int offset )
+  {
+    bounds.getOrientations( index_start, index_end, x_axes, y_axes, offset );
+  }
+  
   
  /*-----------------PRIVATE METHODS--------------------*/
 
@@ -894,31 +1064,30 @@ public class PhysicalArray3DList implements IPhysicalArray3DList
   { 
     float max_ext = 0;
   
-    float[] cur_ext = bounds.getExtents(index).get();
+    bounds.getExtents(index, index, ext_temp, 0);
     
-    if(cur_ext[0] > max_ext)  max_ext = cur_ext[0];
-    if(cur_ext[1] > max_ext)  max_ext = cur_ext[1];
-    if(cur_ext[2] > max_ext)  max_ext = cur_ext[2];
+    if(ext_temp[0] > max_ext)  max_ext = ext_temp[0];
+    if(ext_temp[1] > max_ext)  max_ext = ext_temp[1];
+    if(ext_temp[2] > max_ext)  max_ext = ext_temp[2];
     max_ext = max_ext/2;
 
-    float[] cur_point = array.getPoint(index).get();
-    
-    if(-1 > Float.MIN_VALUE) System.out.println("YES!");
+    float x = array.getX(index);
+    float y = array.getY(index);
+    float z = array.getZ(index);
     
-    if(max_ext + cur_point[0] > maxedges[0]) 
-      maxedges[0] = max_ext + cur_point[0];
-    if(max_ext + cur_point[1] > maxedges[1]) 
-      maxedges[1] = max_ext + cur_point[1];
-    if(max_ext + cur_point[2] > maxedges[2]) 
-      maxedges[2] = max_ext + cur_point[2];
+    if(max_ext + x > maxedges[0]) 
+      maxedges[0] = max_ext + x;
+    if(max_ext + y > maxedges[1]) 
+      maxedges[1] = max_ext + y;
+    if(max_ext + z > maxedges[2]) 
+      maxedges[2] = max_ext + z;
       
-    if(cur_point[0] - max_ext < minedges[0]) 
-      minedges[0] = cur_point[0] - max_ext;
-    if(cur_point[1] - max_ext < minedges[1]) 
-      minedges[1] = cur_point[1] - max_ext;
-    if(cur_point[2] - max_ext < minedges[2]) 
-      minedges[2] = cur_point[2] - max_ext;
-
+    if(x - max_ext < minedges[0]) 
+      minedges[0] = x - max_ext;
+    if(y - max_ext < minedges[1]) 
+      minedges[1] = y - max_ext;
+    if(z - max_ext < minedges[2]) 
+      minedges[2] = z - max_ext;
   }
     
  /*
@@ -46,6 +46,7 @@ package gov.anl.ipns.ViewTools.Components;
 
 import gov.anl.ipns.MathTools.Geometry.Vector3D;
 import java.lang.Float;
+import java.util.Arrays;
 
 /**
  * PointList3D stores scattered three 
@@ -54,13 +55,19 @@ import java.lang.Float;
  * array, there is an associated integer index.  The range of the index runs
  * from zero to the total number of points the array can hold.
  *
- * If no positions are given at construction, the points are intitalized as
- * Vector3D objects with Float.NaN for the x, y, and z fields.  
+ * If no positions are given at construction, the points are intitalized 
+ * with Float.NaN for the x, y, and z fields.  
+ *
+ * The coordinates are kept packed in one float array, x, y, z for each
+ * point, rather than as one Vector3D object per point, since there may be
+ * millions of points.  The Vector3D get and set methods copy to and from
+ * this array.  The getCoordinates() and setCoordinates() methods copy
+ * ranges of points to and from a float array without making any objects.
  */
 abstract public class PointList3D implements IPointList3D
 {  
  // Data
- private Vector3D[] data_points;       // 3d points in scattered data
+ private float[]    coords;            // x,y,z of each 3d point, packed
  private int        numpoints;         // total number of points
  
  // Data info
@@ -83,24 +90,10 @@ abstract public class PointList3D implements IPointList3D
   */
   public PointList3D( int size, Vector3D[] points ) 
   {
-    data_points = new Vector3D[size];
-    numpoints = size;
-    
-    for(int i = 0; i < numpoints; i ++) {
-      if(i < points.length)
-        data_points[i] = new Vector3D(points[i]);
-      else
-        data_points[i] = new Vector3D(Float.NaN, Float.NaN, Float.NaN);
-    }
+    this( size );
     
-    x_info = new AxisInfo(0, 1, AxisInfo.NO_LABEL,
-                           AxisInfo.NO_UNITS, AxisInfo.LINEAR);
-    y_info = new AxisInfo(0, 1, AxisInfo.NO_LABEL,
-                           AxisInfo.NO_UNITS, AxisInfo.LINEAR);
-    z_info = new AxisInfo(0, 1, AxisInfo.NO_LABEL,
-                           AxisInfo.NO_UNITS, AxisInfo.LINEAR);                           
-                            
-    title = NO_TITLE;
+    for(int i = 0; i < numpoints && i < points.length; i ++)
+      setCoords( i, points[i] );
   }
 
  /**
@@ -114,11 +107,10 @@ abstract public class PointList3D implements IPointList3D
   */
   public PointList3D( int size ) 
   {
-    data_points = new Vector3D[size];
+    coords = new float[3*size];
     numpoints = size;
     
-    for(int i = 0; i < numpoints; i ++)
-      data_points[i] = new Vector3D(Float.NaN, Float.NaN, Float.NaN);
+    Arrays.fill( coords, Float.NaN );
     
     x_info = new AxisInfo(0, 1, AxisInfo.NO_LABEL,
                            AxisInfo.NO_UNITS, AxisInfo.LINEAR);
@@ -153,7 +145,7 @@ abstract public class PointList3D implements IPointList3D
     if(index < 0 || index >= numpoints)
       throw new IndexOutOfBoundsException("Unable to set.");
     
-    data_points[index].set(point);
+    setCoords( index, point );
   }
   
  /**
@@ -182,7 +174,7 @@ abstract public class PointList3D implements IPointList3D
       throw new IllegalArgumentException("Array of points not large enough.");
       
     for(int i = index_start; i <= index_end; i++) {
-      data_points[i].set(points[i-index_start]);
+      setCoords( i, points[i-index_start] );
     }
   }
   
@@ -200,7 +192,9 @@ abstract public class PointList3D implements IPointList3D
     if(index < 0 || index >= numpoints)
       throw new IndexOutOfBoundsException("Unable to set.");
       
-    return new Vector3D(data_points[index]);
+    return new Vector3D( coords[3*index], 
+                         coords[3*index+1], 
+                         coords[3*index+2] );
   }
   
     
@@ -231,7 +225,9 @@ abstract public class PointList3D implements IPointList3D
       
     for(int i = index_start; i <= index_end; i++) 
     {
-      pts[i-index_start] = new Vector3D(data_points[i]);
+      pts[i-index_start] = new Vector3D( coords[3*i], 
+                                         coords[3*i+1], 
+                                         coords[3*i+2] );
     }
     
     return pts;
@@ -249,13 +245,122 @@ abstract public class PointList3D implements IPointList3D
     
     for(int i = 0; i < numpoints; i++) 
     {
-      c_pts[i] = new Vector3D(data_points[i]);
+      c_pts[i] = new Vector3D( coords[3*i], coords[3*i+1], coords[3*i+2] );
     }
     
     return c_pts;
   }
   
   
+  
+ /**
+  * Get the x coordinate of the point at the specified index.
+  *
+  *  @param  index   Index of the element.
+  *  @return The x coordinate of the point.
+  *  @throws IndexOutOfBoundsException If index is outside of valid
+  *          range of indices: 0...getNumPoints().
+  */ 
+  public float getX( int index )
+  {
+    if(index < 0 || index >= numpoints)
+      throw new IndexOutOfBoundsException("Index out of bounds.");
+
+    return coords[3*index];
+  }
+  
+
+ /**
+  * Get the y coordinate of the point at the specified index.
+  *
+  *  @param  index   Index of the element.
+  *  @return The y coordinate of the point.
+  *  @throws IndexOutOfBoundsException If index is outside of valid
+  *          range of indices: 0...getNumPoints().
+  */ 
+  public float getY( int index )
+  {
+    if(index < 0 || index >= numpoints)
+      throw new IndexOutOfBoundsException("Index out of bounds.");
+
+    return coords[3*index+1];
+  }
+  
+
+ /**
+  * Get the z coordinate of the point at the specified index.
+  *
+  *  @param  index   Index of the element.
+  *  @return The z coordinate of the point.
+  *  @throws IndexOutOfBoundsException If index is outside of valid
+  *          range of indices: 0...getNumPoints().
+  */ 
+  public float getZ( int index )
+  {
+    if(index < 0 || index >= numpoints)
+      throw new IndexOutOfBoundsException("Index out of bounds.");
+
+    return coords[3*index+2];
+  }
+  
+
+ /**
+  * Sets the 3d points for each index in range, including the start and
+  * end indices, from a packed array of coordinates.  The x, y, z values
+  * for index_start are taken from xyz[offset], xyz[offset+1] and
+  * xyz[offset+2], those for the next index from the following three
+  * entries, and so on.
+  *
+  *  @param  index_start  First index of the range.
+  *  @param  index_end    Last index of the range.
+  *  @param  xyz          The packed x, y, z coordinates.
+  *  @param  offset       Position in xyz of the first x coordinate.
+  *  @throws IndexOutOfBoundsException If index is outside of valid
+  *          range of indices: 0...getNumPoints().
+  *  @throws IllegalArgumentException If given xyz array is 
+  *          smaller than specified range.
+  */
+  public void setCoordinates( int index_start, int index_end, 
+                              float[] xyz, int offset )
+  {
+    checkRange( index_start, index_end );
+
+    int length = 3*(index_end - index_start + 1);
+    if(offset < 0 || xyz.length - offset < length)
+      throw new IllegalArgumentException("Array of coordinates not large enough.");
+
+    System.arraycopy( xyz, offset, coords, 3*index_start, length );
+  }
+  
+
+ /**
+  * Copies the 3d coordinates of the specified range of indices into a
+  * packed array of coordinates, x, y, z for each point, starting at
+  * xyz[offset].  No objects are created, so this can be used to get the
+  * positions of a large number of points.
+  *
+  *  @param  index_start  First index of the range.
+  *  @param  index_end    Last index of the range.
+  *  @param  xyz          Array to hold the packed x, y, z coordinates.
+  *  @param  offset       Position in xyz for the first x coordinate.
+  *  @throws IndexOutOfBoundsException If index range goes outside 
+  *          of valid range of indices: 0...getNumPoints().
+  *  @throws IllegalArgumentException If given xyz array is 
+  *          smaller than specified range.
+  */ 
+  public void getCoordinates( int index_start, int index_end, 
+                              float[] xyz, int offset )
+  {
+    checkRange( index_start, index_end );
+
+    int length = 3*(index_end - index_start + 1);
+    if(offset < 0 || xyz.length - offset < length)
+      throw new IllegalArgumentException("Array of coordinates not large enough.");
+
+    System.arraycopy( coords, 3*index_start, xyz, offset, length );
+  }
+  
+  
   /* * */
   /* IVirtualArray
   /* * */
@@ -344,4 +449,23 @@ abstract public class PointList3D implements IPointList3D
     title = ptitle;
   }
 
-}
\ No newline at end of file
+  
+ /*-----------------PRIVATE METHODS--------------------*/
+  
+  private void setCoords( int index, Vector3D point )
+  {
+    coords[3*index]   = point.getX();
+    coords[3*index+1] = point.getY();
+    coords[3*index+2] = point.getZ();
+  }
+  
+  
+  private void checkRange( int index_start, int index_end )
+  {
+    if(index_start < 0 || index_start >= numpoints)
+      throw new IndexOutOfBoundsException("Start index out of bounds.");
+      
+    if(index_end < index_start || index_end >= numpoints)
+      throw new IndexOutOfBoundsException("End index out of bounds.");
+  }
+}
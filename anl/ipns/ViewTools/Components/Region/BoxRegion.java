@@ -102,6 +102,7 @@ package gov.anl.ipns.ViewTools.Components.Region;
 
 import gov.anl.ipns.Util.Numeric.floatPoint2D;
 import gov.anl.ipns.ViewTools.Panels.Transforms.CoordBounds;
+import gov.anl.ipns.ViewTools.Panels.Transforms.CoordTransform;
 
 /**
  * This class is a specific region designated by two points. A BoxRegion is
@@ -167,6 +168,57 @@ public class BoxRegion extends RegionWithInterior
  {
     return new CoordBounds( min_x, min_y, max_x, max_y );
  }
+
+
+ /**
+  * Get the discrete points that lie within this box, as spans of 
+  * consecutive columns in each row.  Since whether or not a point is in
+  * the box depends on x and y separately, the spans of columns that are
+  * in the box are found once, and are added for each row that is in the 
+  * box.  The points are the same as those found by the base class.
+  *
+  * @param world_to_array  The transformation from world coordinates to
+  *                        array coordinates.  NOTE: The destination bounds
+  *                        for this mapping MUST correspond to the array
+  *                        size.  The destination CoordBounds object is used
+  *                        to get the array size!!!
+  *
+  *  @return the spans of points included within the box.
+  */
+  public RegionSpans getSelectedSpans( CoordTransform world_to_array )
+  {
+    CoordBounds bounds = getRegionBounds( world_to_array );
+
+    int first_col = (int)bounds.getX1();
+    int last_col  = (int)bounds.getX2();
+
+    int first_row = (int)bounds.getY1();
+    int last_row  = (int)bounds.getY2();
+
+    RegionSpans col_spans = new RegionSpans();
+    if ( last_col >= first_col )
+    {
+      float[] x_world = getColumnCentersWC( world_to_array, 
+                                            first_col, last_col );
+      for ( int col = first_col; col <= last_col; col++ )
+      {
+        float x = x_world[ col - first_col ];
+        if ( x >= min_x && x <= max_x )
+          col_spans.addSpan( 0, col, col );
+      }
+    }
+
+    RegionSpans spans = new RegionSpans();
+    for ( int row = first_row; row <= last_row; row++ )
+    {
+      float y = world_to_array.MapYFrom( row + 0.5f );
+      if ( y >= min_y && y <= max_y )
+        for ( int i = 0; i < col_spans.getNumSpans(); i++ )
+          spans.addSpan( row, col_spans.getFirstColumn(i), 
+                              col_spans.getLastColumn(i) );
+    }
+    return spans;
+  }
   
   
  /**
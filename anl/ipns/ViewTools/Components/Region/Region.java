@@ -246,6 +246,26 @@ public abstract class Region implements java.io.Serializable
   *  @return array of points included within the region.
   */
   abstract public Point[] getSelectedPoints( CoordTransform world_to_array );
+
+
+ /**
+  * Get the discrete points that lie within this region, in run length 
+  * form, as spans of consecutive columns in each row.  This base class
+  * version builds the spans from the list returned by getSelectedPoints().
+  * Regions with an interior find the spans directly.
+  *
+  * @param world_to_array  The transformation from world coordinates to
+  *                        array coordinates.  NOTE: The destination bounds
+  *                        for this mapping MUST correspond to the array
+  *                        size.  The destination CoordBounds object is used
+  *                        to get the array size!!!
+  * 
+  *  @return the spans of points included within the region.
+  */
+  public RegionSpans getSelectedSpans( CoordTransform world_to_array )
+  {
+    return new RegionSpans( getSelectedPoints( world_to_array ) );
+  }
   
 
  /**
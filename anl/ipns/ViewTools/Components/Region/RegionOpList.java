@@ -83,12 +83,15 @@ import java.awt.Point;
  * INTERSECT and another region, when this pair is processed, the
  * selected points will be set to the array elements that are in
  * the intersection of the previously selected points AND the 
- * points in the newly specified region.
+ * points in the newly specified region.  The operations are carried
+ * out on RegionSpans, which hold the selected points as spans of 
+ * consecutive columns in each row.  The method getSelectedSpans returns
+ * the result in that form.
  */
 public class RegionOpList {
 
    protected Vector<RegionOp> regionOpList = new Vector<RegionOp>();
-   private boolean[][]    regionMask;
+   private int version = 0;
 
  
  /**
@@ -98,6 +101,7 @@ public class RegionOpList {
   */
   public void add( RegionOp regionOp ){
     regionOpList.add( regionOp );
+    version++;
   }
 
 
@@ -113,6 +117,7 @@ public class RegionOpList {
       return false;
   
     regionOpList.remove( size - 1 );
+    version++;
     return true;
   }
 
@@ -122,6 +127,21 @@ public class RegionOpList {
   */
   public void removeAll(){
     regionOpList.clear();
+    version++;
+  }
+
+
+ /**
+  * Get the number of changes made to this list through the add(), 
+  * removeLast() and removeAll() methods.  Classes that cache the 
+  * selected points can compare versions to see if the list changed.  
+  * NOTE: Changes made directly to the Vector returned by getList() 
+  * are NOT counted.
+  *
+  * @return the current version number of this list.
+  */
+  public int getVersion(){
+    return version;
   }
 
  
@@ -155,187 +175,71 @@ public class RegionOpList {
   *         of each selected underlying data array element.
   */
   public Point[] getSelectedPoints( CoordTransform world_to_array ){
+    return getSelectedSpans( world_to_array ).toPoints();
+  }
+
+
+ /**
+  * Get the array coordinates in this compound selection, in run length
+  * form, as spans of consecutive columns in each row.  The operations
+  * are carried out on the spans of each region, so no mask for the 
+  * whole array and no Point objects are needed.  The points are the
+  * same as those returned by getSelectedPoints().
+  *
+  * @param world_to_array The transformation between floating point 
+  *                       "world coordinates" and the column & row
+  *                       numbers of the underlying data array. 
+  *                       NOTE: The destination bounds for this
+  *                       mapping MUST correspond to the array size
+  *                       The destination CoordBounds object is used
+  *                       to get the array size!!!
+  *
+  * @return The spans of selected underlying data array elements.
+  */
+  public RegionSpans getSelectedSpans( CoordTransform world_to_array ){
     RegionOp.Operation op;
 
     CoordBounds array_size = world_to_array.getDestination();
     int n_cols = Math.round(Math.max( array_size.getX1(), array_size.getX2()));
     int n_rows = Math.round(Math.max( array_size.getY1(), array_size.getY2()));
 
-                                                // NOTE: This check is not
-    Point max_size = getSize( world_to_array ); // strictly necessary, and it 
-    if ( max_size.x > n_cols )                  // can be expensive.  However
-      n_cols = max_size.x;                      // it will prevent a crash if
-    if ( max_size.y > n_rows )                  // the destination of the 
-      n_rows = max_size.y;                      // world_to_array transform is
-                                                // set smaller than the array
-                                                // size.  This shouldn't
-                                                // happen, but....
-    regionMask = new boolean[n_cols][n_rows];
-  
-    for ( RegionOp regionOp:regionOpList ){
-      op = regionOp.getOp();
+    // Get the spans for each region once.  The array size is increased
+    // if needed, to include all points of the regions.  This will prevent
+    // a crash if the destination of the world_to_array transform is set
+    // smaller than the array size.  This shouldn't happen, but....
+
+    RegionSpans[] region_spans = new RegionSpans[ regionOpList.size() ];
+    for ( int i = 0; i < region_spans.length; i++ ){
+      Region region = regionOpList.get(i).getRegion();
+      if ( region != null ){
+        region_spans[i] = region.getSelectedSpans( world_to_array );
+        n_cols = Math.max( n_cols, region_spans[i].getMaxColumn() + 1 );
+        n_rows = Math.max( n_rows, region_spans[i].getMaxRow() + 1 );
+      }
+      else
+        region_spans[i] = new RegionSpans();
+    }
+
+    RegionSpans selected = new RegionSpans();
+    for ( int i = 0; i < region_spans.length; i++ ){
+      op = regionOpList.get(i).getOp();
    
       if ( op == RegionOp.Operation.UNION ){
-        doUnion( regionOp.getRegion(), world_to_array );
+        selected = selected.union( region_spans[i] );
       }
       else if ( op == RegionOp.Operation.INTERSECT ){
-        doIntersect( regionOp.getRegion(), world_to_array );
+        selected = selected.intersect( region_spans[i] );
       }
       else if ( op == RegionOp.Operation.INTERSECT_COMPLEMENT ){
-        doIntersectComplement( regionOp.getRegion(), world_to_array );
+        selected = selected.intersectComplement( region_spans[i] );
       }
       else if ( op == RegionOp.Operation.COMPLEMENT ){
-        doComplement();
-      }
-    }
-  
-    //get the number of points selected in the region
-    int numPoints = 0;
-    for ( int x = 0; x < regionMask.length; x++ ){
-      for ( int y = 0; y < regionMask[x].length; y++){
-        if ( regionMask[x][y] ){
-          numPoints++;
-        }
+        selected = selected.complement( n_cols, n_rows );
       }
     }
-  
-    //create Point[] of size numPoints and fill
-    Point points[] = new Point[numPoints];
-    int pointsIndex = 0;
 
-    if ( numPoints > 0 )
-      for ( int y = 0; y < regionMask[0].length; y++ ){
-        for ( int x = 0; x < regionMask.length; x++ ){
-          if ( regionMask[x][y] ){
-            points[pointsIndex] = new Point(x,y);
-            pointsIndex++;
-          }
-        }
-      }
-  
-    //explicitly set to null for gc
-    op = null;
-    regionMask = null;
-  
-    return points;
- }
-
- 
- /**
-  *  Scan across all of the specified regions to obtain the maximum 
-  *  row and column indices used.
-  */
- private Point getSize( CoordTransform world_to_array ){
-   int max_x = -1;
-   int max_y = -1;
-   Point[] points;
-  
-   // for every region, get the selected points.
-   // for every point, if its x is max set to x
-   // for every point, if its y is max set to y
-   for ( RegionOp regionOp:regionOpList ){
-     if ( regionOp.getRegion() != null ){
-       points = regionOp.getRegion().getSelectedPoints( world_to_array );
-       for ( Point p:points ){
-         if ( p.x > max_x ){
-           max_x = p.x;
-         }
-         if ( p.y > max_y ){
-           max_y = p.y;
-         }
-       }
-     }
-   }
-   return new Point( max_x+1, max_y+1 ); // required size is one more than the
-                                         // largest index.
- }
-
- 
- private boolean[][] getThisRegionMask( Region         region, 
-                                        CoordTransform world_to_array )
- {
-   Point points[] = region.getSelectedPoints( world_to_array );
-   boolean[][] mask = new boolean[ regionMask.length ][ regionMask[0].length ];
-   for ( Point p:points )
-     mask[p.x][p.y] = true; 
-   return mask;
- }
-
- 
- /**
-  * Union the specified region with the current cummulative selection.
-  *
-  * @param region         Region to union with the
-  *                       current cummulative selection.
-  * 
-  * @param world_to_array The tranformation from the world coordinates
-  *                       in which the regions are specified, to the
-  *                       (col,row) coordinates of the underlying data array.
-  */
- private void doUnion( Region region, CoordTransform world_to_array ){
-   Point points[] = region.getSelectedPoints( world_to_array );
-
-   //if the point in the mask is in the selected points,
-   //set it to true. otherwise leave it alone.
-   for ( Point p:points ){
-     regionMask[p.x][p.y] = true;
-   }
- }
-
- 
- /**
-  * Intersects the specified region with the current cumulative selection.
-  *
-  * @param region         Region to be intersected with the
-  *                       current cummulative selection.
-  * 
-  * @param world_to_array The tranformation from the world coordinates
-  *                       in which the regions are specified, to the
-  *                       (col,row) coordinates of the underlying data array.
-  */
- private void doIntersect( Region region, CoordTransform world_to_array ){
-   boolean[][] mask = getThisRegionMask( region, world_to_array );
-   for ( int x = 0; x < regionMask.length; x++ ){
-     for ( int y = 0; y < regionMask[x].length; y++ ){
-       regionMask[x][y] = regionMask[x][y] && mask[x][y];
-     }
-   }
- }
-
- 
- /**
-  * Intersects the complement of the specified region with the current 
-  * cummulative selection.
-  *
-  * @param region         Region whose complement is intersected with the
-  *                       current cummulative selection.
-  * 
-  * @param world_to_array The tranformation from the world coordinates
-  *                       in which the regions are specified, to the
-  *                       (col,row) coordinates of the underlying data array.
-  */
- private void doIntersectComplement( Region         region, 
-                                     CoordTransform world_to_array ){
-   boolean[][] mask = getThisRegionMask( region, world_to_array );
-   for ( int x = 0; x < regionMask.length; x++ ){
-     for ( int y = 0; y < regionMask[x].length; y++ ){
-       regionMask[x][y] = regionMask[x][y] && !mask[x][y];
-     }
-   }
- }
- 
-
- /**
-  * Complement the current cummulative selection
-  */
- private void doComplement(){
-   //If Point is true in mask set it to false
-   for ( int x = 0; x < regionMask.length; x++ ){ 
-     for( int y = 0; y < regionMask[x].length; y++ ){ 
-       regionMask[x][y] = !regionMask[x][y]; 
-     } 
-   }
- }
+    return selected;
+  }
  
 
  /**
@@ -0,0 +1,476 @@
+/* 
+ * File: RegionSpans.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Revision$
+ */
+
+package gov.anl.ipns.ViewTools.Components.Region;
+
+import java.awt.Point;
+import java.util.Arrays;
+
+/**
+ *  This class holds a set of (col,row) points of a two dimensional array
+ *  in run length form, as a list of spans of consecutive columns in a row.
+ *  The spans are kept in order of increasing row, and increasing column 
+ *  within a row.  Spans in the same row do not overlap or touch.  A region
+ *  with an interior, such as an annulus on a large area detector, selects
+ *  a very large number of points, but only one or two spans in each row.
+ *  Unions, intersections and complements of such regions can be found 
+ *  directly from the spans, without building a mask for the whole array 
+ *  or a Point object for each selected point.  The selected points can be
+ *  stepped through using getNumSpans(), getRow(), getFirstColumn() and 
+ *  getLastColumn(), or obtained as an array of Points using toPoints().
+ */
+public class RegionSpans implements java.io.Serializable
+{
+  private static final int UNION                = 0;
+  private static final int INTERSECT            = 1;
+  private static final int INTERSECT_COMPLEMENT = 2;
+
+  private int[] rows;
+  private int[] first_cols;
+  private int[] last_cols;
+  private int   n_spans;
+
+
+  /**
+   *  Construct an empty set of spans.
+   */
+  public RegionSpans()
+  {
+    rows       = new int[16];
+    first_cols = new int[16];
+    last_cols  = new int[16];
+  }
+
+
+  /**
+   *  Construct the set of spans containing the specified points.  The
+   *  points may be in any order, and may be repeated.
+   *
+   *  @param  points  The (col,row) points to include in the set.
+   */
+  public RegionSpans( Point[] points )
+  {
+    this();
+                                        // sort by row, then by column
+    long[] keys = new long[ points.length ];
+    for ( int i = 0; i < points.length; i++ )
+      keys[i] = ((long)points[i].y << 32) + 
+                ((long)points[i].x - Integer.MIN_VALUE);
+    Arrays.sort( keys );
+
+    for ( int i = 0; i < keys.length; i++ )
+    {
+      int row = (int)(keys[i] >> 32);
+      int col = (int)((keys[i] & 0xFFFFFFFFL) + Integer.MIN_VALUE);
+      addSpan( row, col, col );
+    }
+  }
+
+
+  /**
+   *  Add a span of columns to the end of this set.  Spans must be added in
+   *  order of increasing row, and increasing first column within a row.
+   *  A span that overlaps or touches the last span in the same row is 
+   *  merged with it.
+   *
+   *  @param  row        The row containing the span.
+   *  @param  first_col  The first column in the span.
+   *  @param  last_col   The last column in the span.
+   *
+   *  @throws IllegalArgumentException if first_col > last_col, or if the
+   *          span is before the last span in the set.
+   */
+  public void addSpan( int row, int first_col, int last_col )
+  {
+    if ( first_col > last_col )
+      throw new IllegalArgumentException( "first_col " + first_col +
+                                          " > last_col " + last_col );
+    if ( n_spans > 0 )
+    {
+      int last = n_spans - 1;
+      if ( row < rows[last] || 
+         ( row == rows[last] && first_col < first_cols[last] ) )
+        throw new IllegalArgumentException( "Span (" + row + ", " + 
+                      first_col + ".." + last_col + ") added out of order" );
+
+      if ( row == rows[last] && (long)first_col <= (long)last_cols[last] + 1 )
+      {
+        if ( last_col > last_cols[last] )
+          last_cols[last] = last_col;
+        return;
+      }
+    }
+
+    if ( n_spans == rows.length )
+    {
+      int size   = 2 * n_spans;
+      rows       = Arrays.copyOf( rows, size );
+      first_cols = Arrays.copyOf( first_cols, size );
+      last_cols  = Arrays.copyOf( last_cols, size );
+    }
+    rows[ n_spans ]       = row;
+    first_cols[ n_spans ] = first_col;
+    last_cols[ n_spans ]  = last_col;
+    n_spans++;
+  }
+
+
+  /**
+   *  Get the number of spans in this set.
+   *
+   *  @return the number of spans.
+   */
+  public int getNumSpans()
+  {
+    return n_spans;
+  }
+
+
+  /**
+   *  Get the row containing the specified span.
+   *
+   *  @param  span  The index of the span, from 0 to getNumSpans()-1.
+   *
+   *  @return the row number of the span.
+   */
+  public int getRow( int span )
+  {
+    return rows[ span ];
+  }
+
+
+  /**
+   *  Get the first column of the specified span.
+   *
+   *  @param  span  The index of the span, from 0 to getNumSpans()-1.
+   *
+   *  @return the first column included in the span.
+   */
+  public int getFirstColumn( int span )
+  {
+    return first_cols[ span ];
+  }
+
+
+  /**
+   *  Get the last column of the specified span.
+   *
+   *  @param  span  The index of the span, from 0 to getNumSpans()-1.
+   *
+   *  @return the last column included in the span.
+   */
+  public int getLastColumn( int span )
+  {
+    return last_cols[ span ];
+  }
+
+
+  /**
+   *  Get the total number of points in all of the spans.
+   *
+   *  @return the number of points in this set.
+   */
+  public int getNumPoints()
+  {
+    int n_points = 0;
+    for ( int i = 0; i < n_spans; i++ )
+      n_points += last_cols[i] - first_cols[i] + 1;
+    return n_points;
+  }
+
+
+  /**
+   *  Get the largest row number used by any span.
+   *
+   *  @return the last row, or -1 if the set is empty.
+   */
+  public int getMaxRow()
+  {
+    if ( n_spans == 0 )
+      return -1;
+    return rows[ n_spans - 1 ];
+  }
+
+
+  /**
+   *  Get the largest column number used by any span.
+   *
+   *  @return the largest column, or -1 if the set is empty.
+   */
+  public int getMaxColumn()
+  {
+    int max_col = -1;
+    for ( int i = 0; i < n_spans; i++ )
+      if ( last_cols[i] > max_col )
+        max_col = last_cols[i];
+    return max_col;
+  }
+
+
+  /**
+   *  Check whether the specified point is in this set.
+   *
+   *  @param  col  The column of the point.
+   *  @param  row  The row of the point.
+   *
+   *  @return true if the point is in one of the spans.
+   */
+  public boolean contains( int col, int row )
+  {
+    int low  = 0;                      // find the first span that is not
+    int high = n_spans;                // entirely before the point
+    while ( low < high )
+    {
+      int mid = (low + high) >>> 1;
+      if ( rows[mid] < row || ( rows[mid] == row && last_cols[mid] < col ) )
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low < n_spans && rows[low] == row && first_cols[low] <= col;
+  }
+
+
+  /**
+   *  Get the union of this set and another set of spans.
+   *
+   *  @param  other  The spans to include with these spans.
+   *
+   *  @return a new set with the points that are in either set.
+   */
+  public RegionSpans union( RegionSpans other )
+  {
+    return combine( other, UNION );
+  }
+
+
+  /**
+   *  Get the intersection of this set and another set of spans.
+   *
+   *  @param  other  The spans to intersect with these spans.
+   *
+   *  @return a new set with the points that are in both sets.
+   */
+  public RegionSpans intersect( RegionSpans other )
+  {
+    return combine( other, INTERSECT );
+  }
+
+
+  /**
+   *  Get the intersection of this set with the complement of another set
+   *  of spans.
+   *
+   *  @param  other  The spans to remove from these spans.
+   *
+   *  @return a new set with the points that are in this set, but not in 
+   *          the other set.
+   */
+  public RegionSpans intersectComplement( RegionSpans other )
+  {
+    return combine( other, INTERSECT_COMPLEMENT );
+  }
+
+
+  /**
+   *  Get the complement of this set, in an array with the specified number
+   *  of columns and rows.
+   *
+   *  @param  n_cols  The number of columns in the array.
+   *  @param  n_rows  The number of rows in the array.
+   *
+   *  @return a new set with the points of the array that are not in this
+   *          set.
+   */
+  public RegionSpans complement( int n_cols, int n_rows )
+  {
+    RegionSpans all = new RegionSpans();
+    if ( n_cols > 0 )
+      for ( int row = 0; row < n_rows; row++ )
+        all.addSpan( row, 0, n_cols - 1 );
+
+    return all.intersectComplement( this );
+  }
+
+
+  /**
+   *  Get the points in this set as an array of Points, in order of 
+   *  increasing row, and increasing column within each row.
+   *
+   *  @return an array of (col,row) points.
+   */
+  public Point[] toPoints()
+  {
+    Point[] points = new Point[ getNumPoints() ];
+    int index = 0;
+    for ( int i = 0; i < n_spans; i++ )
+      for ( int col = first_cols[i]; col <= last_cols[i]; col++ )
+        points[ index++ ] = new Point( col, rows[i] );
+    return points;
+  }
+
+
+  /**
+   *  Form a multi-line String listing the spans, to help with debugging.
+   *
+   *  @return a String with one line per span.
+   */
+  public String toString()
+  {
+    StringBuffer buffer = new StringBuffer();
+    for ( int i = 0; i < n_spans; i++ )
+      buffer.append( "row " + rows[i] + ": " + 
+                     first_cols[i] + ".." + last_cols[i] + "\n" );
+    return buffer.toString();
+  }
+
+
+  /**
+   *  Apply the specified operation to this set and the other set, one row
+   *  at a time.
+   */
+  private RegionSpans combine( RegionSpans other, int operation )
+  {
+    RegionSpans result = new RegionSpans();
+    int i = 0;
+    int j = 0;
+    while ( i < n_spans || j < other.n_spans )
+    {
+      int row;
+      if ( j >= other.n_spans )
+        row = rows[i];
+      else if ( i >= n_spans )
+        row = other.rows[j];
+      else
+        row = Math.min( rows[i], other.rows[j] );
+
+      int i_end = i;
+      while ( i_end < n_spans && rows[i_end] == row )
+        i_end++;
+
+      int j_end = j;
+      while ( j_end < other.n_spans && other.rows[j_end] == row )
+        j_end++;
+
+      if ( operation == UNION )
+        unionRow( row, i, i_end, other, j, j_end, result );
+      else if ( operation == INTERSECT )
+        intersectRow( row, i, i_end, other, j, j_end, result );
+      else
+        removeRow( row, i, i_end, other, j, j_end, result );
+
+      i = i_end;
+      j = j_end;
+    }
+    return result;
+  }
+
+
+  /**
+   *  Add the union of spans i..i_end-1 of this set and spans j..j_end-1 
+   *  of the other set, all in the specified row, to the result.
+   */
+  private void unionRow( int row, int i, int i_end, 
+                         RegionSpans other, int j, int j_end,
+                         RegionSpans result )
+  {
+    while ( i < i_end || j < j_end )     // add in order of first column,
+    {                                    // addSpan() merges overlaps
+      if ( j >= j_end || ( i < i_end && first_cols[i] <= other.first_cols[j] ))
+      {
+        result.addSpan( row, first_cols[i], last_cols[i] );
+        i++;
+      }
+      else
+      {
+        result.addSpan( row, other.first_cols[j], other.last_cols[j] );
+        j++;
+      }
+    }
+  }
+
+
+  /**
+   *  Add the intersection of spans i..i_end-1 of this set and spans 
+   *  j..j_end-1 of the other set, all in the specified row, to the result.
+   */
+  private void intersectRow( int row, int i, int i_end, 
+                             RegionSpans other, int j, int j_end,
+                             RegionSpans result )
+  {
+    while ( i < i_end && j < j_end )
+    {
+      int first = Math.max( first_cols[i], other.first_cols[j] );
+      int last  = Math.min( last_cols[i],  other.last_cols[j] );
+      if ( first <= last )
+        result.addSpan( row, first, last );
+
+      if ( last_cols[i] < other.last_cols[j] )
+        i++;
+      else
+        j++;
+    }
+  }
+
+
+  /**
+   *  Add the parts of spans i..i_end-1 of this set that are not in spans 
+   *  j..j_end-1 of the other set, all in the specified row, to the result.
+   */
+  private void removeRow( int row, int i, int i_end, 
+                          RegionSpans other, int j, int j_end,
+                          RegionSpans result )
+  {
+    for ( ; i < i_end; i++ )
+    {
+      long first = first_cols[i];       // start of the part not yet removed
+      int  last  = last_cols[i];
+
+      while ( j < j_end && other.last_cols[j] < first )
+        j++;
+
+      for ( int k = j; k < j_end && other.first_cols[k] <= last && 
+                                    first <= last; k++ )
+      {
+        if ( other.first_cols[k] > first )
+          result.addSpan( row, (int)first, other.first_cols[k] - 1 );
+        first = Math.max( first, (long)other.last_cols[k] + 1 );
+      }
+
+      if ( first <= last )
+        result.addSpan( row, (int)first, last );
+    }
+  }
+
+}
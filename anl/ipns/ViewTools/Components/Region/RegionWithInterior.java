@@ -91,13 +91,14 @@ public abstract class RegionWithInterior extends    Region
   *  of the Region.  This method must be overridden in a meaningful way 
   *  by derived classes, such as BoxRegion, that have a non-degenerate
   *  interior.  For such regions, this method is used by the base class
-  *  implementation of getSelectedPoints(), so such derived classes should
-  *  NOT need to override the getSelectedPoints() method.  On the other 
-  *  hand, derived classes like PointRegion or LineRegion that have 
-  *  an empty interior MUST override getSelectedPoints().
+  *  implementation of getSelectedSpans(), so such derived classes should
+  *  NOT need to override getSelectedSpans() or getSelectedPoints().
   *  It is the responsibility of concrete derived classes to determine 
   *  which points are selected, by either overriding isInsideWC() and
-  *  getRegionBoundsWC(), OR overriding getSelectedPoints().
+  *  getRegionBoundsWC(), OR overriding getSelectedSpans().  The selected
+  *  points are always obtained from getSelectedSpans(), both by 
+  *  getSelectedPoints() and by RegionOpList, so a derived class that
+  *  only overrides getSelectedPoints() would be ignored by RegionOpList.
   *
   *  @param x   The x-coordinate of the point, in world coordinates.
   *  @param y   The y-coordinate of the point, in world coordinates.
@@ -108,11 +109,8 @@ public abstract class RegionWithInterior extends    Region
 
  /**
   * Get the discrete points that lie within this region, based on the
-  * specified mapping from world to array (col,row) coordinates.  Each
-  * array element within the bounding box of the region is mapped to
-  * world coordinates.  The resulting world coordinate point is tested
-  * to see whether or not it is an interior point of the region, using
-  * the isInsideWC(x,y) method.
+  * specified mapping from world to array (col,row) coordinates.  The
+  * points are obtained from the spans returned by getSelectedSpans().
   *
   * @param world_to_array  The transformation from world coordinates to
   *                        array coordinates.  NOTE: The destination bounds
@@ -122,11 +120,31 @@ public abstract class RegionWithInterior extends    Region
   *
   *  @return array of points included within the region.
   */
-
   public Point[] getSelectedPoints( CoordTransform world_to_array )
   {
-                                          // get bounding box for the region
+    return getSelectedSpans( world_to_array ).toPoints();
+  }
+
 
+ /**
+  * Get the discrete points that lie within this region, as spans of 
+  * consecutive columns in each row.  Each array element within the 
+  * bounding box of the region is mapped to world coordinates.  The 
+  * resulting world coordinate point is tested to see whether or not it
+  * is an interior point of the region, using the isInsideWC(x,y) method.
+  * No Point objects are constructed.
+  *
+  * @param world_to_array  The transformation from world coordinates to
+  *                        array coordinates.  NOTE: The destination bounds
+  *                        for this mapping MUST correspond to the array
+  *                        size.  The destination CoordBounds object is used
+  *                        to get the array size!!!
+  *
+  *  @return the spans of points included within the region.
+  */
+  public RegionSpans getSelectedSpans( CoordTransform world_to_array )
+  {
+                                          // get bounding box for the region
     CoordBounds bounds = getRegionBounds( world_to_array );
 
     int min_x = (int)bounds.getX1();
@@ -134,34 +152,58 @@ public abstract class RegionWithInterior extends    Region
 
     int min_y = (int)bounds.getY1();
     int max_y = (int)bounds.getY2();
-                                           // Step through box rowwise, saving 
-                                           // points that are in the region.
-    Point pts[];
-    if(( max_x - min_x + 1 ) * ( max_y - min_y + 1 )<0)
-      pts = new Point[0];
-    else
-      pts = new Point[ ( max_x - min_x + 1 ) * ( max_y - min_y + 1 ) ];
 
-    floatPoint2D temp_point = new floatPoint2D();
-    int  num_pts = 0;
+    RegionSpans spans = new RegionSpans();
+    if ( max_x < min_x )
+      return spans;
+                                           // Step through box rowwise, saving 
+                                           // spans of points in the region.
+    float[] x_world = getColumnCentersWC( world_to_array, min_x, max_x );
     for( int row = min_y; row <= max_y; row++ )
     {
+      float y_world   = world_to_array.MapYFrom( row + 0.5f );
+      int   first_col = -1;
       for( int col = min_x; col <= max_x; col++ )
       {
-                                      // NOTE: We could avoid making lots of
-        temp_point.x = col + 0.5f;    // small temp_point objects, if we added
-        temp_point.y = row + 0.5f;    // a method to do the mapping "in place"
-        temp_point = world_to_array.MapFrom( temp_point );
-
-        if ( isInsideWC( temp_point.x, temp_point.y ) )
-          pts[num_pts++] = new Point(col,row);
+        if ( isInsideWC( x_world[ col - min_x ], y_world ) )
+        {
+          if ( first_col < 0 )
+            first_col = col;
+        }
+        else if ( first_col >= 0 )
+        {
+          spans.addSpan( row, first_col, col - 1 );
+          first_col = -1;
+        }
       }
+      if ( first_col >= 0 )
+        spans.addSpan( row, first_col, max_x );
     }
-                                            // construct final list of points.
-    Point[] selected_points = new Point[num_pts];
-    System.arraycopy( pts, 0, selected_points, 0, num_pts );
 
-    return selected_points;
+    return spans;
+  }
+
+
+ /**
+  * Map the centers of the specified range of array columns to world
+  * coordinates.
+  *
+  * @param world_to_array  The transformation from world coordinates to
+  *                        array coordinates.
+  * @param first_col       The first column to map.
+  * @param last_col        The last column to map.
+  *
+  * @return an array with the world coordinate x value of the center of
+  *         each column from first_col to last_col.
+  */
+  protected float[] getColumnCentersWC( CoordTransform world_to_array,
+                                        int            first_col,
+                                        int            last_col )
+  {
+    float[] x_world = new float[ last_col - first_col + 1 ];
+    for ( int col = first_col; col <= last_col; col++ )
+      x_world[ col - first_col ] = world_to_array.MapXFrom( col + 0.5f );
+    return x_world;
   }
   
 }
@@ -0,0 +1,304 @@
+/*
+ * File: TestRegionOpList.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ *
+ *  $Author$
+ *  $Date$
+ *  $Revision$
+ */
+
+package gov.anl.ipns.ViewTools.Components.Region;
+
+import java.awt.Point;
+import java.util.*;
+
+import gov.anl.ipns.Util.Numeric.floatPoint2D;
+import gov.anl.ipns.ViewTools.Panels.Transforms.*;
+
+/**
+ *  Test of the run length spans used by RegionOpList.  The points selected
+ *  by RegionOpList.getSelectedPoints() are compared with the points found
+ *  as was done before the spans were used: each region with an interior
+ *  checked every array element in its bounds with isInsideWC(), and the
+ *  operations were applied to a boolean mask for the whole array.  Random
+ *  lists of box, ellipse, annular, wedge, double wedge, point and line
+ *  regions, with random operations, are used with random world to array
+ *  transforms, some of which flip the y axis, and with regions that extend
+ *  past the array.  The number of lists that differ should be 0.  Finally,
+ *  an annulus minus a box on a large array is timed both ways.  The number
+ *  of lists and the size of the large array can be given on the command
+ *  line.
+ */
+public class TestRegionOpList
+{
+
+  /*
+   *  Find the points in a region as was done before getSelectedSpans().
+   *  Regions with an interior check the center of each array element in
+   *  their bounds with isInsideWC().  Other regions are unchanged.
+   */
+  private static Point[] oldPoints( Region region, CoordTransform tran )
+  {
+    if ( !( region instanceof RegionWithInterior ) )
+      return region.getSelectedPoints( tran );
+
+    CoordBounds bounds = region.getRegionBounds( tran );
+    int min_x = (int)bounds.getX1();
+    int max_x = (int)bounds.getX2();
+    int min_y = (int)bounds.getY1();
+    int max_y = (int)bounds.getY2();
+
+    Vector points = new Vector();
+    floatPoint2D temp_point = new floatPoint2D();
+    for ( int row = min_y; row <= max_y; row++ )
+      for ( int col = min_x; col <= max_x; col++ )
+      {
+        temp_point.x = col + 0.5f;
+        temp_point.y = row + 0.5f;
+        temp_point = tran.MapFrom( temp_point );
+        if ( ((RegionWithInterior)region).isInsideWC( temp_point.x,
+                                                       temp_point.y ) )
+          points.add( new Point( col, row ) );
+      }
+
+    Point result[] = new Point[ points.size() ];
+    points.toArray( result );
+    return result;
+  }
+
+
+  /*
+   *  Find the points selected by the list, as RegionOpList did before
+   *  it used spans, with a boolean mask for the whole array.
+   */
+  private static Point[] oldPoints( RegionOpList list, CoordTransform tran )
+  {
+    Vector ops = list.getList();
+    Point  region_points[][] = new Point[ ops.size() ][];
+
+    CoordBounds array_size = tran.getDestination();
+    int n_cols = Math.round( Math.max( array_size.getX1(),
+                                       array_size.getX2() ) );
+    int n_rows = Math.round( Math.max( array_size.getY1(),
+                                       array_size.getY2() ) );
+    for ( int i = 0; i < ops.size(); i++ )
+    {
+      Region region = ((RegionOp)ops.elementAt(i)).getRegion();
+      if ( region != null )
+      {
+        region_points[i] = oldPoints( region, tran );
+        for ( int k = 0; k < region_points[i].length; k++ )
+        {
+          n_cols = Math.max( n_cols, region_points[i][k].x + 1 );
+          n_rows = Math.max( n_rows, region_points[i][k].y + 1 );
+        }
+      }
+    }
+
+    boolean mask[][] = new boolean[ n_cols ][ n_rows ];
+    for ( int i = 0; i < ops.size(); i++ )
+    {
+      RegionOp.Operation op = ((RegionOp)ops.elementAt(i)).getOp();
+      if ( op == RegionOp.Operation.COMPLEMENT )
+      {
+        for ( int x = 0; x < n_cols; x++ )
+          for ( int y = 0; y < n_rows; y++ )
+            mask[x][y] = !mask[x][y];
+        continue;
+      }
+
+      boolean region_mask[][] = new boolean[ n_cols ][ n_rows ];
+      for ( int k = 0; k < region_points[i].length; k++ )
+        region_mask[ region_points[i][k].x ][ region_points[i][k].y ] = true;
+
+      for ( int x = 0; x < n_cols; x++ )
+        for ( int y = 0; y < n_rows; y++ )
+          if ( op == RegionOp.Operation.UNION )
+            mask[x][y] = mask[x][y] || region_mask[x][y];
+          else if ( op == RegionOp.Operation.INTERSECT )
+            mask[x][y] = mask[x][y] && region_mask[x][y];
+          else if ( op == RegionOp.Operation.INTERSECT_COMPLEMENT )
+            mask[x][y] = mask[x][y] && !region_mask[x][y];
+    }
+
+    Vector points = new Vector();
+    for ( int y = 0; y < n_rows; y++ )
+      for ( int x = 0; x < n_cols; x++ )
+        if ( mask[x][y] )
+          points.add( new Point( x, y ) );
+
+    Point result[] = new Point[ points.size() ];
+    points.toArray( result );
+    return result;
+  }
+
+
+  /*
+   *  Make a random region with defining points in and around the world
+   *  coordinate region, or return null if the points don't define a
+   *  region of the chosen type.
+   */
+  private static Region makeRegion( Random random, CoordBounds world )
+  {
+    float x1 = Math.min( world.getX1(), world.getX2() );
+    float y1 = Math.min( world.getY1(), world.getY2() );
+    float width  = Math.abs( world.getX2() - world.getX1() );
+    float height = Math.abs( world.getY2() - world.getY1() );
+
+    floatPoint2D dp[] = new floatPoint2D[8];
+    for ( int i = 0; i < dp.length; i++ )
+      dp[i] = new floatPoint2D( x1 - 1 + random.nextFloat() * width * 1.2f,
+                                y1 - 1 + random.nextFloat() * height * 1.2f );
+    try
+    {
+      switch ( random.nextInt( 7 ) )
+      {
+        case 0:  return new BoxRegion( dp );
+        case 1:  return new EllipseRegion( dp );
+        case 2:  float r = random.nextFloat() * width / 4;
+                 dp[1] = new floatPoint2D( dp[0].x - r, dp[0].y + r );
+                 dp[3] = new floatPoint2D( dp[0].x - 2*r, dp[0].y + 2*r );
+                 return new AnnularRegion( dp );
+        case 3:  return new WedgeRegion( dp );
+        case 4:  return new DoubleWedgeRegion( dp );
+        case 5:  return new PointRegion( new floatPoint2D[]{ dp[0] } );
+        default: return new LineRegion( new floatPoint2D[]{ dp[0], dp[1] } );
+      }
+    }
+    catch ( RuntimeException ex )
+    {
+      return null;
+    }
+  }
+
+
+  /*
+   *  Check whether two lists of points are the same, in the same order.
+   */
+  private static boolean same( Point a[], Point b[] )
+  {
+    if ( a.length != b.length )
+      return false;
+    for ( int i = 0; i < a.length; i++ )
+      if ( !a[i].equals( b[i] ) )
+        return false;
+    return true;
+  }
+
+
+  public static void main( String args[] )
+  {
+    int n_lists = 1000;
+    int size    = 2048;
+    if ( args.length > 0 )
+      n_lists = Integer.parseInt( args[0] );
+    if ( args.length > 1 )
+      size = Integer.parseInt( args[1] );
+
+    Random random = new Random( 1 );
+    RegionOp.Operation all_ops[] = RegionOp.Operation.values();
+    int n_regions_differ = 0;
+    int n_lists_differ   = 0;
+    int n_regions        = 0;
+    for ( int i = 0; i < n_lists; i++ )
+    {
+      int   n_cols = 5 + random.nextInt( 60 );
+      int   n_rows = 5 + random.nextInt( 60 );
+      float x1 = random.nextFloat() * 10 - 5;
+      float y1 = random.nextFloat() * 10 - 5;
+      float x2 = x1 + 1 + random.nextFloat() * 20;
+      float y2 = y1 + 1 + random.nextFloat() * 20;
+      if ( random.nextBoolean() )
+      {
+        float temp = y1;
+        y1 = y2;
+        y2 = temp;
+      }
+      CoordBounds    world = new CoordBounds( x1, y1, x2, y2 );
+      CoordTransform tran  = new CoordTransform( world,
+                                  new CoordBounds( 0, 0, n_cols, n_rows ) );
+
+      RegionOpList list = new RegionOpList();
+      int n_ops = 1 + random.nextInt( 5 );
+      for ( int k = 0; k < n_ops; k++ )
+      {
+        Region region = makeRegion( random, world );
+        if ( region != null )
+        {
+          n_regions++;
+          if ( !same( region.getSelectedPoints( tran ),
+                      oldPoints( region, tran ) ) )
+            n_regions_differ++;
+          list.add( new RegionOp( region,
+                                  all_ops[ random.nextInt( all_ops.length )]));
+        }
+      }
+
+      if ( !same( list.getSelectedPoints( tran ), oldPoints( list, tran ) ) )
+        n_lists_differ++;
+    }
+    System.out.println( n_regions + " regions, " +
+                        n_regions_differ + " differ" );
+    System.out.println( n_lists + " operation lists, " +
+                        n_lists_differ + " differ" );
+
+                                         // time an annulus minus a box
+    CoordBounds    world = new CoordBounds( 0, 0, size, size );
+    CoordTransform tran  = new CoordTransform( world, world );
+    float c = size / 2.0f;
+    RegionOpList list = new RegionOpList();
+    float r1 = size / 8.0f;
+    float r2 = size / 3.0f;
+    list.add( new RegionOp( new AnnularRegion( new floatPoint2D[]{
+                      new floatPoint2D( c, c ),
+                      new floatPoint2D( c - r1, c + r1 ),
+                      new floatPoint2D( c + r1, c - r1 ),
+                      new floatPoint2D( c - r2, c + r2 ),
+                      new floatPoint2D( c + r2, c - r2 ) } ),
+                      RegionOp.Operation.UNION ) );
+    list.add( new RegionOp( new BoxRegion( new floatPoint2D[]{
+                      new floatPoint2D( c - size/10.0f, 0 ),
+                      new floatPoint2D( c + size/10.0f, size ) } ),
+                      RegionOp.Operation.INTERSECT_COMPLEMENT ) );
+
+    long   start      = System.nanoTime();
+    Point  new_pts[]  = list.getSelectedPoints( tran );
+    long   new_time   = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    Point  old_pts[]  = oldPoints( list, tran );
+    long   old_time   = System.nanoTime() - start;
+
+    System.out.println( "Annulus minus box, " + size + "x" + size + ": " +
+                        new_pts.length + " points, same = " +
+                        same( new_pts, old_pts ) );
+    System.out.println( "  RegionOpList : " + new_time / 1000000 + " ms" );
+    System.out.println( "  mask         : " + old_time / 1000000 + " ms" );
+  }
+
+}
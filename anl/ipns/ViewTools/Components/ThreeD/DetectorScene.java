@@ -86,7 +86,6 @@ import gov.anl.ipns.MathTools.Geometry.Vector3D;
 import SSG_Tools.Viewers.*;
 import SSG_Tools.Cameras.*;
 
-import SSG_Tools.SSG_Nodes.SimpleShapes.SimpleShape;
 import SSG_Tools.SSG_Nodes.Groups.*;
 
 import gov.anl.ipns.ViewTools.Components.IPhysicalArray3D;
@@ -184,18 +183,10 @@ public class DetectorScene extends DetectorSceneBase
     {
       if(points[det] != null)
       {
-        DetectorGroup detector = (DetectorGroup)getChild(det);
+        PixelDetectorGroup detector = (PixelDetectorGroup)getChild(det);
     	
-        for( int i = 0; i < detector.numChildren(); i++)
-        {
-          float value = points[det].getValue(i);
-          
-          // Each child of the detector is a shape
-          SimpleShape shape = (SimpleShape)detector.getChild(i);
-          // Update pixel's color and value
-          shape.setColor( model.getColor(value) );
-          ((IPixelShape)shape).setValue(value);
-        }
+        // Update all pixels' colors and values in one pass
+        detector.setValues( points[det].getValues(), model );
       }
     }
     compileDisplayList = true;  //Recompile display list.
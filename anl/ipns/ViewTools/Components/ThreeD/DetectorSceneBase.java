@@ -99,12 +99,15 @@ import java.util.Vector;
 import java.util.TreeSet;
 import java.util.TreeMap;
 import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Comparator;
 
 import javax.swing.*;
 
 import javax.media.opengl.*;
 
 import gov.anl.ipns.MathTools.Geometry.Vector3D;
+import gov.anl.ipns.MathTools.Geometry.BoxBVH;
 import SSG_Tools.Viewers.*;
 import SSG_Tools.Appearance.Appearance;
 import SSG_Tools.Appearance.Material;
@@ -141,6 +144,13 @@ import gov.anl.ipns.ViewTools.Components.PhysicalArray3D;
  * The object also stores a collection of currently selected pixels.
  * The user may add/remove pixels from the set to specify whether they have been
  * selected or not.  The selected pixels can then be colored with a given color.
+ *
+ * Each detector is a PixelDetectorGroup, which keeps the positions, 
+ * extents, orientations, colors and values of its pixels in packed arrays,
+ * rather than one scene graph node per pixel.  The selected pixels are
+ * identified by the pick ids of the pixels in the PixelDetectorGroups, and
+ * pickPixel() finds the pixel hit by a ray using a BoxBVH made from the 
+ * same arrays, without rendering the scene in OpenGL selection mode.
  */
 public class DetectorSceneBase extends Group
 { 
@@ -178,6 +188,12 @@ public class DetectorSceneBase extends Group
   private float[] max_point = new float[3], min_point = new float[3];
   private float[] center = {0.f, 0.f, 0.f};
   private float[] bbox_low = new float[3], bbox_high = new float[3];
+
+  private PixelDetectorGroup pixel_groups[] = null;  // detectors in the BVH,
+  private int                pick_first[]   = null;  // in order of their
+  private BoxBVH             pick_bvh       = null;  // first pick ids
+  private boolean            groups_changed = true;  // set when children
+                                                     // are added or removed
                          
 
   /* --------------------------- Constructor --------------------------- */
@@ -225,78 +241,19 @@ public class DetectorSceneBase extends Group
                           IPointList3D  point_list,
                           IBoundsList3D bounds_list)
   {
-    Group detector;    
-    float[] extents, position;
-    SimpleShape shape;
+    PixelDetectorGroup detector;    
             
     if(point_list != null && bounds_list != null)
     {
-      detector = new DetectorGroup(id);
-      	
-      // Go through each 
-      for ( int i = 0; i < point_list.getNumPoints(); i++ )
-      {                                      
-        if(shapeType == DOT)
-        {
-          // The DOT will take the size of the X dimension extent.
-          extents = bounds_list.getExtents(i).get();
-          Vector3D[] pts = new Vector3D[1];
-          pts[0] = point_list.getPoint(i);
-          
-          int size = 2;
-          shape = new PixelPolymarker(i, pts, size, PixelPolymarker.DOT, Color.WHITE);
-        }
-        
-        else if(shapeType == RECTANGLE)
-        {
-          // The rectangle will take the width of the x dimension
-          // extent and the height of the y dimension extent.
-          extents = bounds_list.getExtents(i).get();
-          
-          // Width - X Vector
-          Vector3D width = bounds_list.getOrientation(i)[0];
-          width.normalize();           
-          width.multiply(extents[0]);
-          
-          // Height - Y Vector
-          Vector3D height = bounds_list.getOrientation(i)[1];
-          height.normalize();
-          height.multiply(extents[1]);
-           
-          shape = new PixelParallelogram(i, point_list.getPoint(i),
-                                         width, height,
-                                         Color.WHITE);
-        }
-        
-        else
-        {
-          // Default Shape: Box
-          // All extents, orientations use.
-          shape = new PixelPositionedBox(i, 
-                                         point_list.getPoint(i),
-                                         bounds_list.getOrientation(i)[0],
-                                         bounds_list.getOrientation(i)[1],
-                                         bounds_list.getExtents(i),
-                                         Color.WHITE);
-        }
+      // Make all of the pixels in one pass over the packed lists
+      detector = new PixelDetectorGroup(id, shapeType, point_list, bounds_list);
 
-        // Use max point to find center and bounding box
-        position = point_list.getPoint(i).get();
-        for(int j = 0; j < 3; j++) 
-        {
-          if(position[j] > max_point[j]) max_point[j] = position[j];
-          if(position[j] < min_point[j]) min_point[j] = position[j];
-        }
-                  
-        // Generate pick id that is unique
-        shape.setPickID( UniqueIntGenerator.getNextInt() );  
-        
-        detector.addChild( shape );
-        
-        // Map user detector id to the detector object
+      // Use max point to find center and bounding box
+      detector.getCenterBounds(min_point, max_point);
+
+      // Map user detector id to the detector object
+      if(detector.getNumPixels() > 0)
         detectorid_map.put(new Integer(id), detector);
-        
-      }
       
       // Use critial extents to set bounding box information
       float[] minexts = bounds_list.getMinExtents().get();
@@ -328,12 +285,13 @@ public class DetectorSceneBase extends Group
       diameter = high_point.distance(new Vector3D(bbox_low));
       
     }
-    else detector = new DetectorGroup(-1);
+    else detector = new PixelDetectorGroup(-1, shapeType, null, null);
 
      //THIS NEEDS TO BE CHANGED TO A UNIQUE ID
     detector.setPickID(  UniqueIntGenerator.getNextInt() ); 
                                                            
     addChild(detector);
+    groups_changed = true;
     
     compileDisplayList = true;
   }
@@ -499,14 +457,15 @@ public class DetectorSceneBase extends Group
     // One string for each pixel
     String[] output = new String[selected_pixels.size()];
   	
+    refreshPixelGroups();
+
     int i =0;
     for(Iterator it = selected_pixels.iterator(); it.hasNext(); i++)
     {
       // Use pickid to find PixelID and DetectorID
       int pickid = ((Integer)it.next()).intValue();
-      SimpleShape pixel = (SimpleShape)Node.getNodeWithID(pickid);
-      DetectorGroup det = (DetectorGroup)pixel.getParent();
-      int pixelid = ((IPixelShape)pixel).getPixelID();
+      PixelDetectorGroup det = findPixelGroup(pickid);
+      int pixelid = det.getPixelIndex(pickid);
       int detid = det.getDetectorID();
      
       // Construct its String
@@ -534,6 +493,8 @@ public class DetectorSceneBase extends Group
     // one detector is split if the UniqueIDs wrap around to the 
     // beginning
  	
+    refreshPixelGroups();
+
     int i = 0;
     int cur_det = -1;  // Current detector id
     TreeSet pixelids = new TreeSet(); // To hold and sort Pixel IDs
@@ -541,9 +502,8 @@ public class DetectorSceneBase extends Group
     {
       // Find PixelID and DetectorID for selected pickid
       int pickid = ((Integer)it.next()).intValue();
-      SimpleShape pixel = (SimpleShape)Node.getNodeWithID(pickid);
-      DetectorGroup det = (DetectorGroup)pixel.getParent();
-      int pixelid = ((IPixelShape)pixel).getPixelID();
+      PixelDetectorGroup det = findPixelGroup(pickid);
+      int pixelid = det.getPixelIndex(pickid);
       int detid = det.getDetectorID();
       
       // If first iteration, set current detector id and
@@ -621,14 +581,14 @@ public class DetectorSceneBase extends Group
     for(int i = 0; i < det_ids.length; i++)
     {
       // Map detector id to detector scene node
-      DetectorGroup det = (DetectorGroup)
+      PixelDetectorGroup det = (PixelDetectorGroup)
       detectorid_map.get(new Integer(det_ids[i]));
   	  
-      // If node exists, get child at pixel id 
+      // If node exists, get pick id of pixel id 
       if( det != null                       && 
           det.getDetectorID() == det_ids[i] && 
-          pixel_ids[i] < det.numChildren()   )
-        tmpset.add(new Integer(det.getChild(pixel_ids[i]).getPickID()));
+          pixel_ids[i] < det.getNumPixels()  )
+        tmpset.add(new Integer(det.getPixelPickID(pixel_ids[i])));
     }
   	
     selected_pixels.retainAll(tmpset);
@@ -656,7 +616,7 @@ public class DetectorSceneBase extends Group
        for(int d_i = 0; d_i < dets.length; d_i++)
        {
          // Get detector scene node
-         DetectorGroup det = (DetectorGroup)
+         PixelDetectorGroup det = (PixelDetectorGroup)
          detectorid_map.get(new Integer(dets[d_i]));
    	  
          // If it's not there, move on to next detector
@@ -665,8 +625,8 @@ public class DetectorSceneBase extends Group
       
          // If it is there, add all the pixel ids to retainable set
          for(int p_i = 0; p_i < pixs.length; p_i++)
-           if(pixs[p_i] < det.numChildren())
-             tmpset.add(new Integer(det.getChild(pixs[p_i]).getPickID()));
+           if(pixs[p_i] < det.getNumPixels())
+             tmpset.add(new Integer(det.getPixelPickID(pixs[p_i])));
        }
      } 
   
@@ -693,14 +653,14 @@ public class DetectorSceneBase extends Group
     for(int i = 0; i < det_array.length; i++)
     {
       // get detector scene object
-      DetectorGroup det = 
-        (DetectorGroup)detectorid_map.get(new Integer(det_array[i]));
+      PixelDetectorGroup det = 
+        (PixelDetectorGroup)detectorid_map.get(new Integer(det_array[i]));
     	
       // Select all the specified pixels
       if(det != null && det.getDetectorID() == det_array[i])
         for(int j = 0; j < pix_array.length; j++)
-          if(pix_array[j] < det.numChildren())
-            addSelectedPixel(det.getChild(pix_array[j]).getPickID());
+          if(pix_array[j] < det.getNumPixels())
+            addSelectedPixel(det.getPixelPickID(pix_array[j]));
     }
   }
    
@@ -716,12 +676,13 @@ public class DetectorSceneBase extends Group
   */
   public void addSelectedPixel(int detid, int pixelid)
   {
-    DetectorGroup det = (DetectorGroup)detectorid_map.get(new Integer(detid));
+    PixelDetectorGroup det = 
+                  (PixelDetectorGroup)detectorid_map.get(new Integer(detid));
   	
     if(det != null                  && 
        det.getDetectorID() == detid && 
-       pixelid < det.numChildren())
-      addSelectedPixel(det.getChild(pixelid).getPickID());
+       pixelid < det.getNumPixels())
+      addSelectedPixel(det.getPixelPickID(pixelid));
   }
   
  /**
@@ -742,13 +703,13 @@ public class DetectorSceneBase extends Group
   	
     for(int i = 0; i < det_array.length; i++)
     {
-      DetectorGroup det = 
-                   (DetectorGroup)detectorid_map.get(new Integer(det_array[i]));
+      PixelDetectorGroup det = 
+         (PixelDetectorGroup)detectorid_map.get(new Integer(det_array[i]));
     	
       if(det != null && det.getDetectorID() == det_array[i])
         for(int j = 0; j < pix_array.length; j++)
-          if(pix_array[j] < det.numChildren())
-            removeSelectedPixel(det.getChild(pix_array[j]).getPickID());
+          if(pix_array[j] < det.getNumPixels())
+            removeSelectedPixel(det.getPixelPickID(pix_array[j]));
     }
   }
   
@@ -764,12 +725,12 @@ public class DetectorSceneBase extends Group
   */
   public void removeSelectedPixel(int detid, int pixelid)
   {
-    DetectorGroup det = 
-                  (DetectorGroup)detectorid_map.get(new Integer(detid));
+    PixelDetectorGroup det = 
+                  (PixelDetectorGroup)detectorid_map.get(new Integer(detid));
   
     if(det != null && det.getDetectorID() == detid && 
-       pixelid < det.numChildren())
-      removeSelectedPixel(det.getChild(pixelid).getPickID());
+       pixelid < det.getNumPixels())
+      removeSelectedPixel(det.getPixelPickID(pixelid));
   }
  
  /**
@@ -817,13 +778,14 @@ public class DetectorSceneBase extends Group
   */
   public void addSelectedDetector(int pickid)
   { 	
-    DetectorGroup det = (DetectorGroup)Node.getNodeWithID(pickid);
+    Node node = Node.getNodeWithID(pickid);
   
-    if(det == null)
+    if(!(node instanceof PixelDetectorGroup))
     return;
   	
-    for(int i = 0; i < det.numChildren(); i ++)
-      selected_pixels.add(new Integer(det.getChild(i).getPickID()));
+    PixelDetectorGroup det = (PixelDetectorGroup)node;
+    for(int i = 0; i < det.getNumPixels(); i ++)
+      selected_pixels.add(new Integer(det.getPixelPickID(i)));
   }
   
  /**
@@ -837,13 +799,14 @@ public class DetectorSceneBase extends Group
   */
   public void removeSelectedDetector(int pickid)
   { 	
-    DetectorGroup det = (DetectorGroup)Node.getNodeWithID(pickid);
+    Node node = Node.getNodeWithID(pickid);
   
-    if(det == null)
+    if(!(node instanceof PixelDetectorGroup))
       return;
   	
-    for(int i = 0; i < det.numChildren(); i ++)
-      selected_pixels.remove(new Integer(det.getChild(i).getPickID()));
+    PixelDetectorGroup det = (PixelDetectorGroup)node;
+    for(int i = 0; i < det.getNumPixels(); i ++)
+      selected_pixels.remove(new Integer(det.getPixelPickID(i)));
   }
   
   /**
@@ -863,21 +826,196 @@ public class DetectorSceneBase extends Group
   */
   public void colorSelected(Color color)
   {
-    SimpleShape pixel;
+    PixelDetectorGroup det;
     int pickid = -1;
   	
+    refreshPixelGroups();
     for(Iterator it = selected_pixels.iterator(); it.hasNext(); )
     {
       pickid = ((Integer)it.next()).intValue();
-      pixel = (SimpleShape)Node.getNodeWithID(pickid);
-      if(pixel != null) 
-         pixel.setColor(color);
+      det = findPixelGroup(pickid);
+      if(det != null) 
+         det.setColor(det.getPixelIndex(pickid), color);
     }
     
     compileDisplayList = true;
   }
 
 
+  /**
+   * Find the detector pixel that is hit first by a ray, such as the ray
+   * from the camera position through the point that was clicked on.  The
+   * pixels are treated as boxes with the full extents from the bounds
+   * lists, or as flat rectangles for the RECTANGLE shape.  No rendering
+   * is done, so this can be used for hover readouts on large scenes.  The
+   * BoxBVH holding the pixels is made by the first pick after detectors
+   * are added.
+   *
+   *   @param  origin     The start of the ray.
+   *   @param  direction  The direction of the ray.
+   *
+   *   @return The pick id of the pixel that is hit first, or 
+   *           Node.INVALID_PICK_ID if the ray does not hit any pixel.
+   *           Use getPixelGroup() to find the detector and pixel id.
+   */
+  public int pickPixel( Vector3D origin, Vector3D direction )
+  {
+    refreshPixelGroups();
+    if ( pixel_groups.length == 0 )
+      return Node.INVALID_PICK_ID;
+
+    if ( pick_bvh == null )
+      buildPickBVH();
+
+    int box = pick_bvh.pick( origin.get(), direction.get(), null );
+    if ( box < 0 )
+      return Node.INVALID_PICK_ID;
+                                            // find the last detector that
+    int det  = 0;                           // starts at or before the box
+    int high = pick_first.length - 1;
+    while ( det < high )
+    {
+      int mid = ( det + high + 1 ) / 2;
+      if ( pick_first[mid] <= box )
+        det = mid;
+      else
+        high = mid - 1;
+    }
+
+    return pixel_groups[det].getPixelPickID( box - pick_first[det] );
+  }
+
+
+  /**
+   * Get the detector that contains the pixel with the specified pick id.
+   * The pixel id is then given by the detector's getPixelIndex() method.
+   *
+   *   @param  pickid  The pick id of a pixel, as returned by pickPixel().
+   *
+   *   @return The detector with the pixel, or null if no detector in the
+   *           scene has a pixel with that pick id.
+   */
+  public PixelDetectorGroup getPixelGroup( int pickid )
+  {
+    refreshPixelGroups();
+    return findPixelGroup( pickid );
+  }
+
+
+  /*
+   * Find the detector with the pixel with the specified pick id, by a
+   * binary search of the detectors in order of their first pick ids.
+   * refreshPixelGroups() must be called first.
+   */
+  private PixelDetectorGroup findPixelGroup( int pickid )
+  {
+    int det  = 0;
+    int high = pixel_groups.length - 1;
+    while ( det < high )
+    {
+      int mid = ( det + high + 1 ) / 2;
+      if ( pixel_groups[mid].getFirstPickID() <= pickid )
+        det = mid;
+      else
+        high = mid - 1;
+    }
+
+    if ( high < 0 || pixel_groups[det].getPixelIndex( pickid ) < 0 )
+      return null;
+
+    return pixel_groups[det];
+  }
+
+
+  /**
+   * Remove all children from the scene.  The detectors and selected pixels
+   * used for picking are updated when they are next needed.
+   */
+  public void Clear()
+  {
+    super.Clear();
+    groups_changed = true;
+  }
+
+
+  /**
+   * Remove the specified child from the scene.  The detectors and selected
+   * pixels used for picking are updated when they are next needed.
+   *
+   *   @param  child  The node to remove.
+   */
+  public void removeChild( Node child )
+  {
+    super.removeChild( child );
+    groups_changed = true;
+  }
+
+
+  /*
+   * If detectors were added or removed since the last call, make the list
+   * of detectors with pixels that are children of this scene again, in
+   * order of their first pick ids, and remove selected pixels that are no
+   * longer in the scene.  The BoxBVH will then be rebuilt by the next pick.
+   */
+  private void refreshPixelGroups()
+  {
+    if ( !groups_changed )
+      return;
+
+    Vector groups = new Vector();
+    for ( int i = 0; i < numChildren(); i++ )
+      if ( getChild(i) instanceof PixelDetectorGroup &&
+           ((PixelDetectorGroup)getChild(i)).getNumPixels() > 0 )
+        groups.add( getChild(i) );
+
+    pixel_groups = new PixelDetectorGroup[ groups.size() ];
+    groups.toArray( pixel_groups );
+    Arrays.sort( pixel_groups, new Comparator()
+      {
+        public int compare( Object a, Object b )
+        {
+          int first_a = ((PixelDetectorGroup)a).getFirstPickID();
+          int first_b = ((PixelDetectorGroup)b).getFirstPickID();
+          return first_a < first_b ? -1 : ( first_a == first_b ? 0 : 1 );
+        }
+      } );
+    pick_first     = null;
+    pick_bvh       = null;
+    groups_changed = false;
+
+    for(Iterator it = selected_pixels.iterator(); it.hasNext(); )
+      if ( findPixelGroup( ((Integer)it.next()).intValue() ) == null )
+        it.remove();
+  }
+
+
+  /*
+   * Make the BoxBVH for the pixels of all of the detectors, with the 
+   * pixels of detector k starting at position pick_first[k].
+   */
+  private void buildPickBVH()
+  {
+    int n_dets   = pixel_groups.length;
+    int n_pixels = 0;
+    pick_first = new int[ n_dets ];
+    for ( int k = 0; k < n_dets; k++ )
+    {
+      pick_first[k] = n_pixels;
+      n_pixels += pixel_groups[k].getNumPixels();
+    }
+
+    float[] centers = new float[ 3 * n_pixels ];
+    float[] x_axes  = new float[ 3 * n_pixels ];
+    float[] y_axes  = new float[ 3 * n_pixels ];
+    float[] extents = new float[ 3 * n_pixels ];
+    for ( int k = 0; k < n_dets; k++ )
+      pixel_groups[k].getBoxes( centers, x_axes, y_axes, extents, 
+                                pick_first[k] );
+
+    pick_bvh = new BoxBVH( centers, x_axes, y_axes, extents, n_pixels );
+  }
+
+
   /**
    *  Set the compileDisplayList flag to true, so that the next time
    *  the scene is rendered, the display lists will be regenerated.
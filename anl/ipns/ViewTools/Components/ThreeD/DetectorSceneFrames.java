@@ -80,9 +80,6 @@ import gov.anl.ipns.MathTools.Geometry.Vector3D;
 import SSG_Tools.Viewers.*;
 import SSG_Tools.Cameras.*;
 
-import SSG_Tools.SSG_Nodes.Groups.DetectorGroup;
-import SSG_Tools.SSG_Nodes.SimpleShapes.*;
-
 import gov.anl.ipns.ViewTools.Components.IPhysicalArray3DList;
 import gov.anl.ipns.ViewTools.Components.PhysicalArray3DList;
 import gov.anl.ipns.ViewTools.Components.LogScaleColorModel;
@@ -180,19 +177,10 @@ public class DetectorSceneFrames extends DetectorSceneBase
         if ( frame >= 0 && 
              frame < points[det].getNumFrames() && getChild(det) != null )
         {
-          DetectorGroup detector = (DetectorGroup)getChild(det);
+          PixelDetectorGroup detector = (PixelDetectorGroup)getChild(det);
 		  
-          for( int i = 0; i < detector.numChildren(); i++)
-          {
-            float value = points[det].getValue(i, frame);
-            
-            // Each child of the detector is a shape
-            SimpleShape shape = (SimpleShape)detector.getChild(i);
-            // Update pixel's color and value
-            shape.setColor( model.getColor(value) );
-            ((IPixelShape)shape).setValue(value);
-            
-          }
+          // Update all pixels' colors and values in one pass
+          detector.setValues( points[det].getValuesAtFrame(frame), model );
         }
       }
     }
@@ -63,6 +63,8 @@ import java.awt.*;
 import java.awt.event.*;
 
 import  gov.anl.ipns.MathTools.Geometry.Vector3D;
+import  gov.anl.ipns.MathTools.Geometry.PickRay;
+import SSG_Tools.Cameras.*;
 import SSG_Tools.Viewers.*;
 import SSG_Tools.SSG_Nodes.*;
 import SSG_Tools.SSG_Nodes.Util.*;
@@ -70,9 +72,12 @@ import SSG_Tools.SSG_Nodes.Groups.DetectorGroup;
 
 /* ------------------------ PixelBoxPicker --------------------------- */
 /**
- *  This class listens for mouse clicks and then uses the JoglPanel's 
- *  pickHitList() method to get and print the closest PixelBox 
- *  that is "hit" by a ray through the current x,y pixel locations.
+ *  This class listens for mouse clicks and then finds the closest PixelBox 
+ *  that is "hit" by a ray through the current x,y pixel locations.  If the
+ *  scene is a DetectorSceneBase, the ray through x,y is calculated from the
+ *  camera's position, view reference point, up vector and view angle, and
+ *  passed to the scene's pickPixel() method, which finds the pixel without
+ *  rendering.  Otherwise, the JoglPanel's pickHitList() method is used.
  *
  *  One a hit, the handler will store the detector id and pixel id of any
  *  click on a detector pixel along with the unique pick ids for both.
@@ -114,29 +119,23 @@ public class PixelBoxPicker extends MouseAdapter
         int x = e.getX();
         int y = e.getY();
 
-        // Test object selection by printing the "hit list", giving the IDs
-        // for the object selected and it's named parents. 
-
-        HitRecord hitlist[] = my_panel.pickHitList( x, y );
-        if ( hitlist.length > 0 )
+        int name = pickName( x, y );
+        if ( name != Node.INVALID_PICK_ID )
           Toolkit.getDefaultToolkit().beep();
         
-        // Find closest hit
-        closestHit = null;
-        for ( int i = 0; i < hitlist.length; i++ ) {
-          //System.out.println("hit = " + hitlist[i] );
-          if(i == 0) 
-            closestHit = hitlist[i];
-          else if(hitlist[i].getMin() < closestHit.getMin()) 
-            closestHit = hitlist[i];     
-        }
-        
         // Traverse hit to find pixel id and detector id.
         pixel_pickid = detector_pickid = -1;
-        if(closestHit != null)
+        PixelDetectorGroup group = pixelGroup( name );
+        if( group != null )
+        { // Pixels of a DetectorSceneBase are not nodes
+          pixelid = group.getPixelIndex( name );
+          pixelval = group.getValue( pixelid );
+          pixel_pickid = name;
+          detectorid = group.getDetectorID();
+          detector_pickid = group.getPickID();
+        }
+        else if( name != Node.INVALID_PICK_ID )
         {
-           
-          int name = closestHit.lastName();
           Node node = Node.getNodeWithID( name );
           
           detectorid = pixelid = -1;
@@ -171,26 +170,15 @@ public class PixelBoxPicker extends MouseAdapter
         int x = e.getX();
         int y = e.getY();
 
-        // Test object selection by printing the "hit list", giving the IDs
-        // for the object selected and it's named parents. 
-
-        HitRecord hitlist[] = my_panel.pickHitList( x, y );
-
-        // Find closest hit
-        closestHit = null;
-        for ( int i = 0; i < hitlist.length; i++ ) {
-          //System.out.println("hit = " + hitlist[i] );
-          if(i == 0) 
-            closestHit = hitlist[i];
-          else if(hitlist[i].getMin() < closestHit.getMin()) 
-            closestHit = hitlist[i];     
-        }
+        int name = pickName( x, y );
         
         // Traverse hit to find pixel id and detector id.
         detector_pickid = -1;
-        if(closestHit != null)
+        PixelDetectorGroup group = pixelGroup( name );
+        if( group != null )
+          detector_pickid = group.getPickID();
+        else if( name != Node.INVALID_PICK_ID )
         {          
-          int name = closestHit.lastName();
           Node node = Node.getNodeWithID( name );
 
           while( node != null)
@@ -207,6 +195,69 @@ public class PixelBoxPicker extends MouseAdapter
      }
    }
    
+   /*
+    * Get the pick id of the object hit at pixel x, y.  For a 
+    * DetectorSceneBase, this uses the ray through pixel x, y calculated
+    * from the camera, so nothing is rendered.  Returns
+    * Node.INVALID_PICK_ID if nothing was hit.
+    */
+   private int pickName( int x, int y )
+   {
+     if ( my_panel.getScene() instanceof DetectorSceneBase )
+     {
+       Camera    camera  = my_panel.getCamera();
+       Component display = my_panel.getDisplayComponent();
+       float origin[]    = new float[3];
+       float direction[] = new float[3];
+       if ( camera == null ||
+            !PickRay.calculate( new Vector3D( camera.getCOP() ),
+                                new Vector3D( camera.getVRP() ),
+                                new Vector3D( camera.getVUV() ),
+                                camera.getViewAngle(),
+                                !( camera instanceof OrthographicCamera ),
+                                display.getWidth(),
+                                display.getHeight(),
+                                x, y, origin, direction ) )
+         return Node.INVALID_PICK_ID;
+
+       return ((DetectorSceneBase)my_panel.getScene()).
+                 pickPixel( new Vector3D( origin ), new Vector3D( direction ) );
+     }
+
+     // Use the "hit list", giving the IDs for the object selected and 
+     // it's named parents. 
+     HitRecord hitlist[] = my_panel.pickHitList( x, y );
+
+     // Find closest hit
+     closestHit = null;
+     for ( int i = 0; i < hitlist.length; i++ ) {
+       //System.out.println("hit = " + hitlist[i] );
+       if(i == 0) 
+         closestHit = hitlist[i];
+       else if(hitlist[i].getMin() < closestHit.getMin()) 
+         closestHit = hitlist[i];     
+     }
+
+     if ( closestHit == null )
+       return Node.INVALID_PICK_ID;
+
+     return closestHit.lastName();
+   }
+
+   /*
+    * Get the detector of a DetectorSceneBase that holds the pixel with the
+    * specified pick id, or null if the scene is not a DetectorSceneBase or
+    * the pick id is not the pick id of one of its pixels.
+    */
+   private PixelDetectorGroup pixelGroup( int name )
+   {
+     if ( name == Node.INVALID_PICK_ID ||
+          !( my_panel.getScene() instanceof DetectorSceneBase ) )
+       return null;
+
+     return ((DetectorSceneBase)my_panel.getScene()).getPixelGroup( name );
+   }
+
    /**
     * Returns Pixel ID.
     *
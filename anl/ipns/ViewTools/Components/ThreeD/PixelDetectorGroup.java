@@ -0,0 +1,465 @@
+/*
+ * File:  PixelDetectorGroup.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ *
+ *  $Author$
+ *  $Date$
+ *  $Revision$
+ */
+
+package gov.anl.ipns.ViewTools.Components.ThreeD;
+
+import java.awt.Color;
+
+import javax.media.opengl.*;
+
+import SSG_Tools.SSG_Nodes.Node;
+import SSG_Tools.SSG_Nodes.Groups.DetectorGroup;
+
+import gov.anl.ipns.Util.Numeric.UniqueIntGenerator;
+import gov.anl.ipns.ViewTools.Components.IPointList3D;
+import gov.anl.ipns.ViewTools.Components.IBoundsList3D;
+import gov.anl.ipns.ViewTools.Components.LogScaleColorModel;
+
+/**
+ *  This node draws all of the pixels of one detector, as boxes, rectangles
+ *  or dots.  Instead of one child shape per pixel, the centers, axes,
+ *  half widths, colors and values of the pixels are kept in arrays of
+ *  primitive values, so a detector with many pixels is made in one pass
+ *  over its point and bounds lists and can be recolored in one pass over
+ *  a new array of values.  Pixel i has pixel id i, and a unique pick id
+ *  getPixelPickID(i).  The pick ids of the pixels are a block of
+ *  consecutive values reserved from the UniqueIntGenerator, so
+ *  getPixelIndex() can map a pick id back to the pixel.  These pick ids
+ *  are not pick ids of scene graph nodes, so Node.getNodeWithID() can
+ *  not be used to find the pixels.  Instead, DetectorSceneBase.pickPixel()
+ *  finds the pick id of the pixel hit by a ray.
+ */
+public class PixelDetectorGroup extends DetectorGroup
+{
+  private int     shape_type;
+  private int     n_pixels;
+  private int     first_pick_id;
+
+  private float[] centers;        // x, y, z of the center of each pixel
+  private float[] axes;           // unit x, y and z axes of each pixel
+  private float[] half;           // half widths along the pixel's axes
+  private int[]   colors;         // RGB value of each pixel
+  private float[] values;         // data value of each pixel
+
+
+  /* --------------------------- constructor --------------------------- */
+  /**
+   * Make the pixels for a detector from a list of points and the bounds
+   * information for each point.  For a BOX, the pixel is centered at the
+   * point with its x and y axes in the directions of the oriented x and
+   * y axes from the bounds list, and has the widths given by the extents.
+   * For a RECTANGLE, the pixel is the parallelogram centered at the point,
+   * with sides given by the oriented x and y axes times the x and y
+   * extents.  For a DOT, the pixel is drawn as a two pixel dot at the
+   * point, but uses the box for picking.  All pixels are white until
+   * colors are set.
+   *
+   *  @param id          Detector id.
+   *  @param shapeType   DetectorSceneBase.BOX, RECTANGLE or DOT.
+   *  @param point_list  The center of each pixel, or null for a detector
+   *                     with no pixels.
+   *  @param bounds_list The extents and orientation of each pixel, with
+   *                     at least as many entries as point_list.
+   */
+  public PixelDetectorGroup( int           id,
+                             int           shapeType,
+                             IPointList3D  point_list,
+                             IBoundsList3D bounds_list )
+  {
+    super( id );
+
+    shape_type = shapeType;
+    n_pixels   = 0;
+    if ( point_list != null && bounds_list != null )
+      n_pixels = point_list.getNumPoints();
+
+    centers = new float[ 3 * n_pixels ];
+    axes    = new float[ 9 * n_pixels ];
+    half    = new float[ 3 * n_pixels ];
+    colors  = new int[ n_pixels ];
+    values  = new float[ n_pixels ];
+
+    java.util.Arrays.fill( colors, Color.WHITE.getRGB() );
+    if ( n_pixels == 0 )
+    {
+      first_pick_id = Node.INVALID_PICK_ID;
+      return;
+    }
+
+    first_pick_id = UniqueIntGenerator.getNextInts( n_pixels );
+
+    float[] x_axes = new float[ 3 * n_pixels ];
+    float[] y_axes = new float[ 3 * n_pixels ];
+    point_list.getCoordinates( 0, n_pixels - 1, centers, 0 );
+    bounds_list.getExtents( 0, n_pixels - 1, half, 0 );
+    bounds_list.getOrientations( 0, n_pixels - 1, x_axes, y_axes, 0 );
+
+    for ( int i = 0; i < 3 * n_pixels; i++ )
+      half[i] /= 2;
+
+    if ( shape_type == DetectorSceneBase.RECTANGLE )     // rectangles are
+      for ( int i = 0; i < n_pixels; i++ )               // flat
+        half[ 3*i + 2 ] = 0;
+
+    for ( int i = 0; i < n_pixels; i++ )
+      setAxes( i, x_axes, y_axes );
+  }
+
+
+  /**
+   * Return the type of shape used to draw the pixels.
+   *
+   *   @return DetectorSceneBase.BOX, RECTANGLE or DOT.
+   */
+  public int getShapeType()
+  {
+    return shape_type;
+  }
+
+
+  /**
+   * Return the number of pixels in this detector.
+   *
+   *   @return The number of pixels.
+   */
+  public int getNumPixels()
+  {
+    return n_pixels;
+  }
+
+
+  /**
+   * Return the unique pick id of a pixel.
+   *
+   *   @param  pixel  The pixel id, i.e. index, 0 <= pixel < getNumPixels().
+   *
+   *   @return The pick id for the pixel.
+   */
+  public int getPixelPickID( int pixel )
+  {
+    return first_pick_id + pixel;
+  }
+
+
+  /**
+   * Return the pick id of pixel 0.  The pixels have consecutive pick ids
+   * starting with this one.
+   *
+   *   @return The first pick id, or Node.INVALID_PICK_ID if there are
+   *           no pixels.
+   */
+  public int getFirstPickID()
+  {
+    return first_pick_id;
+  }
+
+
+  /**
+   * Return the pixel id of the pixel with the specified pick id.
+   *
+   *   @param  pick_id  A pick id returned by getPixelPickID().
+   *
+   *   @return The pixel id, or -1 if the pick id is not the pick id
+   *           of a pixel in this detector.
+   */
+  public int getPixelIndex( int pick_id )
+  {
+    if ( n_pixels == 0 || pick_id < first_pick_id )
+      return -1;
+
+    long pixel = (long)pick_id - first_pick_id;
+    if ( pixel >= n_pixels )
+      return -1;
+
+    return (int)pixel;
+  }
+
+
+  /**
+   * Set the color of one pixel.  The change will not be seen until the
+   * scene is rendered again.
+   *
+   *   @param  pixel  The pixel id.
+   *   @param  color  The new color of the pixel.
+   */
+  public void setColor( int pixel, Color color )
+  {
+    colors[pixel] = color.getRGB();
+  }
+
+
+  /**
+   * Return the color of one pixel.
+   *
+   *   @param  pixel  The pixel id.
+   *
+   *   @return The color of the pixel.
+   */
+  public Color getColor( int pixel )
+  {
+    return new Color( colors[pixel] );
+  }
+
+
+  /**
+   * Set the value of one pixel.  This does not change the color.
+   *
+   *   @param  pixel  The pixel id.
+   *   @param  value  The new value of the pixel.
+   */
+  public void setValue( int pixel, float value )
+  {
+    values[pixel] = value;
+  }
+
+
+  /**
+   * Return the value of one pixel.
+   *
+   *   @param  pixel  The pixel id.
+   *
+   *   @return The value of the pixel.
+   */
+  public float getValue( int pixel )
+  {
+    return values[pixel];
+  }
+
+
+  /**
+   * Set the values of all of the pixels and color each pixel using the
+   * specified color model, in one pass over the values.
+   *
+   *   @param  new_values  Array with the value of each pixel.
+   *   @param  model       The color model that maps values to colors.
+   *
+   *   @throws IllegalArgumentException If there are fewer values than
+   *           pixels, or if a value is outside of the range of the model.
+   */
+  public void setValues( float[] new_values, LogScaleColorModel model )
+  {
+    if ( new_values.length < n_pixels )
+      throw new IllegalArgumentException( "Only " + new_values.length +
+                                          " values for " + n_pixels +
+                                          " pixels" );
+
+    System.arraycopy( new_values, 0, values, 0, n_pixels );
+    for ( int i = 0; i < n_pixels; i++ )
+      colors[i] = model.getRGB( values[i] );
+  }
+
+
+  /**
+   * Copy the boxes used to pick the pixels into packed arrays, in the form
+   * used to construct a BoxBVH, starting with pixel 0 at position
+   * 3*offset in each array.
+   *
+   *   @param  box_centers  Array to hold the centers of the boxes.
+   *   @param  x_axes       Array to hold the directions of the x axes.
+   *   @param  y_axes       Array to hold the directions of the y axes.
+   *   @param  extents      Array to hold the full widths of the boxes.
+   *   @param  offset       Position of the first pixel in the BoxBVH.
+   */
+  public void getBoxes( float[] box_centers,
+                        float[] x_axes,
+                        float[] y_axes,
+                        float[] extents,
+                        int     offset )
+  {
+    System.arraycopy( centers, 0, box_centers, 3 * offset, 3 * n_pixels );
+    for ( int i = 0; i < n_pixels; i++ )
+      for ( int j = 0; j < 3; j++ )
+      {
+        x_axes [ 3 * ( offset + i ) + j ] = axes[ 9*i + j ];
+        y_axes [ 3 * ( offset + i ) + j ] = axes[ 9*i + 3 + j ];
+        extents[ 3 * ( offset + i ) + j ] = 2 * half[ 3*i + j ];
+      }
+  }
+
+
+  /**
+   * Find the bounding box of the centers of the pixels.
+   *
+   *   @param  min_point  Array with the minimum x, y, z so far, which is
+   *                      lowered to include the centers of the pixels.
+   *   @param  max_point  Array with the maximum x, y, z so far, which is
+   *                      raised to include the centers of the pixels.
+   */
+  public void getCenterBounds( float[] min_point, float[] max_point )
+  {
+    for ( int i = 0; i < n_pixels; i++ )
+      for ( int j = 0; j < 3; j++ )
+      {
+        float c = centers[ 3*i + j ];
+        if ( c > max_point[j] ) max_point[j] = c;
+        if ( c < min_point[j] ) min_point[j] = c;
+      }
+  }
+
+
+  /**
+   * Draw all of the pixels, in one begin/end block of quads or points.
+   *
+   *   @param  drawable  The drawable on which the pixels are rendered.
+   */
+  public void Render( GLAutoDrawable drawable )
+  {
+    if ( n_pixels == 0 )
+      return;
+
+    GL gl = drawable.getGL();
+
+    if ( shape_type == DetectorSceneBase.DOT )
+    {
+      gl.glPointSize( 2 );
+      gl.glBegin( GL.GL_POINTS );
+      for ( int i = 0; i < n_pixels; i++ )
+      {
+        setColor( gl, i );
+        gl.glVertex3f( centers[3*i], centers[3*i+1], centers[3*i+2] );
+      }
+      gl.glEnd();
+      return;
+    }
+
+    gl.glBegin( GL.GL_QUADS );
+    float[] u = new float[3];
+    float[] v = new float[3];
+    float[] w = new float[3];
+    for ( int i = 0; i < n_pixels; i++ )
+    {
+      setColor( gl, i );
+      for ( int j = 0; j < 3; j++ )                   // half edge vectors
+      {
+        u[j] = axes[ 9*i + j     ] * half[ 3*i     ];
+        v[j] = axes[ 9*i + j + 3 ] * half[ 3*i + 1 ];
+        w[j] = axes[ 9*i + j + 6 ] * half[ 3*i + 2 ];
+      }
+      float cx = centers[3*i],
+            cy = centers[3*i+1],
+            cz = centers[3*i+2];
+
+      if ( shape_type == DetectorSceneBase.RECTANGLE )
+        face( gl, i, 6, cx, cy, cz, u, v );
+      else
+      {                                     // the two faces along each axis
+        face( gl, i, 6, cx + w[0], cy + w[1], cz + w[2], u, v );
+        face( gl, i, 6, cx - w[0], cy - w[1], cz - w[2], v, u );
+        face( gl, i, 0, cx + u[0], cy + u[1], cz + u[2], v, w );
+        face( gl, i, 0, cx - u[0], cy - u[1], cz - u[2], w, v );
+        face( gl, i, 3, cx + v[0], cy + v[1], cz + v[2], w, u );
+        face( gl, i, 3, cx - v[0], cy - v[1], cz - v[2], u, w );
+      }
+    }
+    gl.glEnd();
+  }
+
+
+  /* ------------------------------ setAxes ------------------------------ */
+  /*
+   *  Set the unit x, y and z axes of pixel i from the given x and y
+   *  directions.  The z axis is in the direction of x cross y.  For a
+   *  box, y is adjusted to be perpendicular to x, but for a rectangle
+   *  it is kept so the pixel is the same parallelogram as before.
+   */
+  private void setAxes( int i, float[] x_axes, float[] y_axes )
+  {
+    float x0 = x_axes[3*i], x1 = x_axes[3*i+1], x2 = x_axes[3*i+2];
+    float y0 = y_axes[3*i], y1 = y_axes[3*i+1], y2 = y_axes[3*i+2];
+
+    float z0 = x1 * y2 - x2 * y1,
+          z1 = x2 * y0 - x0 * y2,
+          z2 = x0 * y1 - x1 * y0;
+
+    float x_len = (float)Math.sqrt( x0 * x0 + x1 * x1 + x2 * x2 );
+    float y_len = (float)Math.sqrt( y0 * y0 + y1 * y1 + y2 * y2 );
+    float z_len = (float)Math.sqrt( z0 * z0 + z1 * z1 + z2 * z2 );
+    if ( !( x_len > 0 ) || !( z_len > 0 ) )
+    {                                       // use the default orientation
+      x0 = 1; x1 = 0; x2 = 0;
+      y0 = 0; y1 = 1; y2 = 0;
+      z0 = 0; z1 = 0; z2 = 1;
+    }
+    else
+    {
+      x0 /= x_len; x1 /= x_len; x2 /= x_len;
+      y0 /= y_len; y1 /= y_len; y2 /= y_len;
+      z0 /= z_len; z1 /= z_len; z2 /= z_len;
+      if ( shape_type != DetectorSceneBase.RECTANGLE )
+      {
+        y0 = z1 * x2 - z2 * x1;
+        y1 = z2 * x0 - z0 * x2;
+        y2 = z0 * x1 - z1 * x0;
+      }
+    }
+
+    int k = 9 * i;
+    axes[k]   = x0; axes[k+1] = x1; axes[k+2] = x2;
+    axes[k+3] = y0; axes[k+4] = y1; axes[k+5] = y2;
+    axes[k+6] = z0; axes[k+7] = z1; axes[k+8] = z2;
+  }
+
+
+  /* ------------------------------ setColor ----------------------------- */
+  /*
+   *  Set the current GL color to the color of pixel i.
+   */
+  private void setColor( GL gl, int i )
+  {
+    int rgb = colors[i];
+    gl.glColor3ub( (byte)( rgb >> 16 ), (byte)( rgb >> 8 ), (byte)rgb );
+  }
+
+
+  /* -------------------------------- face ------------------------------- */
+  /*
+   *  Draw the quad centered at (cx,cy,cz) with half edges a and b, using
+   *  the unit axis of pixel i starting at axes[9*i+normal] as the normal.
+   */
+  private void face( GL gl, int i, int normal,
+                     float cx, float cy, float cz, float[] a, float[] b )
+  {
+    int k = 9 * i + normal;
+    float sign = ( a[0] * b[1] - a[1] * b[0] ) * axes[k+2] +
+                 ( a[1] * b[2] - a[2] * b[1] ) * axes[k]   +
+                 ( a[2] * b[0] - a[0] * b[2] ) * axes[k+1]
+                 >= 0 ? 1 : -1;
+    gl.glNormal3f( sign * axes[k], sign * axes[k+1], sign * axes[k+2] );
+    gl.glVertex3f( cx - a[0] - b[0], cy - a[1] - b[1], cz - a[2] - b[2] );
+    gl.glVertex3f( cx + a[0] - b[0], cy + a[1] - b[1], cz + a[2] - b[2] );
+    gl.glVertex3f( cx + a[0] + b[0], cy + a[1] + b[1], cz + a[2] + b[2] );
+    gl.glVertex3f( cx - a[0] + b[0], cy - a[1] + b[1], cz - a[2] + b[2] );
+  }
+
+}
@@ -393,6 +393,7 @@ package gov.anl.ipns.ViewTools.Components.Transparency;
 import javax.swing.*;
 import javax.swing.text.html.HTMLEditorKit;
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.awt.event.ActionListener;
 import java.awt.event.ActionEvent;
 import java.beans.PropertyChangeEvent;
@@ -512,6 +513,10 @@ public class SelectionOverlay extends OverlayJPanel {
   private Vector<RegionOpEditFrame> Editors = new Vector<RegionOpEditFrame>();
   private floatPoint2D[] cursorPoints;
   private CursorTag cursor;
+                                           // rendered selection interiors,
+                                           // one for each named selection
+  private transient Hashtable<String, SelectionRaster> selection_rasters =
+                                     new Hashtable<String, SelectionRaster>();
 
 
   /**
@@ -1027,15 +1032,36 @@ public class SelectionOverlay extends OverlayJPanel {
       CoordTransform world_to_array = ivc.getWorldToArrayTransform();
       CoordTransform array_global = CoordTransform.inverse(world_to_array);
 
-      for( RegionOpListWithColor list:regionOpLists.values() ) 
+      if ( selection_rasters == null )
+        selection_rasters = new Hashtable<String, SelectionRaster>();
+
+                                       // drop rasters of removed selections
+      selection_rasters.keySet().retainAll( regionOpLists.keySet() );
+
+      for( String name:regionOpLists.keySet() ) 
       {
-        Point[] point_array = list.getSelectedPoints(world_to_array);
+        RegionOpListWithColor list = regionOpLists.get( name );
+        SelectionRaster raster = selection_rasters.get( name );
+        if ( raster == null || 
+            !raster.isValid( list, world_to_array, current_bounds ) )
+        {
+          raster = new SelectionRaster( list, 
+                                        world_to_array, 
+                                        array_global,
+                                        current_bounds );
+          selection_rasters.put( name, raster );
+        }
 
-        g2d.setColor(list.getColor());
-        ac = AlphaComposite.getInstance( AlphaComposite.SRC_OVER, 
-                                         list.getOpacity() );
-        g2d.setComposite(ac);
-        paintPointArray(g2d, point_array, array_global);
+        if ( raster.image != null )
+        {
+          ac = AlphaComposite.getInstance( AlphaComposite.SRC_OVER, 
+                                           list.getOpacity() );
+          g2d.setComposite(ac);
+          g2d.drawImage( raster.image, 
+                         current_bounds.x, 
+                         current_bounds.y, 
+                         null );
+        }
       }
     }
 
@@ -1285,32 +1311,23 @@ public class SelectionOverlay extends OverlayJPanel {
 
 
   /** 
-   * Draw scan lines through the region determined by the array of points.
-   * Assumptions: 
-   *   The Point[] is completely filled w/ no gaps.  
-   *   The Point[] has points in order from left to right starting from 
-   *   top row to bottom(like reading).
+   * Draw scan lines through the spans of selected array elements.
+   * Each span is a run of consecutive columns in one row of the array,
+   * so one line is drawn for each span.
    *
    * NOTE: This method will only be used for selection from the
-   *       ImageViewComponent.  In that case the array of points will contain
-   *       Row,col values for array elements of the array be displayed as an
-   *       image.  This method will convert the row,col coordinates to 
-   *       pixel coordinates before drawing.  That conversion is not done
-   *       yet.
+   *       ImageViewComponent.  In that case the spans will contain
+   *       row,col values for array elements of the array being displayed as
+   *       an image.  This method converts the row,col coordinates to 
+   *       pixel coordinates before drawing.
    *
    *  @param   g            The Graphics2D object to draw on
-   *  @param   p            The array of points to draw scan lines through
+   *  @param   spans        The spans of selected array elements
    *  @param   array_global The current array to world coordinate transform
    */
-  private void paintPointArray( Graphics2D g, 
-                                Point[]    p,
-                                CoordTransform array_global ) {
-    boolean shouldPaint = false;
-    int x_initial = -1;                  // Initial x for draw line command
-    int y_initial = -1;                  // Initial y for draw line command
-    int x_final = -1;                    // Final x for draw line command
-    int y_final = -1;                    // Final y for draw line command
-
+  private void paintSpans( Graphics2D     g, 
+                           RegionSpans    spans,
+                           CoordTransform array_global ) {
     int lineThickness;                   //"height" of bars drawn though points
     int pixelOffset;                     // left & right offset for bars
 
@@ -1332,49 +1349,99 @@ public class SelectionOverlay extends OverlayJPanel {
 
     pixelOffset = (int)Math.abs(Math.round(.2*((pt1.x - pt2.x))));
 
-                                          // NOW process each selected point
-                                          // and draw the lines through points
-
-    //----------------------------------Loop through all points
-    for (int i = 0; i < p.length; i++) {
-      //--------------------------for all points other then last
-      if (i != p.length - 1) {
-        //-------------------------------to find the initial x & y
-        if (x_initial == -1) {
-          x_initial = p[i].x;
-          y_initial = p[i].y;
-        }
+    for ( int i = 0; i < spans.getNumSpans(); i++ ) {
+      int row = spans.getRow( i );
+      Point p1 = ArrayToPixel( spans.getFirstColumn( i ), row, array_global );
+      Point p2 = ArrayToPixel( spans.getLastColumn( i ),  row, array_global );
+       
+      g.drawLine( p1.x-pixelOffset, p1.y, 
+                  p2.x+pixelOffset, p2.y );
+    }
+  }
 
-        //----------------------------------------------to find the final x & y
-        if (!(p[i + 1].x - p[i].x <= 1) || p[i].y != p[i + 1].y) {
-          x_final = p[i].x;
-          y_final = p[i].y;
-          shouldPaint = true;
-        }
-      } else {
-        x_final = p[i].x;
-        y_final = p[i].y;
 
-        if (y_final != y_initial) {
-          x_initial = p[i].x;
-          y_initial = p[i].y;
-        }
+  /**
+   *  This class holds the interior of one named selection, drawn once
+   *  in the selection color into an image the size of the central 
+   *  JPanel.  The image is only rebuilt if regions are added, removed 
+   *  or replaced, if the color changes, or if the array to pixel mapping
+   *  changes, (e.g. on zoom or resize).  The opacity is applied when the
+   *  image is drawn, so changing it does not require a new image.
+   */
+  private class SelectionRaster
+  {
+    BufferedImage  image;             // null if nothing is selected
+    int            version;
+    RegionOp[]     ops;
+    Color          color;
+    CoordTransform world_to_array;
+    CoordTransform pixel_to_world;
+    Rectangle      bounds;
+
+    /**
+     *  Draw the selected points of the list into a new image.
+     *
+     *  @param  list           The list of regions and operations
+     *  @param  world_to_array The current world to array transform
+     *  @param  array_global   The inverse of world_to_array
+     *  @param  bounds         The location and size of the central JPanel
+     */
+    SelectionRaster( RegionOpListWithColor list,
+                     CoordTransform        world_to_array,
+                     CoordTransform        array_global,
+                     Rectangle             bounds )
+    {
+      version             = list.getVersion();
+      ops                 = list.getList().toArray( new RegionOp[0] );
+      color               = list.getColor();
+      this.world_to_array = new CoordTransform( world_to_array );
+      pixel_to_world      = new CoordTransform( pixel_local );
+      this.bounds         = new Rectangle( bounds );
+
+      if ( bounds.width <= 0 || bounds.height <= 0 )
+        return;
 
-        shouldPaint = true;
-      }
+      RegionSpans spans = list.getSelectedSpans( world_to_array );
+      if ( spans.getNumSpans() == 0 )
+        return;
 
-      if (shouldPaint) {                         // first map from array coords
-                                                 // to pixel coords
-        Point p1 = ArrayToPixel(x_initial, y_initial, array_global);
-        Point p2 = ArrayToPixel(x_final, y_final, array_global);
-       
-        g.drawLine( p1.x-pixelOffset, p1.y, 
-                    p2.x+pixelOffset, p2.y );    // Then draw the line 
+      image = new BufferedImage( bounds.width, 
+                                 bounds.height, 
+                                 BufferedImage.TYPE_INT_ARGB );
+      Graphics2D g = image.createGraphics();
+      g.translate( -bounds.x, -bounds.y );
+      g.setColor( color );
+      paintSpans( g, spans, array_global );
+      g.dispose();
+    }
 
-        x_initial = -1;                          // and reset initial and flag
-        y_initial = -1;
-        shouldPaint = false;
-      }
+    /**
+     *  Check whether this image still shows the selection of the list,
+     *  using the current transforms and the current panel bounds.
+     *
+     *  @return true if the image can be drawn as is.
+     */
+    boolean isValid( RegionOpListWithColor list,
+                     CoordTransform        world_to_array,
+                     Rectangle             bounds )
+    {
+      if ( version != list.getVersion()        ||
+          !color.equals( list.getColor() )     ||
+          !this.bounds.equals( bounds )        ||
+          !this.world_to_array.equals( world_to_array ) ||
+          !pixel_to_world.equals( pixel_local ) )
+        return false;
+                                        // regions may also be replaced or
+                                        // removed directly through getList()
+      Vector<RegionOp> list_ops = list.getList();
+      if ( ops.length != list_ops.size() )
+        return false;
+
+      for ( int i = 0; i < ops.length; i++ )
+        if ( ops[i] != list_ops.get(i) )
+          return false;
+
+      return true;
     }
   }
 
@@ -74,6 +74,13 @@ abstract public class ViewComponent2DwSelection implements IViewComponent2D {
    abstract public void dataChanged( IVirtualArray2D v2d );
 
 
+   /* (non-Javadoc)
+    * @see gov.anl.ipns.ViewTools.Components.TwoD.IViewComponent2D#dataChanged(int, int, int, int)
+    */
+   abstract public void dataChanged( int row_start, int row_end,
+                                     int col_start, int col_end );
+
+
    /* (non-Javadoc)
     * @see gov.anl.ipns.ViewTools.Components.TwoD.IViewComponent2D#getPointedAt()
     */
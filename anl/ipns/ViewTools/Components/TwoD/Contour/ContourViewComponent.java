@@ -605,6 +605,23 @@ public class ContourViewComponent implements IViewComponent2D, Serializable
       layoutHandler.changeDisplay();
    }
 
+   /**
+    * Invoked to inform this ViewComponent that the values in the 
+    * specified block of its data have changed.  Contours can pass 
+    * through the whole array, so this is the same as 
+    * <code>dataChanged()</code>.
+    * 
+    * @param row_start The first row of the block that changed.
+    * @param row_end   The last row of the block that changed.
+    * @param col_start The first column of the block that changed.
+    * @param col_end   The last column of the block that changed.
+    */
+   public void dataChanged(int row_start, int row_end, 
+                           int col_start, int col_end)
+   {
+      dataChanged();
+   }
+
    /**
     * Adds the specified <code>ActionListener</code> to this ViewComponent.
     * 
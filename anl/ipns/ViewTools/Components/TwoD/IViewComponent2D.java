@@ -147,4 +147,19 @@ public interface IViewComponent2D extends IViewComponent
   */ 
   public void dataChanged(IVirtualArray2D v2D);
 
+
+ /**
+  * This method is invoked to notify the view component that only the
+  * values in the specified block of the current IVirtualArray have 
+  * changed, so that only the part of the display showing those values
+  * needs to be updated.
+  *
+  *  @param  row_start - first row of the block that changed
+  *  @param  row_end   - last row of the block that changed
+  *  @param  col_start - first column of the block that changed
+  *  @param  col_end   - last column of the block that changed
+  */ 
+  public void dataChanged( int row_start, int row_end, 
+                           int col_start, int col_end );
+
 }
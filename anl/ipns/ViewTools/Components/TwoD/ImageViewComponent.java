@@ -1791,6 +1791,9 @@ public class ImageViewComponent extends ViewComponent2DwSelection
     // If the original data passed in was null, do nothing.
     if( null_data )
       return;
+    // The values may have been changed without using the set methods of
+    // the virtual array, so its cached statistics can't be trusted.
+    invalidateStatistics( Varray2D );
     ijp.setData(Varray2D, true); 
     ijp.enableAutoDataRange( autoScale );
     if( !autoScale)
@@ -1823,6 +1826,43 @@ public class ImageViewComponent extends ViewComponent2DwSelection
   }
 
  
+ /**
+  * This method will be called to notify this component that only the 
+  * values in the specified block of the virtual array have changed, for
+  * example by a live data display.  The cached statistics of the array are
+  * only updated for the changed rows, and only the part of the image that
+  * shows the block is recolored.  If the auto data range is enabled and 
+  * the range of the data changed, the whole image is rebuilt, along with
+  * any calibrated color scales.  The rest of the view component is not 
+  * rebuilt.
+  *
+  *  @param  row_start  The first row of the block that changed.
+  *  @param  row_end    The last row of the block that changed.
+  *  @param  col_start  The first column of the block that changed.
+  *  @param  col_end    The last column of the block that changed.
+  */
+  public void dataChanged( int row_start, int row_end, 
+                           int col_start, int col_end )
+  {
+    // If the original data passed in was null, do nothing.
+    if( null_data )
+      return;
+
+    if ( !ijp.dataChanged( row_start, row_end, col_start, col_end ) )
+    {
+      // The data range changed, so redraw the calibrated color scales.
+      if( addColorControlEast || addColorControlSouth )
+      {
+        buildViewComponent();
+        paintComponents();
+      }
+    }
+    ijp.repaint();
+    // The thumbnail in the PanViewControl is made again when repainted.
+    ((PanViewControl)controls[9]).repaint();
+  }
+
+ 
  /**
   * This method will be called to notify this component of a change in data 
   * and an entirely new VirtualArray is used.
@@ -1843,6 +1883,10 @@ public class ImageViewComponent extends ViewComponent2DwSelection
       big_picture.repaint();
       return;
     }
+    // The same virtual array may have been changed without using its
+    // set methods, so its cached statistics can't be trusted.
+    if( pin_Varray == Varray2D )
+      invalidateStatistics( Varray2D );
     // compare references, if not the same, reinitialize the virtual array.
     if( true )//pin_Varray=Varray2D
     { 
@@ -2180,6 +2224,16 @@ public class ImageViewComponent extends ViewComponent2DwSelection
     }
   }
  
+ /*
+  * Mark the cached statistics of the virtual array as out of date, if it
+  * keeps them.
+  */
+  private void invalidateStatistics( IVirtualArray2D array )
+  {
+    if ( array instanceof IStatisticsArray2D )
+      ((IStatisticsArray2D)array).getStatistics().invalidateAll();
+  }
+
  /*
   * This method repaints the ImageViewComponent correctly
   */ 
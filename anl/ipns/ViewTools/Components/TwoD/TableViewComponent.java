@@ -478,6 +478,23 @@ public class TableViewComponent implements IViewComponent2D, IPreserveState
     }
   }
   
+ /**
+  * This method is invoked to notify the view component that the values
+  * in the specified block of the array have changed.  The table shows
+  * the current values when it is repainted, so this is the same as
+  * dataChanged().
+  *
+  *  @param  row_start - first row of the block that changed
+  *  @param  row_end   - last row of the block that changed
+  *  @param  col_start - first column of the block that changed
+  *  @param  col_end   - last column of the block that changed
+  */ 
+  public void dataChanged( int row_start, int row_end,
+                           int col_start, int col_end )
+  {
+    dataChanged();
+  }
+  
  /**
   * This method is invoked to notify the view component when a new set of
   * data needs to be displayed. 
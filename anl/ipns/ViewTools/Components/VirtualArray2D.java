@@ -118,7 +118,9 @@ import gov.anl.ipns.Util.Sys.SharedMessages;
  * are numbered 0 - M-1 and the columns are numbered 0 - N-1. 
  */
 
-public class VirtualArray2D implements IMutableVirtualArray2D, Serializable
+public class VirtualArray2D implements IMutableVirtualArray2D, 
+                                       IStatisticsArray2D,
+                                       Serializable
 {
   // data members
   private float[][] dataArray;
@@ -131,6 +133,7 @@ public class VirtualArray2D implements IMutableVirtualArray2D, Serializable
   private float[][] errorArray;      // array of error values.
   private boolean errors_set;        // has setErrors() method been called.
   private boolean use_sqrt;          // should square-root errors be used.
+  private transient ArrayStatistics statistics;  // made when first needed
 
    
  /**
@@ -340,7 +343,10 @@ public class VirtualArray2D implements IMutableVirtualArray2D, Serializable
   {
     if(    row >= 0  &&     row < num_rows   &&
         column >= 0  &&  column < dataArray[row].length )
+    {
       dataArray[row][column] = value;
+      invalidateStatistics( row, row );
+    }
     else
     {
       SharedMessages.addmsg("Warning - cell at position (" +
@@ -436,6 +442,7 @@ public class VirtualArray2D implements IMutableVirtualArray2D, Serializable
       i++;
       start++;
     }
+    invalidateStatistics( row, row );
   }	   
    
 
@@ -514,6 +521,7 @@ public class VirtualArray2D implements IMutableVirtualArray2D, Serializable
     }
     if( column < num_columns && column >= 0 )
     {
+      invalidateStatistics( start, start + values.length - 1 );
       int i = 0;
       while( i < values.length && start < num_rows )
       {
@@ -542,6 +550,9 @@ public class VirtualArray2D implements IMutableVirtualArray2D, Serializable
     for( int row = 0; row < num_rows; row++ )
       for( int col = 0; col < dataArray[row].length; col++ )
         dataArray[row][col] = value;
+
+    if ( statistics != null )
+      statistics.invalidateAll();
   }
   
 
@@ -823,6 +834,34 @@ public class VirtualArray2D implements IMutableVirtualArray2D, Serializable
   }
 
   
+ /**
+  * Get the statistics of the values in this array.  The statistics are
+  * computed when first needed, and after that only the rows changed by
+  * the set methods of this class are read again.  If the values are 
+  * changed in some other way, such as through the reference returned by
+  * getRegionValues(), the invalidateAll() method of the ArrayStatistics
+  * object must be called.
+  *
+  *  @return the ArrayStatistics object for this array.
+  */
+  public ArrayStatistics getStatistics()
+  {
+    if ( statistics == null )
+      statistics = new ArrayStatistics( this, true );
+    return statistics;
+  }
+
+
+ /*
+  * Mark the specified rows as changed, if the statistics have been made.
+  */
+  private void invalidateStatistics( int first_row, int last_row )
+  {
+    if ( statistics != null )
+      statistics.invalidateRows( first_row, last_row );
+  }
+
+
  /*
   * MAIN - Basic main program to test the VirtualArray2D class
   */
@@ -42,11 +42,16 @@ package gov.anl.ipns.ViewTools.Panels.Contour;
 
 import gov.anl.ipns.Util.Numeric.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class Contour2D
 {
   public static int counter[] = { 0, 0, 0, 0, 0 };
 
+                                        // smallest number of squares that
+                                        // one fork/join task will contour
+  private static final int MIN_SQUARES_PER_TASK = 65536;
+
   /**
    *  Don't instantiate this class.
    */
@@ -244,6 +249,562 @@ public class Contour2D
     }
   }
 
+  /**
+   *  Make the contour lines for all of the specified levels, in one pass
+   *  over the array.  The line segments in each square are the same as 
+   *  those that contour( vals, level ) would give for each level, but 
+   *  they are returned as polylines, in primitive arrays.  Segments in 
+   *  neighboring squares that meet on the same edge of the grid are joined
+   *  into one polyline.  For each square, only the levels between the 
+   *  smallest and largest value at the corners of the square are checked,
+   *  so the time does not grow much with the number of levels.
+   *
+   *  @param  vals    Rectangular array of values for which contour lines are
+   *                  to be generated.
+   *  @param  levels  The levels at which contour lines are to be generated.
+   *                  The levels need not be in increasing order.
+   *
+   *  @return  An array with one ContourLines object for each level, in the
+   *           same order as the levels.  The x coordinates of the points are
+   *           column numbers and the y coordinates are row numbers.  If the
+   *           array of values is not valid, each ContourLines object will be
+   *           empty.
+   */
+  public static ContourLines[] contour( float vals[][], float levels[] )
+  {
+    float sorted[] = sortLevels( levels );
+
+    SegmentList segments[] = new SegmentList[ sorted.length ];
+    for ( int i = 0; i < segments.length; i++ )
+      segments[i] = new SegmentList();
+
+    if ( isValidArray( vals ) )
+      findSegments( vals, sorted, 0, vals.length - 1, segments );
+
+    return joinAll( levels, sorted, segments, vals );
+  }
+
+
+  /**
+   *  Make the contour lines for all of the specified levels, using the 
+   *  common fork/join pool.  The result is the same as that of 
+   *  contour( vals, levels ).  The array is split into bands of rows that
+   *  are contoured in parallel.  The segments from all bands are then 
+   *  joined into polylines, one level per task, so contour lines that 
+   *  cross the boundary between two bands are joined as usual.
+   *
+   *  @param  vals    Rectangular array of values for which contour lines are
+   *                  to be generated.
+   *  @param  levels  The levels at which contour lines are to be generated.
+   *                  The levels need not be in increasing order.
+   *
+   *  @return  An array with one ContourLines object for each level, in the
+   *           same order as the levels.
+   */
+  public static ContourLines[] contourParallel( float vals[][], 
+                                                float levels[] )
+  {
+    return contour( vals, levels, ForkJoinPool.commonPool() );
+  }
+
+
+  /**
+   *  Make the contour lines for all of the specified levels, using the 
+   *  specified fork/join pool.  This is the same as contourParallel(), 
+   *  but the caller can choose the pool, and so the number of threads.
+   *
+   *  @param  vals    Rectangular array of values for which contour lines are
+   *                  to be generated.
+   *  @param  levels  The levels at which contour lines are to be generated.
+   *  @param  pool    The fork/join pool that does the work.
+   *
+   *  @return  An array with one ContourLines object for each level, in the
+   *           same order as the levels.
+   */
+  public static ContourLines[] contour( float        vals[][], 
+                                        float        levels[],
+                                        ForkJoinPool pool )
+  {
+    if ( !isValidArray( vals ) )
+      return contour( vals, levels );
+
+    float sorted[] = sortLevels( levels );
+
+    SegmentList segments[] = 
+       pool.invoke( new BandTask( vals, sorted, 0, vals.length - 1 ) );
+
+    ContourLines lines[] = new ContourLines[ levels.length ];
+    pool.invoke( new JoinTask( levels, sorted, segments, lines, 
+                               0, levels.length - 1 ) );
+    return lines;
+  }
+
+
+  /* ----------------------------- BandTask ------------------------------ */
+  /*
+   *  Finds the segments in the squares with top rows first_row, ..., 
+   *  last_row - 1, splitting the band of rows in half until it is small
+   *  enough.  The segments of the lower half are appended to those of
+   *  the upper half, so the order of the segments is the same as for one
+   *  thread.
+   */
+  private static class BandTask extends RecursiveTask<SegmentList[]>
+  {
+    private float vals[][];
+    private float sorted[];
+    private int   first_row;
+    private int   last_row;
+
+    BandTask( float vals[][], float sorted[], int first_row, int last_row )
+    {
+      this.vals      = vals;
+      this.sorted    = sorted;
+      this.first_row = first_row;
+      this.last_row  = last_row;
+    }
+
+    protected SegmentList[] compute()
+    {
+      int n_rows = last_row - first_row;
+      if ( n_rows > 1 && 
+           (long)n_rows * vals[0].length > 2 * MIN_SQUARES_PER_TASK )
+      {
+        int mid = ( first_row + last_row ) / 2;
+        BandTask lower = new BandTask( vals, sorted, mid, last_row );
+        lower.fork();
+        SegmentList upper[] = 
+                  new BandTask( vals, sorted, first_row, mid ).compute();
+        SegmentList rest[] = lower.join();
+        for ( int i = 0; i < upper.length; i++ )
+          upper[i].addAll( rest[i] );
+        return upper;
+      }
+
+      SegmentList segments[] = new SegmentList[ sorted.length ];
+      for ( int i = 0; i < segments.length; i++ )
+        segments[i] = new SegmentList();
+      findSegments( vals, sorted, first_row, last_row, segments );
+      return segments;
+    }
+  }
+
+
+  /* ----------------------------- JoinTask ------------------------------ */
+  /*
+   *  Joins the segments into polylines for the levels first, ..., last, 
+   *  splitting the range of levels in half until there is one level.
+   */
+  private static class JoinTask extends RecursiveAction
+  {
+    private float        levels[];
+    private float        sorted[];
+    private SegmentList  segments[];
+    private ContourLines lines[];
+    private int          first;
+    private int          last;
+
+    JoinTask( float        levels[],
+              float        sorted[],
+              SegmentList  segments[],
+              ContourLines lines[],
+              int          first,
+              int          last )
+    {
+      this.levels   = levels;
+      this.sorted   = sorted;
+      this.segments = segments;
+      this.lines    = lines;
+      this.first    = first;
+      this.last     = last;
+    }
+
+    protected void compute()
+    {
+      if ( first < last )
+      {
+        int mid = ( first + last + 1 ) / 2;
+        invokeAll( new JoinTask( levels, sorted, segments, lines, 
+                                 first, mid - 1 ),
+                   new JoinTask( levels, sorted, segments, lines, 
+                                 mid, last ) );
+        return;
+      }
+
+      for ( int i = first; i <= last; i++ )
+        lines[i] = segments[ Arrays.binarySearch( sorted, levels[i] ) ]
+                     .join( levels[i] );
+    }
+  }
+
+
+  /**
+   *  Check that the array of values is a non-empty rectangular array.
+   */
+  static boolean isValidArray( float vals[][] )
+  {
+    if ( vals == null || vals.length <= 0 || vals[0] == null )
+      return false;
+
+    for ( int i = 0; i < vals.length; i++ )
+      if ( vals[i] == null || vals[i].length != vals[0].length )
+        return false;
+
+    return true;
+  }
+
+
+  /**
+   *  Get a sorted copy of the levels.
+   */
+  static float[] sortLevels( float levels[] )
+  {
+    float sorted[] = new float[ levels.length ];
+    System.arraycopy( levels, 0, sorted, 0, levels.length );
+    Arrays.sort( sorted );
+    return sorted;
+  }
+
+
+  /**
+   *  Join the segments found for each of the sorted levels, and return 
+   *  the ContourLines in the order of the original levels.
+   */
+  static ContourLines[] joinAll( float         levels[],
+                                 float         sorted[],
+                                 SegmentList   segments[],
+                                 float         vals[][] )
+  {
+    ContourLines lines[] = new ContourLines[ levels.length ];
+    for ( int i = 0; i < levels.length; i++ )
+      lines[i] = segments[ Arrays.binarySearch( sorted, levels[i] ) ]
+                   .join( levels[i] );
+    return lines;
+  }
+
+
+  /**
+   *  Find the contour line segments for all of the sorted levels, in the
+   *  squares with top rows first_row, ..., last_row - 1.  
+   *
+   *  @param  vals       Rectangular array of values
+   *  @param  sorted     The contour levels, in increasing order
+   *  @param  first_row  The first row of the first square to check
+   *  @param  last_row   The bottom row of the last squares to check
+   *  @param  segments   One list of segments for each level, to which the
+   *                     new segments are added.
+   */
+  static void findSegments( float       vals[][],
+                            float       sorted[],
+                            int         first_row,
+                            int         last_row,
+                            SegmentList segments[] )
+  {
+    int   n_cols = vals[0].length;
+    float pt_x[] = new float[4];
+    float pt_y[] = new float[4];
+    long  edge[] = new long[4];
+
+    for ( int row = first_row; row < last_row; row++ )
+    {
+      float top[] = vals[row];
+      float bot[] = vals[row+1];
+      for ( int col = 0; col < n_cols - 1; col++ )
+      {
+        float v00 = top[col];
+        float v01 = top[col+1];
+        float v11 = bot[col+1];
+        float v10 = bot[col];
+                                              // NaN values are skipped here
+        float min = Float.POSITIVE_INFINITY;  // and never cross a level
+        float max = Float.NEGATIVE_INFINITY;
+        if ( v00 < min ) min = v00;  if ( v00 > max ) max = v00;
+        if ( v01 < min ) min = v01;  if ( v01 > max ) max = v01;
+        if ( v11 < min ) min = v11;  if ( v11 > max ) max = v11;
+        if ( v10 < min ) min = v10;  if ( v10 > max ) max = v10;
+        if ( !( max > min ) )
+          continue;
+                                              // An edge can only cross levels
+                                              // with min < level <= max
+        int lo = 0;
+        int hi = sorted.length;
+        while ( lo < hi )
+        {
+          int mid = ( lo + hi ) >>> 1;
+          if ( sorted[mid] > min )
+            hi = mid;
+          else
+            lo = mid + 1;
+        }
+
+        long id = 2 * ( row * (long)n_cols + col );
+        for ( int k = lo; k < sorted.length && sorted[k] <= max; k++ )
+        {
+          float level = sorted[k];
+          int   n_points = 0;
+                                              // Each crossing point is found
+                                              // from the lower index end of
+                                              // its edge, so that squares
+                                              // sharing an edge get exactly
+                                              // the same point.
+          if ( crosses( v00, v01, level ) )
+          {
+            pt_x[n_points] = col + ( level - v00 ) / ( v01 - v00 );
+            pt_y[n_points] = row;
+            edge[n_points] = id;
+            n_points++;
+          }
+          if ( crosses( v01, v11, level ) )
+          {
+            pt_x[n_points] = col + 1;
+            pt_y[n_points] = row + ( level - v01 ) / ( v11 - v01 );
+            edge[n_points] = id + 3;
+            n_points++;
+          }
+          if ( crosses( v10, v11, level ) )
+          {
+            pt_x[n_points] = col + ( level - v10 ) / ( v11 - v10 );
+            pt_y[n_points] = row + 1;
+            edge[n_points] = id + 2 * n_cols;
+            n_points++;
+          }
+          if ( crosses( v00, v10, level ) )
+          {
+            pt_x[n_points] = col;
+            pt_y[n_points] = row + ( level - v00 ) / ( v10 - v00 );
+            edge[n_points] = id + 1;
+            n_points++;
+          }
+
+          SegmentList list = segments[k];
+          if ( n_points == 2 )
+            list.add( pt_x, pt_y, edge, 0, 1, vals, level );
+
+          else if ( n_points == 4 )             // choose two lines with
+          {                                     // min total length.  The
+                                                // lengths use the points as
+                                                // found by contour( vals,
+                                                // level ), going around the
+                                                // square, so that ties are
+                                                // broken the same way.
+            float x2 = ( col + 1 ) - ( level - v11 ) / ( v10 - v11 );
+            float y3 = ( row + 1 ) - ( level - v10 ) / ( v00 - v10 );
+            float total_1 = dist( pt_x[0], pt_y[0], pt_x[1], pt_y[1] ) +
+                            dist( x2,      row + 1, col,     y3      );
+            float total_2 = dist( pt_x[1], pt_y[1], x2,      row + 1 ) +
+                            dist( col,     y3,      pt_x[0], pt_y[0] );
+            if ( total_1 < total_2 )
+            {
+              list.add( pt_x, pt_y, edge, 0, 1, vals, level );
+              list.add( pt_x, pt_y, edge, 2, 3, vals, level );
+            }
+            else
+            {
+              list.add( pt_x, pt_y, edge, 1, 2, vals, level );
+              list.add( pt_x, pt_y, edge, 3, 0, vals, level );
+            }
+          }
+        }
+      }
+    }
+  }
+
+
+  /**
+   *  Check whether the edge with end values v0, v1 crosses the level, using
+   *  the same rule as contour( vals, level ).
+   */
+  private static boolean crosses( float v0, float v1, float level )
+  {
+    return v0 != v1 && ( v0 >= level && v1 < level || 
+                         v0 <  level && v1 >= level );
+  }
+
+
+  /**
+   *  Get the distance between two points.
+   */
+  private static float dist( float x1, float y1, float x2, float y2 )
+  {
+    float dx = x1 - x2;
+    float dy = y1 - y2;
+    return (float)Math.sqrt( dx * dx + dy * dy );
+  }
+
+
+  /**
+   *  Check whether a segment should be kept, using the same rules as 
+   *  AddSegment(): segments of length 0 and horizontal or vertical 
+   *  "ridge lines" are discarded.
+   */
+  private static boolean keepSegment( float x1, float y1, 
+                                      float x2, float y2,
+                                      float vals[][],
+                                      float level )
+  {
+    if ( x1 == x2 && y1 == y2 )
+      return false;
+
+    int n_rows = vals.length;
+    int n_cols = vals[0].length;
+    int r1 = (int)y1;
+    int r2 = (int)y2;
+    int c1 = (int)x1;
+    int c2 = (int)x2;
+
+    if ( r1 == y1 && r2 == y2 && r1 == r2 && r1 > 0 && r1 < n_rows - 1 )
+      if ( vals[r1-1][c1] < level && vals[r1+1][c1] < level &&
+           vals[r1-1][c2] < level && vals[r1+1][c2] < level )
+        return false;
+
+    if ( c1 == x1 && c2 == x2 && c1 == c2 && c1 > 0 && c1 < n_cols - 1 )
+      if ( vals[r1][c1-1] < level && vals[r1][c1+1] < level &&
+           vals[r2][c1-1] < level && vals[r2][c1+1] < level )
+        return false;
+
+    return true;
+  }
+
+
+  /**
+   *  This class holds the line segments found for one level, in primitive
+   *  arrays, along with the id of the grid edge that each end point lies
+   *  on.  Segment i has end points 2i and 2i+1.  The segments are joined
+   *  into polylines by matching the edge ids.
+   */
+  static class SegmentList
+  {
+    float x[]    = new float[16];
+    float y[]    = new float[16];
+    long  edge[] = new long[16];
+    int   n_ends = 0;
+
+    /**
+     *  Add the segment from point i to point j, if it is not discarded
+     *  by keepSegment().
+     */
+    void add( float pt_x[], float pt_y[], long pt_edge[], int i, int j,
+              float vals[][], float level )
+    {
+      if ( !keepSegment( pt_x[i], pt_y[i], pt_x[j], pt_y[j], vals, level ) )
+        return;
+
+      if ( n_ends + 2 > x.length )
+        grow( 2 * x.length );
+
+      x[n_ends]      = pt_x[i];
+      y[n_ends]      = pt_y[i];
+      edge[n_ends++] = pt_edge[i];
+      x[n_ends]      = pt_x[j];
+      y[n_ends]      = pt_y[j];
+      edge[n_ends++] = pt_edge[j];
+    }
+
+    /**
+     *  Add all of the segments of another list to this list.
+     */
+    void addAll( SegmentList other )
+    {
+      if ( n_ends + other.n_ends > x.length )
+        grow( Math.max( 2 * x.length, n_ends + other.n_ends ) );
+
+      System.arraycopy( other.x,    0, x,    n_ends, other.n_ends );
+      System.arraycopy( other.y,    0, y,    n_ends, other.n_ends );
+      System.arraycopy( other.edge, 0, edge, n_ends, other.n_ends );
+      n_ends += other.n_ends;
+    }
+
+    private void grow( int size )
+    {
+      x    = Arrays.copyOf( x,    size );
+      y    = Arrays.copyOf( y,    size );
+      edge = Arrays.copyOf( edge, size );
+    }
+
+    /**
+     *  Join the segments into polylines.  Each grid edge is shared by at 
+     *  most two squares, and each square uses an edge at most once, so 
+     *  each end point has at most one partner end point on the same edge.
+     */
+    ContourLines join( float level )
+    {
+      int n_segs = n_ends / 2;
+                                              // find the partner of each
+                                              // end point with a hash table
+      int partner[] = new int[ n_ends ];
+      Arrays.fill( partner, -1 );
+
+      int  size = Integer.highestOneBit( Math.max( 4 * n_ends, 16 ) );
+      int  mask = size - 1;
+      long keys[] = new long[ size ];
+      int  ends[] = new int[ size ];
+      Arrays.fill( ends, -1 );
+      for ( int e = 0; e < n_ends; e++ )
+      {
+        long key  = edge[e];
+        int  slot = (int)( ( key * 0x9E3779B97F4A7C15L ) >>> 32 ) & mask;
+        while ( ends[slot] >= 0 && keys[slot] != key )
+          slot = ( slot + 1 ) & mask;
+
+        if ( ends[slot] < 0 )
+        {
+          keys[slot] = key;
+          ends[slot] = e;
+        }
+        else
+        {
+          partner[e] = ends[slot];
+          partner[ ends[slot] ] = e;
+        }
+      }
+                                              // walk the chains of segments
+      float   line_x[]     = new float[ n_ends ];
+      float   line_y[]     = new float[ n_ends ];
+      int     line_start[] = new int[ n_segs + 1 ];
+      boolean used[]       = new boolean[ n_segs ];
+      int     n_points     = 0;
+      int     n_lines      = 0;
+      for ( int seg = 0; seg < n_segs; seg++ )
+      {
+        if ( used[seg] )
+          continue;
+                                              // back up to the start of the
+        int first = seg;                      // chain, or once around a loop
+        int entry = 2 * seg;
+        int p     = partner[entry];
+        while ( p >= 0 && ( p >> 1 ) != seg )
+        {
+          first = p >> 1;
+          entry = p ^ 1;
+          p     = partner[entry];
+        }
+
+        line_start[n_lines++] = n_points;
+        line_x[n_points]   = x[entry];
+        line_y[n_points++] = y[entry];
+
+        int cur = first;
+        while ( cur >= 0 && !used[cur] )
+        {
+          used[cur] = true;
+          int exit = entry ^ 1;
+          line_x[n_points]   = x[exit];
+          line_y[n_points++] = y[exit];
+
+          entry = partner[exit];
+          cur   = entry >= 0 ? entry >> 1 : -1;
+        }
+      }
+      line_start[n_lines] = n_points;
+
+      return new ContourLines( level,
+                               Arrays.copyOf( line_x, n_points ),
+                               Arrays.copyOf( line_y, n_points ),
+                               Arrays.copyOf( line_start, n_lines + 1 ),
+                               n_segs );
+    }
+  }
+
+
   /**
    *  Main program for basic testing purposes.  Generates a small array
    *  and a set of contour line segments.
@@ -222,7 +222,6 @@
 package gov.anl.ipns.ViewTools.Panels.Contour;
 
 import gov.anl.ipns.Util.Numeric.Format;
-import gov.anl.ipns.Util.Numeric.floatPoint2D;
 import gov.anl.ipns.Util.Sys.SharedMessages;
 import gov.anl.ipns.ViewTools.Components.AxisInfo;
 import gov.anl.ipns.ViewTools.Components.IPreserveState;
@@ -252,7 +251,6 @@ import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.io.Serializable;
 import java.util.Arrays;
-import java.util.Vector;
 
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
@@ -504,6 +502,19 @@ public class ContourJPanel extends CoordJPanel implements Serializable,
    /** A reference to the thumbnail that refelcts the large contour image. */
    private BufferedImage thumbnail;
    
+   /** 
+    * The contour lines for each level, cached so that they are only 
+    * calculated when the data or the contour levels change.
+    */
+   private transient ContourLines[] contourLines;
+   /** The contour levels that the cached contour lines were made for. */
+   private transient float[] contourLevelValues;
+   /** 
+    * The square of the gradient at each point of the cached contour lines, 
+    * used to place the labels.
+    */
+   private transient float[][] contourGradSqr;
+   
    /** Describes the line styles used to render the contour levels. */
    private int[] lineStyles;
    /** Describes which contour levels are rendered with labels. */
@@ -1302,6 +1313,7 @@ public class ContourJPanel extends CoordJPanel implements Serializable,
       if (this.data2D != arr)
          data2D = arr;
 
+      invalidateContourLines();
       invalidateThumbnail();
       reRender();
    }
@@ -1318,6 +1330,17 @@ public class ContourJPanel extends CoordJPanel implements Serializable,
    }
 
    
+   /**
+    * Used to make the cached contour lines invalid, so that they are 
+    * calculated again the next time the contours are drawn.
+    */
+   private void invalidateContourLines()
+   {
+      this.contourLines = null;
+      this.contourGradSqr = null;
+      this.contourLevelValues = null;
+   }
+   
    /**
     * Used to make the cached thumbnail invalid.  As a result, when the 
     * {@link #getThumbnail(int, int) getThumbnail(int, int)} method is 
@@ -1378,28 +1401,11 @@ public class ContourJPanel extends CoordJPanel implements Serializable,
                                        // when the user moves the cursor (due
                                        // to XOR drawing).
       
-      //first to extract the array of data to use
-        float[][] arr = data2D.getRegionValues(0, 
-                                               data2D.getNumRows()-1, 
-                                               0, 
-                                               data2D.getNumColumns()-1);
-        
-      //check that there is valid data to work with
-        if (arr==null)
-        {
-           SharedMessages.addmsg("Warning:  A null array of data was " +
-                                 "found from the IVirtualArray2D in " +
-                                 "ContourJPanel.paint(....).  Thus, the " +
-                                 "data could not be plotted.");
+      //get the contour lines from the cache, or calculate them if the 
+      //data or the contour levels have changed
+        ContourLines[] contourLines = getContourLines();
+        if (contourLines==null)
            return;
-        }
-        else if (arr.length==0) //return because there is no data to draw
-        {
-           SharedMessages.addmsg("Warning:  The array given to the " +
-                                 "ContourJPanel was empty.  Thus, no data " +
-                                 "has been plotted.");
-           return;
-        }
         
       //Get the transform that maps from the row/column coordinates of the 
       //array of data to the world coordinates of the entire panel.
@@ -1411,13 +1417,15 @@ public class ContourJPanel extends CoordJPanel implements Serializable,
       //  only a subset of the array of data is being displayed on the screen 
       //The bounds are inclusive (i.e. arr[xMaxIndex][yMaxIndex] 
       //  can legally be accessed).
-        int xMinIndex = getXIndexFromPixel(0, rcToWC, arr.length, true);
+        int numRows = data2D.getNumRows();
+        int numCols = data2D.getNumColumns();
+        int xMinIndex = getXIndexFromPixel(0, rcToWC, numRows, true);
         int xMaxIndex = getXIndexFromPixel(getWidth(), rcToWC, 
-                                           arr.length, false);
+                                           numRows, false);
         
-        int yMinIndex = getYIndexFromPixel(0, rcToWC, arr[0].length, true);
+        int yMinIndex = getYIndexFromPixel(0, rcToWC, numCols, true);
         int yMaxIndex = getYIndexFromPixel(getHeight(), rcToWC, 
-                                           arr[0].length, false);
+                                           numCols, false);
         
         //if the min is greater than the max, the user has zoomed in too 
         //much.  Then flip the two so that the ordering is correct.
@@ -1437,18 +1445,17 @@ public class ContourJPanel extends CoordJPanel implements Serializable,
         
       /* Variables used when drawing the contour lines */
         
-      //holds the contour points found
-        Vector contourPts;
-      //references an element in 'contourPts'
-        floatPoint2D curPt;
-      //Holds the x points describing where each contour line segment 
-      //  should be drawn.  
+      //the contour lines at the current level
+        ContourLines lines;
+      //Holds the x points of the polylines at the current level.  
       //The units will initially be in terms of row/column and will be 
       //  converted to world coordinates and then pixel coordinates.  
-      //The numbers are in the order p1_start, p1_end, p2_start, p2_end ....
         float[] xrcVals;
       //the same as above except this stores y values
         float[] yrcVals;
+      //the pixel coordinates of one polyline, passed to drawPolyline()
+        int[] xPixels = new int[0];
+        int[] yPixels = new int[0];
       //This is the index of the point with the minimum gradient on a level
       //  grad(F(x,y)) := F_x(x,y)*i + F_y(x,y)*j 
       //  F_x(x,y) denotes the partial derivative of F with respect to x
@@ -1473,9 +1480,10 @@ public class ContourJPanel extends CoordJPanel implements Serializable,
           
           
       //For each level draw the contour.
-      for (int i=0; i<levels.getNumLevels(); i++)
+      for (int i=0; i<contourLines.length; i++)
       {
          //first to initialize the variables used to draw this level
+           lines = contourLines[i];
            minGradIndex = 0;
            minGradSqr = Float.MAX_VALUE;
            //now to get this level's meta data
@@ -1483,25 +1491,23 @@ public class ContourJPanel extends CoordJPanel implements Serializable,
              showLabel = showLabels[i%showLabels.length];
              numSigDigits = numSigFigs[i%numSigFigs.length];
          
-         //Now to get the contours.  The 'Contour2D.contour()' method does 
-         //  the work of calculating the points on the contour level.  
-         //The code in this class does the work of graphically 
-         //  displaying these points.
-           contourPts = Contour2D.contour(arr, levels.getLevelAt(i));
+           int numPoints = lines.getNumPoints();
+           if (numPoints==0)
+              continue;
          
-         //now to create space for the arrays
-           xrcVals = new float[contourPts.size()];
-           yrcVals = new float[contourPts.size()];
-               
-         //now to fill the arrays
-           for (int j=0; j<contourPts.size(); j++)
+         //now to copy the points, since the cached arrays must not change
+           xrcVals = new float[numPoints];
+           yrcVals = new float[numPoints];
+           float[] x = lines.getX();
+           float[] y = lines.getY();
+           float[] gradSqr = contourGradSqr[i];
+           for (int j=0; j<numPoints; j++)
            {
-              curPt = (floatPoint2D)contourPts.elementAt(j);
-              xrcVals[j] = curPt.x+1/2f;
-              yrcVals[j] = curPt.y+1/2f;
+              xrcVals[j] = x[j]+1/2f;
+              yrcVals[j] = y[j]+1/2f;
               /* Note:  1/2f is added to each point for the following reason.
-               *        First, curPt.x (and curPt.y) return a point related 
-               *        in terms of rows and columns.  However, the 
+               *        First, x[j] (and y[j]) give a point in terms of 
+               *        rows and columns.  However, the 
                *        row/column description assumes that data points 
                *        over a square on the grid of row/columns are "drawn" 
                *        at the top-left corner of the square.  However, the 
@@ -1510,34 +1516,20 @@ public class ContourJPanel extends CoordJPanel implements Serializable,
                *        from the corner to the center.
                */
               
-              //now to determine the square of the gradient of the
-              //function at this point.  The point with the gradient 
-              //closest to 0 is the point that is farthest away from the 
-              //contour level above and below the current contour level.
-              int xIndex = (int)curPt.x;
-              int yIndex = (int)curPt.y;
-              
-              //only compare the gradient if the current point is inside the 
-              //region currently being viewed
-              if ( xIndex>=xMinIndex && xIndex<xMaxIndex && 
-                   yIndex>=yMinIndex && yIndex<yMaxIndex)
+              //The point with the gradient closest to 0 is the point that 
+              //is farthest away from the contour level above and below the 
+              //current contour level.  Only compare the gradient if the 
+              //current point is inside the region currently being viewed.
+              if (showLabel)
               {
-                 //partial derivative of F with respect to x
-                 float Fx = arr[xIndex+1][yIndex] - arr[xIndex][yIndex];
-                 if ( (yIndex+1)<arr[xIndex].length )
+                 int xIndex = (int)x[j];
+                 int yIndex = (int)y[j];
+                 if ( xIndex>=xMinIndex && xIndex<xMaxIndex && 
+                      yIndex>=yMinIndex && yIndex<yMaxIndex &&
+                      gradSqr[j]<=minGradSqr )
                  {
-                    //partial derivative of F with respect to y
-                    float Fy = arr[xIndex][yIndex+1] - arr[xIndex][yIndex];
-                    float gradSqr = Fx*Fx+Fy*Fy;
-                    
-                    //if this gradient is as smaller or smaller than the 
-                    //current minimum, record it.  The point recorded will 
-                    //be used later when rendering the contour's label
-                    if (gradSqr<=minGradSqr)
-                    {
-                       minGradSqr = gradSqr;
-                       minGradIndex = j;
-                    }
+                    minGradSqr = gradSqr[j];
+                    minGradIndex = j;
                  }
               }
            }
@@ -1555,28 +1547,44 @@ public class ContourJPanel extends CoordJPanel implements Serializable,
             local_tran.MapXListTo(xrcVals);
             local_tran.MapYListTo(yrcVals);
 
-         //now to draw the lines with the new pixel coordinates
-           for (int j=0; (j+1)<contourPts.size(); j+=2)
+         //now to set the line color and style
+           g.setColor(getColorForLevel(lines.getLevel()));
+           g.setStroke(GraphJPanel.createStroke(lineSytle, 1));
+           
+         //now to draw each polyline with the new pixel coordinates
+           for (int line=0; line<lines.getNumLines(); line++)
            {
-              //if this or the next index corresponds to the index of the 
-              //point with the smallest gradient, draw the contour label
-              //if labels are enabled
-              if ( showLabel && (j==minGradIndex || (j+1)==minGradIndex) )
+              int start = lines.getLineStart(line);
+              int length = lines.getLineLength(line);
+              if (xPixels.length<length)
               {
-                 float avX = xrcVals[j];
-                 float avY = yrcVals[j];
-                 float angle = 0;
-                 if (j+1 < xrcVals.length && 
-                     j+1 < yrcVals.length)
-                 {
-                    //now to find the average of the points
-                    avX = (float)(avX/2.0 + xrcVals[j+1]/2.0);
-                    avY = (float)(avY/2.0 + yrcVals[j+1]/2.0);
-                    
-                    //now to find the angle to use
-                    angle = (float)Math.atan((yrcVals[j+1]-avY)/
-                                             (xrcVals[j+1]-avX));
-                 }
+                 xPixels = new int[length];
+                 yPixels = new int[length];
+              }
+              for (int j=0; j<length; j++)
+              {
+                 xPixels[j] = (int)(xrcVals[start+j]);
+                 yPixels[j] = (int)(yrcVals[start+j]);
+              }
+              g.drawPolyline(xPixels, yPixels, length);
+              
+              //if the point with the smallest gradient is on this polyline, 
+              //draw the contour label at the middle of the segment 
+              //starting (or ending) at that point
+              if ( showLabel && 
+                   minGradIndex>=start && minGradIndex<start+length )
+              {
+                 int j = minGradIndex;
+                 if (j+1 == start+length)
+                    j--;
+                 
+                 //now to find the average of the points
+                 float avX = (float)(xrcVals[j]/2.0 + xrcVals[j+1]/2.0);
+                 float avY = (float)(yrcVals[j]/2.0 + yrcVals[j+1]/2.0);
+                 
+                 //now to find the angle to use
+                 float angle = (float)Math.atan((yrcVals[j+1]-avY)/
+                                                (xrcVals[j+1]-avX));
                  
                  //render the label for this level of the contour
                  //Note:  the transformations are stated in reverse order 
@@ -1592,11 +1600,11 @@ public class ContourJPanel extends CoordJPanel implements Serializable,
                    //(i.e. should the number be rounded)
                    String label;
                    if (numSigDigits>0)
-                      label = Format.choiceFormat(levels.getLevelAt(i), 
+                      label = Format.choiceFormat(lines.getLevel(), 
                                                   Format.AUTO, 
                                                   numSigDigits);
                    else
-                      label = ""+levels.getLevelAt(i);
+                      label = ""+lines.getLevel();
                    //trim any extra whitespaces
                    label = label.trim();
                    
@@ -1605,21 +1613,98 @@ public class ContourJPanel extends CoordJPanel implements Serializable,
                                 (int)(avY));
                  g.setTransform(trans);
               }
-              
-               //now to set the line color
-               g.setColor(getColorForLevel(levels.getLevelAt(i)));
-               //now to set the line style
-               g.setStroke(GraphJPanel.createStroke(lineSytle, 1));
-               
-               //and finally now to draw the line
-               g.drawLine((int)(xrcVals[j]),
-                          (int)(yrcVals[j]),
-                          (int)(xrcVals[j+1]),
-                          (int)(yrcVals[j+1]));
            }
       }
    }
    
+   /**
+    * Get the contour lines for the current data and contour levels.  The 
+    * contour lines for all levels are calculated in one pass over the 
+    * data and cached, along with the square of the gradient at each point 
+    * that is used to place the labels.  The cache is only rebuilt if 
+    * the contour levels change, or if the data is changed using one of 
+    * the {@link #changeData() changeData()} methods.  Repainting and 
+    * zooming use the cached lines.
+    * 
+    * @return The contour lines for each level, or <code>null</code> if 
+    *         there is no valid data to draw.
+    */
+   private ContourLines[] getContourLines()
+   {
+      //get the current contour levels
+        float[] levelValues = new float[levels.getNumLevels()];
+        for (int i=0; i<levelValues.length; i++)
+           levelValues[i] = levels.getLevelAt(i);
+      
+      //check if the cached contour lines are valid
+        if ( contourLines!=null && 
+             Arrays.equals(levelValues, contourLevelValues) )
+           return contourLines;
+      
+      //first to extract the array of data to use
+        float[][] arr = data2D.getRegionValues(0, 
+                                               data2D.getNumRows()-1, 
+                                               0, 
+                                               data2D.getNumColumns()-1);
+        
+      //check that there is valid data to work with
+        if (arr==null)
+        {
+           SharedMessages.addmsg("Warning:  A null array of data was " +
+                                 "found from the IVirtualArray2D in " +
+                                 "ContourJPanel.paint(....).  Thus, the " +
+                                 "data could not be plotted.");
+           return null;
+        }
+        else if (arr.length==0) //return because there is no data to draw
+        {
+           SharedMessages.addmsg("Warning:  The array given to the " +
+                                 "ContourJPanel was empty.  Thus, no data " +
+                                 "has been plotted.");
+           return null;
+        }
+      
+      //Now to get the contours.  The 'Contour2D.contourParallel()' method 
+      //  does the work of calculating the points on all contour levels, 
+      //  using bands of rows in parallel.  
+      //The code in this class does the work of graphically 
+      //  displaying these points.
+        ContourLines[] newLines = Contour2D.contourParallel(arr, levelValues);
+        
+      //now to determine the square of the gradient of the function at 
+      //each point.  These are used when choosing where to place labels.
+        float[][] newGradSqr = new float[newLines.length][];
+        for (int i=0; i<newLines.length; i++)
+        {
+           float[] x = newLines[i].getX();
+           float[] y = newLines[i].getY();
+           float[] gradSqr = new float[newLines[i].getNumPoints()];
+           for (int j=0; j<gradSqr.length; j++)
+           {
+              int xIndex = (int)x[j];
+              int yIndex = (int)y[j];
+              gradSqr[j] = Float.POSITIVE_INFINITY;
+              if ( (xIndex+1)<arr.length && 
+                   (yIndex+1)<arr[xIndex].length )
+              {
+                 //partial derivative of F with respect to x
+                 float Fx = arr[xIndex+1][yIndex] - arr[xIndex][yIndex];
+                 //partial derivative of F with respect to y
+                 float Fy = arr[xIndex][yIndex+1] - arr[xIndex][yIndex];
+                 gradSqr[j] = Fx*Fx+Fy*Fy;
+              }
+           }
+           newGradSqr[i] = gradSqr;
+        }
+      
+      //cache the results
+        contourLevelValues = levelValues;
+        contourGradSqr = newGradSqr;
+        contourLines = newLines;
+        
+      return contourLines;
+   }
+   
    /**
     * Used to get the rectangular box that describes the bounds of the 
     * entire panel in terms of the world coordinate system.
@@ -0,0 +1,190 @@
+/*
+ * File:  ContourLines.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Revision$
+ */
+
+package gov.anl.ipns.ViewTools.Panels.Contour;
+
+/**
+ *  This class holds the contour lines at one level, as a list of polylines.
+ *  The points of all polylines are packed into one array of x (column)
+ *  values and one array of y (row) values, and the polyline i uses the
+ *  points with index getLineStart(i) up to, but not including,
+ *  getLineStart(i+1).  As in Contour2D.contour(), the coordinates are
+ *  fractional column and row values.  A closed contour line has the same
+ *  first and last point.  Objects of this class are made by
+ *  Contour2D.contour( float[][], float[] ) and are not changed after that.
+ */
+public class ContourLines implements java.io.Serializable
+{
+  private float level;
+  private float x[];
+  private float y[];
+  private int   line_start[];
+  private int   n_segments;
+
+
+  /**
+   *  Construct a ContourLines object using the specified arrays.  The
+   *  arrays are NOT copied.
+   *
+   *  @param  level       The contour level
+   *  @param  x           The x (column) values of the points
+   *  @param  y           The y (row) values of the points
+   *  @param  line_start  The index of the first point of each polyline,
+   *                      followed by the total number of points.
+   *  @param  n_segments  The number of line segments in all polylines
+   */
+  ContourLines( float level,
+                float x[],
+                float y[],
+                int   line_start[],
+                int   n_segments )
+  {
+    this.level      = level;
+    this.x          = x;
+    this.y          = y;
+    this.line_start = line_start;
+    this.n_segments = n_segments;
+  }
+
+
+  /**
+   *  Get the level of these contour lines.
+   *
+   *  @return the contour level.
+   */
+  public float getLevel()
+  {
+    return level;
+  }
+
+
+  /**
+   *  Get the number of polylines at this level.
+   *
+   *  @return the number of polylines.
+   */
+  public int getNumLines()
+  {
+    return line_start.length - 1;
+  }
+
+
+  /**
+   *  Get the index of the first point of the specified polyline.  For
+   *  i == getNumLines(), this is the total number of points.
+   *
+   *  @param  i  The polyline number, 0 <= i <= getNumLines()
+   *
+   *  @return the index of the first point of polyline i in the x and y
+   *          arrays.
+   */
+  public int getLineStart( int i )
+  {
+    return line_start[i];
+  }
+
+
+  /**
+   *  Get the number of points in the specified polyline.
+   *
+   *  @param  i  The polyline number, 0 <= i < getNumLines()
+   *
+   *  @return the number of points in polyline i.
+   */
+  public int getLineLength( int i )
+  {
+    return line_start[i+1] - line_start[i];
+  }
+
+
+  /**
+   *  Get the total number of points in all polylines.
+   *
+   *  @return the number of points.
+   */
+  public int getNumPoints()
+  {
+    return line_start[ line_start.length - 1 ];
+  }
+
+
+  /**
+   *  Get the number of line segments in all polylines.  This is the
+   *  number of segments that Contour2D.contour( float[][], float ) would
+   *  return for this level.
+   *
+   *  @return the number of line segments.
+   */
+  public int getNumSegments()
+  {
+    return n_segments;
+  }
+
+
+  /**
+   *  Get a reference to the x (column) values of all points.  The array
+   *  must not be changed.
+   *
+   *  @return the array of x values, with getNumPoints() entries.
+   */
+  public float[] getX()
+  {
+    return x;
+  }
+
+
+  /**
+   *  Get a reference to the y (row) values of all points.  The array
+   *  must not be changed.
+   *
+   *  @return the array of y values, with getNumPoints() entries.
+   */
+  public float[] getY()
+  {
+    return y;
+  }
+
+
+  /**
+   *  Get a String with the level and the number of lines and points.
+   *
+   *  @return a short description of these contour lines.
+   */
+  public String toString()
+  {
+    return "Level " + level + ": " + getNumLines() + " lines, " +
+            getNumPoints() + " points";
+  }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * File: TestContour2D.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ *
+ *  $Author$
+ *  $Date$
+ *  $Revision$
+ */
+
+package gov.anl.ipns.ViewTools.Panels.Contour;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ *  Scaling test for the multi-level contour methods of Contour2D.  For
+ *  square arrays of size 1024, 2048 and 4096, this times 30 uniformly
+ *  spaced contour levels, as used by UniformContours, first with one
+ *  call to contour( vals, level ) per level, then with the one pass
+ *  contour( vals, levels ), and then with contour( vals, levels, pool )
+ *  using fork/join pools with 1, 2, 4, ... up to the number of processors.
+ *  The results from each pool are checked against the one pass result.
+ *  Each time is the best of several repetitions, after a warm up.  The
+ *  array sizes can be given on the command line.
+ */
+public class TestContour2D
+{
+  private static final int N_REPS   = 5;
+  private static final int N_LEVELS = 30;
+
+
+  /*
+   *  Make a smooth surface with many peaks and some noise, so that each
+   *  level has many contour lines that cross the bands of rows.
+   */
+  private static float[][] makeArray( int size, Random random )
+  {
+    float vals[][] = new float[ size ][ size ];
+    for ( int row = 0; row < size; row++ )
+      for ( int col = 0; col < size; col++ )
+        vals[row][col] = (float)( 100 * Math.sin( row * 0.011 ) *
+                                        Math.cos( col * 0.017 ) ) +
+                         random.nextFloat();
+    return vals;
+  }
+
+
+  /*
+   *  Check that two lists of contour lines have the same points.
+   */
+  private static boolean same( ContourLines a[], ContourLines b[] )
+  {
+    if ( a.length != b.length )
+      return false;
+
+    for ( int i = 0; i < a.length; i++ )
+    {
+      if ( a[i].getNumLines() != b[i].getNumLines() ||
+           a[i].getNumSegments() != b[i].getNumSegments() )
+        return false;
+
+      for ( int line = 0; line <= a[i].getNumLines(); line++ )
+        if ( a[i].getLineStart( line ) != b[i].getLineStart( line ) )
+          return false;
+
+      if ( !Arrays.equals( a[i].getX(), b[i].getX() ) ||
+           !Arrays.equals( a[i].getY(), b[i].getY() ) )
+        return false;
+    }
+    return true;
+  }
+
+
+  public static void main( String args[] )
+  {
+    int[] sizes = { 1024, 2048, 4096 };
+    if ( args.length > 0 )
+    {
+      sizes = new int[ args.length ];
+      for ( int i = 0; i < args.length; i++ )
+        sizes[i] = Integer.parseInt( args[i] );
+    }
+
+    int n_procs = Runtime.getRuntime().availableProcessors();
+    System.out.println( "Processors: " + n_procs );
+
+    Vector<Integer> n_threads = new Vector<Integer>();
+    for ( int n = 1; n < n_procs; n *= 2 )
+      n_threads.add( n );
+    n_threads.add( n_procs );
+
+    float levels[] = new float[ N_LEVELS ];
+    for ( int i = 0; i < N_LEVELS; i++ )
+      levels[i] = -95 + i * 190.0f / ( N_LEVELS - 1 );
+
+    Random random = new Random( 1 );
+    for ( int s = 0; s < sizes.length; s++ )
+    {
+      int size = sizes[s];
+      float vals[][] = makeArray( size, random );
+
+      long by_level = Long.MAX_VALUE;
+      long one_pass = Long.MAX_VALUE;
+      ContourLines expected[] = null;
+      for ( int rep = 0; rep <= N_REPS; rep++ )
+      {
+        long start = System.nanoTime();
+        if ( rep < 2 )                              // this one is slow
+          for ( int i = 0; i < N_LEVELS; i++ )
+            Contour2D.contour( vals, levels[i] );
+        long time = System.nanoTime() - start;
+        if ( rep == 1 )
+          by_level = time;
+
+        start = System.nanoTime();
+        expected = Contour2D.contour( vals, levels );
+        time = System.nanoTime() - start;
+        if ( rep > 0 )
+          one_pass = Math.min( one_pass, time );
+      }
+
+      int n_lines = 0;
+      for ( int i = 0; i < expected.length; i++ )
+        n_lines += expected[i].getNumLines();
+
+      System.out.println( size + "x" + size + ", " + n_lines + " lines" +
+                          " : per level " + by_level / 1000000 + " ms" +
+                          ", one pass " + one_pass / 1000000 + " ms" );
+
+      for ( int t = 0; t < n_threads.size(); t++ )
+      {
+        ForkJoinPool pool = new ForkJoinPool( n_threads.get(t) );
+        long    best = Long.MAX_VALUE;
+        boolean ok   = true;
+        for ( int rep = 0; rep <= N_REPS; rep++ )
+        {
+          long start = System.nanoTime();
+          ContourLines lines[] = Contour2D.contour( vals, levels, pool );
+          long time = System.nanoTime() - start;
+          if ( rep > 0 )
+            best = Math.min( best, time );
+          ok = ok && same( expected, lines );
+        }
+        pool.shutdown();
+        System.out.println( "    " + n_threads.get(t) + " threads " +
+                            best / 1000000 + " ms, speed up " +
+                            Math.round( 100.0 * one_pass / best ) / 100.0 +
+                            ( ok ? "" : "  RESULTS DIFFER" ) );
+      }
+      vals = null;
+    }
+  }
+
+}
@@ -379,6 +379,55 @@ abstract public class GL_Shape implements IThreeD_GL_Object
   }
   
 
+  /* --------------------------- getPickBox ------------------------- */
+  /**
+   *  Get an oriented box containing this shape, that a ThreeD_GL_Panel
+   *  can use to pick the shape on the CPU, without drawing the scene in
+   *  OpenGL selection mode.  The box should match the shape closely, since
+   *  a ray that hits the box picks the shape.  This base class gives no
+   *  box, so shapes that do not override this are picked using OpenGL
+   *  selection.  No box is given if a transform has been set.
+   *
+   *  @param  center   Array in which the center of the box is returned.
+   *  @param  x_axis   Array in which the direction of the box's local
+   *                   x axis is returned.
+   *  @param  y_axis   Array in which the direction of the box's local
+   *                   y axis is returned.
+   *  @param  extents  Array in which the full widths of the box along its
+   *                   x, y and z axes are returned.
+   *
+   *  @return true if the box was returned, false if this shape does not
+   *          give a pick box.
+   */
+  public boolean getPickBox( float center[], 
+                             float x_axis[], 
+                             float y_axis[],
+                             float extents[] )
+  {
+    if ( transform != null )
+      return false;
+
+    return getLocalPickBox( center, x_axis, y_axis, extents );
+  }
+
+
+  /* ------------------------- getLocalPickBox ----------------------- */
+  /**
+   *  Get the pick box for this shape, ignoring any transform that has been
+   *  set.  Derived classes that can be picked on the CPU override this
+   *  to return their box, as described for getPickBox().
+   *
+   *  @return false, since this base class does not give a pick box.
+   */
+  protected boolean getLocalPickBox( float center[],
+                                     float x_axis[],
+                                     float y_axis[],
+                                     float extents[] )
+  {
+    return false;
+  }
+
+
   /* ---------------------------- clearList ------------------------- */
   /**
    *  Delete the display list and reset the list_id to invalid.  This
@@ -71,6 +71,25 @@ public class Square  extends  GL_Shape
   }
 
 
+  protected boolean getLocalPickBox( float center[],
+                                     float x_axis[],
+                                     float y_axis[],
+                                     float extents[] )
+  {
+     center[0] = center_x;
+     center[1] = center_y;
+     center[2] = center_z;
+
+     x_axis[0] = 1;  x_axis[1] = 0;  x_axis[2] = 0;
+     y_axis[0] = 0;  y_axis[1] = 1;  y_axis[2] = 0;
+
+     extents[0] = size;
+     extents[1] = size;
+     extents[2] = 0;
+     return true;
+  }
+
+
   protected void Draw( GLAutoDrawable drawable )
   {
      GL gl = drawable.getGL();
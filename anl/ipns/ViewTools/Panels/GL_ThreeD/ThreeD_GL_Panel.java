@@ -151,6 +151,7 @@ import java.util.*;
 
 import gov.anl.ipns.MathTools.Geometry.*;
 import gov.anl.ipns.ViewTools.Panels.GL_ThreeD.Shapes.*;
+import gov.anl.ipns.ViewTools.Panels.GL_ThreeD.Groups.Group;
 import gov.anl.ipns.ViewTools.Panels.GL_ThreeD.ViewControls.*;
 import gov.anl.ipns.Util.Sys.*;
 
@@ -187,6 +188,10 @@ public class ThreeD_GL_Panel implements Serializable
                                                     // objects
   private volatile boolean obj_lists_valid = false;
 
+  private BoxBVH    pick_bvh         = null;      // pick boxes of the
+  private GL_Shape  pick_shapes[]    = null;      // pickable shapes, used
+  private volatile boolean pick_boxes_valid = false;  // by pickID()
+
   private Vector3D  cop, 
                     vrp, 
                     vuv;
@@ -376,6 +381,7 @@ public class ThreeD_GL_Panel implements Serializable
 
    obj_lists.put( name, new_obj );
    obj_lists_valid = false; 
+   pick_boxes_valid = false;
  }
 
 
@@ -455,6 +461,7 @@ public class ThreeD_GL_Panel implements Serializable
 
    obj_lists.remove( name );
    obj_lists_valid = false; 
+   pick_boxes_valid = false;
  }
 
 
@@ -470,6 +477,7 @@ public class ThreeD_GL_Panel implements Serializable
  {
    obj_lists.clear();
    obj_lists_valid = false; 
+   pick_boxes_valid = false;
  }
 
 
@@ -478,7 +486,10 @@ public class ThreeD_GL_Panel implements Serializable
  *  Get the OpenGL selection hit list for the specified window coordinates
  *  x,y.  The objects in the list of objects for this panel will be rendered
  *  using a special small viewing volume centered around the specified pixel.
- *  This should only be called from the event handling thread.
+ *  This should only be called from the event handling thread.  At most
+ *  HIT_BUFFER_SIZE values can be returned and the whole scene is drawn
+ *  for each call, so pickID() only uses this if some of the pickable
+ *  objects can not give a pick box.
  *
  *  @param x  The pixel x (i.e. column) value
  *  @param y  The pixel y (i.e. row) value, in window coordinates.
@@ -522,7 +533,15 @@ public HitRecord[] pickHitList( int x, int y )
  *  Return the Pick ID of the object whose projection is closest to
  *  the specified pixel, provided it is within the specified pick radius.
  *  NOTE: Currently the pick_radius parameter is ignored, so picking 
- *  must be "exact".
+ *  must be "exact".  If every pickable object is a GL_Shape that gives
+ *  a pick box, the object is found on the CPU, by following the ray
+ *  from pickRay() through a BoxBVH of the pick boxes, which is made by
+ *  the first pick after setObjects() or removeObjects() is called, so
+ *  setObjects() must be called again if shapes are moved or made pickable
+ *  after that.  Only the part of the ray between the near and far clipping
+ *  planes is used, so shapes that are clipped away are not picked, as in
+ *  selection mode.  Otherwise, the scene is drawn in OpenGL selection mode
+ *  using pickHitList().
  *
  *  @param  x            The x coordinate of the specified pixel
  *  @param  y            The y coordinate of the specified pixel
@@ -535,6 +554,32 @@ public HitRecord[] pickHitList( int x, int y )
  */
  public int pickID( int x, int y, int pick_radius )
  {
+   if ( !pick_boxes_valid )
+     build_pick_bvh();
+
+   float origin[]    = new float[3];
+   float direction[] = new float[3];
+   if ( pick_bvh != null && pickRay( x, y, origin, direction ) )
+   {                                      // start the ray at the near plane
+     for ( int i = 0; i < 3; i++ )        // and stop at the far plane, since
+       origin[i] += near_plane * direction[i];    // t is the distance along
+                                                  // the viewing direction
+     float t[] = new float[1];
+     int box = pick_bvh.pick( origin, direction, t );
+     if ( box < 0 || t[0] > far_plane - near_plane )
+     {
+       picked_object = null;
+       return GL_Shape.INVALID_PICK_ID;
+     }
+                                          // use the pick ID the shape has now
+     int id = pick_shapes[ box ].getPickID();
+     if ( id != GL_Shape.INVALID_PICK_ID )
+     {
+       picked_object = pick_shapes[ box ];
+       return id;
+     }
+   }
+
    HitRecord hitlist[] = pickHitList( x, y );
 
    if ( debug )
@@ -638,6 +683,37 @@ public float[] pickedWorldCoordinates( int x, int y )
  }
 
 
+/* ------------------------------ pickRay -------------------------------- */
+/**
+ *  Calculate the ray in world coordinates through the specified pixel, 
+ *  using the current camera position, view angle and projection.  This
+ *  is done on the CPU without rendering the scene, so unlike pickHitList()
+ *  it can be used on each mouse motion.  pickID() uses this ray with a
+ *  BoxBVH of the objects in the scene.  For a perspective 
+ *  projection, the ray starts at the center of projection.  For an 
+ *  orthographic projection, the ray starts at the point in the plane 
+ *  through the center of projection that is at the pixel, and is parallel
+ *  to the viewing direction.
+ *
+ *  @param  x          The pixel x (i.e. column) value
+ *  @param  y          The pixel y (i.e. row) value, in window coordinates.
+ *  @param  origin     Array in which the x, y, z coordinates of the start 
+ *                     of the ray are returned.
+ *  @param  direction  Array in which the x, y, z components of the 
+ *                     direction of the ray are returned.  This is not 
+ *                     a unit vector for a perspective projection.
+ *
+ *  @return true if the ray was calculated, or false if the panel has
+ *          zero size or the camera is not set.
+ */
+ public boolean pickRay( int x, int y, float origin[], float direction[] )
+ {
+   return PickRay.calculate( cop, vrp, vuv, view_angle, use_perspective_proj,
+                             canvas.getWidth(), canvas.getHeight(),
+                             x, y, origin, direction );
+ }
+
+
 /* ---------------------------- setCOP ---------------------------------- */
 /**
  *  Set the center of projection (i.e. the viewers position) to use for the
@@ -772,6 +848,87 @@ public float[] pickedWorldCoordinates( int x, int y )
  }
 
 
+/* --------------------------- build_pick_bvh ---------------------------- */
+/**
+ *  Make the BoxBVH of the pick boxes of the pickable shapes, including
+ *  shapes in Groups, for pickID().  If any pickable object does not give
+ *  a pick box, or nothing is pickable, pick_bvh is set to null, so that
+ *  pickID() will use OpenGL selection.
+ */
+ synchronized private void build_pick_bvh()
+ {
+   Vector shapes = new Vector();
+   IThreeD_GL_Object list[] = getAllObjects();
+   boolean all_boxes = true;
+   if ( list != null )
+     for ( int i = 0; i < list.length && all_boxes; i++ )
+       all_boxes = add_pick_shapes( list[i], shapes );
+
+   pick_bvh    = null;
+   pick_shapes = null;
+   if ( all_boxes && shapes.size() > 0 )
+   {
+     int n_boxes = shapes.size();
+     pick_shapes = new GL_Shape[ n_boxes ];
+     shapes.toArray( pick_shapes );
+
+     float centers[] = new float[ 3 * n_boxes ];
+     float x_axes[]  = new float[ 3 * n_boxes ];
+     float y_axes[]  = new float[ 3 * n_boxes ];
+     float extents[] = new float[ 3 * n_boxes ];
+     float center[]  = new float[3];
+     float x_axis[]  = new float[3];
+     float y_axis[]  = new float[3];
+     float extent[]  = new float[3];
+     for ( int i = 0; i < n_boxes; i++ )
+     {
+       pick_shapes[i].getPickBox( center, x_axis, y_axis, extent );
+       System.arraycopy( center, 0, centers, 3*i, 3 );
+       System.arraycopy( x_axis, 0, x_axes,  3*i, 3 );
+       System.arraycopy( y_axis, 0, y_axes,  3*i, 3 );
+       System.arraycopy( extent, 0, extents, 3*i, 3 );
+     }
+     pick_bvh = new BoxBVH( centers, x_axes, y_axes, extents, n_boxes );
+   }
+
+   pick_boxes_valid = true;
+ }
+
+
+/* --------------------------- add_pick_shapes --------------------------- */
+/**
+ *  Add the pickable shapes in the specified object to the list of shapes.
+ *
+ *  @return false if the object is, or contains, a pickable object that
+ *          does not give a pick box.
+ */
+ private boolean add_pick_shapes( IThreeD_GL_Object obj, Vector shapes )
+ {
+   if ( obj instanceof Group )
+   {
+     Group group = (Group)obj;
+     for ( int i = 0; i < group.numChildren(); i++ )
+       if ( !add_pick_shapes( group.getChild(i), shapes ) )
+         return false;
+     return true;
+   }
+
+   if ( !( obj instanceof GL_Shape ) )
+     return obj == null;
+
+   GL_Shape shape = (GL_Shape)obj;
+   if ( shape.getPickID() == GL_Shape.INVALID_PICK_ID )
+     return true;
+
+   float point[] = new float[3];
+   if ( !shape.getPickBox( point, new float[3], new float[3], new float[3] ) )
+     return false;
+
+   shapes.add( shape );
+   return true;
+ }
+
+
 /* -------------------------------------------------------------------------
  *
  *  INTERNAL CLASSES 
@@ -1048,8 +1205,8 @@ public float[] pickedWorldCoordinates( int x, int y )
 
   /* ------------------------ MouseClickHandler --------------------------- */
   /**
-   *  This class listens for mouse clicks and then uses pickHitList() to get
-   *  and print a list of the OpenGL names that are "hit" by a ray through
+   *  This class listens for mouse clicks and then uses pickID() to get
+   *  and print the pick ID of the object that is "hit" by a ray through
    *  the current x,y pixel locations for debugging purposes.
    */
    public class MouseClickHandler extends MouseAdapter
@@ -1069,11 +1226,9 @@ public float[] pickedWorldCoordinates( int x, int y )
                                               ", " + wc[2] );
            // Test object selection ......
 
-           HitRecord hitlist[] = pickHitList( x, y );           
-           System.out.println( "MouseClickHandler: length = "+hitlist.length );
+           int id = pickID( x, y, 0 );
+           System.out.println( "MouseClickHandler: pick ID = " + id );
            System.out.println( "x,y = " + x + ", " + y );
-           for ( int i = 0; i < hitlist.length; i++ )
-             System.out.println("hit = " + hitlist[i] );
         }
       }
    }
@@ -344,6 +344,7 @@ public class GraphJPanel extends    CoordJPanel
   private int                       x_offset_factor = 0;  
   private int                       y_offset_factor = 0;  
   private transient boolean         remove_hidden_lines = false;
+  private boolean                   reduce_points = true;
   private transient CoordBounds     auto_data_bound;
   private boolean         log_scale_x = false;
   private boolean         log_scale_y = false;
@@ -374,6 +375,10 @@ public class GraphJPanel extends    CoordJPanel
   public static final int TRANSPARENT  = 10;
   public static final int ERROR_AT_POINT  = 11;
   public static final int ERROR_AT_TOP    = 12;
+
+                                    // graphs with more than this many points
+                                    // per pixel column are reduced
+  private static final int REDUCE_POINTS_PER_COLUMN = 4;
   
 /* --------------------- Default Constructor ------------------------------ */
 
@@ -1107,6 +1112,38 @@ public boolean setMarkSize(int size, int graph_num, boolean redraw)
   }
 
 
+/* --------------------------- setReducePoints --------------------------- */
+/**
+ * Determines whether or not graphs with many more points than the panel
+ * has pixel columns are reduced before they are drawn.  If enabled, only
+ * the points in the visible x-range are used, and the lines, histogram
+ * steps and markers are reduced so that they look the same, but with far
+ * fewer calls to the graphics object.  For lines, the first, minimum, 
+ * maximum and last point in each pixel column are kept, so at most about
+ * 4 points per pixel column are drawn.  For markers, only one marker is 
+ * drawn at each pixel position.  Error bars are not reduced.  This is
+ * enabled by default.
+ *
+ * @param  reduce  flag that indicates whether or not the points are reduced.
+ */
+  public void setReducePoints( boolean reduce )
+  {
+    reduce_points = reduce;
+  }
+
+
+/* --------------------------- getReducePoints --------------------------- */
+/**
+ * Check whether graphs with many points are reduced before they are drawn.
+ *
+ * @return true if the points of large graphs are reduced.
+ */
+  public boolean getReducePoints()
+  {
+    return reduce_points;
+  }
+
+
 /* -------------------------- getNum_graphs ------------------------------ */
 /**
  *  Get the number of graphs currently held by this GraphJPanel.
@@ -1329,25 +1366,45 @@ public boolean is_autoY_bounds()
       if ( gd.x_vals.length == gd.y_vals.length + 1 )
         is_histogram = true;
 
+      float graph_first_x = first_x;
+      float graph_last_x  = last_x;
+      if ( reduce_points )                   // only use the points in the
+      {                                      // visible x-range, allowing
+                                             // for the multiplot offset and
+                                             // a pixel of rounding, so no
+                                             // edge column is dropped
+        float x1 = getLocal_transform().MapXFrom( -1 - x_offset );
+        float x2 = getLocal_transform().MapXFrom( getWidth() + 1 - x_offset );
+        if ( log_scale_x )
+        {
+          LogScaleUtil logger = new LogScaleUtil( getPositiveXmin(), 
+                                                  getXmax() );
+          x1 = logger.toSource( x1 );
+          x2 = logger.toSource( x2 );
+        }
+        graph_first_x = Math.min( x1, x2 );
+        graph_last_x  = Math.max( x1, x2 );
+      }
+
       int first_index;
-      if ( first_x <= gd.x_vals[ 0 ] )
+      if ( graph_first_x <= gd.x_vals[ 0 ] )
         first_index = 0;
-      else if ( first_x >= gd.x_vals[ gd.x_vals.length-1 ] )
+      else if ( graph_first_x >= gd.x_vals[ gd.x_vals.length-1 ] )
         first_index = gd.x_vals.length-1;
       else
-        first_index = arrayUtil.get_index_of( first_x, gd.x_vals );
+        first_index = arrayUtil.get_index_of( graph_first_x, gd.x_vals );
 
       if ( first_index > 0 )                     // include one extra point 
         first_index--;                           // to include first segment
                                                  // going off screen
 
       int last_index;
-      if ( last_x <= gd.x_vals[ 0 ] )
+      if ( graph_last_x <= gd.x_vals[ 0 ] )
         last_index = 0;
-      else if ( last_x >= gd.x_vals[ gd.x_vals.length-1 ] )
+      else if ( graph_last_x >= gd.x_vals[ gd.x_vals.length-1 ] )
         last_index = gd.x_vals.length-1;
       else
-        last_index = arrayUtil.get_index_of( last_x, gd.x_vals );
+        last_index = arrayUtil.get_index_of( graph_last_x, gd.x_vals );
       if ( last_index < gd.x_vals.length-1 )     // include one extra point 
         last_index++;                            // to include last segment
                                                  // going off screen
@@ -1358,6 +1415,12 @@ public boolean is_autoY_bounds()
       if ( n_points < 1 )
         return;                                  // should clear the panel and
                                                  // then return
+
+                                                 // reduce the points drawn if
+                                                 // there are many more points
+                                                 // than pixel columns
+      boolean reduce = reduce_points && 
+                       n_points > REDUCE_POINTS_PER_COLUMN * getWidth();
       float x_copy[];
       float y_copy[];
       if ( is_histogram )
@@ -1472,14 +1535,17 @@ public boolean is_autoY_bounds()
             x_int[i+1] = (int)( x_copy[i] ) + x_offset;
             y_int[i+1] = (int)( y_copy[i] ) - y_offset;
           }
-          x_int[n_points+1] = (int)( x_copy[n_points-1] ) + x_offset;
-          y_int[n_points+1] = height;
+          int n_line = n_points;
+          if ( reduce )
+            n_line = reduceLine( x_int, y_int, 1, n_points );
+          x_int[n_line+1] = (int)( x_copy[n_points-1] ) + x_offset;
+          y_int[n_line+1] = height;
           g2.setColor( getBackground() );                     // solid fill to
-	  g2.fillPolygon( x_int, y_int, n_points + 2 );       // hide lines
-          System.arraycopy( x_int, 1, x_int, 0, n_points );  // now draw the
-          System.arraycopy( y_int, 1, y_int, 0, n_points );  // data points
+	  g2.fillPolygon( x_int, y_int, n_line + 2 );         // hide lines
+          System.arraycopy( x_int, 1, x_int, 0, n_line );    // now draw the
+          System.arraycopy( y_int, 1, y_int, 0, n_line );    // data points
           g2.setColor( gd.color );                            // themselves
-	  g2.drawPolyline( x_int, y_int, n_points );
+	  g2.drawPolyline( x_int, y_int, n_line );
         }
         else
         {
@@ -1490,8 +1556,11 @@ public boolean is_autoY_bounds()
             x_int[i] = (int)( x_copy[i] ) + x_offset;
             y_int[i] = (int)( y_copy[i] ) - y_offset;
           }
+          int n_line = n_points;
+          if ( reduce )
+            n_line = reduceLine( x_int, y_int, 0, n_points );
           g2.setColor( gd.color );
-          g2.drawPolyline( x_int, y_int, n_points );
+          g2.drawPolyline( x_int, y_int, n_line );
         }
        } 
          
@@ -1507,11 +1576,14 @@ public boolean is_autoY_bounds()
             x_int[i] = (int)( x_copy[i] ) + x_offset;
             y_int[i] = (int)( y_copy[i] ) - y_offset;
           }
+          int n_marks = n_points;
+          if ( reduce )
+            n_marks = reduceMarks( x_int, y_int, n_points );
 	  g2.setStroke(new BasicStroke(1));
           int size = gd.marksize;
 	  g2.setColor( gd.markcolor );
 	  int type = gd.marktype;
-          for ( int i = 0; i < n_points; i++ )
+          for ( int i = 0; i < n_marks; i++ )
           {
 	     if ( type == DOT )
               g2.drawLine( x_int[i], y_int[i], 
@@ -1625,16 +1697,19 @@ public boolean is_autoY_bounds()
             x_int[i+1] = (int)( x_copy[(i+1)/2] ) + x_offset;
             y_int[i+1] = (int)( y_copy[i/2] ) - y_offset;
           }
-          x_int[ x_int.length - 1 ] = (int)( x_copy[y_copy.length-1] )+x_offset;
-          y_int[ x_int.length - 1 ] = height;
+          int n_line = 2*y_copy.length;
+          if ( reduce )
+            n_line = reduceLine( x_int, y_int, 1, 2*y_copy.length );
+          x_int[ n_line + 1 ] = (int)( x_copy[y_copy.length-1] )+x_offset;
+          y_int[ n_line + 1 ] = height;
 
           g2.setColor( getBackground() );                       // solid fill to
-          g2.fillPolygon( x_int, y_int, 2*y_copy.length + 2 );  // hide lines
+          g2.fillPolygon( x_int, y_int, n_line + 2 );           // hide lines
 
-          System.arraycopy( x_int, 1, x_int, 0, 2*y_copy.length ); //now draw 
-          System.arraycopy( y_int, 1, y_int, 0, 2*y_copy.length ); //data points
+          System.arraycopy( x_int, 1, x_int, 0, n_line );          //now draw 
+          System.arraycopy( y_int, 1, y_int, 0, n_line );          //data points
           g2.setColor( gd.color );                                  //themselves
-          g2.drawPolyline( x_int, y_int, 2*y_copy.length );
+          g2.drawPolyline( x_int, y_int, n_line );
         }
         else
         {
@@ -1645,8 +1720,11 @@ public boolean is_autoY_bounds()
             x_int[i] = (int)( x_copy[(i+1)/2] ) + x_offset;
             y_int[i] = (int)( y_copy[i/2] ) - y_offset;
           }
+          int n_line = 2*y_copy.length;
+          if ( reduce )
+            n_line = reduceLine( x_int, y_int, 0, n_line );
           g2.setColor( gd.color );
-          g2.drawPolyline( x_int, y_int, 2*y_copy.length );
+          g2.drawPolyline( x_int, y_int, n_line );
         }
        }
         
@@ -1664,13 +1742,20 @@ public boolean is_autoY_bounds()
           }
           x_int[n_points] = (int)( x_copy[n_points] ) + x_offset;
 
+          int x_mid[] = new int[ n_points ];
+          for ( int i = 0; i < n_points; i++ )
+            x_mid[i] = ((x_int[i] + x_int[i+1])/2);
+          int n_marks = n_points;
+          if ( reduce )
+            n_marks = reduceMarks( x_mid, y_int, n_points );
+
 	  g2.setStroke(new BasicStroke(1));
           int size = gd.marksize;
 	  g2.setColor( gd.markcolor );
 	  int type = gd.marktype;
-          for ( int i = 0; i < n_points; i++ )
+          for ( int i = 0; i < n_marks; i++ )
           {
-	     int x_midpt = ((x_int[i] + x_int[i+1])/2);
+	     int x_midpt = x_mid[i];
 	     if ( type == DOT )
               g2.drawLine( x_midpt, y_int[i], 
 	  			x_midpt, y_int[i] );      
@@ -1779,6 +1864,106 @@ public boolean is_autoY_bounds()
 }
 
 
+/* ------------------------------ reduceLine ----------------------------- */
+/**
+ *  Reduce the points of a polyline in pixel coordinates, in place.  For 
+ *  each run of consecutive points in the same pixel column, only the first
+ *  point, the points with the smallest and largest y, and the last point 
+ *  are kept, in their original order.  Within a column, the polyline just
+ *  moves up and down between its smallest and largest y, so the reduced 
+ *  polyline covers the same pixels.
+ *
+ *  @param  x      The x pixel coordinates
+ *  @param  y      The y pixel coordinates
+ *  @param  start  The index of the first point of the polyline
+ *  @param  n      The number of points in the polyline
+ *
+ *  @return The number of points kept.  These are moved to positions 
+ *          start, ..., start + n_kept - 1 of the arrays.
+ */
+private static int reduceLine( int x[], int y[], int start, int n )
+{
+  int end  = start + n;
+  int kept = start;
+  int i    = start;
+  while ( i < end )
+  {
+    int col   = x[i];
+    int i_min = i;
+    int i_max = i;
+    int j     = i + 1;
+    while ( j < end && x[j] == col )
+    {
+      if ( y[j] < y[i_min] )
+        i_min = j;
+      else if ( y[j] > y[i_max] )
+        i_max = j;
+      j++;
+    }
+
+    int first = Math.min( i_min, i_max );         // keep the points in order
+    int second = Math.max( i_min, i_max );
+    int last  = j - 1;
+    y[kept]   = y[i];
+    x[kept++] = col;
+    if ( first > i )
+    {
+      y[kept]   = y[first];
+      x[kept++] = col;
+    }
+    if ( second > first && second > i )
+    {
+      y[kept]   = y[second];
+      x[kept++] = col;
+    }
+    if ( last > second && last > i )
+    {
+      y[kept]   = y[last];
+      x[kept++] = col;
+    }
+    i = j;
+  }
+  return kept - start;
+}
+
+
+/* ----------------------------- reduceMarks ----------------------------- */
+/**
+ *  Remove repeated points in pixel coordinates, in place, so that only one 
+ *  marker is drawn at each pixel position.  Points are compared within 
+ *  runs of consecutive points in the same pixel column.
+ *
+ *  @param  x      The x pixel coordinates
+ *  @param  y      The y pixel coordinates
+ *  @param  n      The number of points
+ *
+ *  @return The number of points kept.  These are moved to the start of
+ *          the arrays.
+ */
+private static int reduceMarks( int x[], int y[], int n )
+{
+  int kept = 0;
+  int i    = 0;
+  while ( i < n )
+  {
+    int col = x[i];
+    int j   = i + 1;
+    while ( j < n && x[j] == col )
+      j++;
+
+    Arrays.sort( y, i, j );
+    for ( int k = i; k < j; k++ )
+      if ( k == i || y[k] != y[k-1] )
+      {
+        y[kept]   = y[k];
+        x[kept++] = col;
+      }
+    i = j;
+  }
+  return kept;
+}
+
+
 /* ---------------------------- getPreferredSize ------------------------- */
 /**
  *  Calculate the preferred size based on whether or not the graph should be
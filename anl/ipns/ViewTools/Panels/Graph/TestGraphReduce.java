@@ -0,0 +1,169 @@
+/*
+ * File: TestGraphReduce.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ *
+ *  $Author$
+ *  $Date$
+ *  $Revision$
+ */
+
+package gov.anl.ipns.ViewTools.Panels.Graph;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+
+/**
+ *  Test of the point reduction done by GraphJPanel, that can be run
+ *  without a display, using -Djava.awt.headless=true.  Graphs with many
+ *  more points than pixel columns are drawn into an image with
+ *  setReducePoints( true ), which uses reduceLine() and reduceMarks(), and
+ *  with setReducePoints( false ), which draws every point.  This is done
+ *  for lines, histograms and markers, for a zoomed in x-range that cuts
+ *  the graphs at the edges of the panel, with multiplot offsets and with
+ *  hidden lines removed.  The number of pixels that differ should be 0.
+ */
+public class TestGraphReduce
+{
+  private static final int WIDTH    = 600;
+  private static final int HEIGHT   = 400;
+  private static final int N_GRAPHS = 3;
+  private static final int N_POINTS = 100000;
+
+
+  /*
+   *  Make a noisy graph with some peaks, with one more x value than
+   *  y value for a histogram.
+   */
+  private static void setGraphs( GraphJPanel panel,
+                                 boolean     histogram,
+                                 int         stroke,
+                                 int         mark_type )
+  {
+    Random random = new Random( 1 );
+    for ( int gr = 0; gr < N_GRAPHS; gr++ )
+    {
+      int n_x = histogram ? N_POINTS + 1 : N_POINTS;
+      float x[] = new float[ n_x ];
+      float y[] = new float[ N_POINTS ];
+      for ( int i = 0; i < n_x; i++ )
+        x[i] = i * 0.01f;
+      for ( int i = 0; i < N_POINTS; i++ )
+      {
+        y[i] = 10 + 5 * random.nextFloat();
+        if ( i % 7919 < 20 )
+          y[i] += 50 + gr * 10;
+      }
+      panel.setData( x, y, gr, false );
+      panel.setColor( Color.black, gr, false );
+      panel.setStroke( stroke, gr, false );
+      panel.setMarkType( mark_type, gr, false );
+      panel.setMarkColor( Color.red, gr, false );
+    }
+  }
+
+
+  /*
+   *  Draw the panel into an image, with or without reducing the points.
+   */
+  private static int[] draw( GraphJPanel panel, boolean reduce )
+  {
+    panel.setReducePoints( reduce );
+    BufferedImage image = new BufferedImage( WIDTH, HEIGHT,
+                                             BufferedImage.TYPE_INT_RGB );
+    Graphics g = image.getGraphics();
+    panel.paintComponent( g );
+    g.dispose();
+    return image.getRGB( 0, 0, WIDTH, HEIGHT, null, 0, WIDTH );
+  }
+
+
+  /*
+   *  Draw the panel with and without reducing the points, and print the
+   *  number of pixels that differ, and the times.
+   */
+  private static void compare( String name, GraphJPanel panel )
+  {
+    draw( panel, true );                        // warm up
+    draw( panel, false );
+
+    long start = System.nanoTime();
+    int reduced[] = draw( panel, true );
+    long reduced_time = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    int all[] = draw( panel, false );
+    long all_time = System.nanoTime() - start;
+
+    int n_differ = 0;
+    for ( int i = 0; i < all.length; i++ )
+      if ( reduced[i] != all[i] )
+        n_differ++;
+
+    System.out.println( name + ": " + n_differ + " pixels differ, " +
+                        reduced_time / 1000000 + " ms reduced, " +
+                        all_time / 1000000 + " ms not reduced" );
+  }
+
+
+  /*
+   *  Compare each kind of graph over the full x-range and a zoomed in
+   *  x-range.
+   */
+  private static void test( String name,
+                            boolean histogram, int stroke, int mark_type,
+                            int x_offset, int y_offset, boolean hide )
+  {
+    GraphJPanel panel = new GraphJPanel();
+    panel.setSize( WIDTH, HEIGHT );
+    panel.setBackground( Color.white );
+    panel.setMultiplotOffsets( x_offset, y_offset );
+    panel.setRemoveHiddenLines( hide );
+    setGraphs( panel, histogram, stroke, mark_type );
+
+    compare( name, panel );
+
+    panel.setLocalWorldCoords( 123.456f, 80, 456.789f, 0 );
+    compare( name + ", zoomed", panel );
+  }
+
+
+  public static void main( String args[] )
+  {
+    test( "Lines", false, GraphJPanel.LINE, 0, 0, 0, false );
+    test( "Histogram", true, GraphJPanel.LINE, 0, 0, 0, false );
+    test( "Dots", false, GraphJPanel.TRANSPARENT, GraphJPanel.DOT,
+          0, 0, false );
+    test( "Plus marks", false, GraphJPanel.TRANSPARENT, GraphJPanel.PLUS,
+          0, 0, false );
+    test( "Multiplot", false, GraphJPanel.LINE, 0, 17, 25, false );
+    test( "Multiplot, hidden lines", true, GraphJPanel.LINE, 0,
+          17, 25, true );
+  }
+
+}
@@ -0,0 +1,552 @@
+/* 
+ * File: ImageColorMapper.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Revision$
+ */
+
+package gov.anl.ipns.ViewTools.Panels.Image;
+
+import java.util.concurrent.*;
+
+import gov.anl.ipns.ViewTools.Components.*;
+
+/**
+ *  An ImageColorMapper maps a rectangular region of an IVirtualArray2D to
+ *  an array of color indices, for an indexed color image.  The region can 
+ *  be sub sampled in blocks of x_step by y_step values, and the blocks 
+ *  are reduced to one value as specified by the ImageJPanel2 sampling 
+ *  modes, using an ImagePyramid when the blocks are large.  The values 
+ *  are read a row at a time.  For a VirtualArray2D, the rows are read 
+ *  directly from the underlying array and the image rows are mapped in 
+ *  parallel, using fork/join.  Other IVirtualArray2D implementations are
+ *  read using getRowValues(), from the calling thread only, since their
+ *  methods are not required to be thread safe.
+ *    An ImageColorMapper should be constructed for each use, since it 
+ *  takes a reference to the array of values when it is constructed.
+ *
+ *  @see ImageJPanel2
+ */
+public class ImageColorMapper
+{
+  private static final int MIN_PIXELS_PER_TASK = 16384;
+
+  private IVirtualArray2D data;
+  private float[][]       rows;           // values of a VirtualArray2D
+  private ImagePyramid    pyramid;
+  private boolean         parallel;
+
+  private int             sampling_mode = ImageJPanel2.PEAK_SAMPLING;
+
+  private byte[]          color_scale;
+  private boolean         two_sided;
+  private int             zero_index;
+  private float           scale_factor = 1;
+  private float           shift;
+
+  private int             start_row;
+  private int             end_row;
+  private int             start_col;
+  private int             end_col;
+  private int             x_step = 1;
+  private int             y_step = 1;
+  private int             n_image_rows;
+  private int             n_image_cols;
+
+
+  /* ---------------------------- constructor ----------------------------- */
+  /**
+   *  Construct an ImageColorMapper for the whole array, with no sub 
+   *  sampling.
+   *
+   *  @param  data     The array of values to map.
+   *  @param  pyramid  The ImagePyramid for the array, or null if blocks
+   *                   of values should be reduced directly from the array.
+   */
+  public ImageColorMapper( IVirtualArray2D data, ImagePyramid pyramid )
+  {
+    this.data    = data;
+    this.pyramid = pyramid;
+
+    if ( data instanceof VirtualArray2D )
+    {
+      rows     = data.getRegionValues( 0, data.getNumRows() - 1,
+                                       0, data.getNumColumns() - 1 );
+      parallel = true;
+    }
+
+    setRegion( 0, data.getNumRows() - 1, 0, data.getNumColumns() - 1, 1, 1 );
+  }
+
+
+  /* -------------------------- setSamplingMode --------------------------- */
+  /**
+   *  Set the way that blocks of values are reduced to one pixel.
+   *
+   *  @param  mode  One of ImageJPanel2.PEAK_SAMPLING, MEAN_SAMPLING or 
+   *                POINT_SAMPLING.
+   */
+  public void setSamplingMode( int mode )
+  {
+    sampling_mode = mode;
+  }
+
+
+  /* ---------------------------- setPyramid ------------------------------ */
+  /**
+   *  Set the ImagePyramid to use for large blocks.  This allows the 
+   *  mapper to be made before the pyramid is built.
+   *
+   *  @param  pyramid  The ImagePyramid for the array, or null if blocks
+   *                   of values should be reduced directly from the array.
+   */
+  public void setPyramid( ImagePyramid pyramid )
+  {
+    this.pyramid = pyramid;
+  }
+
+
+  /* --------------------------- needsPyramid ----------------------------- */
+  /**
+   *  Check whether the blocks of the current region are large enough that
+   *  an ImagePyramid should be used, given the sampling mode.
+   *
+   *  @return true if the blocks should be reduced using an ImagePyramid.
+   */
+  public boolean needsPyramid()
+  {
+    return sampling_mode != ImageJPanel2.POINT_SAMPLING &&
+           Math.min( x_step, y_step ) >= ImagePyramid.MIN_STEP;
+  }
+
+
+  /* ---------------------------- setParallel ----------------------------- */
+  /**
+   *  Set whether or not the image rows should be mapped in parallel.  
+   *  This is only allowed for a VirtualArray2D, and is on by default.
+   *
+   *  @param  parallel  If true, map the rows in parallel.
+   */
+  public void setParallel( boolean parallel )
+  {
+    this.parallel = parallel && rows != null;
+  }
+
+
+  /* --------------------------- setColorScale ---------------------------- */
+  /**
+   *  Set the mapping from values to color indices.  For a one-sided
+   *  color model, a value v maps to zero_index + table[ v*scale + shift ].
+   *  For a two-sided color model, a value v maps to 
+   *  zero_index + 1 + table[ v*scale ] if v*scale is non-negative, or to 
+   *  zero_index - 1 - table[ -v*scale ] if it is negative.  The position in 
+   *  the table is clamped to the valid range.
+   *
+   *  @param  table         The table of color indices.
+   *  @param  two_sided     Whether the color model is two-sided.
+   *  @param  zero_index    The color index for zero.
+   *  @param  scale_factor  The factor applied to each value.
+   *  @param  shift         The shift added to scaled values, for one-sided
+   *                        color models.
+   */
+  public void setColorScale( byte[]  table, 
+                             boolean two_sided, 
+                             int     zero_index,
+                             float   scale_factor,
+                             float   shift )
+  {
+    this.color_scale  = table;
+    this.two_sided    = two_sided;
+    this.zero_index   = zero_index;
+    this.scale_factor = scale_factor;
+    this.shift        = shift;
+  }
+
+
+  /* ----------------------------- setRegion ------------------------------ */
+  /**
+   *  Set the region of the array to map, and the size of the blocks of 
+   *  values that are mapped to one pixel.
+   *
+   *  @param  start_row  The first row of data to use.
+   *  @param  end_row    The last row of data to use.
+   *  @param  start_col  The first column of data to use.
+   *  @param  end_col    The last column of data to use.
+   *  @param  x_step     The number of columns per pixel.
+   *  @param  y_step     The number of rows per pixel.
+   */
+  public void setRegion( int start_row, int end_row,
+                         int start_col, int end_col,
+                         int x_step,    int y_step )
+  {
+    this.start_row = start_row;
+    this.end_row   = end_row;
+    this.start_col = start_col;
+    this.end_col   = end_col;
+    this.x_step    = x_step;
+    this.y_step    = y_step;
+
+    n_image_rows = (end_row - start_row) / y_step + 1;
+    n_image_cols = (end_col - start_col) / x_step + 1;
+  }
+
+
+  /* ---------------------------- getNumRows ------------------------------ */
+  /**
+   *  Get the number of rows in the image for the current region.
+   *
+   *  @return the number of image rows.
+   */
+  public int getNumRows()
+  {
+    return n_image_rows;
+  }
+
+
+  /* --------------------------- getNumColumns ---------------------------- */
+  /**
+   *  Get the number of columns in the image for the current region.
+   *
+   *  @return the number of image columns.
+   */
+  public int getNumColumns()
+  {
+    return n_image_cols;
+  }
+
+
+  /* -------------------------------- map --------------------------------- */
+  /**
+   *  Map the whole region to color indices.
+   *
+   *  @param  pix  Array of at least getNumRows()*getNumColumns() color 
+   *               indices, stored row by row, to be filled.
+   */
+  public void map( byte[] pix )
+  {
+    mapRows( pix, 0, n_image_rows - 1 );
+  }
+
+
+  /* ------------------------------ mapRows ------------------------------- */
+  /**
+   *  Map the specified rows of the image for the current region to color
+   *  indices, leaving the rest of the array unchanged.
+   *
+   *  @param  pix        Array of at least getNumRows()*getNumColumns() 
+   *                     color indices, stored row by row.
+   *  @param  first_row  The first image row to map.
+   *  @param  last_row   The last image row to map.
+   */
+  public void mapRows( byte[] pix, int first_row, int last_row )
+  {
+    mapBlock( pix, first_row, last_row, 0, n_image_cols - 1 );
+  }
+
+
+  /* ---------------------------- mapDataBlock ---------------------------- */
+  /**
+   *  Map only the pixels of the image for the current region that show
+   *  values in the specified block of the array, leaving the rest of the
+   *  array of color indices unchanged.  This is used to update an image
+   *  after some values of the array have changed.
+   *
+   *  @param  pix        Array of at least getNumRows()*getNumColumns() 
+   *                     color indices, stored row by row.
+   *  @param  row_start  The first row of the array that changed.
+   *  @param  row_end    The last row of the array that changed.
+   *  @param  col_start  The first column of the array that changed.
+   *  @param  col_end    The last column of the array that changed.
+   */
+  public void mapDataBlock( byte[] pix, 
+                            int row_start, int row_end,
+                            int col_start, int col_end )
+  {
+    row_start = Math.max( row_start, start_row );
+    row_end   = Math.min( row_end,   end_row );
+    col_start = Math.max( col_start, start_col );
+    col_end   = Math.min( col_end,   end_col );
+    if ( row_start > row_end || col_start > col_end )
+      return;
+
+    mapBlock( pix, (row_start - start_row) / y_step, 
+                   (row_end   - start_row) / y_step,
+                   (col_start - start_col) / x_step,
+                   (col_end   - start_col) / x_step );
+  }
+
+
+  /* ------------------------------ mapBlock ------------------------------ */
+  /*
+   *  Map the specified block of pixels of the image, in parallel if 
+   *  allowed and the block is large enough.
+   */
+  private void mapBlock( byte[] pix, 
+                         int first_row, int last_row,
+                         int first_col, int last_col )
+  {
+    first_row = Math.max( first_row, 0 );
+    last_row  = Math.min( last_row, n_image_rows - 1 );
+    first_col = Math.max( first_col, 0 );
+    last_col  = Math.min( last_col, n_image_cols - 1 );
+    if ( first_row > last_row || first_col > last_col )
+      return;
+
+    int level = 0;
+    if ( sampling_mode != ImageJPanel2.POINT_SAMPLING && pyramid != null &&
+         (x_step > 1 || y_step > 1) )
+      level = pyramid.chooseLevel( x_step, y_step );
+
+    RowTask task = new RowTask( pix, first_row, last_row, 
+                                     first_col, last_col, level );
+    if ( parallel && (last_row - first_row + 1) * (last_col - first_col + 1)
+                                                 > 2 * MIN_PIXELS_PER_TASK )
+      ForkJoinPool.commonPool().invoke( task );
+    else
+      task.compute();
+  }
+
+
+  /* ------------------------------ mapRow -------------------------------- */
+  /*
+   *  Map columns first_col to last_col of one row of the image.  The arrays
+   *  values, min, max, sum and count have length n_image_cols, and are used
+   *  for temporary storage.
+   */
+  private void mapRow( byte[]   pix, 
+                       int      image_row, 
+                       int      first_col,
+                       int      last_col,
+                       int      level,
+                       float[]  values,
+                       float[]  min,
+                       float[]  max,
+                       double[] sum,
+                       int[]    count,
+                       float[]  stats )
+  {
+    int y     = start_row + image_row * y_step;
+    int y_end = Math.min( y + y_step - 1, end_row );
+    int index = image_row * n_image_cols + first_col;
+    int n     = last_col - first_col + 1;
+
+    if ( sampling_mode == ImageJPanel2.POINT_SAMPLING ||
+         (x_step == 1 && y_step == 1) )
+    {                                    // map directly from the data row
+      int off = ( rows != null ) ? start_col : 0;
+      mapValues( getRow( y ), off + first_col * x_step, x_step, 
+                 pix, index, n );
+      return;
+    }
+
+    if ( level > 0 )
+    {
+      for ( int i = first_col; i <= last_col; i++ )
+      {
+        int x     = start_col + i * x_step;
+        int x_end = Math.min( x + x_step - 1, end_col );
+        pyramid.getBlockStats( level, y, y_end, x, x_end, stats );
+        values[i] = reduce( stats[ ImagePyramid.MIN ], 
+                            stats[ ImagePyramid.MAX ], 
+                            stats[ ImagePyramid.MEAN ] );
+      }
+    }
+    else                                 // reduce small blocks directly
+    {
+      java.util.Arrays.fill( min,   first_col, last_col + 1, 
+                             Float.POSITIVE_INFINITY );
+      java.util.Arrays.fill( max,   first_col, last_col + 1, 
+                             Float.NEGATIVE_INFINITY );
+      java.util.Arrays.fill( sum,   first_col, last_col + 1, 0 );
+      java.util.Arrays.fill( count, first_col, last_col + 1, 0 );
+      int off    = ( rows != null ) ? start_col : 0;
+      int k_end  = Math.min( (last_col + 1) * x_step, end_col - start_col + 1 );
+      for ( int r = y; r <= y_end; r++ )
+      {
+        float[] row = getRow( r );
+        int     k   = first_col * x_step;
+        int     col = off + k;
+        for ( ; k < k_end; k++, col++ )
+        {
+          float val = row[col];
+          if ( val == val )                                // not NaN
+          {
+            int i = k / x_step;
+            if ( val < min[i] )
+              min[i] = val;
+            if ( val > max[i] )
+              max[i] = val;
+            sum[i] += val;
+            count[i]++;
+          }
+        }
+      }
+      for ( int i = first_col; i <= last_col; i++ )
+        if ( count[i] == 0 )
+          values[i] = Float.NaN;
+        else
+          values[i] = reduce( min[i], max[i], (float)(sum[i] / count[i]) );
+    }
+
+    mapValues( values, first_col, 1, pix, index, n );
+  }
+
+
+  /* ----------------------------- mapValues ------------------------------ */
+  /*
+   *  Map n values, src[off], src[off+stride], ..., to color indices stored
+   *  in pix, starting at position index.
+   */
+  private void mapValues( float[] src, int off, int stride, 
+                          byte[]  pix, int index, int n )
+  {
+    byte[] table = color_scale;
+    float  scale = scale_factor;
+    int    zero  = zero_index;
+    int    last  = table.length - 1;
+    int    end   = index + n;
+    float  temp;
+    if ( two_sided )                 // two-sided case is symmetric about 0.
+    {                                // we use the same table for + and - vals
+      for ( ; index < end; index++, off += stride )
+      {
+        temp = src[off] * scale;
+        if( temp > last )
+          temp = last;
+        else if( temp < -last )
+          temp = -last;
+
+        if ( temp >= 0 )
+          pix[index] = (byte)(zero + 1 + table[(int)temp]);
+        else
+          pix[index] = (byte)(zero - 1 - table[(int)(-temp)]);
+      }
+    }
+    else                             // one-sided case may not be symmetric
+    {
+      float offset = shift;
+      for ( ; index < end; index++, off += stride )
+      {
+        temp = src[off] * scale + offset;
+        if ( temp > last )
+          temp = last;
+        else if ( temp < 0 )
+          temp = 0;
+
+        pix[index] = (byte)(zero + table[(int)temp]);
+      }
+    }
+  }
+
+
+  /* ------------------------------ reduce -------------------------------- */
+  /*
+   *  Reduce the min, max and mean of a block to the value to show, 
+   *  based on the sampling mode.
+   */
+  private float reduce( float min, float max, float mean )
+  {
+    if ( sampling_mode == ImageJPanel2.MEAN_SAMPLING )
+      return mean;
+
+    if ( two_sided && -min > max )
+      return min;
+
+    return max;
+  }
+
+
+  /* ------------------------------ getRow -------------------------------- */
+  /*
+   *  Get the values of a row of data.  For a VirtualArray2D, this is the 
+   *  whole row of the underlying array, otherwise it contains the values
+   *  from start_col to end_col.
+   */
+  private float[] getRow( int row )
+  {
+    if ( rows != null )
+      return rows[row];
+
+    return data.getRowValues( row, start_col, end_col );
+  }
+
+
+  /* ------------------------------ RowTask ------------------------------- */
+  /*
+   *  Maps columns first_col to last_col of a range of image rows, splitting
+   *  the range of rows in half until it is small enough.
+   */
+  private class RowTask extends RecursiveAction
+  {
+    private byte[] pix;
+    private int    first_row;
+    private int    last_row;
+    private int    first_col;
+    private int    last_col;
+    private int    level;
+
+    RowTask( byte[] pix, int first_row, int last_row, 
+                         int first_col, int last_col, int level )
+    {
+      this.pix       = pix;
+      this.first_row = first_row;
+      this.last_row  = last_row;
+      this.first_col = first_col;
+      this.last_col  = last_col;
+      this.level     = level;
+    }
+
+    protected void compute()
+    {
+      int n_rows = last_row - first_row + 1;
+      if ( parallel && n_rows > 1 && 
+           n_rows * (last_col - first_col + 1) > 2 * MIN_PIXELS_PER_TASK )
+      {
+        int mid = first_row + n_rows / 2;
+        invokeAll( new RowTask( pix, first_row, mid - 1, 
+                                     first_col, last_col, level ),
+                   new RowTask( pix, mid,       last_row, 
+                                     first_col, last_col, level ) );
+        return;
+      }
+
+      float[]  values = new float [ n_image_cols ];
+      float[]  min    = new float [ n_image_cols ];
+      float[]  max    = new float [ n_image_cols ];
+      double[] sum    = new double[ n_image_cols ];
+      int[]    count  = new int   [ n_image_cols ];
+      float[]  stats  = new float [ 3 ];
+      for ( int row = first_row; row <= last_row; row++ )
+        mapRow( pix, row, first_col, last_col, level, 
+                values, min, max, sum, count, stats );
+    }
+  }
+
+}
@@ -252,6 +252,7 @@ import java.awt.*;
 import java.io.*;
 import java.awt.image.*;
 import java.awt.event.*;
+import java.util.concurrent.*;
 import javax.swing.*;
 
 import gov.anl.ipns.ViewTools.Components.*;
@@ -275,6 +276,12 @@ import gov.anl.ipns.Util.Sys.*;
  *  the base class, CoordJPanel.  Alternatively, methods to convert between
  *  image row and column values and pixel or world coordinate values are
  *  also provided.
+ *    When a large region of a VirtualArray2D is shown, the image is 
+ *  rendered on a background thread, so that zooming does not block the 
+ *  Swing event thread.  A coarse, point sampled preview is shown immediately, and is
+ *  replaced on the event thread when the full image is done.  A render 
+ *  that is still in progress when the image is requested again is 
+ *  abandoned.  This can be turned off with setAsyncRendering().
  *
  *  @see CoordJPanel 
  *  @see IndexColorMaker
@@ -355,6 +362,38 @@ public class ImageJPanel2 extends    CoordJPanel
   */
   public static final int THUMBNAIL_SIZE = 256;
 
+ /**
+  * Sampling mode that shows the value of largest magnitude in each block
+  * of data values covered by a pixel, when there are more data values than
+  * pixels, so that isolated peaks remain visible.  For one-sided color 
+  * scales, the maximum value in the block is shown.  This is the default.
+  */
+  public static final int PEAK_SAMPLING  = 0;
+
+ /**
+  * Sampling mode that shows the mean of each block of data values covered
+  * by a pixel, when there are more data values than pixels.
+  */
+  public static final int MEAN_SAMPLING  = 1;
+
+ /**
+  * Sampling mode that shows one data value from each block of data values
+  * covered by a pixel, when there are more data values than pixels.
+  */
+  public static final int POINT_SAMPLING = 2;
+
+ /**
+  * Images showing at least this many data values of a VirtualArray2D are
+  * rendered on a background thread, if asynchronous rendering is enabled.
+  * Smaller images are fast enough to render directly.
+  */
+  public static final int ASYNC_MIN_VALUES = 1 << 20;
+
+  private static final int PREVIEW_DIVISOR   = 4;   // preview has 1/4 of
+                                                    // the rows and columns
+  private static final int RENDER_STRIP_ROWS = 64;  // rows mapped between
+                                                    // checks for cancel
+  private static ExecutorService render_executor = null;
   
   private final int       DEFAULT_TABLE_SIZE          = 60000;
   private final int       DEFAULT_NUM_POSITIVE_COLORS = 127; 
@@ -362,7 +401,34 @@ public class ImageJPanel2 extends    CoordJPanel
   private float           prescale = 1;            // factor for scaling data
   private Image           rescaled_image  = null;
   private Image           thumbnail_image = null;
+  private transient BufferedImage image_raster;      // reused when the size
+  private transient BufferedImage thumbnail_raster;  // and color model are
+                                                     // unchanged
+  private transient int[]         image_region;      // start_row, end_row,
+                                                     // start_col, end_col,
+                                                     // width, height used
+                                                     // for image_raster, or
+                                                     // null if settings have
+                                                     // changed since
+  private transient BufferedImage preview_raster;    // coarse image shown
+                                                     // while rendering
+  private transient BufferedImage back_raster;       // spare raster for the
+                                                     // next background render
+  private boolean                 async_rendering = true;
+  private transient volatile int  render_generation; // incremented to cancel
+                                                     // renders in progress
+  private transient int           data_version;      // incremented when the
+                                                     // data values change
+  private transient boolean       render_pending;
+  private transient long          completed_renders;
+  private transient long          dropped_renders;
+  private transient float         last_render_ms;
+  private transient float         max_render_ms;
   private IVirtualArray2D data;
+  private transient ImagePyramid pyramid;          // min, max and mean of 
+                                                   // tiles of data, built
+                                                   // when first needed
+  private int             sampling_mode = PEAK_SAMPLING;
   private float           min_data;
   private float           max_data;
 
@@ -415,6 +481,7 @@ public class ImageJPanel2 extends    CoordJPanel
   {
     // since ImageJPanel extends CoordJPanel, set those state variables first.
     super.setObjectState(new_state);
+    image_region = null;
     boolean redraw = false;  // if any values are changed, repaint.
     boolean makeNewColorModel = false;
      Object temp = new_state.get(LOG_SCALE);
@@ -611,6 +678,7 @@ public class ImageJPanel2 extends    CoordJPanel
   public void setPrescale( float prescale, boolean rebuild_image )
   {
     this.prescale = prescale;
+    image_region  = null;
 
     if ( rebuild_image )
       RebuildImage();
@@ -767,6 +835,7 @@ public class ImageJPanel2 extends    CoordJPanel
       color_model = IndexColorMaker.getColorModel( color_model_string,
                                                    num_colors );
     }
+    image_region = null;
 
     if ( rebuild_image )
       RebuildImage();
@@ -837,6 +906,7 @@ public class ImageJPanel2 extends    CoordJPanel
     // Set min/max_data
     min_data = data_min;
     max_data = data_max;
+    image_region = null;
 
     // turn off auto data range calculation.
     enableAutoDataRange(false);
@@ -867,38 +937,247 @@ public class ImageJPanel2 extends    CoordJPanel
       return;
     }
     data = a2d;
+    pyramid = null;                    // built when needed, by subSample()
+    image_region = null;
+    data_version++;
+    render_generation++;               // a pending render shows old data
     
     if( isAutoDataRangeEnabled() )
+      findDataRange();
+
+    thumbnail_image = null;
+
+    if ( rebuild_image )
+      RebuildImage();
+
+  } // End setData()
+
+
+/* ------------------------------ dataChanged ----------------------------- */
+/**
+ *  Update the image after the values in the specified block of the current
+ *  data array have been changed in place.  The cached statistics and the
+ *  ImagePyramid are only updated for the block.  If the auto data range is
+ *  enabled and the range of the data has changed, the whole image is 
+ *  rebuilt.  Otherwise, only the pixels of the displayed image that show
+ *  values in the block are recolored.  As with RebuildImage(), the caller
+ *  should repaint the panel.
+ *
+ *  @param  row_start  The first row of the block that changed.
+ *  @param  row_end    The last row of the block that changed.
+ *  @param  col_start  The first column of the block that changed.
+ *  @param  col_end    The last column of the block that changed.
+ *
+ *  @return true if only part of the image was recolored, or false if the
+ *          whole image was rebuilt.
+ */
+  public boolean dataChanged( int row_start, int row_end,
+                              int col_start, int col_end )
+  {
+    if ( data == null )
+      return false;
+
+    if ( data instanceof IStatisticsArray2D )
+      ((IStatisticsArray2D)data).getStatistics().invalidateRows( row_start,
+                                                                row_end );
+    if ( pyramid != null )
+      pyramid.update( row_start, row_end, col_start, col_end );
+
+    data_version++;
+    thumbnail_image = null;
+
+    boolean range_changed = false;
+    if ( isAutoDataRangeEnabled() )
     {
-      max_data = Float.NEGATIVE_INFINITY;
-      min_data = Float.POSITIVE_INFINITY;
-      float temp;
-      int row_count = data.getNumRows();
-      int col_count = data.getNumColumns();
-      for ( int row = 0; row < row_count; row++ )
-      {
-        for ( int col = 0; col < col_count; col++ )
-        {
-          temp = data.getDataValue(row,col);
-          if ( temp > max_data )
-            max_data = temp;
-          if ( temp < min_data )
-            min_data = temp;
-        }
-       }
+      float old_min = min_data;
+      float old_max = max_data;
+      findDataRange();
+      range_changed = ( min_data != old_min || max_data != old_max );
+    }
 
-      if ( min_data == max_data )    // avoid division by 0 when scaling data
-        max_data = min_data + 1;
+    ImageColorMapper mapper = null;
+    if ( !range_changed && image_region != null && image_raster != null )
+    {
+      mapper = makeMapper( image_region[0], image_region[1],
+                           image_region[2], image_region[3],
+                           image_region[4], image_region[5] );
+
+      if ( mapper.getNumColumns()      != image_raster.getWidth()  ||
+           mapper.getNumRows()         != image_raster.getHeight() ||
+           image_raster.getColorModel() != color_model              ||
+          (mapper.needsPyramid() && pyramid == null)                )
+        mapper = null;
+    }
 
-    } // End if( isAutoScaleDataEnabled() )
+    if ( mapper == null )
+    {
+      image_region = null;             // set again if the image is rebuilt
+      RebuildImage();
+      return false;
+    }
+
+    byte[] pix = ((DataBufferByte)image_raster.getRaster().getDataBuffer())
+                                                                  .getData();
+    mapper.mapDataBlock( pix, row_start, row_end, col_start, col_end );
+    image = image_raster;
+
+    stop_box( current_point, false );
+    stop_crosshair( current_point );
+
+    rescaleImage();                    // the scaled image is a copy, so 
+    image = rescaled_image;            // it must be made again
+    return true;
+  }
 
 
+ /* -------------------------- setSamplingMode -------------------------- */
+ /**
+  * Set the way that blocks of data values are reduced to one pixel, when 
+  * the image shows more rows or columns of data than there are pixels.
+  *
+  *  @param  mode           One of PEAK_SAMPLING, MEAN_SAMPLING or 
+  *                         POINT_SAMPLING.
+  *  @param  rebuild_image  Flag to determine whether the displayed image
+  *                         is rebuilt now.
+  *
+  *  @throws IllegalArgumentException if the mode is not valid.
+  */
+  public void setSamplingMode( int mode, boolean rebuild_image )
+  {
+    if ( mode != PEAK_SAMPLING && mode != MEAN_SAMPLING && 
+         mode != POINT_SAMPLING )
+      throw new IllegalArgumentException( "Invalid sampling mode " + mode );
+
+    sampling_mode   = mode;
     thumbnail_image = null;
+    image_region    = null;
 
     if ( rebuild_image )
       RebuildImage();
+  }
+
+
+ /* -------------------------- getSamplingMode -------------------------- */
+ /**
+  * Get the way that blocks of data values are reduced to one pixel.
+  *
+  *  @return PEAK_SAMPLING, MEAN_SAMPLING or POINT_SAMPLING.
+  */
+  public int getSamplingMode()
+  {
+    return sampling_mode;
+  }
+
+
+ /* ------------------------- setAsyncRendering ------------------------- */
+ /**
+  * Set whether images showing at least ASYNC_MIN_VALUES data values are
+  * rendered on a background thread, showing a coarse preview until the
+  * full image is ready.  This is on by default.  If it is off, all images
+  * are rendered on the calling thread.  Only a VirtualArray2D is read on
+  * the background thread.  Other IVirtualArray2D implementations are not
+  * required to be thread safe, and a DataSetVirtualArray computes values
+  * lazily, so images of those are always rendered on the calling thread.
+  *
+  *  @param  async  If true, render large images in the background.
+  */
+  public void setAsyncRendering( boolean async )
+  {
+    async_rendering = async;
+  }
+
+
+ /* ------------------------- isAsyncRendering -------------------------- */
+ /**
+  * Check whether large images are rendered on a background thread.
+  *
+  *  @return true if asynchronous rendering is enabled.
+  */
+  public boolean isAsyncRendering()
+  {
+    return async_rendering;
+  }
+
+
+ /* -------------------------- isRenderPending -------------------------- */
+ /**
+  * Check whether a coarse preview is shown while the full image is 
+  * rendered in the background.
+  *
+  *  @return true if a background render is in progress.
+  */
+  public boolean isRenderPending()
+  {
+    return render_pending;
+  }
+
+
+ /* ------------------------ getCompletedRenders ------------------------ */
+ /**
+  * Get the number of images that have been rendered and shown, on the 
+  * calling thread or in the background, since the counters were reset.
+  *
+  *  @return the number of completed renders.
+  */
+  public long getCompletedRenders()
+  {
+    return completed_renders;
+  }
+
+
+ /* ------------------------- getDroppedRenders ------------------------- */
+ /**
+  * Get the number of background renders that were abandoned, or finished
+  * but not shown, because a newer image was requested before they were 
+  * done.
+  *
+  *  @return the number of dropped renders.
+  */
+  public long getDroppedRenders()
+  {
+    return dropped_renders;
+  }
+
+
+ /* ------------------------ getLastRenderTime -------------------------- */
+ /**
+  * Get the time from when the last completed image was requested until it
+  * was shown, including any time waiting for the background thread.
+  *
+  *  @return the latency of the last completed render, in milliseconds.
+  */
+  public float getLastRenderTime()
+  {
+    return last_render_ms;
+  }
+
+
+ /* ------------------------- getMaxRenderTime -------------------------- */
+ /**
+  * Get the largest latency of any completed render since the counters
+  * were reset.
+  *
+  *  @return the maximum render latency, in milliseconds.
+  */
+  public float getMaxRenderTime()
+  {
+    return max_render_ms;
+  }
+
+
+ /* ----------------------- resetRenderCounters ------------------------- */
+ /**
+  * Reset the counts of completed and dropped renders and the render 
+  * latencies to zero.
+  */
+  public void resetRenderCounters()
+  {
+    completed_renders = 0;
+    dropped_renders   = 0;
+    last_render_ms    = 0;
+    max_render_ms     = 0;
+  }
 
-  } // End setData()
 
 
  /* -------------------------- getThumbnail ----------------------------- */  
@@ -1308,9 +1587,40 @@ protected void LocalTransformChanged()
     int width  = getWidth(); 
     int height = getHeight(); 
 
-    image = subSample( start_row, end_row,
-                       start_col, end_col,
-                       width,     height  );
+    ImageColorMapper mapper = makeMapper( start_row, end_row,
+                                          start_col, end_col,
+                                          width,     height );
+    int[] region = new int[]{ start_row, end_row, start_col, end_col, 
+                              width, height };
+
+    render_generation++;                 // cancel any render in progress
+    render_pending = false;
+
+    long n_values = (long)(end_row - start_row + 1) * 
+                          (end_col - start_col + 1);
+    if ( async_rendering && n_values >= ASYNC_MIN_VALUES &&
+         data instanceof VirtualArray2D              &&
+         SwingUtilities.isEventDispatchThread() )
+    {
+      image_region = null;               // set when the render is done
+      startRender( mapper, region );
+                                         // show a coarse preview for now
+      ImageColorMapper preview = makeMapper( start_row, end_row,
+                                             start_col, end_col,
+                               Math.max( 1, width  / PREVIEW_DIVISOR ), 
+                               Math.max( 1, height / PREVIEW_DIVISOR ) );
+      preview.setSamplingMode( POINT_SAMPLING );
+      preview_raster = subSample( preview, preview_raster );
+      image = preview_raster;
+    }
+    else
+    {
+      long start_time = System.nanoTime();
+      image_raster = subSample( mapper, image_raster );
+      image_region = region;
+      image = image_raster;
+      recordRenderTime( start_time );
+    }
 
     if ( image != null )
     {
@@ -1339,21 +1649,29 @@ protected void LocalTransformChanged()
     int end_row = data.getNumRows() - 1;
     int end_col = data.getNumColumns() - 1;
 
-    return subSample( 0, end_row, 0, end_col, THUMBNAIL_SIZE, THUMBNAIL_SIZE );
+    thumbnail_raster = subSample( makeMapper( 0, end_row, 0, end_col, 
+                                              THUMBNAIL_SIZE, THUMBNAIL_SIZE ),
+                                  thumbnail_raster );
+    return thumbnail_raster;
   }
 
 
- /* ---------------------------- subSample ------------------------------- */
+ /* ---------------------------- makeMapper ------------------------------ */
  /*
-  *  This method produces an Image object by sub sampling (if necessary) a 
-  *  specified sub rectangle of the array of data.  The returned image is
-  *  has size at most width X height, but may be smaller, if the number of
-  *  data rows or columns is less than the specified height or width.  
+  *  This method makes the ImageColorMapper that sub samples (if necessary)
+  *  a specified sub rectangle of the array of data, for an image of size 
+  *  at most width X height, which may be smaller, if the number of data 
+  *  rows or columns is less than the specified height or width.  
   *  There are two possible cases regarding the color model, either the 
   *  color model is "one-sided" in which case indices 0..k-1 are used, where
   *  k is the total number of colors, or the color model is split with 
   *  approximately have of the colors used for positive value and half for
   *  negative values.
+  *    If there are more data rows or columns than pixels, each pixel 
+  *  covers a block of data values, which is reduced to one value using
+  *  the ImagePyramid, as specified by the sampling mode.  The color 
+  *  indices are calculated by the ImageColorMapper, in parallel if 
+  *  possible.
   *    If the color model is two-sided then the total table length is 2k+1
   *  where k is the number of positive colors.  The "zero" position in the 
   *  table will be in position k, with positive values mapping to indices
@@ -1369,12 +1687,12 @@ protected void LocalTransformChanged()
   *  @param  width       The width of the image to produce
   *  @param  height      The height of the image to produce
   *
-  *  @return an image with the specified width and height, or smaller if
-  *          the data does not have enough rows or columns.
+  *  @return a mapper for an image with the specified width and height, or
+  *          smaller if the data does not have enough rows or columns.
   */ 
-  private Image subSample( int start_row, int end_row,
-                           int start_col, int end_col,
-                           int width,     int height  )
+  private ImageColorMapper makeMapper( int start_row, int end_row,
+                                       int start_col, int end_col,
+                                       int width,     int height )
   {
     int color_table_size = color_scale.length;
                                      // find the scale factor and zero offset
@@ -1451,51 +1769,240 @@ protected void LocalTransformChanged()
     if( y_step < 1 )
       y_step = 1;
 
-    int n_image_cols = (int)Math.ceil( n_data_cols/(double)x_step );
-    int n_image_rows = (int)Math.ceil( n_data_rows/(double)y_step );
-    byte  pix[] = new byte[ n_image_rows * n_image_cols ];
-    float temp  = 0;
-    int   index = 0;
-                                     // make an array of bytes by sampling the
-                                     // array in steps of x_step and y_step
-
-    if ( isTwoSided )                // two-sided case is symmetric about 0.
-    {                                // we use the same table for + and - vals
-      for (int y = start_row; y <= end_row; y = y + y_step)
-        for (int x = start_col; x <= end_col; x = x + x_step)
-        {
-          temp = data.getDataValue(y,x) * scale_factor;
-	  if( temp > color_table_size - 1 )
-	    temp = color_table_size - 1;
-          else if( temp < -( color_table_size - 1) )
-	    temp = -( color_table_size - 1);
-	
-          if ( temp >= 0 )
-            pix[index++] = (byte)(zero_index + 1 + color_scale[(int)temp]);
-          else
-            pix[index++] = (byte)(zero_index - 1 - color_scale[(int)(-temp)]);
-        }
+    ImageColorMapper mapper = new ImageColorMapper( data, pyramid );
+    mapper.setSamplingMode( sampling_mode );
+    mapper.setColorScale( color_scale, isTwoSided, zero_index, 
+                          scale_factor, shift );
+    mapper.setRegion( start_row, end_row, start_col, end_col, x_step, y_step );
+    return mapper;
+  }
+
+
+ /* ---------------------------- subSample ------------------------------- */
+ /*
+  *  This method produces an Image object by sub sampling (if necessary) a 
+  *  sub rectangle of the array of data, as specified by the mapper.  The
+  *  ImagePyramid is built first, if the mapper needs it.  The color 
+  *  indices are stored directly in the raster of the returned image.
+  *  If the image passed in has the required size and color model, its 
+  *  raster is reused.
+  *
+  *  @param  mapper  The mapper returned by makeMapper().
+  *  @param  reuse   An image returned by a previous call, or null.
+  *
+  *  @return an image with the size given by the mapper.
+  */ 
+  private BufferedImage subSample( ImageColorMapper mapper, 
+                                   BufferedImage    reuse )
+  {
+    if ( pyramid == null && mapper.needsPyramid() )
+    {
+      pyramid = new ImagePyramid( data );
+      mapper.setPyramid( pyramid );
     }
-    else                             // one-sided case may not be symmetric
+
+    BufferedImage new_image = getRaster( mapper, reuse, color_model );
+    byte[] pix = ((DataBufferByte)new_image.getRaster().getDataBuffer())
+                                                                  .getData();
+    mapper.map( pix );
+    return new_image;
+  }
+
+
+ /* ----------------------------- getRaster ------------------------------ */
+ /*
+  *  Get an image with a byte raster of the size given by the mapper, 
+  *  reusing the image passed in if it has the required size and color
+  *  model.
+  */
+  private static BufferedImage getRaster( ImageColorMapper mapper,
+                                          BufferedImage    reuse,
+                                          IndexColorModel  color_model )
+  {
+    int n_image_cols = mapper.getNumColumns();
+    int n_image_rows = mapper.getNumRows();
+
+    if ( reuse != null                          && 
+         reuse.getWidth()      == n_image_cols &&
+         reuse.getHeight()     == n_image_rows &&
+         reuse.getColorModel() == color_model   )
+      return reuse;
+
+    return new BufferedImage( color_model,
+                              Raster.createInterleavedRaster(
+                                  DataBuffer.TYPE_BYTE, 
+                                  n_image_cols, n_image_rows, 1, null ),
+                              false, null );
+  }
+
+
+ /* ---------------------------- startRender ----------------------------- */
+ /*
+  *  Render the image for the mapper on the background thread, and swap it
+  *  in on the event thread when it is done, unless a newer image has been
+  *  requested by then.  The ImagePyramid is also built in the background,
+  *  if needed, and kept if the data has not changed in the meantime.
+  */
+  private void startRender( final ImageColorMapper mapper, 
+                            final int[]            region )
+  {
+    final int             generation    = render_generation;
+    final int             version       = data_version;
+    final long            start_time    = System.nanoTime();
+    final IVirtualArray2D render_data   = data;
+    final ImagePyramid    known_pyramid = pyramid;
+    final IndexColorModel render_model  = color_model;
+    final BufferedImage   target        = back_raster;
+    back_raster    = null;
+    render_pending = true;
+
+    Runnable render = new Runnable()
     {
-      for (int y = start_row; y <= end_row; y = y + y_step)
-        for (int x = start_col; x <= end_col; x = x + x_step)
+      public void run()
+      {
+        ImagePyramid  built  = known_pyramid;
+        BufferedImage result = null;
+        try
         {
-          temp = data.getDataValue(y,x) * scale_factor + shift;
-          if ( temp > color_table_size - 1 )
-            temp = color_table_size - 1;
-          else if ( temp < 0 )
-            temp = 0;
-
-          pix[index++] = (byte)(zero_index + color_scale[(int)temp]);
+          if ( generation == render_generation )
+          {
+            if ( built == null && mapper.needsPyramid() )
+              built = new ImagePyramid( render_data );
+            mapper.setPyramid( built );
+            result = getRaster( mapper, target, render_model );
+
+            byte[] pix = ((DataBufferByte)result.getRaster().getDataBuffer())
+                                                                   .getData();
+            int n_rows = mapper.getNumRows();
+            for ( int row = 0; row < n_rows && result != null; 
+                  row += RENDER_STRIP_ROWS )
+              if ( generation == render_generation )
+                mapper.mapRows( pix, row, row + RENDER_STRIP_ROWS - 1 );
+              else
+                result = null;                            // cancelled
+          }
         }
+        catch ( RuntimeException ex )
+        {
+          result = null;
+          SharedMessages.addmsg( "ERROR: Rendering image failed: " + ex );
+        }
+
+        final ImagePyramid  new_pyramid = built;
+        final BufferedImage new_image   = result;
+        EventQueue.invokeLater( new Runnable()
+        {
+          public void run()
+          {
+            finishRender( generation, version, start_time, render_data,
+                          new_pyramid, target, new_image, region );
+          }
+        } );
+      }
+    };
+
+    getRenderExecutor().execute( render );
+  }
+
+
+ /* ---------------------------- finishRender ---------------------------- */
+ /*
+  *  Called on the event thread when a background render is done, to keep
+  *  the pyramid and swap in the new raster, or to count the render as 
+  *  dropped if it is no longer wanted.
+  */
+  private void finishRender( int             generation,
+                             int             version,
+                             long            start_time,
+                             IVirtualArray2D render_data,
+                             ImagePyramid    new_pyramid,
+                             BufferedImage   target,
+                             BufferedImage   new_image,
+                             int[]           region )
+  {
+    if ( pyramid == null && new_pyramid != null && 
+         render_data == data && version == data_version )
+      pyramid = new_pyramid;
+
+    if ( generation != render_generation || new_image == null )
+    {
+      dropped_renders++;
+      if ( new_image != null )
+        back_raster = new_image;
+      else if ( target != null )
+        back_raster = target;
+      return;
     }
 
-    Image new_image = createImage(new MemoryImageSource(n_image_cols,
-                                                        n_image_rows,
-                                                        color_model, pix, 0,
-                                                        n_image_cols));
-    return new_image;
+    render_pending = false;
+    back_raster    = image_raster;      // no longer shown, reuse next time
+    image_raster   = new_image;
+    image_region   = region;
+    recordRenderTime( start_time );
+
+    image = image_raster;
+    stop_box( current_point, false );
+    stop_crosshair( current_point );
+    rescaleImage();
+    image = rescaled_image;
+    repaint();
+  }
+
+
+ /* -------------------------- recordRenderTime -------------------------- */
+ /*
+  *  Update the render counters for a render requested at start_time.
+  */
+  private void recordRenderTime( long start_time )
+  {
+    completed_renders++;
+    last_render_ms = (System.nanoTime() - start_time) / 1.0e6f;
+    if ( last_render_ms > max_render_ms )
+      max_render_ms = last_render_ms;
+  }
+
+
+ /* ------------------------- getRenderExecutor -------------------------- */
+ /*
+  *  Get the single daemon thread shared by all panels for background 
+  *  rendering.
+  */
+  private static synchronized ExecutorService getRenderExecutor()
+  {
+    if ( render_executor == null )
+      render_executor = Executors.newSingleThreadExecutor( 
+        new ThreadFactory()
+        {
+          public Thread newThread( Runnable runnable )
+          {
+            Thread thread = new Thread( runnable, "ImageJPanel2 renderer" );
+            thread.setDaemon( true );
+            return thread;
+          }
+        } );
+
+    return render_executor;
+  }
+
+
+/* ---------------------------- findDataRange -------------------------- */
+/*
+ *  Set min_data and max_data to the range of the data, using the cached
+ *  statistics of the array if it has them.
+ */
+  private void findDataRange()
+  {
+    ArrayStatistics stats;             // reuse the cached statistics if
+    if ( data instanceof IStatisticsArray2D )              // possible
+      stats = ((IStatisticsArray2D)data).getStatistics();
+    else
+      stats = new ArrayStatistics( data, false );
+
+    max_data = stats.getMax();
+    min_data = stats.getMin();
+
+    if ( min_data == max_data )      // avoid division by 0 when scaling data
+      max_data = min_data + 1;
   }
 
 
@@ -1535,6 +2042,7 @@ protected void LocalTransformChanged()
  */
   private void setLogScale( double s )
   {
+    image_region = null;
     int color_table_size = color_scale.length;
     PseudoLogScaleUtil log_scaler = new PseudoLogScaleUtil(
                                           0f, (float)color_table_size,
@@ -0,0 +1,645 @@
+/* 
+ * File: ImagePyramid.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Revision$
+ */
+
+package gov.anl.ipns.ViewTools.Panels.Image;
+
+import gov.anl.ipns.ViewTools.Components.*;
+
+/**
+ *  An ImagePyramid holds the minimum, maximum and mean of square tiles of
+ *  the values in an IVirtualArray2D, at a sequence of resolutions.  At 
+ *  level k, each tile covers 2^k x 2^k values of the array, except for
+ *  tiles at the last row and column, which may be smaller.  Levels 0 and 1
+ *  are not stored, since the values of a block of at most 3 x 3 array 
+ *  values are obtained directly from the array.  The pyramid is built in
+ *  one pass over the rows of the array, obtained with getRowValues(), or
+ *  directly from a VirtualArray2D, and allows the min, max and mean
+ *  of any block of the array to be found by combining a small number of 
+ *  tiles, so that an image can be sub sampled without losing isolated
+ *  peaks, at a cost that depends on the number of pixels in the image,
+ *  rather than on the number of values in the array.  Values that are NaN
+ *  are ignored.
+ *    If values in the array are changed, the pyramid must be rebuilt, or
+ *  updated for the block of values that changed, using update().
+ */
+public class ImagePyramid
+{
+  /**
+   *  Index of the minimum in the array filled by getBlockStats().
+   */
+  public static final int MIN  = 0;
+
+  /**
+   *  Index of the maximum in the array filled by getBlockStats().
+   */
+  public static final int MAX  = 1;
+
+  /**
+   *  Index of the mean in the array filled by getBlockStats().
+   */
+  public static final int MEAN = 2;
+
+  private static final int FIRST_LEVEL = 2;         // tiles of 4x4 values
+
+  /**
+   *  The smallest block size, in rows and columns, for which the pyramid
+   *  is used.  Smaller blocks are sampled directly from the array.
+   */
+  public static final int MIN_STEP = 1 << FIRST_LEVEL;
+
+  private IVirtualArray2D data;
+  private int             n_rows;
+  private int             n_cols;
+
+  private int[]           level_rows;               // tile rows and columns
+  private int[]           level_cols;               // at each level
+  private float[][]       mins;                     // [level][tile]
+  private float[][]       maxs;
+  private float[][]       means;
+  private int[][]         counts;                   // number of values that
+                                                    // are not NaN per tile
+  private float           data_min = Float.POSITIVE_INFINITY;
+  private float           data_max = Float.NEGATIVE_INFINITY;
+
+
+  /* ---------------------------- constructor ----------------------------- */
+  /**
+   *  Construct the pyramid for the specified array.  The values of the
+   *  array are read once, a row at a time.
+   *
+   *  @param  data  The array of values.  This must not be empty.
+   *
+   *  @throws IllegalArgumentException if the array is null or empty.
+   */
+  public ImagePyramid( IVirtualArray2D data )
+  {
+    if ( data == null || data.getNumRows() <= 0 || data.getNumColumns() <= 0 )
+      throw new IllegalArgumentException( "Empty array in ImagePyramid" );
+
+    this.data = data;
+    n_rows    = data.getNumRows();
+    n_cols    = data.getNumColumns();
+
+    int n_levels = FIRST_LEVEL + 1;
+    while ( ((n_rows - 1) >> (n_levels - 1)) > 0 ||
+            ((n_cols - 1) >> (n_levels - 1)) > 0 )
+      n_levels++;
+
+    level_rows = new int[ n_levels ];
+    level_cols = new int[ n_levels ];
+    mins       = new float[ n_levels ][];
+    maxs       = new float[ n_levels ][];
+    means      = new float[ n_levels ][];
+    counts     = new int  [ n_levels ][];
+
+    for ( int level = FIRST_LEVEL; level < n_levels; level++ )
+    {
+      level_rows[level] = ((n_rows - 1) >> level) + 1;
+      level_cols[level] = ((n_cols - 1) >> level) + 1;
+      int n_tiles = level_rows[level] * level_cols[level];
+      mins  [level] = new float[ n_tiles ];
+      maxs  [level] = new float[ n_tiles ];
+      means [level] = new float[ n_tiles ];
+      counts[level] = new int  [ n_tiles ];
+    }
+
+    buildFirstLevel();
+    for ( int level = FIRST_LEVEL + 1; level < n_levels; level++ )
+      buildLevel( level, 0, level_rows[level] - 1, 0, level_cols[level] - 1 );
+  }
+
+
+  /* ------------------------------- update ------------------------------- */
+  /**
+   *  Update the pyramid after the values in the specified block of the 
+   *  array have changed.  The tiles of the first stored level that 
+   *  overlap the block are found again from the array, and the tiles of
+   *  the higher levels that contain them are rebuilt.  The number of values
+   *  read is roughly the size of the block, rather than the size of the
+   *  array.
+   *
+   *  @param  row_start  The first row of the block that changed.
+   *  @param  row_end    The last row of the block that changed.
+   *  @param  col_start  The first column of the block that changed.
+   *  @param  col_end    The last column of the block that changed.
+   */
+  public void update( int row_start, int row_end, int col_start, int col_end )
+  {
+    row_start = Math.max( Math.min( row_start, row_end ), 0 );
+    row_end   = Math.min( Math.max( row_start, row_end ), n_rows - 1 );
+    col_start = Math.max( Math.min( col_start, col_end ), 0 );
+    col_end   = Math.min( Math.max( col_start, col_end ), n_cols - 1 );
+    if ( row_start > row_end || col_start > col_end )
+      return;
+
+    int tr_start = row_start >> FIRST_LEVEL;
+    int tr_end   = row_end   >> FIRST_LEVEL;
+    int tc_start = col_start >> FIRST_LEVEL;
+    int tc_end   = col_end   >> FIRST_LEVEL;
+    updateFirstLevel( tr_start, tr_end, tc_start, tc_end );
+
+    for ( int level = FIRST_LEVEL + 1; level < getNumLevels(); level++ )
+    {
+      tr_start >>= 1;
+      tr_end   >>= 1;
+      tc_start >>= 1;
+      tc_end   >>= 1;
+      buildLevel( level, tr_start, tr_end, tc_start, tc_end );
+    }
+                                          // the last level has one tile
+    int top = getNumLevels() - 1;
+    if ( counts[top][0] > 0 )
+    {
+      data_min = mins[top][0];
+      data_max = maxs[top][0];
+    }
+    else
+    {
+      data_min = Float.POSITIVE_INFINITY;
+      data_max = Float.NEGATIVE_INFINITY;
+    }
+  }
+
+
+  /* ---------------------------- getNumLevels ---------------------------- */
+  /**
+   *  Get the number of levels in the pyramid, including levels 0 and 1,
+   *  which are not stored.  The last level consists of one tile covering
+   *  the whole array.
+   *
+   *  @return the number of levels.
+   */
+  public int getNumLevels()
+  {
+    return level_rows.length;
+  }
+
+
+  /* ---------------------------- chooseLevel ----------------------------- */
+  /**
+   *  Choose the level to use when sampling the array in blocks of 
+   *  x_step columns by y_step rows.  This is the coarsest level whose
+   *  tiles are no larger than the blocks.
+   *
+   *  @param  x_step  The number of columns in a block.
+   *  @param  y_step  The number of rows in a block.
+   *
+   *  @return the level to pass to getBlockStats().
+   */
+  public int chooseLevel( int x_step, int y_step )
+  {
+    int step  = Math.min( x_step, y_step );
+    int level = 0;
+    while ( level + 1 < getNumLevels() && (2 << level) <= step )
+      level++;
+
+    if ( level < FIRST_LEVEL )
+      return 0;
+
+    return level;
+  }
+
+
+  /* ---------------------------- getDataMin ------------------------------ */
+  /**
+   *  Get the minimum of all values in the array that are not NaN.
+   *
+   *  @return the minimum, or positive infinity if all values are NaN.
+   */
+  public float getDataMin()
+  {
+    return data_min;
+  }
+
+
+  /* ---------------------------- getDataMax ------------------------------ */
+  /**
+   *  Get the maximum of all values in the array that are not NaN.
+   *
+   *  @return the maximum, or negative infinity if all values are NaN.
+   */
+  public float getDataMax()
+  {
+    return data_max;
+  }
+
+
+  /* --------------------------- getBlockStats ---------------------------- */
+  /**
+   *  Find the minimum, maximum and mean of the values in the block of rows
+   *  row_start..row_end and columns col_start..col_end, using the tiles
+   *  at the specified level.  If the block does not start and end on tile
+   *  boundaries, the values are calculated for the (slightly larger) set of
+   *  tiles that overlap the block.  At level 0, the values are found 
+   *  exactly from the array.
+   *
+   *  @param  level      The level to use, as returned by chooseLevel().
+   *  @param  row_start  The first row of the block.
+   *  @param  row_end    The last row of the block.
+   *  @param  col_start  The first column of the block.
+   *  @param  col_end    The last column of the block.
+   *  @param  stats      Array of length at least 3, that will be filled 
+   *                     with the min, max and mean, in positions MIN, MAX 
+   *                     and MEAN.  These are NaN if all values are NaN.
+   */
+  public void getBlockStats( int level,
+                             int row_start, int row_end,
+                             int col_start, int col_end,
+                             float[] stats )
+  {
+    float  min   = Float.POSITIVE_INFINITY;
+    float  max   = Float.NEGATIVE_INFINITY;
+    double sum   = 0;
+    long   count = 0;
+
+    if ( level < FIRST_LEVEL || level >= getNumLevels() )
+    {
+      for ( int row = row_start; row <= row_end; row++ )
+        for ( int col = col_start; col <= col_end; col++ )
+        {
+          float val = data.getDataValue( row, col );
+          if ( val == val )                               // not NaN
+          {
+            if ( val < min )
+              min = val;
+            if ( val > max )
+              max = val;
+            sum += val;
+            count++;
+          }
+        }
+    }
+    else
+    {
+      float[] t_min   = mins  [level];
+      float[] t_max   = maxs  [level];
+      float[] t_mean  = means [level];
+      int[]   t_count = counts[level];
+      int     t_cols  = level_cols[level];
+      int     tc_end  = col_end >> level;
+      for ( int tr = row_start >> level; tr <= row_end >> level; tr++ )
+      {
+        int index = tr * t_cols + (col_start >> level);
+        for ( int tc = col_start >> level; tc <= tc_end; tc++, index++ )
+          if ( t_count[index] > 0 )
+          {
+            if ( t_min[index] < min )
+              min = t_min[index];
+            if ( t_max[index] > max )
+              max = t_max[index];
+            sum   += (double)t_mean[index] * t_count[index];
+            count += t_count[index];
+          }
+      }
+    }
+
+    if ( count == 0 )
+    {
+      stats[MIN]  = Float.NaN;
+      stats[MAX]  = Float.NaN;
+      stats[MEAN] = Float.NaN;
+    }
+    else
+    {
+      stats[MIN]  = min;
+      stats[MAX]  = max;
+      stats[MEAN] = (float)(sum / count);
+    }
+  }
+
+
+  /* -------------------------- buildFirstLevel --------------------------- */
+  /*
+   *  Build the first stored level directly from the rows of the array, and
+   *  find the overall min and max.
+   */
+  private void buildFirstLevel()
+  {
+    int      level   = FIRST_LEVEL;
+    int      t_cols  = level_cols[level];
+    float[]  t_min   = mins  [level];
+    float[]  t_max   = maxs  [level];
+    float[]  t_mean  = means [level];
+    int[]    t_count = counts[level];
+    double[] sums    = new double[ t_cols ];
+
+    java.util.Arrays.fill( t_min, Float.POSITIVE_INFINITY );
+    java.util.Arrays.fill( t_max, Float.NEGATIVE_INFINITY );
+
+    float[][] rows = null;                  // use the values of a
+    if ( data instanceof VirtualArray2D )   // VirtualArray2D directly
+      rows = data.getRegionValues( 0, n_rows - 1, 0, n_cols - 1 );
+
+    for ( int row = 0; row < n_rows; row++ )
+    {
+      float[] values;
+      if ( rows != null )
+        values = rows[row];
+      else
+        values = data.getRowValues( row, 0, n_cols - 1 );
+      int     base   = (row >> level) * t_cols;
+      for ( int col = 0; col < values.length; col++ )
+      {
+        float val = values[col];
+        if ( val == val )                                 // not NaN
+        {
+          int index = base + (col >> level);
+          if ( val < t_min[index] )
+            t_min[index] = val;
+          if ( val > t_max[index] )
+            t_max[index] = val;
+          sums[ col >> level ] += val;
+          t_count[index]++;
+        }
+      }
+                                       // last row of a row of tiles
+      if ( ((row + 1) >> level) != (row >> level) || row == n_rows - 1 )
+      {
+        for ( int tc = 0; tc < t_cols; tc++ )
+        {
+          int index = base + tc;
+          if ( t_count[index] > 0 )
+          {
+            t_mean[index] = (float)(sums[tc] / t_count[index]);
+            if ( t_min[index] < data_min )
+              data_min = t_min[index];
+            if ( t_max[index] > data_max )
+              data_max = t_max[index];
+          }
+          sums[tc] = 0;
+        }
+      }
+    }
+  }
+
+
+  /* -------------------------- updateFirstLevel -------------------------- */
+  /*
+   *  Find the specified tiles of the first stored level again from the 
+   *  array.
+   */
+  private void updateFirstLevel( int tr_start, int tr_end, 
+                                 int tc_start, int tc_end )
+  {
+    int      level   = FIRST_LEVEL;
+    int      t_cols  = level_cols[level];
+    float[]  t_min   = mins  [level];
+    float[]  t_max   = maxs  [level];
+    float[]  t_mean  = means [level];
+    int[]    t_count = counts[level];
+    double[] sums    = new double[ tc_end - tc_start + 1 ];
+
+    int first_col = tc_start << level;
+    int last_col  = Math.min( (tc_end + 1) << level, n_cols ) - 1;
+
+    float[][] rows = null;
+    if ( data instanceof VirtualArray2D )
+      rows = data.getRegionValues( 0, n_rows - 1, 0, n_cols - 1 );
+
+    for ( int tr = tr_start; tr <= tr_end; tr++ )
+    {
+      int base = tr * t_cols;
+      for ( int tc = tc_start; tc <= tc_end; tc++ )
+      {
+        t_min  [base + tc] = Float.POSITIVE_INFINITY;
+        t_max  [base + tc] = Float.NEGATIVE_INFINITY;
+        t_count[base + tc] = 0;
+      }
+      java.util.Arrays.fill( sums, 0 );
+
+      int last_row = Math.min( (tr + 1) << level, n_rows ) - 1;
+      for ( int row = tr << level; row <= last_row; row++ )
+      {
+        float[] values;
+        int     off;
+        if ( rows != null )
+        {
+          values = rows[row];
+          off    = first_col;
+        }
+        else
+        {
+          values = data.getRowValues( row, first_col, last_col );
+          off    = 0;
+        }
+        for ( int col = first_col; col <= last_col; col++ )
+        {
+          float val = values[ col - first_col + off ];
+          if ( val == val )                               // not NaN
+          {
+            int index = base + (col >> level);
+            if ( val < t_min[index] )
+              t_min[index] = val;
+            if ( val > t_max[index] )
+              t_max[index] = val;
+            sums[ (col >> level) - tc_start ] += val;
+            t_count[index]++;
+          }
+        }
+      }
+
+      for ( int tc = tc_start; tc <= tc_end; tc++ )
+        if ( t_count[base + tc] > 0 )
+          t_mean[base + tc] = (float)(sums[tc - tc_start] / t_count[base + tc]);
+    }
+  }
+
+
+  /* ----------------------------- buildLevel ----------------------------- */
+  /*
+   *  Build the specified tiles of a level by combining 2x2 tiles of the 
+   *  previous level.
+   */
+  private void buildLevel( int level, 
+                           int tr_start, int tr_end, 
+                           int tc_start, int tc_end )
+  {
+    int     prev       = level - 1;
+    int     prev_rows  = level_rows[prev];
+    int     prev_cols  = level_cols[prev];
+    float[] p_min      = mins  [prev];
+    float[] p_max      = maxs  [prev];
+    float[] p_mean     = means [prev];
+    int[]   p_count    = counts[prev];
+
+    int     t_rows  = level_rows[level];
+    int     t_cols  = level_cols[level];
+    float[] t_min   = mins  [level];
+    float[] t_max   = maxs  [level];
+    float[] t_mean  = means [level];
+    int[]   t_count = counts[level];
+
+    for ( int tr = tr_start; tr <= tr_end && tr < t_rows; tr++ )
+      for ( int tc = tc_start; tc <= tc_end && tc < t_cols; tc++ )
+      {
+        float  min   = Float.POSITIVE_INFINITY;
+        float  max   = Float.NEGATIVE_INFINITY;
+        double sum   = 0;
+        int    count = 0;
+        for ( int pr = 2 * tr; pr <= 2 * tr + 1 && pr < prev_rows; pr++ )
+          for ( int pc = 2 * tc; pc <= 2 * tc + 1 && pc < prev_cols; pc++ )
+          {
+            int p = pr * prev_cols + pc;
+            if ( p_count[p] > 0 )
+            {
+              if ( p_min[p] < min )
+                min = p_min[p];
+              if ( p_max[p] > max )
+                max = p_max[p];
+              sum   += (double)p_mean[p] * p_count[p];
+              count += p_count[p];
+            }
+          }
+
+        int index = tr * t_cols + tc;
+        t_min  [index] = min;
+        t_max  [index] = max;
+        t_count[index] = count;
+        if ( count > 0 )
+          t_mean[index] = (float)(sum / count);
+      }
+  }
+
+
+  /* -------------------------------- main -------------------------------- */
+  /**
+   *  Basic test and timing.  Checks the block values against values 
+   *  calculated directly from the array, then compares how many isolated
+   *  peaks survive when a large array is reduced to a 512x512 image by
+   *  taking every n-th value, and by taking the block maximum from the
+   *  pyramid.
+   *
+   *  @param args  Optional size of the square array, default 4096.
+   */
+  public static void main( String args[] )
+  {
+    int size = 4096;
+    if ( args.length > 0 )
+      size = Integer.parseInt( args[0] );
+
+    java.util.Random random = new java.util.Random( 1 );
+                                                 // check against brute force
+    float[][] small = new float[ 37 ][ 53 ];
+    for ( int row = 0; row < small.length; row++ )
+      for ( int col = 0; col < small[0].length; col++ )
+        small[row][col] = ( random.nextInt( 20 ) == 0 ) ? Float.NaN 
+                                                        : random.nextFloat();
+    ImagePyramid test = new ImagePyramid( new VirtualArray2D( small ) );
+    float[] stats  = new float[ 3 ];
+    float[] direct = new float[ 3 ];
+    int     n_bad  = 0;
+    for ( int pass = 0; pass < 2; pass++ )
+    {
+      if ( pass == 1 )                        // change a block and update
+      {
+        for ( int row = 5; row <= 22; row++ )
+          for ( int col = 30; col <= 31; col++ )
+            small[row][col] = random.nextFloat() * 10 - 5;
+        test.update( 5, 22, 30, 31 );
+      }
+      for ( int level = 0; level < test.getNumLevels(); level++ )
+        for ( int r0 = 0; r0 < small.length; r0 += 1 << level )
+          for ( int c0 = 0; c0 < small[0].length; c0 += 1 << level )
+          {
+            int r1 = Math.min( r0 + (1 << level) + 2, small.length - 1 );
+            int c1 = Math.min( c0 + (2 << level) - 1, small[0].length - 1 );
+            int tr1 = Math.min( ((r1 >> level) + 1 << level) - 1, 
+                                small.length - 1 );
+            int tc1 = Math.min( ((c1 >> level) + 1 << level) - 1, 
+                                small[0].length - 1 );
+            if ( level < 2 )
+            {
+              tr1 = r1;
+              tc1 = c1;
+            }
+            test.getBlockStats( level, r0, r1, c0, c1, stats );
+            test.getBlockStats( 0, r0, tr1, c0, tc1, direct );
+            if ( stats[MIN] != direct[MIN] || stats[MAX] != direct[MAX] ||
+                 Math.abs( stats[MEAN] - direct[MEAN] ) > 1e-5 )
+              n_bad++;
+          }
+      test.getBlockStats( 0, 0, small.length-1, 0, small[0].length-1, direct );
+      if ( test.getDataMin() != direct[MIN] || 
+           test.getDataMax() != direct[MAX] )
+        n_bad++;
+    }
+    System.out.println( "Blocks different from direct values : " + n_bad );
+
+    float[][] array = new float[ size ][ size ];
+    for ( int row = 0; row < size; row++ )
+      for ( int col = 0; col < size; col++ )
+        array[row][col] = random.nextFloat();
+
+    int n_peaks = 1000;
+    for ( int i = 0; i < n_peaks; i++ )
+      array[ random.nextInt( size ) ][ random.nextInt( size ) ] = 1000;
+
+    VirtualArray2D data = new VirtualArray2D( array );
+    long start = System.currentTimeMillis();
+    ImagePyramid pyramid = new ImagePyramid( data );
+    System.out.println( "Built " + size + "x" + size + " pyramid in " +
+                        (System.currentTimeMillis() - start) + " ms" );
+
+    int image_size = 512;
+    int step       = size / image_size;
+    for ( int rep = 0; rep < 3; rep++ )
+    {
+      start = System.currentTimeMillis();
+      int n_sampled = 0;
+      for ( int row = 0; row < size; row += step )
+        for ( int col = 0; col < size; col += step )
+          if ( data.getDataValue( row, col ) >= 1000 )
+            n_sampled++;
+      long sample_time = System.currentTimeMillis() - start;
+
+      start = System.currentTimeMillis();
+      int n_pyramid = 0;
+      int level     = pyramid.chooseLevel( step, step );
+      for ( int row = 0; row < size; row += step )
+        for ( int col = 0; col < size; col += step )
+        {
+          pyramid.getBlockStats( level, row, row + step - 1, 
+                                        col, col + step - 1, stats );
+          if ( stats[MAX] >= 1000 )
+            n_pyramid++;
+        }
+      long pyramid_time = System.currentTimeMillis() - start;
+
+      System.out.println( "Pixels showing peaks, sampled : " + n_sampled +
+                          " (" + sample_time + " ms),  pyramid : " + 
+                          n_pyramid + " (" + pyramid_time + " ms)" );
+    }
+  }
+
+}
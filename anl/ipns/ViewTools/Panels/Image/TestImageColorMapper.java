@@ -0,0 +1,192 @@
+/* 
+ * File: TestImageColorMapper.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ * 
+ *  $Author$
+ *  $Date$            
+ *  $Revision$
+ */
+
+package gov.anl.ipns.ViewTools.Panels.Image;
+
+import java.awt.image.*;
+import java.util.*;
+
+import gov.anl.ipns.ViewTools.Components.*;
+import gov.anl.ipns.ViewTools.Components.TwoD.*;
+
+/**
+ *  Timing test for the ImageColorMapper.  For arrays of size 1024x1024,
+ *  4096x4096 and 8192x8192, this compares the time to map the whole 
+ *  array to color indices, one value per pixel, by calling getDataValue()
+ *  for each pixel and building a new MemoryImageSource, as ImageJPanel2 
+ *  did originally, with the time taken by the ImageColorMapper using one
+ *  thread and using fork/join.  It also times the reduction of the whole
+ *  array to a 1024x1024 image using the ImagePyramid.  Each time is the
+ *  best of several repetitions, after a warm up.  The array sizes can be
+ *  given on the command line.  Use -Xmx2g for the 8192x8192 array.  The
+ *  speed up from fork/join depends on the number of processors.
+ */
+public class TestImageColorMapper
+{
+  private static final int N_REPS = 5;
+
+
+  /*
+   *  Map the array one pixel at a time through the IVirtualArray2D 
+   *  interface, as was done originally.
+   */
+  private static Object mapByValue( IVirtualArray2D data, 
+                                    byte[] table, 
+                                    float  scale_factor,
+                                    IndexColorModel color_model )
+  {
+    int n_rows = data.getNumRows();
+    int n_cols = data.getNumColumns();
+    int last   = table.length - 1;
+    byte[] pix = new byte[ n_rows * n_cols ];
+    int index  = 0;
+    for ( int y = 0; y < n_rows; y++ )
+      for ( int x = 0; x < n_cols; x++ )
+      {
+        float temp = data.getDataValue( y, x ) * scale_factor;
+        if ( temp > last )
+          temp = last;
+        else if ( temp < 0 )
+          temp = 0;
+        pix[index++] = table[ (int)temp ];
+      }
+    return new MemoryImageSource( n_cols, n_rows, color_model, pix, 0, n_cols );
+  }
+
+
+  public static void main( String args[] )
+  {
+    int[] sizes = { 1024, 4096, 8192 };
+    if ( args.length > 0 )
+    {
+      sizes = new int[ args.length ];
+      for ( int i = 0; i < args.length; i++ )
+        sizes[i] = Integer.parseInt( args[i] );
+    }
+
+    System.out.println( "Processors: " + 
+                         Runtime.getRuntime().availableProcessors() );
+
+    byte[] table = new byte[ 60000 ];
+    for ( int i = 0; i < table.length; i++ )
+      table[i] = (byte)( i * 127L / table.length );
+
+    byte[] colors = new byte[ 256 ];
+    for ( int i = 0; i < colors.length; i++ )
+      colors[i] = (byte)i;
+    IndexColorModel color_model = 
+                          new IndexColorModel( 8, 256, colors, colors, colors );
+
+                                   // The viewers use several implementations
+                                   // of IVirtualArray2D, so the interface 
+                                   // call in mapByValue() is not inlined
+    IVirtualArray2D other = new ArrayGenerator( 200, 200 );
+    for ( int i = 0; i < 100; i++ )
+      mapByValue( other, table, table.length, color_model );
+
+    Random random = new Random( 1 );
+    for ( int s = 0; s < sizes.length; s++ )
+    {
+      int size = sizes[s];
+      float[][] array = new float[ size ][ size ];
+      for ( int row = 0; row < size; row++ )
+        for ( int col = 0; col < size; col++ )
+          array[row][col] = random.nextFloat();
+
+      VirtualArray2D data = new VirtualArray2D( array );
+      float  scale_factor = table.length;
+      byte[] pix = new byte[ size * size ];
+
+      long by_value = Long.MAX_VALUE;
+      long serial   = Long.MAX_VALUE;
+      long parallel = Long.MAX_VALUE;
+      for ( int rep = 0; rep <= N_REPS; rep++ )
+      {
+        long start = System.nanoTime();
+        mapByValue( data, table, scale_factor, color_model );
+        long time = System.nanoTime() - start;
+        if ( rep > 0 )
+          by_value = Math.min( by_value, time );
+
+        ImageColorMapper mapper = new ImageColorMapper( data, null );
+        mapper.setColorScale( table, false, 0, scale_factor, 0 );
+        mapper.setParallel( false );
+        start = System.nanoTime();
+        mapper.map( pix );
+        time = System.nanoTime() - start;
+        if ( rep > 0 )
+          serial = Math.min( serial, time );
+
+        mapper.setParallel( true );
+        start = System.nanoTime();
+        mapper.map( pix );
+        time = System.nanoTime() - start;
+        if ( rep > 0 )
+          parallel = Math.min( parallel, time );
+      }
+      System.out.println( size + "x" + size + 
+                          " : getDataValue " + by_value / 1000000 + " ms" +
+                          ", mapper serial " + serial / 1000000 + " ms" +
+                          ", mapper parallel " + parallel / 1000000 + " ms" );
+
+      if ( size > 1024 )
+      {
+        long start = System.nanoTime();
+        ImagePyramid pyramid = new ImagePyramid( data );
+        long build = System.nanoTime() - start;
+
+        int    step  = size / 1024;
+        byte[] small = new byte[ 1024 * 1024 ];
+        ImageColorMapper mapper = new ImageColorMapper( data, pyramid );
+        mapper.setColorScale( table, false, 0, scale_factor, 0 );
+        mapper.setRegion( 0, size - 1, 0, size - 1, step, step );
+        long peak = Long.MAX_VALUE;
+        for ( int rep = 0; rep <= N_REPS; rep++ )
+        {
+          start = System.nanoTime();
+          mapper.map( small );
+          long time = System.nanoTime() - start;
+          if ( rep > 0 )
+            peak = Math.min( peak, time );
+        }
+        System.out.println( "    pyramid build " + build / 1000000 + 
+                            " ms, peak sampled to 1024x1024 " + 
+                            peak / 1000000 + " ms" );
+      }
+      array = null;
+      data  = null;
+    }
+  }
+
+}
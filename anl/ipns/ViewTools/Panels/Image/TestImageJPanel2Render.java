@@ -0,0 +1,267 @@
+/*
+ * File: TestImageJPanel2Render.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ *
+ *  $Author$
+ *  $Date$
+ *  $Revision$
+ */
+
+package gov.anl.ipns.ViewTools.Panels.Image;
+
+import java.awt.*;
+import java.awt.image.*;
+
+import gov.anl.ipns.ViewTools.Components.*;
+import gov.anl.ipns.ViewTools.Panels.Transforms.*;
+
+/**
+ *  Test of the background rendering done by ImageJPanel2, that can be run
+ *  without a display, using -Djava.awt.headless=true.  The panels report
+ *  that they are showing, so that images are made without a frame.  On
+ *  the event thread, the image of a large VirtualArray2D is rebuilt for a
+ *  sequence of zoom regions, without waiting for the renders.  Each
+ *  request supersedes the render of the previous one, so all but the
+ *  last should be counted as dropped, and the coarse preview should be
+ *  shown until the last render is swapped in.  Then the data is replaced
+ *  while a render is in progress, which should also drop that render.
+ *  After each sequence, the image is compared with the image rendered
+ *  synchronously by a panel with asynchronous rendering turned off.  The
+ *  number of pixels that differ should be 0.
+ */
+public class TestImageJPanel2Render
+{
+  private static final int WIDTH     = 600;
+  private static final int HEIGHT    = 500;
+  private static final int N_ROWS    = 3000;
+  private static final int N_COLS    = 3000;
+  private static final int N_REQUEST = 10;
+
+
+  /*
+   *  An ImageJPanel2 that makes images although it is not in a frame.
+   */
+  private static class TestPanel extends ImageJPanel2
+  {
+    public boolean isShowing()
+    {
+      return true;
+    }
+  }
+
+
+  /*
+   *  Make a large array with a different pattern for each seed.
+   */
+  private static VirtualArray2D makeData( int seed )
+  {
+    float vals[][] = new float[ N_ROWS ][ N_COLS ];
+    for ( int row = 0; row < N_ROWS; row++ )
+      for ( int col = 0; col < N_COLS; col++ )
+        vals[row][col] = (float)Math.sin( (row + seed) * 0.01 ) *
+                         (float)Math.cos( (col - seed) * 0.013 ) * 100 +
+                         ( (row * 31 + col * 17 + seed) % 97 );
+    return new VirtualArray2D( vals );
+  }
+
+
+  /*
+   *  Make a panel showing the data.
+   */
+  private static ImageJPanel2 makePanel( VirtualArray2D data, boolean async )
+  {
+    ImageJPanel2 panel = new TestPanel();
+    panel.setSize( WIDTH, HEIGHT );
+    panel.setAsyncRendering( async );
+    panel.setData( data, false );
+    panel.setGlobalWorldCoords( new CoordBounds( 0, 0, N_COLS, N_ROWS ) );
+    return panel;
+  }
+
+
+  /*
+   *  The zoom region for a request.  Each region holds more than
+   *  ASYNC_MIN_VALUES values.
+   */
+  private static CoordBounds zoomRegion( int request )
+  {
+    float x = 37 * request;
+    float y = 53 * request;
+    return new CoordBounds( x, y, x + 2100.5f, y + 1900.25f );
+  }
+
+
+  /*
+   *  Draw the panel into an image, and get its pixels.
+   */
+  private static int[] draw( ImageJPanel2 panel )
+  {
+    BufferedImage image = new BufferedImage( WIDTH, HEIGHT,
+                                             BufferedImage.TYPE_INT_RGB );
+    Graphics g = image.getGraphics();
+    panel.paintComponent( g );
+    g.dispose();
+    return image.getRGB( 0, 0, WIDTH, HEIGHT, null, 0, WIDTH );
+  }
+
+
+  /*
+   *  Count the pixels that differ.
+   */
+  private static int countDiffer( int a[], int b[] )
+  {
+    int n_differ = 0;
+    for ( int i = 0; i < a.length; i++ )
+      if ( a[i] != b[i] )
+        n_differ++;
+    return n_differ;
+  }
+
+
+  /*
+   *  Run the code on the event thread, and wait for it.
+   */
+  private static void onEDT( Runnable code ) throws Exception
+  {
+    EventQueue.invokeAndWait( code );
+  }
+
+
+  /*
+   *  Wait until the panel is no longer waiting for a background render.
+   *  The renders are done in order by one thread, so the callbacks for
+   *  superseded renders have been handled by then, too.
+   */
+  private static void waitForRender( final ImageJPanel2 panel )
+                      throws Exception
+  {
+    final boolean pending[] = { true };
+    while ( pending[0] )
+    {
+      Thread.sleep( 10 );
+      onEDT( new Runnable()
+      {
+        public void run()
+        {
+          pending[0] = panel.isRenderPending();
+        }
+      } );
+    }
+  }
+
+
+  /*
+   *  Render the last zoom region synchronously, and compare it with the
+   *  image shown by the asynchronous panel.
+   */
+  private static void compare( final String         name,
+                               final ImageJPanel2   panel,
+                               final VirtualArray2D data,
+                               final int            request,
+                               final long           expected_dropped )
+                      throws Exception
+  {
+    onEDT( new Runnable()
+    {
+      public void run()
+      {
+        ImageJPanel2 sync_panel = makePanel( data, false );
+        sync_panel.setLocalWorldCoords( zoomRegion( request ) );
+        sync_panel.RebuildImage();
+
+        int n_differ = countDiffer( draw( panel ), draw( sync_panel ) );
+        System.out.println( name + ": " + n_differ + " pixels differ, " +
+                            panel.getCompletedRenders() + " completed, " +
+                            panel.getDroppedRenders() + " dropped (" +
+                            expected_dropped + " expected), " +
+                            "last " + panel.getLastRenderTime() + " ms, " +
+                            "max "  + panel.getMaxRenderTime()  + " ms" );
+      }
+    } );
+  }
+
+
+  public static void main( String args[] ) throws Exception
+  {
+    final VirtualArray2D data   = makeData( 0 );
+    final VirtualArray2D data_2 = makeData( 5 );
+    final ImageJPanel2   panel[] = new ImageJPanel2[1];
+    final int            preview_differ[] = new int[1];
+    final boolean        preview_pending[] = new boolean[1];
+
+    onEDT( new Runnable()          // the panel renders when the event
+    {                              // for its new size is handled
+      public void run()
+      {
+        panel[0] = makePanel( data, true );
+      }
+    } );
+    waitForRender( panel[0] );
+                                   // superseded zoom requests are dropped
+    onEDT( new Runnable()
+    {
+      public void run()
+      {
+        panel[0].resetRenderCounters();
+        for ( int i = 0; i < N_REQUEST; i++ )
+        {
+          panel[0].setLocalWorldCoords( zoomRegion( i ) );
+          panel[0].RebuildImage();
+        }
+        preview_pending[0] = panel[0].isRenderPending();
+        int preview[] = draw( panel[0] );
+
+        ImageJPanel2 sync_panel = makePanel( data, false );
+        sync_panel.setLocalWorldCoords( zoomRegion( N_REQUEST - 1 ) );
+        sync_panel.RebuildImage();
+        preview_differ[0] = countDiffer( preview, draw( sync_panel ) );
+      }
+    } );
+    System.out.println( "Preview: render pending = " + preview_pending[0] +
+                        ", " + preview_differ[0] +
+                        " pixels differ from the full image" );
+    waitForRender( panel[0] );
+    compare( "Zoom requests", panel[0], data, N_REQUEST - 1, N_REQUEST - 1 );
+
+                                   // a render of old data is dropped
+    onEDT( new Runnable()
+    {
+      public void run()
+      {
+        panel[0].resetRenderCounters();
+        panel[0].setLocalWorldCoords( zoomRegion( 1 ) );
+        panel[0].RebuildImage();
+        panel[0].setData( data_2, false );
+        panel[0].RebuildImage();
+      }
+    } );
+    waitForRender( panel[0] );
+    compare( "New data", panel[0], data_2, 1, 1 );
+  }
+
+}
@@ -269,6 +269,19 @@ public class ImageFilled3DRectangle extends ThreeD_Object implements MouseListen
       
    }
 
+   /**
+    * The distance_to() method measures the distance to the edges of the
+    * rectangle, not to a single point, so this can not be placed in a
+    * PickGrid.
+    *
+    * @return false
+    */
+   @Override
+   public boolean getPickPoint( float point[] )
+   {
+      return false;
+   }
+
    @Override
    public void Draw(Graphics g)
    {
@@ -0,0 +1,265 @@
+/*
+ * File:  PickGrid.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ *
+ *  $Author$
+ *  $Date$
+ *  $Revision$
+ */
+
+package gov.anl.ipns.ViewTools.Panels.ThreeD;
+
+/**
+ *  This class is a uniform grid of cells covering a list of points in the
+ *  plane, such as the pixel coordinates of the projected objects in a
+ *  ThreeD_JPanel.  It is used to find the point that is closest to a
+ *  specified pixel, without checking every point.  The grid is made in one
+ *  pass over the points, with about OBJECTS_PER_CELL points per cell, and
+ *  the points in each cell are kept in increasing order of their index.
+ *  A search starts at the cell containing the specified pixel and proceeds
+ *  outward in square "rings" of cells, until no point in the remaining
+ *  rings can be closer than the closest point found so far.  Distances are
+ *  measured as |x-x0| + |y-y0|, as in ThreeD_Object.distance_to().  The
+ *  grid is not changed after it is constructed, so a new grid must be made
+ *  if the points move.
+ */
+public class PickGrid
+{
+  private static final int OBJECTS_PER_CELL   = 2;
+  private static final int MAX_CELLS_PER_SIDE = 2048;
+
+  private float x[];              // the points, NOT copied
+  private float y[];
+
+  private int   n_x = 0;          // number of columns and rows of cells
+  private int   n_y = 0;
+  private float x_min,            // position and size of the cells
+                y_min,
+                cell_w,
+                cell_h;
+  private int   cell_start[];     // cell i holds the points with indices
+  private int   cell_list[];      // cell_list[cell_start[i]], ...,
+                                  // cell_list[cell_start[i+1]-1]
+
+
+  /* ----------------------------- constructor ----------------------------- */
+  /**
+   *  Construct a grid of cells holding the specified points.  Points with
+   *  a coordinate that is NaN or infinite are not placed in the grid, and
+   *  will never be found by closest().  The arrays are NOT copied, and must
+   *  not be changed while the grid is in use.
+   *
+   *  @param  x   The x coordinates of the points
+   *  @param  y   The y coordinates of the points, with at least as many
+   *              entries as x[].
+   */
+  public PickGrid( float x[], float y[] )
+  {
+    if ( x == null || y == null || y.length < x.length )
+      throw new IllegalArgumentException(
+                        "x and y must have the same length in PickGrid" );
+    this.x = x;
+    this.y = y;
+
+    int   n_points = 0;
+    float x_max = Float.NEGATIVE_INFINITY,
+          y_max = Float.NEGATIVE_INFINITY;
+    x_min = Float.POSITIVE_INFINITY;
+    y_min = Float.POSITIVE_INFINITY;
+    for ( int i = 0; i < x.length; i++ )
+      if ( isFinite( x[i] ) && isFinite( y[i] ) )
+      {
+        n_points++;
+        if ( x[i] < x_min ) x_min = x[i];
+        if ( x[i] > x_max ) x_max = x[i];
+        if ( y[i] < y_min ) y_min = y[i];
+        if ( y[i] > y_max ) y_max = y[i];
+      }
+
+    if ( n_points == 0 )
+      return;
+                                        // choose the number of cells to keep
+                                        // the cells roughly square
+    float  width   = x_max - x_min;
+    float  height  = y_max - y_min;
+    double n_cells = Math.max( 1.0, n_points / (double)OBJECTS_PER_CELL );
+    double eps     = 1.0e-3 * ( width + height ) + Float.MIN_VALUE;
+    double aspect  = ( width + eps ) / ( height + eps );
+
+    n_x = (int)Math.round( Math.sqrt( n_cells * aspect ) );
+    n_x = Math.max( 1, Math.min( n_x, MAX_CELLS_PER_SIDE ) );
+    n_y = (int)Math.round( n_cells / n_x );
+    n_y = Math.max( 1, Math.min( n_y, MAX_CELLS_PER_SIDE ) );
+
+    cell_w = width  > 0 ? width  / n_x : Float.MAX_VALUE;
+    cell_h = height > 0 ? height / n_y : Float.MAX_VALUE;
+                                        // counting sort of the point indices
+                                        // by cell, keeping the index order
+    cell_start = new int[ n_x * n_y + 1 ];
+    for ( int i = 0; i < x.length; i++ )
+      if ( isFinite( x[i] ) && isFinite( y[i] ) )
+        cell_start[ cell( x[i], y[i] ) + 1 ]++;
+
+    for ( int i = 1; i < cell_start.length; i++ )
+      cell_start[i] += cell_start[i-1];
+
+    int next[] = new int[ n_x * n_y ];
+    System.arraycopy( cell_start, 0, next, 0, next.length );
+    cell_list = new int[ n_points ];
+    for ( int i = 0; i < x.length; i++ )
+      if ( isFinite( x[i] ) && isFinite( y[i] ) )
+        cell_list[ next[ cell( x[i], y[i] ) ]++ ] = i;
+  }
+
+
+  /* ------------------------------- closest ------------------------------- */
+  /**
+   *  Find the point that is closest to the specified point, provided the
+   *  distance is less than the specified maximum distance.  The distance
+   *  is |x[i]-pix_x| + |y[i]-pix_y|.  If several points are at the same
+   *  smallest distance, the one with the smallest index is returned.
+   *
+   *  @param  pix_x         The x coordinate of the specified point
+   *  @param  pix_y         The y coordinate of the specified point
+   *  @param  max_distance  Points that are this far or further from the
+   *                        specified point are ignored.
+   *
+   *  @return The index of the closest point, or -1 if there is no point
+   *          closer than max_distance.
+   */
+  public int closest( float pix_x, float pix_y, float max_distance )
+  {
+    if ( n_x == 0 )
+      return -1;
+
+    int   col = column( pix_x );
+    int   row = row( pix_y );
+    int   max_ring = Math.max( Math.max( col, n_x - 1 - col ),
+                               Math.max( row, n_y - 1 - row ) );
+    float min_cell = 0.999f * Math.min( cell_w, cell_h );
+
+    int   best = -1;
+    float best_distance = max_distance;
+    for ( int ring = 0; ring <= max_ring; ring++ )
+    {
+      if ( ring > 1 )                  // no point in this ring can be closer
+      {                                // than (ring-1) full cells
+        float lower_bound = ( ring - 1 ) * min_cell;
+        if ( lower_bound >= max_distance ||
+             ( best >= 0 && lower_bound > best_distance ) )
+          break;
+      }
+
+      int first_row = Math.max( 0, row - ring );
+      int last_row  = Math.min( n_y - 1, row + ring );
+      for ( int j = first_row; j <= last_row; j++ )
+      {
+        int step = 1;                   // whole row on top and bottom of the
+        if ( j != row - ring && j != row + ring )     // ring, otherwise just
+          step = 2 * ring;                            // the two end cells
+        if ( step == 0 )
+          step = 1;
+
+        for ( int i = col - ring; i <= col + ring; i += step )
+        {
+          if ( i < 0 || i >= n_x )
+            continue;
+
+          int cell = j * n_x + i;
+          for ( int k = cell_start[cell]; k < cell_start[cell+1]; k++ )
+          {
+            int   index    = cell_list[k];
+            float distance = Math.abs( x[index] - pix_x ) +
+                             Math.abs( y[index] - pix_y );
+            if ( distance < best_distance ||
+                 ( distance == best_distance && best >= 0 && index < best ) )
+            {
+              best_distance = distance;
+              best          = index;
+            }
+          }
+        }
+      }
+    }
+
+    return best;
+  }
+
+
+  /* -------------------------------- cell -------------------------------- */
+  /*
+   *  Get the number of the cell containing the specified point.
+   */
+  private int cell( float pix_x, float pix_y )
+  {
+    return row( pix_y ) * n_x + column( pix_x );
+  }
+
+
+  /* ------------------------------- column ------------------------------- */
+  /*
+   *  Get the column of cells containing the specified x value, or the
+   *  nearest column, if x is outside of the grid.
+   */
+  private int column( float pix_x )
+  {
+    double col = Math.floor( ( pix_x - x_min ) / (double)cell_w );
+    if ( !( col >= 0 ) )
+      return 0;
+    if ( col >= n_x )
+      return n_x - 1;
+    return (int)col;
+  }
+
+
+  /* --------------------------------- row -------------------------------- */
+  /*
+   *  Get the row of cells containing the specified y value, or the
+   *  nearest row, if y is outside of the grid.
+   */
+  private int row( float pix_y )
+  {
+    double row = Math.floor( ( pix_y - y_min ) / (double)cell_h );
+    if ( !( row >= 0 ) )
+      return 0;
+    if ( row >= n_y )
+      return n_y - 1;
+    return (int)row;
+  }
+
+
+  /* ------------------------------ isFinite ------------------------------ */
+  /*
+   *  Check that a value is neither NaN nor infinite.
+   */
+  private static boolean isFinite( float value )
+  {
+    return !Float.isNaN( value ) && !Float.isInfinite( value );
+  }
+
+}
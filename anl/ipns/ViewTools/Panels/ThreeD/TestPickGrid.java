@@ -0,0 +1,267 @@
+/*
+ * File: TestPickGrid.java
+ *
+ * Copyright (C) 2011, Dennis Mikkelson
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307, USA.
+ *
+ * Contact : Dennis Mikkelson <mikkelsond@uwstout.edu>
+ *           Department of Mathematics, Statistics and Computer Science
+ *           University of Wisconsin-Stout
+ *           Menomonie, WI 54751, USA
+ *
+ * This work was supported by the Spallation Neutron Source Division
+ * of Oak Ridge National Laboratory, Oak Ridge, TN, USA.
+ *
+ *  Last Modified:
+ *
+ *  $Author$
+ *  $Date$
+ *  $Revision$
+ */
+
+package gov.anl.ipns.ViewTools.Panels.ThreeD;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+
+import gov.anl.ipns.MathTools.Geometry.*;
+import gov.anl.ipns.ViewTools.Components.VirtualArray2D;
+import gov.anl.ipns.ViewTools.Panels.Image.IndexColorMaker;
+
+/**
+ *  Test of picking with a PickGrid, that can be run without a display,
+ *  using -Djava.awt.headless=true.  First, PickGrid.closest() is compared
+ *  with checking every point, for points on a coarse lattice, so that
+ *  many points are at the same distance, with some points that are NaN.
+ *  Then a ThreeD_JPanel is given Polymarkers, Polygons, objects that are
+ *  not pickable or outside of the window, and ImageFilled3DRectangles,
+ *  which can not be placed in the grid.  The scene is drawn into an
+ *  image to project the objects, and ThreeD_JPanel.pickID() is compared
+ *  with the linear scan using distance_to() that it replaces.  The number
+ *  of picks that differ should be 0.
+ */
+public class TestPickGrid
+{
+  private static final int N_POINTS  = 20000;
+  private static final int N_OBJECTS = 5000;
+  private static final int N_PICKS   = 10000;
+  private static final int SIZE      = 500;
+
+
+  /*
+   *  Find the closest point by checking every point, taking the lowest
+   *  index if several are at the same distance.
+   */
+  private static int closest( float x[], float y[],
+                              float pix_x, float pix_y, float max_distance )
+  {
+    int   best   = -1;
+    float best_d = max_distance;
+    for ( int i = 0; i < x.length; i++ )
+    {
+      float d = Math.abs( x[i] - pix_x ) + Math.abs( y[i] - pix_y );
+      if ( d < best_d )
+      {
+        best_d = d;
+        best   = i;
+      }
+    }
+    return best;
+  }
+
+
+  /*
+   *  Find the pick ID in the same way as ThreeD_JPanel.pickID() did
+   *  before it used a PickGrid, by calling distance_to() for every object.
+   */
+  private static int pickID( IThreeD_Object objects[],
+                             int x, int y, int pick_radius )
+  {
+    float min_distance = Float.POSITIVE_INFINITY;
+    int   min_index    = 0;
+    for ( int i = 0; i < objects.length; i++ )
+    {
+      float distance = objects[i].distance_to( x, y );
+      if ( distance < min_distance &&
+           objects[i].getPickID() != IThreeD_Object.INVALID_PICK_ID )
+      {
+        min_distance = distance;
+        min_index    = i;
+      }
+    }
+
+    if ( min_distance < pick_radius )
+      return objects[ min_index ].getPickID();
+    else
+      return IThreeD_Object.INVALID_PICK_ID;
+  }
+
+
+  /*
+   *  Compare PickGrid.closest() with checking every point.
+   */
+  private static void testPickGrid( Random random )
+  {
+    float x[] = new float[ N_POINTS ];
+    float y[] = new float[ N_POINTS ];
+    for ( int i = 0; i < N_POINTS; i++ )
+    {
+      x[i] = 5 * random.nextInt( 100 );           // many equal distances
+      y[i] = 5 * random.nextInt( 60 );
+      if ( i % 50 == 0 )
+        x[i] = Float.NaN;
+    }
+
+    PickGrid grid = new PickGrid( x, y );
+    int  n_differ = 0;
+    int  n_found  = 0;
+    long by_grid  = 0;
+    long by_all   = 0;
+    for ( int k = 0; k < N_PICKS; k++ )
+    {
+      float pix_x = random.nextInt( 540 ) - 20;
+      float pix_y = random.nextInt( 340 ) - 20;
+      float max_d = ( k % 2 == 0 ) ? 3 : Float.POSITIVE_INFINITY;
+
+      long start = System.nanoTime();
+      int  i     = grid.closest( pix_x, pix_y, max_d );
+      by_grid   += System.nanoTime() - start;
+
+      start   = System.nanoTime();
+      int  j  = closest( x, y, pix_x, pix_y, max_d );
+      by_all += System.nanoTime() - start;
+
+      if ( i >= 0 )
+        n_found++;
+      if ( i != j )
+        n_differ++;
+    }
+
+    System.out.println( "PickGrid, " + N_POINTS + " points" );
+    System.out.println( "  " + N_PICKS + " picks, " + n_found + " found, " +
+                        n_differ + " differ" );
+    System.out.println( "  PickGrid.closest() : " +
+                        by_grid / N_PICKS / 1000.0f + " us per pick" );
+    System.out.println( "  all points         : " +
+                        by_all / N_PICKS / 1000.0f + " us per pick" );
+  }
+
+
+  /*
+   *  Compare ThreeD_JPanel.pickID() with the linear scan.
+   */
+  private static void testPanel( Random random )
+  {
+    ThreeD_JPanel panel = new ThreeD_JPanel();
+    panel.setSize( SIZE, SIZE );
+    panel.setVirtualScreenSize( 2, 2, true );
+    panel.setViewTran( new ViewingTran3D( new Vector3D( 0, 0, 10 ),
+                                          new Vector3D( 0, 0, 0 ),
+                                          new Vector3D( 0, 1, 0 ),
+                                          false ) );
+
+    IThreeD_Object objects[] = new IThreeD_Object[ N_OBJECTS ];
+    for ( int i = 0; i < N_OBJECTS; i++ )
+    {                                        // on a lattice, with duplicates,
+      float x = 0.04f * random.nextInt( 60 ) - 1.2f;  // and some outside of
+      float y = 0.04f * random.nextInt( 60 ) - 1.2f;  // the window
+      Vector3D pts[];
+      if ( i % 3 == 0 )
+        pts = new Vector3D[]{ new Vector3D( x, y, 0 ) };
+      else
+        pts = new Vector3D[]{ new Vector3D( x - 0.02f, y - 0.02f, 0 ),
+                              new Vector3D( x + 0.02f, y - 0.02f, 0 ),
+                              new Vector3D( x + 0.02f, y + 0.02f, 0 ),
+                              new Vector3D( x - 0.02f, y + 0.02f, 0 ) };
+      ThreeD_Object obj;
+      if ( i % 2 == 0 )
+        obj = new Polymarker( pts, Color.red );
+      else
+        obj = new Polygon( pts, Color.red );
+
+      if ( i % 10 != 0 )                     // some are not pickable
+        obj.setPickID( i + 1 );
+      objects[i] = obj;
+    }
+    panel.setObjects( "OBJECTS", objects );
+
+    float image_data[][] = new float[10][10];
+    IThreeD_Object rects[] = new IThreeD_Object[3];
+    for ( int i = 0; i < rects.length; i++ )
+    {
+      rects[i] = new ImageFilled3DRectangle(
+                      new Vector3D( 0.6f * i - 0.6f, 0.5f, 0.1f ),
+                      new Vector3D( 1, 0, 0 ),
+                      new Vector3D( 0, 1, 0 ),
+                      0.2f, 0.2f, 10, 10,
+                      new VirtualArray2D( image_data ),
+                      IndexColorMaker.getColorModel(
+                                   IndexColorMaker.GRAY_SCALE, 128 ),
+                      panel );
+      rects[i].setPickID( N_OBJECTS + i + 1 );
+    }
+    panel.setObjects( "RECTANGLES", rects );
+                                             // draw to project the objects
+    BufferedImage image = new BufferedImage( SIZE, SIZE,
+                                             BufferedImage.TYPE_INT_RGB );
+    Graphics g = image.getGraphics();
+    panel.paintComponent( g );
+    g.dispose();
+
+    IThreeD_Object all[] = panel.getAllObjects();
+    int  n_differ = 0;
+    int  n_found  = 0;
+    long by_grid  = 0;
+    long by_all   = 0;
+    for ( int k = 0; k < N_PICKS; k++ )
+    {
+      int x = random.nextInt( SIZE + 40 ) - 20;
+      int y = random.nextInt( SIZE + 40 ) - 20;
+      int radius = ( k % 2 == 0 ) ? 5 : 1000;
+
+      long start = System.nanoTime();
+      int  id    = panel.pickID( x, y, radius );
+      by_grid   += System.nanoTime() - start;
+
+      start   = System.nanoTime();
+      int  id_all = pickID( all, x, y, radius );
+      by_all += System.nanoTime() - start;
+
+      if ( id != IThreeD_Object.INVALID_PICK_ID )
+        n_found++;
+      if ( id != id_all )
+        n_differ++;
+    }
+
+    System.out.println( "ThreeD_JPanel, " + all.length + " objects" );
+    System.out.println( "  " + N_PICKS + " picks, " + n_found + " found, " +
+                        n_differ + " differ" );
+    System.out.println( "  ThreeD_JPanel.pickID() : " +
+                        by_grid / N_PICKS / 1000.0f + " us per pick" );
+    System.out.println( "  distance_to() scan     : " +
+                        by_all / N_PICKS / 1000.0f + " us per pick" );
+  }
+
+
+  public static void main( String args[] )
+  {
+    Random random = new Random( 1 );
+    testPickGrid( random );
+    testPanel( random );
+  }
+
+}
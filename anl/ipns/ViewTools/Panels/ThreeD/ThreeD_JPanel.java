@@ -143,6 +143,7 @@ package gov.anl.ipns.ViewTools.Panels.ThreeD;
 import java.awt.*;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 import javax.swing.*;
 import gov.anl.ipns.ViewTools.Panels.Transforms.*;
 import gov.anl.ipns.ViewTools.Panels.Image.*;
@@ -164,8 +165,13 @@ public class ThreeD_JPanel extends    CoordJPanel
   private  IThreeD_Object  picked_object = null;  // last object picked
   private  IThreeD_Object  all_objects[] = null;  // array of all current 
                                                   // objects
-  private  Integer         index[]       = null;  // depth sorted array of
+  private  int             index[]       = null;  // depth sorted array of
                                                   // indices into all_objects[]
+  private  float           depths[]      = null;  // depth of each object
+  private  float           pick_x[]      = null;  // pixel coordinates used
+  private  float           pick_y[]      = null;  // to pick each object
+  private  PickGrid        pick_grid     = null;  // grid of the pick points
+  private  int             unindexed[]   = null;  // objects not in pick_grid
   private  Tran3D          tran;
   private  Tran3D          tran3D_used  = null;
   private  CoordTransform  tran2D_used  = null;
@@ -179,6 +185,8 @@ public class ThreeD_JPanel extends    CoordJPanel
                                                    // VRP to COP
   private boolean debug = false;
 
+  private static final int MIN_OBJECTS_PER_TASK = 4096;
+
 
 /* --------------------- Default Constructor ------------------------------ */
 /**
@@ -501,6 +509,11 @@ public class ThreeD_JPanel extends    CoordJPanel
 /*
  *  Return the Pick ID of the object whose projection is closest to
  *  the specified pixel, provided it is within the specified pick radius.
+ *  The pick points of the ThreeD_Objects are recorded when the objects
+ *  are projected, and placed in a PickGrid when the first pick is done
+ *  after that, so that only the objects near the pixel are checked.  
+ *  Other objects, and objects that measure their distance differently, 
+ *  are each checked using distance_to().
  *
  *  @param  x            The x coordinate of the specified pixel
  *  @param  y            The y coordinate of the specified pixel
@@ -520,15 +533,47 @@ public class ThreeD_JPanel extends    CoordJPanel
    float min_distance = Float.POSITIVE_INFINITY; 
    int   min_index = 0;
    
-   for ( int i = 0; i < all_objects.length; i++ )
+   if ( pick_x == null )                  // not projected yet, so check all
+   {
+     for ( int i = 0; i < all_objects.length; i++ )
+     {
+       distance = all_objects[i].distance_to( x, y );
+       if ( distance < min_distance && 
+            all_objects[i].getPickID() != IThreeD_Object.INVALID_PICK_ID )
+       {
+         min_distance = distance;
+         min_index    = i;
+       }     
+     }
+   }
+   else
    {
-     distance = all_objects[i].distance_to( x, y );
-     if ( distance < min_distance && 
-          all_objects[i].getPickID() != IThreeD_Object.INVALID_PICK_ID )
+     if ( pick_grid == null )
+       build_pick_grid();
+
+     for ( int k = 0; k < unindexed.length; k++ )
+     {
+       int i = unindexed[k];
+       distance = all_objects[i].distance_to( x, y );
+       if ( distance < min_distance && 
+            all_objects[i].getPickID() != IThreeD_Object.INVALID_PICK_ID )
+       {
+         min_distance = distance;
+         min_index    = i;
+       }     
+     }
+                                          // same distance as distance_to()
+     int i = pick_grid.closest( x, y, pick_radius );
+     if ( i >= 0 )
      {
-       min_distance = distance;
-       min_index    = i;
-     }     
+       distance = Math.abs( pick_x[i] - x ) + Math.abs( pick_y[i] - y );
+       if ( distance < min_distance ||
+            ( distance == min_distance && i < min_index ) )
+       {
+         min_distance = distance;
+         min_index    = i;
+       }
+     }
    }
 
    if ( min_distance < pick_radius )
@@ -544,6 +589,30 @@ public class ThreeD_JPanel extends    CoordJPanel
  }
 
 
+/* --------------------------- build_pick_grid ---------------------------- */
+/*
+ *  Place the objects with finite pick points in a new PickGrid, and list
+ *  the objects that must be checked using distance_to().  A pick point
+ *  of +infinity marks an object that can not be placed in the grid, while 
+ *  NaN marks an object that can not be picked.
+ */
+ private void build_pick_grid()
+ {
+   int n_unindexed = 0;
+   for ( int i = 0; i < pick_x.length; i++ )
+     if ( pick_x[i] == Float.POSITIVE_INFINITY )
+       n_unindexed++;
+
+   unindexed = new int[ n_unindexed ];
+   n_unindexed = 0;
+   for ( int i = 0; i < pick_x.length; i++ )
+     if ( pick_x[i] == Float.POSITIVE_INFINITY )
+       unindexed[ n_unindexed++ ] = i;
+
+   pick_grid = new PickGrid( pick_x, pick_y );
+ }
+
+
 /* ---------------------------- pickedObject ----------------------------- */
 /*
  *  Return a reference to the object that was last picked by a call to
@@ -596,6 +665,42 @@ public class ThreeD_JPanel extends    CoordJPanel
  }
 
 
+/* ------------------------------- project ------------------------------ */
+/**
+ *  Calculate the pixel coordinates and depths of the projections of a 
+ *  list of 3D points, using the current viewing matrix and window 
+ *  transform.  The points are given as packed x,y,z values.  This does
+ *  the 3D projection and the mapping to the window in one pass, without
+ *  creating any objects, so it can be used for a large number of points.
+ *
+ *  @param  xyz    Array with x,y,z values for the points to project.
+ *  @param  count  The number of points to project.
+ *  @param  pix_x  Array that is set to the pixel x values.
+ *  @param  pix_y  Array that is set to the pixel y values.
+ *  @param  depth  Array that is set to the depth values, which increase
+ *                 as the point gets closer to the observer.
+ *
+ *  @return true if the points were projected, false if the scene has not
+ *          been projected yet, so there is no transform to use.
+ */
+ public boolean project( float xyz[], int   count, 
+                         float pix_x[], float pix_y[], float depth[] )
+ {
+   if ( tran3D_used == null || tran2D_used == null )
+   {
+     System.out.println("WARNING: transform null in ThreeD_JPanel.project()");
+     return false;
+   }
+
+   float x_offset = tran2D_used.MapXTo( 0 );
+   float y_offset = tran2D_used.MapYTo( 0 );
+   tran3D_used.project_to( xyz, count, pix_x, pix_y, depth,
+                           tran2D_used.MapXTo( 1 ) - x_offset, x_offset,
+                           tran2D_used.MapYTo( 1 ) - y_offset, y_offset );
+   return true;
+ }
+
+
 /* -------------------------------------------------------------------------
  *
  *  PRIVATE METHODS
@@ -650,6 +755,10 @@ public class ThreeD_JPanel extends    CoordJPanel
    if ( obj_lists.isEmpty() )               // no more objects, so clean up
    {
      index = null;
+     depths = null;
+     pick_x = null;
+     pick_y = null;
+     pick_grid = null;
      all_objects = null;
      data_painted = false;
      return;
@@ -674,10 +783,15 @@ public class ThreeD_JPanel extends    CoordJPanel
      }
    }
 
-   index = new Integer[ all_objects.length ];
+   index  = new int[ all_objects.length ];
+   depths = new float[ all_objects.length ];
 
    for ( int i = 0; i < index.length; i++ )
-     index[i] = new Integer(i);
+     index[i] = i;
+
+   pick_x    = null;                      // no pick points until the new
+   pick_y    = null;                      // objects are projected
+   pick_grid = null;
 
    data_painted = false;
 
@@ -722,11 +836,19 @@ public class ThreeD_JPanel extends    CoordJPanel
                                                   a[3][2] * a[3][2]  );
     float clip_distance = clip_factor * vrp_to_cop_dist;
 
-    CoordTransform local_tran = getLocal_transform();
-    for ( int i = 0; i < all_objects.length; i++ )
-      all_objects[i].Project( tran, local_tran, clip_distance );
+    if ( pick_x == null )
+    {
+      pick_x = new float[ all_objects.length ];
+      pick_y = new float[ all_objects.length ];
+    }
 
-    Arrays.sort( index, new DepthComparator( all_objects ) );
+    CoordTransform local_tran = getLocal_transform();
+    ForkJoinPool.commonPool().invoke( 
+                  new ProjectTask( all_objects, depths, pick_x, pick_y,
+                                   0, all_objects.length - 1,
+                                   tran, local_tran, clip_distance ) );
+    arrayUtil.sortIndex( depths, index );   // draw from back to front
+    pick_grid = null;                       // rebuilt by the next pick
 
     if ( tran instanceof ViewingTran3D )
       tran3D_used = new ViewingTran3D( (ViewingTran3D)tran );
@@ -737,36 +859,78 @@ public class ThreeD_JPanel extends    CoordJPanel
   }
 
 
-/* ------------------------ DepthComparator ---------------------------- */
+/* ----------------------------- ProjectTask ------------------------------ */
 /**
- *  This class is used by the Arrays.sort() method to order the objects
- *  to be drawn based on their depth in the scene.  After sorting, the
- *  objects will be drawn from back to front so that objects in front will
- *  overwrite objects in back.
+ *  Projects the objects first, ..., last and records their depths and
+ *  pick points, splitting the range in half until it is small enough.
+ *  Each object only changes its own projected coordinates, so the objects
+ *  can be projected in parallel.
  */
-private class DepthComparator implements Serializable, 
-                                         Comparator 
+private static class ProjectTask extends RecursiveAction
 {
-  IThreeD_Object list[];
-
-
-  public DepthComparator( IThreeD_Object list[] )
+  private IThreeD_Object list[];
+  private float          depths[];
+  private float          pick_x[];
+  private float          pick_y[];
+  private int            first;
+  private int            last;
+  private Tran3D         tran;
+  private CoordTransform local_tran;
+  private float          clip_distance;
+
+  ProjectTask( IThreeD_Object list[], 
+               float          depths[],
+               float          pick_x[],
+               float          pick_y[],
+               int            first,
+               int            last,
+               Tran3D         tran,
+               CoordTransform local_tran,
+               float          clip_distance )
   {
-    this.list = list;
+    this.list          = list;
+    this.depths        = depths;
+    this.pick_x        = pick_x;
+    this.pick_y        = pick_y;
+    this.first         = first;
+    this.last          = last;
+    this.tran          = tran;
+    this.local_tran    = local_tran;
+    this.clip_distance = clip_distance;
   }
 
-  public int compare( Object o1, Object o2 )
+  protected void compute()
   {
-    int i1 = (Integer)o1;
-    int i2 = (Integer)o2;
-    float d1 = list[ i1 ].depth();
-    float d2 = list[ i2 ].depth();
-    if ( d1 < d2 ) 
-      return -1;
-    else if ( d1 > d2 )
-      return 1;
-    else
-      return 0;
+    if ( last - first + 1 > 2 * MIN_OBJECTS_PER_TASK )
+    {
+      int mid = ( first + last + 1 ) / 2;
+      invokeAll( new ProjectTask( list, depths, pick_x, pick_y, 
+                                  first, mid - 1,
+                                  tran, local_tran, clip_distance ),
+                 new ProjectTask( list, depths, pick_x, pick_y, 
+                                  mid, last,
+                                  tran, local_tran, clip_distance ) );
+      return;
+    }
+
+    float point[] = new float[2];
+    for ( int i = first; i <= last; i++ )
+    {
+      list[i].Project( tran, local_tran, clip_distance );
+      depths[i] = list[i].depth();
+
+      if ( list[i] instanceof ThreeD_Object &&
+           ((ThreeD_Object)list[i]).getPickPoint( point ) )
+      {
+        pick_x[i] = point[0];
+        pick_y[i] = point[1];
+      }
+      else                                   // must use distance_to()
+      {
+        pick_x[i] = Float.POSITIVE_INFINITY;
+        pick_y[i] = Float.POSITIVE_INFINITY;
+      }
+    }
   }
 }
 
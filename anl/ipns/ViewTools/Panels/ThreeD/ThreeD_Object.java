@@ -80,6 +80,8 @@ abstract public class ThreeD_Object implements IThreeD_Object
   protected  int       pick_id    = INVALID_PICK_ID;
   protected  boolean   clipped    = false;
 
+  private    float     z[]        = null;           // projected depths
+
   protected  Tran3D          projection  = null;
   protected  CoordTransform  window_tran = null;
 
@@ -176,27 +178,20 @@ abstract public class ThreeD_Object implements IThreeD_Object
     this.projection  = projection;                    // save the tranforms for
     this.window_tran = window_tran;                   // use by more advnaced
                                                       // draw routines
-    Vector3D point = new Vector3D();
-    float    coords[];
-    float    sum = 0;
-    clipped = false;
+    if ( z == null || z.length != vertices.length )
+      z = new float[ vertices.length ];
+                                                       // project all vertices
+    projection.project_to( vertices, x, y, z );
 
-    for ( int i = 0; i < vertices.length; i++ )        // project each vertex
+    float sum = 0;
+    clipped = false;
+    for ( int i = 0; i < vertices.length; i++ )
     { 
-      projection.apply_to( vertices[i], point );
-
-      point.standardize();
-
-      coords = point.get();
-
-      if ( coords[2] >= front_clip )
+      if ( z[i] >= front_clip )
         clipped = true;
 
-      sum += coords[2];                                // to calculate the
-                                                       // average depth in scene
-      x[i] = coords[0]; 
-      y[i] = coords[1]; 
-    }
+      sum += z[i];                                     // to calculate the
+    }                                                  // average depth in scene
     depth = sum / vertices.length;
 
     CoordBounds bounding_box = new CoordBounds();
@@ -278,6 +273,45 @@ abstract public class ThreeD_Object implements IThreeD_Object
   }
 
 
+  /**
+   *  Get the point in the plane from which distance_to() measures the
+   *  distance to a pixel, that is, the average of the projected vertices.
+   *  This allows a ThreeD_JPanel to place the objects in a PickGrid, so
+   *  that picking does not need to check every object.  A derived class
+   *  that overrides distance_to() with a different measure of distance
+   *  must also override this method to return false.
+   *
+   *  @param   point  Array with at least two entries, in which the x and y
+   *                  coordinates of the point are returned.  If the object
+   *                  is not pickable, or is clipped, both are set to NaN.
+   *
+   *  @return  true if distance_to( pix_x, pix_y ) is the distance
+   *           |point[0]-pix_x| + |point[1]-pix_y|, or if the point is
+   *           NaN and distance_to() returns Float.MAX_VALUE.
+   */
+  public boolean getPickPoint( float point[] )
+  {
+    if ( clipped || (pick_id <= INVALID_PICK_ID ) || x == null )
+    {
+      point[0] = Float.NaN;
+      point[1] = Float.NaN;
+      return true;
+    }
+
+    float sum_x = 0;
+    float sum_y = 0;
+    for ( int i = 0; i < x.length; i++ )
+    {
+      sum_x += x[i];
+      sum_y += y[i];
+    }
+
+    point[0] = sum_x/x.length;
+    point[1] = sum_y/y.length;
+    return true;
+  }
+
+
   /**
    *  Set ID to be returned if this object is picked.  The ID is set to  
    *  INVALID_PICK_ID by default, which indicates that the object is not 